@@ -2,11 +2,20 @@ package com.michallves.ships;
 
 import com.hypixel.hytale.server.core.plugin.JavaPlugin;
 import com.hypixel.hytale.server.core.plugin.JavaPluginInit;
+import com.michallves.ships.commands.ShipsCommand;
 import com.michallves.ships.events.HelmEventHandler;
 import com.michallves.ships.piloting.PilotManager;
 import com.michallves.ships.ship.ShipManager;
+import com.michallves.ships.ship.systems.ShipAssemblySystem;
+import com.michallves.ships.ship.systems.ShipBlockBreakSystem;
+import com.michallves.ships.ship.systems.ShipBlueprintSystem;
+import com.michallves.ships.ship.systems.ShipBlockPlaceSystem;
+import com.michallves.ships.ship.systems.ShipCompactionSystem;
+import com.michallves.ships.ship.systems.ShipHelmIndexSystem;
 import com.michallves.ships.ship.systems.ShipPilotingSystem;
 import com.michallves.ships.ship.systems.ShipPlayerCollisionSystem;
+import com.michallves.ships.ship.systems.ShipRestoreSystem;
+import com.michallves.ships.ship.systems.ShipTransitionSystem;
 import com.michallves.ships.utils.ShipLogger;
 
 public class Ships extends JavaPlugin {
@@ -19,6 +28,14 @@ public class Ships extends JavaPlugin {
     private HelmEventHandler helmEventHandler;
     private ShipPilotingSystem shipPilotingSystem;
     private ShipPlayerCollisionSystem shipPlayerCollisionSystem;
+    private ShipAssemblySystem shipAssemblySystem;
+    private ShipBlockBreakSystem shipBlockBreakSystem;
+    private ShipBlockPlaceSystem shipBlockPlaceSystem;
+    private ShipCompactionSystem shipCompactionSystem;
+    private ShipRestoreSystem shipRestoreSystem;
+    private ShipBlueprintSystem shipBlueprintSystem;
+    private ShipHelmIndexSystem shipHelmIndexSystem;
+    private ShipTransitionSystem shipTransitionSystem;
 
     public Ships(JavaPluginInit init) {
         super(init);
@@ -32,15 +49,48 @@ public class Ships extends JavaPlugin {
         try {
             pilotManager = new PilotManager();
             shipManager = new ShipManager();
+            shipManager.setRecordingDirectory(getDataDirectory().resolve("recordings"));
+            shipManager.setBlueprintDirectory(getDataDirectory().resolve("blueprints"));
+            shipManager.setRegistryFile(getDataDirectory().resolve("ships.bin"));
+            shipManager.loadRegistry();
 
             shipPilotingSystem = new ShipPilotingSystem(pilotManager, shipManager);
             getEntityStoreRegistry().registerSystem(shipPilotingSystem);
             ShipLogger.success("[SHIPS] ShipPilotingSystem registrado.");
 
+            shipTransitionSystem = new ShipTransitionSystem(shipManager);
+            getEntityStoreRegistry().registerSystem(shipTransitionSystem);
+            ShipLogger.success("[SHIPS] ShipTransitionSystem registrado.");
+
             shipPlayerCollisionSystem = new ShipPlayerCollisionSystem(shipManager);
             getEntityStoreRegistry().registerSystem(shipPlayerCollisionSystem);
             ShipLogger.success("[SHIPS] ShipPlayerCollisionSystem registrado.");
 
+            shipAssemblySystem = new ShipAssemblySystem(shipManager);
+            getEntityStoreRegistry().registerSystem(shipAssemblySystem);
+            shipBlockBreakSystem = new ShipBlockBreakSystem(shipManager);
+            getEntityStoreRegistry().registerSystem(shipBlockBreakSystem);
+            shipBlockPlaceSystem = new ShipBlockPlaceSystem(shipManager);
+            getEntityStoreRegistry().registerSystem(shipBlockPlaceSystem);
+            ShipLogger.success("[SHIPS] Sistemas de montagem assincrona registrados.");
+
+            shipCompactionSystem = new ShipCompactionSystem(shipManager);
+            getEntityStoreRegistry().registerSystem(shipCompactionSystem);
+            ShipLogger.success("[SHIPS] ShipCompactionSystem registrado.");
+
+            shipRestoreSystem = new ShipRestoreSystem(shipManager);
+            getEntityStoreRegistry().registerSystem(shipRestoreSystem);
+            ShipLogger.success("[SHIPS] ShipRestoreSystem registrado.");
+
+            shipBlueprintSystem = new ShipBlueprintSystem(shipManager);
+            getEntityStoreRegistry().registerSystem(shipBlueprintSystem);
+            getCommandRegistry().registerCommand(new ShipsCommand(shipManager));
+            ShipLogger.success("[SHIPS] Blueprints registrados (/ships export|import).");
+
+            shipHelmIndexSystem = new ShipHelmIndexSystem(shipManager);
+            getEntityStoreRegistry().registerSystem(shipHelmIndexSystem);
+            ShipLogger.success("[SHIPS] ShipHelmIndexSystem registrado.");
+
             helmEventHandler = HelmEventHandler.getInstance(this, pilotManager, shipManager);
             helmEventHandler.registerHelmListener();
 
@@ -65,6 +115,13 @@ public class Ships extends JavaPlugin {
             t.printStackTrace();
         }
 
+        try {
+            if (shipManager != null) shipManager.saveRegistry();
+        } catch (Throwable t) {
+            ShipLogger.error("[SHIPS] Erro ao salvar registro de navios: " + t.getMessage());
+            t.printStackTrace();
+        }
+
         try {
             if (pilotManager != null) pilotManager.clear();
             if (shipManager != null) shipManager.clear();
@@ -75,6 +132,14 @@ public class Ships extends JavaPlugin {
 
         shipPilotingSystem = null;
         shipPlayerCollisionSystem = null;
+        shipAssemblySystem = null;
+        shipBlockBreakSystem = null;
+        shipBlockPlaceSystem = null;
+        shipCompactionSystem = null;
+        shipRestoreSystem = null;
+        shipBlueprintSystem = null;
+        shipHelmIndexSystem = null;
+        shipTransitionSystem = null;
         pilotManager = null;
         shipManager = null;
 
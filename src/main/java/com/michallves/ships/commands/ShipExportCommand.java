@@ -0,0 +1,66 @@
+package com.michallves.ships.commands;
+
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.math.vector.Vector3d;
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
+import com.hypixel.hytale.server.core.command.system.basecommands.AbstractPlayerCommand;
+import com.hypixel.hytale.server.core.modules.entity.component.TransformComponent;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.michallves.ships.ship.ShipController;
+import com.michallves.ships.ship.ShipManager;
+
+/**
+ * /ships export &lt;nome&gt;: grava o navio do helm mais próximo do jogador como blueprint.
+ */
+public final class ShipExportCommand extends AbstractPlayerCommand {
+
+    // distância máxima do jogador até o helm
+    private static final double HELM_RADIUS = 8.0;
+
+    private final ShipManager shipManager;
+    private final RequiredArg<String> nameArg;
+
+    public ShipExportCommand(ShipManager shipManager) {
+        super("export", "Exporta o navio do helm mais proximo como blueprint");
+        this.shipManager = shipManager;
+        this.nameArg = withRequiredArg("nome", "Nome do blueprint", ArgTypes.STRING);
+    }
+
+    @Override
+    protected void execute(CommandContext context, Store<EntityStore> store, Ref<EntityStore> ref,
+                           PlayerRef playerRef, World world) {
+        String name = nameArg.get(context);
+        if (shipManager.resolveBlueprint(name) == null) {
+            context.sendMessage(Message.translation("server.ships.blueprint.invalidName"));
+            return;
+        }
+
+        TransformComponent transform = store.getComponent(ref, TransformComponent.getComponentType());
+        if (transform == null) return;
+        Vector3d pos = transform.getPosition();
+
+        ShipController ship = shipManager.findNearestShip(world.getName(), pos, HELM_RADIUS);
+        if (ship == null) {
+            context.sendMessage(Message.translation("server.ships.blueprint.noShip"));
+            return;
+        }
+
+        int blocks = ship.getHeader().getBlockCount();
+        shipManager.exportBlueprint(world, ship, name).whenComplete((bytes, error) -> world.execute(() -> {
+            if (error != null) {
+                playerRef.sendMessage(Message.translation("server.ships.blueprint.exportFailed").param("name", name));
+            } else {
+                playerRef.sendMessage(Message.translation("server.ships.blueprint.exported")
+                        .param("name", name)
+                        .param("blocks", blocks)
+                        .param("kb", (int) (bytes / 1024)));
+            }
+        }));
+    }
+}
@@ -0,0 +1,88 @@
+package com.michallves.ships.commands;
+
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.math.vector.Vector3d;
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.command.system.CommandContext;
+import com.hypixel.hytale.server.core.command.system.arguments.system.RequiredArg;
+import com.hypixel.hytale.server.core.command.system.arguments.types.ArgTypes;
+import com.hypixel.hytale.server.core.command.system.basecommands.AbstractPlayerCommand;
+import com.hypixel.hytale.server.core.modules.entity.component.HeadRotation;
+import com.hypixel.hytale.server.core.modules.entity.component.TransformComponent;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.michallves.ships.ship.ShipManager;
+import com.michallves.ships.ship.assembly.ShipBlueprintPlacement;
+import com.michallves.ships.ship.assembly.ShipStructure;
+import com.michallves.ships.utils.ShipLogger;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * /ships import &lt;nome&gt;: coloca o blueprint com o helm nos pés do jogador, virado para
+ * onde ele olha. O navio passa a existir no primeiro uso do helm.
+ */
+public final class ShipImportCommand extends AbstractPlayerCommand {
+
+    private final ShipManager shipManager;
+    private final RequiredArg<String> nameArg;
+
+    public ShipImportCommand(ShipManager shipManager) {
+        super("import", "Coloca um blueprint de navio na posicao do jogador");
+        this.shipManager = shipManager;
+        this.nameArg = withRequiredArg("nome", "Nome do blueprint", ArgTypes.STRING);
+    }
+
+    @Override
+    protected void execute(CommandContext context, Store<EntityStore> store, Ref<EntityStore> ref,
+                           PlayerRef playerRef, World world) {
+        String name = nameArg.get(context);
+        Path file = shipManager.resolveBlueprint(name);
+        if (file == null) {
+            context.sendMessage(Message.translation("server.ships.blueprint.invalidName"));
+            return;
+        }
+        if (!Files.exists(file)) {
+            context.sendMessage(Message.translation("server.ships.blueprint.notFound").param("name", name));
+            return;
+        }
+
+        TransformComponent transform = store.getComponent(ref, TransformComponent.getComponentType());
+        HeadRotation head = store.getComponent(ref, HeadRotation.getComponentType());
+        if (transform == null || head == null) return;
+
+        Vector3d pos = transform.getPosition();
+        Vector3i origin = new Vector3i(
+                (int) Math.floor(pos.getX()),
+                (int) Math.floor(pos.getY()),
+                (int) Math.floor(pos.getZ())
+        );
+        int orientation = ShipStructure.nearestOrientationFromYaw(head.getRotation().getYaw());
+
+        try {
+            ShipBlueprintPlacement placement = shipManager.importBlueprint(world, name, origin, orientation, done -> {
+                if (done.getPhase() == ShipBlueprintPlacement.Phase.DONE) {
+                    playerRef.sendMessage(Message.translation("server.ships.blueprint.imported")
+                            .param("name", name)
+                            .param("blocks", done.getPlaced()));
+                } else {
+                    playerRef.sendMessage(Message.translation("server.ships.blueprint.importFailed")
+                            .param("name", name)
+                            .param("reason", String.valueOf(done.getFailure())));
+                }
+            });
+            context.sendMessage(Message.translation("server.ships.blueprint.importStarted")
+                    .param("name", name)
+                    .param("blocks", placement.size()));
+        } catch (Exception e) {
+            ShipLogger.error("[SHIPS] Falha ao abrir blueprint " + file + ": " + e.getMessage());
+            context.sendMessage(Message.translation("server.ships.blueprint.importFailed")
+                    .param("name", name)
+                    .param("reason", String.valueOf(e.getMessage())));
+        }
+    }
+}
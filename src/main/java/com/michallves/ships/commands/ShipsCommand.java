@@ -0,0 +1,16 @@
+package com.michallves.ships.commands;
+
+import com.hypixel.hytale.server.core.command.system.basecommands.AbstractCommandCollection;
+import com.michallves.ships.ship.ShipManager;
+
+/**
+ * /ships: comandos do plugin (blueprints por enquanto).
+ */
+public final class ShipsCommand extends AbstractCommandCollection {
+
+    public ShipsCommand(ShipManager shipManager) {
+        super("ships", "Comandos de navios");
+        addSubCommand(new ShipExportCommand(shipManager));
+        addSubCommand(new ShipImportCommand(shipManager));
+    }
+}
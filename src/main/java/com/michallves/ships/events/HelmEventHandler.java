@@ -8,23 +8,26 @@ import com.hypixel.hytale.math.util.ChunkUtil;
 import com.hypixel.hytale.math.vector.Vector3d;
 import com.hypixel.hytale.math.vector.Vector3f;
 import com.hypixel.hytale.math.vector.Vector3i;
-import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
+import com.hypixel.hytale.server.core.Message;
 import com.hypixel.hytale.server.core.entity.UUIDComponent;
 import com.hypixel.hytale.server.core.event.events.entity.LivingEntityUseBlockEvent;
 import com.hypixel.hytale.server.core.event.events.player.PlayerDisconnectEvent;
 import com.hypixel.hytale.server.core.modules.entity.component.HeadRotation;
 import com.hypixel.hytale.server.core.modules.entity.component.TransformComponent;
 import com.hypixel.hytale.server.core.plugin.JavaPlugin;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
 import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
+import com.hypixel.hytale.server.core.universe.world.events.RemoveWorldEvent;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 
 import com.michallves.ships.piloting.PilotManager;
 import com.michallves.ships.piloting.PilotSession;
 import com.michallves.ships.ship.ShipController;
 import com.michallves.ships.ship.ShipManager;
-import com.michallves.ships.ship.assembly.ShipAssembler;
 import com.michallves.ships.ship.assembly.ShipStructure;
+import com.michallves.ships.ship.collision.ShipBlockIdTable;
+import com.michallves.ships.ship.collision.ShipVoxelRaycast;
 import com.michallves.ships.utils.ShipLogger;
 
 import java.util.ArrayList;
@@ -45,7 +48,10 @@ public final class HelmEventHandler {
     private static final Logger LOGGER = Logger.getLogger("ShipsMod");
 
     private static final String HELM_ASSET_ID = "Helm";
-    private static final int MAX_SHIP_BLOCKS = 6000;
+    private static final ShipBlockIdTable HELM_IDS = ShipBlockIdTable.byAssetId(HELM_ASSET_ID);
+
+    // um raycast por thread de mundo (eventos de mundos diferentes correm em paralelo)
+    private static final ThreadLocal<ShipVoxelRaycast> RAYCAST = ThreadLocal.withInitial(ShipVoxelRaycast::new);
 
     // anti-spam
     private static final long USE_COOLDOWN_MS = 250;
@@ -53,9 +59,10 @@ public final class HelmEventHandler {
 
     // raycast
     private static final double MAX_USE_DISTANCE = 6.0;
-    private static final double RAY_STEP = 0.25;
     private static final double EYE_HEIGHT = 1.62;
     private static final double HELM_NEAR_DISTANCE = 6.0;
+    private static final int HELM_SEARCH_RADIUS = 6;
+    private static final int HELM_SEARCH_HEIGHT = 2;
 
     private final List<EventRegistration<?, ?>> registrations = new ArrayList<>();
 
@@ -85,6 +92,12 @@ public final class HelmEventHandler {
                 this::onPlayerDisconnect
         ));
 
+        registrations.add(plugin.getEventRegistry().registerGlobal(
+                EventPriority.FIRST,
+                RemoveWorldEvent.class,
+                this::onWorldRemoved
+        ));
+
         ShipLogger.success("[SHIPS] HelmEventHandler listeners registrados (LivingEntityUseBlockEvent)!");
     }
 
@@ -106,6 +119,11 @@ public final class HelmEventHandler {
         }
     }
 
+    private void onWorldRemoved(RemoveWorldEvent event) {
+        World world = event.getWorld();
+        if (world != null) shipManager.worldRemoved(world);
+    }
+
     private void onLivingUseBlock(LivingEntityUseBlockEvent event) {
         String blockType = event.getBlockType();
         if (!HELM_ASSET_ID.equals(blockType)) {
@@ -160,7 +178,7 @@ public final class HelmEventHandler {
         Vector3i helmPos = findHelmByRaycast(world, pos, rot.getYaw(), rot.getPitch());
         if (helmPos == null) {
             // fallback: busca perto do player
-            helmPos = findNearestHelmAround(world, pos, 6);
+            helmPos = shipManager.findNearestHelm(world, pos, HELM_SEARCH_RADIUS, HELM_SEARCH_HEIGHT);
         }
 
         String worldName = world.getName();
@@ -173,15 +191,13 @@ public final class HelmEventHandler {
 
         if (helmPos != null) {
             // Confirma de novo que o bloco é helm
-            int blockId = getBlockIfLoaded(world, helmPos.x, helmPos.y, helmPos.z);
-            BlockType type = BlockType.getAssetMap().getAsset(blockId);
-            if (type != null && HELM_ASSET_ID.equals(type.getId())) {
+            if (HELM_IDS.test(getBlockIfLoaded(world, helmPos.x, helmPos.y, helmPos.z))) {
                 ship = shipManager.getByHelm(worldName, helmPos);
             }
         }
 
         if (ship == null) {
-            ShipController nearby = findNearestShipByHelm(worldName, searchPos, HELM_NEAR_DISTANCE);
+            ShipController nearby = shipManager.findNearestShip(worldName, searchPos, HELM_NEAR_DISTANCE);
             if (nearby != null) {
                 ship = nearby;
                 Vector3d helmWorld = ship.getHelmWorldPosition();
@@ -200,9 +216,7 @@ public final class HelmEventHandler {
         }
 
         if (ship == null) {
-            int blockId = getBlockIfLoaded(world, helmPos.x, helmPos.y, helmPos.z);
-            BlockType type = BlockType.getAssetMap().getAsset(blockId);
-            if (type == null || !HELM_ASSET_ID.equals(type.getId())) {
+            if (!HELM_IDS.test(getBlockIfLoaded(world, helmPos.x, helmPos.y, helmPos.z))) {
                 ShipLogger.error("[SHIPS] Evento disse Helm, mas o bloco no mundo não é Helm em " + helmPos + ". UUID=" + uuid);
                 return;
             }
@@ -213,30 +227,66 @@ public final class HelmEventHandler {
         }
         if (ship == null) {
             int helmOri = getRotationIndex(world, helmPos);
+            Vector3i assemblyHelm = helmPos;
+            float headYaw = rot.getYaw();
+
+            // flood fill sai da thread do mundo; o piloto assume quando a estrutura ficar pronta
+            boolean queued = shipManager.getAssemblyService().request(world, assemblyHelm, helmOri,
+                    structure -> onShipAssembled(world, ref, uuid, assemblyHelm, helmOri, headYaw, structure),
+                    () -> sendMessage(ref, "server.ships.assembly.failed"));
+            if (!queued) {
+                ShipLogger.info("[SHIPS] Montagem ja em andamento para o Helm em " + helmPos + ". UUID=" + uuid);
+                return;
+            }
 
-            ShipLogger.info("[SHIPS] Criando navio novo a partir do Helm em " + helmPos + " ...");
+            ShipLogger.info("[SHIPS] Criando navio novo a partir do Helm em " + helmPos + " (montagem assincrona)...");
 
-            ShipStructure structure = ShipAssembler.assembleConnected(
-                    world,
-                    helmPos,
-                    helmOri,
-                    MAX_SHIP_BLOCKS
-            );
+            PlayerRef playerRef = store.getComponent(ref, PlayerRef.getComponentType());
+            if (playerRef != null) {
+                playerRef.sendMessage(Message.translation("server.ships.assembly.started"));
+            }
+            return;
+        }
 
-            ship = shipManager.createShip(worldName, helmPos, helmOri, structure);
+        beginPiloting(world, ship, ref, uuid, worldName, helmPos, rot.getYaw());
+    }
 
+    private void onShipAssembled(World world, Ref<EntityStore> ref, UUID uuid,
+                                 Vector3i helmPos, int helmOri, float headYaw, ShipStructure structure) {
+        String worldName = world.getName();
+
+        // outro jogador pode ter criado o navio desse helm enquanto montava
+        ShipController ship = shipManager.getByHelm(worldName, helmPos);
+        if (ship == null) {
+            ship = shipManager.createShip(worldName, helmPos, helmOri, structure);
             ShipLogger.success("[SHIPS] Navio criado: shipId=" + ship.getShipId()
                     + " blocos=" + structure.size());
         }
 
+        if (ref == null || !ref.isValid() || pilotManager.get(uuid) != null) return;
+
+        beginPiloting(world, ship, ref, uuid, worldName, helmPos, headYaw);
+    }
+
+    private void beginPiloting(World world, ShipController ship, Ref<EntityStore> ref, UUID uuid,
+                               String worldName, Vector3i helmPos, float headYaw) {
         if (!shipManager.tryAssignPilot(ship.getShipId(), uuid)) {
             ShipLogger.warn("[SHIPS] Helm em uso: já existe piloto. shipId=" + ship.getShipId());
             return;
         }
 
-        float headYaw = rot.getYaw();
-
-        ship.requestActivation();
+        // navio frio: o corpo volta do registro agora; sem estrutura salva, remonta em background
+        if (!ship.requestActivation(world)) {
+            shipManager.releasePilot(ship.getShipId(), uuid);
+            if (ship.isRebuildingBody()) {
+                ShipLogger.info("[SHIPS] Navio sendo remontado a partir do helm, use o helm de novo. shipId=" + ship.getShipId());
+                sendMessage(ref, "server.ships.assembly.rebuilding");
+            } else {
+                ShipLogger.warn("[SHIPS] Navio sem corpo carregavel, pilotagem cancelada. shipId=" + ship.getShipId());
+                sendMessage(ref, "server.ships.assembly.unavailable");
+            }
+            return;
+        }
 
         Vector3d anchor = ship.computePilotAnchorPosition();
 
@@ -252,78 +302,25 @@ public final class HelmEventHandler {
 
         pilotManager.start(session);
 
-        Vector3i finalHelmPos = helmPos;
         LOGGER.info(() -> "[Ships] Player pegou o HELM (LivingEntityUseBlockEvent) -> UUID=" + uuid
-                + " helm=" + finalHelmPos + " anchor=" + anchor + " world=" + worldName);
+                + " helm=" + helmPos + " anchor=" + anchor + " world=" + worldName);
     }
 
-    private static Vector3i findHelmByRaycast(World world, Vector3d feetPos, float yawDeg, float pitchDeg) {
-        double yaw = Math.toRadians(yawDeg);
-        double pitch = Math.toRadians(pitchDeg);
-
-        double cosPitch = Math.cos(pitch);
-
-        double dx = -Math.sin(yaw) * cosPitch;
-        double dy = -Math.sin(pitch);
-        double dz =  Math.cos(yaw) * cosPitch;
-
-        Vector3d start = new Vector3d(feetPos.getX(), feetPos.getY() + EYE_HEIGHT, feetPos.getZ());
-
-        int lastBx = Integer.MIN_VALUE, lastBy = Integer.MIN_VALUE, lastBz = Integer.MIN_VALUE;
-
-        for (double t = 0.5; t <= MAX_USE_DISTANCE; t += RAY_STEP) {
-            double px = start.getX() + dx * t;
-            double py = start.getY() + dy * t;
-            double pz = start.getZ() + dz * t;
-
-            int bx = (int) Math.floor(px);
-            int by = (int) Math.floor(py);
-            int bz = (int) Math.floor(pz);
-
-            if (bx == lastBx && by == lastBy && bz == lastBz) continue;
-            lastBx = bx; lastBy = by; lastBz = bz;
-
-            int id = getBlockIfLoaded(world, bx, by, bz);
-            if (id == BlockType.EMPTY_ID) continue;
-
-            BlockType bt = BlockType.getAssetMap().getAsset(id);
-            if (bt != null && HELM_ASSET_ID.equals(bt.getId())) {
-                return new Vector3i(bx, by, bz);
-            }
-        }
-
-        return null;
+    // aviso ao jogador (callbacks posteriores: o jogador pode ter saído)
+    private static void sendMessage(Ref<EntityStore> ref, String key) {
+        if (ref == null || !ref.isValid()) return;
+        PlayerRef playerRef = ref.getStore().getComponent(ref, PlayerRef.getComponentType());
+        if (playerRef != null) playerRef.sendMessage(Message.translation(key));
     }
 
-    private static Vector3i findNearestHelmAround(World world, Vector3d pos, int radius) {
-        int cx = (int) Math.floor(pos.getX());
-        int cy = (int) Math.floor(pos.getY());
-        int cz = (int) Math.floor(pos.getZ());
-
-        Vector3i best = null;
-        int bestD2 = Integer.MAX_VALUE;
-
-        for (int x = cx - radius; x <= cx + radius; x++) {
-            for (int y = cy - 2; y <= cy + 2; y++) {
-                for (int z = cz - radius; z <= cz + radius; z++) {
-                    int id = getBlockIfLoaded(world, x, y, z);
-                    if (id == BlockType.EMPTY_ID) continue;
-
-                    BlockType bt = BlockType.getAssetMap().getAsset(id);
-                    if (bt == null || !HELM_ASSET_ID.equals(bt.getId())) continue;
-
-                    int dx = x - cx, dy = y - cy, dz = z - cz;
-                    int d2 = dx*dx + dy*dy + dz*dz;
-
-                    if (d2 < bestD2) {
-                        bestD2 = d2;
-                        best = new Vector3i(x, y, z);
-                    }
-                }
-            }
+    private static Vector3i findHelmByRaycast(World world, Vector3d feetPos, float yawDeg, float pitchDeg) {
+        double[] dir = ShipVoxelRaycast.lookDirection(yawDeg, pitchDeg, new double[3]);
+        ShipVoxelRaycast ray = RAYCAST.get();
+        if (!ray.cast(world, feetPos.getX(), feetPos.getY() + EYE_HEIGHT, feetPos.getZ(),
+                dir[0], dir[1], dir[2], MAX_USE_DISTANCE, HELM_IDS)) {
+            return null;
         }
-
-        return best;
+        return ray.getHitPosition();
     }
 
     private static int getRotationIndex(World world, Vector3i pos) {
@@ -346,26 +343,4 @@ public final class HelmEventHandler {
         // fallback: para o evento de interação, o chunk deve estar carregado mesmo assim
         return world.getBlock(x, y, z);
     }
-
-    private ShipController findNearestShipByHelm(String worldName, Vector3d pos, double radius) {
-        double bestDistSq = radius * radius;
-        ShipController best = null;
-
-        for (ShipController ship : shipManager.getAllShips()) {
-            if (!worldName.equals(ship.getWorldName())) continue;
-
-            Vector3d helmWorld = ship.getHelmWorldPosition();
-            double dx = helmWorld.getX() - pos.getX();
-            double dy = helmWorld.getY() - pos.getY();
-            double dz = helmWorld.getZ() - pos.getZ();
-            double distSq = dx * dx + dy * dy + dz * dz;
-
-            if (distSq < bestDistSq) {
-                bestDistSq = distSq;
-                best = ship;
-            }
-        }
-
-        return best;
-    }
 }
@@ -33,6 +33,9 @@ public final class PilotSession {
     // Solicitações
     private boolean dockingRequested;
 
+    // Último degrau de progresso de ativação/docking avisado ao piloto (-1 = nenhum)
+    private int lastTransitionStep = -1;
+
     public PilotSession(
             UUID playerUuid,
             Ref<EntityStore> playerRef,
@@ -146,4 +149,12 @@ public final class PilotSession {
     public void clearDockingRequest() {
         this.dockingRequested = false;
     }
+
+    public int getLastTransitionStep() {
+        return lastTransitionStep;
+    }
+
+    public void setLastTransitionStep(int lastTransitionStep) {
+        this.lastTransitionStep = lastTransitionStep;
+    }
 }
@@ -0,0 +1,58 @@
+package com.michallves.ships.ship;
+
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.michallves.ships.ship.assembly.ShipBounds;
+import com.michallves.ships.ship.assembly.ShipStructure;
+import com.michallves.ships.ship.collision.ShipCollision;
+import com.michallves.ships.ship.core.ShipGeometry;
+import com.michallves.ships.ship.core.ShipState;
+import com.michallves.ships.ship.replay.ShipInputRecorder;
+import com.michallves.ships.ship.runtime.ShipEntityLifecycle;
+import com.michallves.ships.ship.simulation.ShipPhysics;
+
+/**
+ * Parte pesada de um navio: a estrutura e tudo que sai dela (geometria, índice de colisão,
+ * física, partes em modo entidade, gravação de entradas). Só existe enquanto o navio foi
+ * usado recentemente; docado e frio, o ShipManager solta o corpo e fica só o ShipHeader.
+ */
+final class ShipBody {
+
+    final ShipStructure structure;
+    final ShipState state;
+    final ShipGeometry geometry;
+    final ShipCollision collision;
+    final ShipPhysics physics;
+    final ShipEntityLifecycle lifecycle;
+    final ShipInputRecorder recorder = new ShipInputRecorder();
+
+    int tickCounter = 0;
+
+    // bounds != null: geometria/colisão saem dos limites, sem ler os blocos
+    ShipBody(ShipStructure structure, Vector3i helmBlock, int helmOri, ShipBounds bounds) {
+        float yawDeg = (helmOri & 3) * 90.0f;
+        this.structure = structure;
+        this.state = new ShipState(yawDeg);
+        if (bounds != null) {
+            this.geometry = new ShipGeometry(structure, state, helmBlock, yawDeg, bounds);
+            this.collision = new ShipCollision(structure, geometry.getCenterOffset(), bounds);
+        } else {
+            this.geometry = new ShipGeometry(structure, state, helmBlock, yawDeg);
+            this.collision = new ShipCollision(structure, geometry.getCenterOffset());
+        }
+        this.physics = new ShipPhysics(state);
+        this.lifecycle = new ShipEntityLifecycle(structure);
+    }
+
+    /**
+     * Põe o corpo parado na pose docada (helm em dockedHelm com a orientação dada).
+     */
+    void dockAt(Vector3i dockedHelm, int dockedOri) {
+        float yawDeg = (dockedOri & 3) * 90.0f;
+        geometry.updateOriginFromHelm(dockedHelm, yawDeg);
+        physics.resetForDocking(yawDeg);
+    }
+
+    long estimateHeapBytes() {
+        return structure.estimateHeapBytes() + geometry.estimateHeapBytes() + collision.estimateHeapBytes();
+    }
+}
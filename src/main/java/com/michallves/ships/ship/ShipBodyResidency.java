@@ -0,0 +1,160 @@
+package com.michallves.ships.ship;
+
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.michallves.ships.ship.assembly.ShipAssemblyService;
+import com.michallves.ships.ship.assembly.ShipStructure;
+import com.michallves.ships.utils.ShipLogger;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Corpo sob demanda de um navio: carrega do registro ou remonta pelo helm docado, solta o
+ * corpo frio e compacta o ocioso. Um por ShipController; só a thread do mundo mexe.
+ */
+final class ShipBodyResidency {
+
+    private final ShipController ship;
+    private ShipAssemblyService assemblyService;
+
+    // último uso (helm, edição, tick ativo); base da compactação e do LRU
+    private volatile long lastActivityMillis = System.currentTimeMillis();
+
+    // heap do corpo na última varredura (lido pelas varreduras dos outros mundos)
+    private volatile long cachedHeapBytes = 0L;
+
+    ShipBodyResidency(ShipController ship) {
+        this.ship = ship;
+    }
+
+    void setAssemblyService(ShipAssemblyService assemblyService) {
+        this.assemblyService = assemblyService;
+    }
+
+    void touch() {
+        lastActivityMillis = System.currentTimeMillis();
+    }
+
+    long lastActivityMillis() {
+        return lastActivityMillis;
+    }
+
+    /**
+     * Corpo em memória a partir do registro (sem ler o mundo). Sem corpo salvo, agenda a
+     * remontagem no ShipAssemblyService e devolve false; o corpo aparece num tick seguinte.
+     */
+    boolean ensure(World world) {
+        if (ship.body() != null) return true;
+
+        ShipHeader header = ship.getHeader();
+        ByteBuffer saved = header.getPersistedBody();
+        if (saved == null) {
+            // pendente nunca solta o corpo: os blocos não estão no mundo para remontar
+            if (world != null && !ship.isPendingPlacement()) requestRebuild(world);
+            return false;
+        }
+
+        long start = System.nanoTime();
+        ShipStructure structure = ShipStructure.fromPackedBody(header.getBlockCount(), header.getBounds(), saved);
+        ship.attachBody(new ShipBody(structure, header.getHelmBlock(), header.getHelmOrientation(), header.getBounds()));
+        touch();
+
+        ShipLogger.debug("[SHIPS] Corpo carregado (registro): shipId=" + ship.getShipId()
+                + " blocos=" + header.getBlockCount() + " em " + ((System.nanoTime() - start) / 1000L) + "us");
+        return true;
+    }
+
+    boolean isRebuilding() {
+        return ship.body() == null && assemblyService != null
+                && assemblyService.isAssembling(ship.getWorldName(), ship.getHeader().getDockedHelm());
+    }
+
+    // uma remontagem por helm; o callback roda na thread do mundo
+    private void requestRebuild(World world) {
+        if (assemblyService == null) return;
+        ShipHeader header = ship.getHeader();
+        Vector3i helm = header.getDockedHelm();
+        int ori = header.getDockedOrientation();
+        assemblyService.request(world, helm, ori, structure -> {
+            // soltou do registro, docou em outro lugar ou já carregou enquanto montava
+            if (ship.body() != null || !ship.isRegistered() || !helm.equals(header.getDockedHelm())) return;
+            if (structure.size() == 0) {
+                ShipLogger.warn("[SHIPS] Navio sem blocos no helm docado, corpo nao carregado: shipId=" + ship.getShipId()
+                        + " helm=" + helm);
+                return;
+            }
+            header.structureChanged(structure.bounds(), structure.size());
+            ship.structureRebuilt(structure);
+            ship.attachBody(new ShipBody(structure, header.getHelmBlock(), header.getHelmOrientation(), null));
+            touch();
+
+            ShipLogger.debug("[SHIPS] Corpo carregado (remontado): shipId=" + ship.getShipId() + " blocos=" + structure.size());
+        });
+    }
+
+    /**
+     * Docado, sem pedido pendente e sem uso há idleMillis: solta o corpo e fica só o header.
+     *
+     * @return heap estimado liberado, ou -1 se não soltou
+     */
+    long evict(long nowMillis, long idleMillis) {
+        ShipBody b = ship.body();
+        if (b == null || !b.lifecycle.isDocked()) return -1L;
+        if (ship.hasPendingRequest() || ship.isPendingPlacement()) return -1L;
+        if (nowMillis - lastActivityMillis < idleMillis) return -1L;
+
+        long bytes = b.estimateHeapBytes();
+        ship.releaseBody();
+
+        ShipHeader header = ship.getHeader();
+        ShipLogger.debug("[SHIPS] Corpo solto: shipId=" + ship.getShipId() + " blocos=" + header.getBlockCount()
+                + " heap=" + (bytes / 1024) + "KB" + (header.getPersistedBody() != null ? "" : " (recarga remonta)"));
+        return bytes;
+    }
+
+    /**
+     * Docado e sem uso há idleMillis: compacta a estrutura e solta offsets e índice de colisão
+     * (inflam de novo sob demanda).
+     *
+     * @return bytes economizados, ou -1 se não compactou
+     */
+    long compactIfIdle(long nowMillis, long idleMillis) {
+        ShipBody b = ship.body();
+        if (b == null || !b.lifecycle.isDocked() || ship.hasPendingRequest()) return -1L;
+        if (nowMillis - lastActivityMillis < idleMillis) return -1L;
+        if (b.structure.isCompacted()) return -1L;
+
+        long before = heapBytes();
+        b.structure.compact();
+        b.geometry.releaseLocalOffsets();
+        b.collision.releaseIndex();
+        long after = heapBytes();
+
+        ShipLogger.info("[SHIPS] Navio ocioso compactado: shipId=" + ship.getShipId() + " blocos=" + b.structure.size()
+                + " paleta=" + b.structure.getPaletteSize() + " bits/bloco=" + b.structure.getPackedBitsPerBlock()
+                + " heap=" + (before / 1024) + "KB -> " + (after / 1024) + "KB"
+                + " (economia " + ((before - after) / 1024) + "KB)");
+        return before - after;
+    }
+
+    /**
+     * Heap estimado do corpo (0 com o corpo solto). Só na thread do mundo.
+     */
+    long heapBytes() {
+        ShipBody b = ship.body();
+        long bytes = b != null ? b.estimateHeapBytes() : 0L;
+        cachedHeapBytes = bytes;
+        return bytes;
+    }
+
+    /**
+     * Último heapBytes (seguro de qualquer thread).
+     */
+    long cachedHeapBytes() {
+        return cachedHeapBytes;
+    }
+
+    void released() {
+        cachedHeapBytes = 0L;
+    }
+}
@@ -7,42 +7,196 @@ import com.hypixel.hytale.math.vector.Vector3d;
 import com.hypixel.hytale.math.vector.Vector3i;
 import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.michallves.ships.ship.assembly.ShipAssemblyService;
+import com.michallves.ships.ship.assembly.ShipBounds;
+import com.michallves.ships.ship.assembly.ShipChunkStamps;
 import com.michallves.ships.ship.assembly.ShipStructure;
-import com.michallves.ships.ship.collision.ShipCollision;
-import com.michallves.ships.ship.core.ShipGeometry;
-import com.michallves.ships.ship.core.ShipState;
-import com.michallves.ships.ship.runtime.ShipEntityLifecycle;
-import com.michallves.ships.ship.simulation.ShipPhysics;
+import com.michallves.ships.ship.assembly.ShipStructureEditor;
+import com.michallves.ships.ship.assembly.ShipWritePlan;
+import com.michallves.ships.ship.core.ShipPose;
+import com.michallves.ships.ship.core.ShipPoseSnapshot;
+import com.michallves.ships.ship.persistence.ShipJournal;
+import com.michallves.ships.ship.replay.ShipRecording;
+import com.michallves.ships.ship.runtime.ShipEntityPool;
+import com.michallves.ships.ship.runtime.ShipInterestSettings;
+import com.michallves.ships.ship.runtime.ShipLodSettings;
+import com.michallves.ships.ship.runtime.ShipPlayerTracker;
+import com.michallves.ships.ship.runtime.ShipTransitionTick;
 import com.michallves.ships.utils.ShipLogger;
 
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
+
+/**
+ * Um navio registrado: header residente (ShipHeader) + corpo pesado (ShipBody) sob demanda
+ * (ver ShipBodyResidency).
+ */
 public final class ShipController {
 
     private final UUID shipId;
     private final String worldName;
+    private final ShipHeader header;
+
+    // null = corpo solto (docado); só a thread do mundo troca, outros mundos só olham
+    private volatile ShipBody body;
+
+    private Path recordingDirectory;
+    private ShipPlayerTracker playerTracker;
+    private ShipJournal journal;
+    private ShipChunkStamps chunkStamps;
+    private ShipEntityPool entityPool;
+    private ShipInterestSettings interestSettings;
+    private ShipLodSettings lodSettings;
+
+    final ShipBodyResidency residency = new ShipBodyResidency(this);
+
+    // shard do mundo no ShipManager; listedActive = está na lista de ativos dele
+    private ShipWorldShard shard;
+    private boolean listedActive = false;
 
-    private final ShipState state;
-    private final ShipGeometry geometry;
-    private final ShipCollision collision;
-    private final ShipPhysics physics;
-    private final ShipEntityLifecycle lifecycle;
+    // posição do helm no grid de proximidade do shard (lock do shard)
+    final ShipHelmGrid.Entry<ShipController> helmEntry = new ShipHelmGrid.Entry<>(this);
+    private final Vector3d helmScratch = new Vector3d();
+
+    // pose para leitores de outras threads (publicada pela thread do mundo)
+    private final ShipPoseSnapshot poseSnapshot = new ShipPoseSnapshot();
 
     private boolean activationRequested = false;
     private boolean dockingRequested = false;
 
-    private int tickCounter = 0;
+    // Salvo fora do modo bloco (registro): os blocos ainda precisam voltar ao mundo
+    private boolean pendingPlacement = false;
 
     public ShipController(UUID shipId, String worldName, Vector3i helmBlock, int helmOri, ShipStructure structure) {
         this.shipId = shipId;
         this.worldName = worldName;
+        this.header = new ShipHeader(shipId, worldName, helmBlock, helmOri);
+        this.header.structureChanged(structure.bounds(), structure.size());
+        this.body = new ShipBody(structure, helmBlock, helmOri, null);
+        publishPose(body);
+    }
+
+    private ShipController(ShipHeader header) {
+        this.shipId = header.getShipId();
+        this.worldName = header.getWorldName();
+        this.header = header;
+    }
+
+    /**
+     * Navio do registro: docado com o helm em dockedHelm/dockedOri. Estrutura ainda no arquivo
+     * => só o header (o corpo carrega no primeiro uso); nada aqui lê os blocos.
+     */
+    public static ShipController restore(UUID shipId, String worldName, Vector3i helmBlock, int helmOri,
+                                         ShipStructure structure, ShipBounds bounds,
+                                         Vector3i dockedHelm, int dockedOri, boolean pendingPlacement) {
+        ShipHeader header = new ShipHeader(shipId, worldName, helmBlock, helmOri);
+        header.dockedAt(dockedHelm, dockedOri);
+
+        ShipController ship = new ShipController(header);
+        ship.pendingPlacement = pendingPlacement;
+
+        ByteBuffer saved = structure.pendingBody();
+        if (saved != null) {
+            header.persisted(bounds, structure.size(), saved);
+        } else {
+            // editada no replay do journal: já está em memória
+            header.structureChanged(bounds, structure.size());
+            ShipBody b = new ShipBody(structure, helmBlock, helmOri, bounds);
+            b.dockAt(dockedHelm, dockedOri);
+            ship.body = b;
+        }
+        ship.publishPose(ship.body);
+        return ship;
+    }
+
+    public void setRecordingDirectory(Path recordingDirectory) {
+        this.recordingDirectory = recordingDirectory;
+    }
+
+    public void setChunkStamps(ShipChunkStamps chunkStamps) {
+        this.chunkStamps = chunkStamps;
+        ShipBody b = body;
+        if (b != null) b.lifecycle.setChunkStamps(chunkStamps);
+    }
+
+    public void setEntityPool(ShipEntityPool pool) {
+        this.entityPool = pool;
+        ShipBody b = body;
+        if (b != null) b.lifecycle.setEntityPool(pool);
+    }
+
+    public void setInterestSettings(ShipInterestSettings interestSettings) {
+        this.interestSettings = interestSettings;
+        ShipBody b = body;
+        if (b != null) b.lifecycle.setInterestSettings(interestSettings);
+    }
+
+    public void setLodSettings(ShipLodSettings lod) {
+        this.lodSettings = lod;
+        ShipBody b = body;
+        if (b != null) b.lifecycle.setLodSettings(lod);
+    }
+
+    public void setPlayerTracker(ShipPlayerTracker playerTracker) {
+        this.playerTracker = playerTracker;
+    }
+
+    public void setJournal(ShipJournal journal) {
+        this.journal = journal;
+    }
+
+    public void setAssemblyService(ShipAssemblyService assemblyService) {
+        residency.setAssemblyService(assemblyService);
+    }
+
+    void setShard(ShipWorldShard shard) {
+        this.shard = shard;
+    }
+
+    boolean isListedActive() {
+        return listedActive;
+    }
 
-        float yawDeg = (helmOri & 3) * 90.0f;
-        this.state = new ShipState(yawDeg);
-        this.geometry = new ShipGeometry(structure, state, helmBlock, yawDeg);
-        this.collision = new ShipCollision(structure, geometry.getCenterOffset());
-        this.physics = new ShipPhysics(state);
-        this.lifecycle = new ShipEntityLifecycle(structure);
+    boolean isRegistered() {
+        return shard != null;
+    }
+
+    // fora do modo bloco entra na lista de ativos do mundo; docado volta ao índice de helms
+    private void syncShard(ShipBody b) {
+        boolean live = b != null && !b.lifecycle.isDocked();
+        if (live == listedActive) return;
+        listedActive = live;
+        ShipWorldShard s = shard;
+        if (s == null) return;
+        if (live) {
+            s.activated(this);
+        } else {
+            s.docked(this);
+        }
+    }
+
+    // sem corpo: pose docada do header
+    private void publishPose(ShipBody b) {
+        if (b == null) {
+            poseSnapshot.publishDocked(header.getDockedX(), header.getDockedY(), header.getDockedZ(),
+                    (header.getDockedOrientation() & 3) * 90.0f);
+            return;
+        }
+        int mode = b.lifecycle.isTransitioning() ? ShipPoseSnapshot.MODE_TRANSITIONING
+                : b.lifecycle.isActiveEntity() ? ShipPoseSnapshot.MODE_ACTIVE : ShipPoseSnapshot.MODE_DOCKED;
+        Vector3d helm = b.geometry.computeHelmWorldPosition(b.geometry.pose(), helmScratch);
+        poseSnapshot.publish(mode, b.state, helm.getX(), helm.getY(), helm.getZ());
+    }
+
+    /**
+     * Saiu do registro: devolve as partes estacionadas e larga o corpo. Thread do mundo.
+     */
+    void detach() {
+        releaseBody();
+        shard = null;
     }
 
     public UUID getShipId() {
@@ -53,56 +207,348 @@ public final class ShipController {
         return worldName;
     }
 
+    public ShipHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * Helm onde o navio foi montado (o índice de helms usa a pose docada, ver ShipHeader).
+     */
+    public Vector3i getHelmBlock() {
+        return header.getHelmBlock();
+    }
+
+    public int getHelmOrientation() {
+        return header.getHelmOrientation();
+    }
+
+    /**
+     * Estrutura do corpo em memória, ou null com o corpo solto (ver ShipHeader.getPersistedBody).
+     */
+    public ShipStructure getStructure() {
+        ShipBody b = body;
+        return b != null ? b.structure : null;
+    }
+
+    public boolean hasBody() {
+        return body != null;
+    }
+
+    // ============================================================================================
+    // Corpo sob demanda (ShipBodyResidency)
+    // ============================================================================================
+
+    /**
+     * Garante o corpo em memória (thread do mundo).
+     *
+     * @return false se o corpo ainda não está em memória (remontando, ou helm não está mais lá)
+     */
+    public boolean ensureBody(World world) {
+        return residency.ensure(world);
+    }
+
+    /**
+     * Corpo solto sem estrutura no registro sendo remontado (ver ensureBody).
+     */
+    public boolean isRebuildingBody() {
+        return residency.isRebuilding();
+    }
+
+    ShipBody body() {
+        return body;
+    }
+
+    void attachBody(ShipBody b) {
+        b.dockAt(header.getDockedHelm(), header.getDockedOrientation());
+        if (lodSettings != null) b.lifecycle.setLodSettings(lodSettings);
+        if (entityPool != null) b.lifecycle.setEntityPool(entityPool);
+        if (interestSettings != null) b.lifecycle.setInterestSettings(interestSettings);
+        if (chunkStamps != null) b.lifecycle.setChunkStamps(chunkStamps);
+        b.lifecycle.setWriteListener(this::onBlocksWritten);
+        body = b;
+        publishPose(b);
+    }
+
+    // devolve as partes estacionadas e fica só o header
+    void releaseBody() {
+        ShipBody b = body;
+        if (b != null) b.lifecycle.releasePooled(shipId);
+        body = null;
+        residency.released();
+    }
+
+    void structureRebuilt(ShipStructure structure) {
+        if (journal != null) journal.structureRebuilt(shipId, structure);
+    }
+
+    void syncAndPublish(ShipBody b) {
+        syncShard(b);
+        publishPose(b);
+    }
+
+    boolean hasPendingRequest() {
+        return activationRequested || dockingRequested;
+    }
+
+    void clearRequests() {
+        activationRequested = false;
+        dockingRequested = false;
+    }
+
+    void setPendingPlacement(boolean pendingPlacement) {
+        this.pendingPlacement = pendingPlacement;
+    }
+
+    /**
+     * Transição/recolocação escreveu [from, to) do plano direto no chunk (sem evento de bloco):
+     * os helms dessas células entram/saem do índice de helms do mundo. Thread do mundo.
+     */
+    void onBlocksWritten(World world, ShipWritePlan plan, int from, int to) {
+        ShipWorldShard s = shard;
+        ShipBody b = body;
+        if (s == null || b == null) return;
+        ShipHelmBlockIndex index = s.helmBlocks;
+        plan.forEachBlock(b.structure.getStore(), from, to, ShipManager.HELM_IDS,
+                (x, y, z) -> index.onBlockChanged(world, x, y, z, ShipManager.HELM_IDS));
+    }
+
+    /**
+     * Heap residente estimado (controller + header), o que sobra com o corpo solto.
+     */
+    public long estimateResidentBytes() {
+        return 96L + header.estimateHeapBytes();
+    }
+
+    // ============================================================================================
+    // Pose docada / registro
+    // ============================================================================================
+
+    /**
+     * Helm arredondado para o grid na pose atual (onde os blocos estão/estariam docados).
+     */
+    public Vector3i getDockedHelm() {
+        ShipBody b = body;
+        if (b == null) return header.getDockedHelm();
+        Vector3d helmWorld = b.geometry.computeHelmWorldPosition(b.geometry.pose(), new Vector3d());
+        return new Vector3i(
+                (int) Math.round(helmWorld.getX()),
+                (int) Math.round(helmWorld.getY()),
+                (int) Math.round(helmWorld.getZ())
+        );
+    }
+
+    public int getDockedOrientation() {
+        ShipBody b = body;
+        if (b == null) return header.getDockedOrientation();
+        return ShipStructure.nearestOrientationFromYaw(b.state.getYawDeg());
+    }
+
+    public boolean isPendingPlacement() {
+        return pendingPlacement;
+    }
+
+    // ============================================================================================
+    // Estado (corpo solto responde pelo header: docado, parado)
+    // ============================================================================================
+
     public float getYawDeg() {
-        return state.getYawDeg();
+        ShipBody b = body;
+        return b != null ? b.state.getYawDeg() : header.getDockedOrientation() * 90.0f;
     }
 
     public float getSpeed() {
-        return state.getSpeed();
+        ShipBody b = body;
+        return b != null ? b.state.getSpeed() : 0.0f;
     }
 
     public float getMaxSpeed() {
-        return physics.getMaxSpeed();
+        ShipBody b = body;
+        return b != null ? b.physics.getMaxSpeed() : 0.0f;
     }
 
     public boolean isActiveEntity() {
-        return lifecycle.isActiveEntity();
+        ShipBody b = body;
+        return b != null && b.lifecycle.isActiveEntity();
+    }
+
+    /**
+     * Ativando ou docando (fatiado em vários ticks): sem física nem colisão de entidade.
+     */
+    public boolean isTransitioning() {
+        ShipBody b = body;
+        return b != null && b.lifecycle.isTransitioning();
+    }
+
+    public boolean isDocking() {
+        ShipBody b = body;
+        return b != null && b.lifecycle.isDocking();
+    }
+
+    public float getTransitionProgress() {
+        ShipBody b = body;
+        return b != null ? b.lifecycle.getTransitionProgress() : 1.0f;
     }
 
+    public int getLastPartsUpdated() {
+        ShipBody b = body;
+        return b != null ? b.lifecycle.getLastPartsUpdated() : 0;
+    }
+
+    public int getLastPartsSkipped() {
+        ShipBody b = body;
+        return b != null ? b.lifecycle.getLastPartsSkipped() : 0;
+    }
+
+    /**
+     * null com o corpo solto.
+     */
     public Vector3d getOrigin() {
-        return state.getOrigin();
+        ShipBody b = body;
+        return b != null ? b.state.getOrigin() : null;
     }
 
     public double getLastMoveX() {
-        return state.getLastMoveX();
+        ShipBody b = body;
+        return b != null ? b.state.getLastMoveX() : 0.0;
     }
 
     public double getLastMoveZ() {
-        return state.getLastMoveZ();
+        ShipBody b = body;
+        return b != null ? b.state.getLastMoveZ() : 0.0;
     }
 
     public float getLastYawDelta() {
-        return state.getLastYawDelta();
+        ShipBody b = body;
+        return b != null ? b.state.getLastYawDelta() : 0.0f;
     }
 
-    public void requestActivation() {
+    /**
+     * Pede a ativação (helm). Carrega o corpo se estiver solto; roda na thread do mundo.
+     *
+     * @return false se o corpo não pôde ser carregado
+     */
+    public boolean requestActivation(World world) {
+        if (!ensureBody(world)) return false;
         this.activationRequested = true;
+        residency.touch();
+        ShipStructure structure = body.structure;
+        if (structure.isCompacted()) {
+            structure.inflate();
+            ShipLogger.debug("[SHIPS] Navio inflado (helm): shipId=" + shipId + " blocos=" + structure.size());
+        }
+        return true;
+    }
+
+    public boolean isCompacted() {
+        ShipBody b = body;
+        return b != null && b.structure.isCompacted();
     }
 
     public void requestDocking() {
         this.dockingRequested = true;
     }
 
+    /**
+     * Pose do tick atual (mesma instância para todos os consumidores enquanto o navio não se mexe).
+     * null com o corpo solto.
+     */
+    public ShipPose getPose() {
+        ShipBody b = body;
+        return b != null ? b.geometry.pose() : null;
+    }
+
+    /**
+     * Pose publicada, para ler de qualquer thread (ShipPoseSnapshot.read com um Sample próprio).
+     */
+    public ShipPoseSnapshot getPoseSnapshot() {
+        return poseSnapshot;
+    }
+
     public Vector3d computePilotAnchorPosition() {
-        return geometry.computePilotAnchorPosition(state.getYawDeg());
+        ShipBody b = body;
+        if (b == null) return getHelmWorldPosition();
+        return b.geometry.computePilotAnchorPosition(b.geometry.pose(), new Vector3d());
     }
 
     public Vector3d getHelmWorldPosition() {
-        return geometry.computeHelmWorldPosition(state.getYawDeg());
+        return getHelmWorldPosition(new Vector3d());
+    }
+
+    public Vector3d getHelmWorldPosition(Vector3d out) {
+        ShipBody b = body;
+        if (b == null) {
+            out.assign(header.getDockedX(), header.getDockedY(), header.getDockedZ());
+            return out;
+        }
+        return b.geometry.computeHelmWorldPosition(b.geometry.pose(), out);
+    }
+
+    /**
+     * Célula (x,y,z) do mundo mudou perto do navio docado: corrige a estrutura no lugar, sem
+     * novo flood fill. Roda na thread do mundo.
+     *
+     * @return blocos adicionados/removidos/trocados (0 = não era do navio)
+     */
+    public int applyWorldEdit(World world, int x, int y, int z, int radiusXZ, int maxBlocks) {
+        if (activationRequested || !mayContainDocked(x, y, z)) return 0;
+        // remontando: a montagem lê o mundo já com esta edição
+        if (!ensureBody(world)) return 0;
+        ShipBody b = body;
+
+        ShipPose pose = b.geometry.pose();
+        Vector3i dockedHelm = getDockedHelm();
+        int ori = ShipStructure.nearestOrientationFromYaw(pose.yawDeg);
+
+        ShipStructureEditor.Edit edit = ShipStructureEditor.apply(world, b.structure, dockedHelm, ori, x, y, z, radiusXZ, maxBlocks);
+        if (edit.isEmpty()) return 0;
+        residency.touch();
+
+        b.geometry.onStructureEdited(dockedHelm, pose.yawDeg);
+        b.collision.applyEdit(edit);
+        publishPose(b);
+        header.structureChanged(b.structure.bounds(), b.structure.size());
+        if (journal != null) journal.structureEdited(shipId, edit.removed, edit.added, edit.replaced);
+
+        ShipLogger.info("[SHIPS] Estrutura editada (docado): shipId=" + shipId
+                + " +" + edit.added.size() + " -" + edit.removed.size() + " ~" + edit.replaced.size()
+                + " blocos=" + b.structure.size());
+        return edit.size();
+    }
+
+    /**
+     * O navio docado pode ter a célula (x,y,z): limites do header girados para a orientação
+     * docada, com 1 bloco de folga (bloco encostado no casco entra no navio). Só o header: não
+     * carrega o corpo.
+     */
+    public boolean mayContainDocked(int x, int y, int z) {
+        if (pendingPlacement) return false;
+        ShipBody b = body;
+        if (b != null && !b.lifecycle.isDocked()) return false;
+        ShipBounds bounds = header.getBounds();
+        if (bounds == null) return false;
+
+        int dx = x - header.getDockedX();
+        int dy = y - header.getDockedY();
+        int dz = z - header.getDockedZ();
+        if (dy < bounds.minDy - 1 || dy > bounds.maxDy + 1) return false;
+
+        // mesma rotação de ShipStructure.rotateOffset, aplicada nos cantos
+        int minX, maxX, minZ, maxZ;
+        switch (header.getDockedOrientation() & 3) {
+            case 0 -> { minX = bounds.minDx;  maxX = bounds.maxDx;  minZ = bounds.minDz;  maxZ = bounds.maxDz; }
+            case 1 -> { minX = -bounds.maxDz; maxX = -bounds.minDz; minZ = bounds.minDx;  maxZ = bounds.maxDx; }
+            case 2 -> { minX = -bounds.maxDx; maxX = -bounds.minDx; minZ = -bounds.maxDz; maxZ = -bounds.minDz; }
+            default -> { minX = bounds.minDz; maxX = bounds.maxDz;  minZ = -bounds.maxDx; maxZ = -bounds.minDx; }
+        }
+        return dx >= minX - 1 && dx <= maxX + 1 && dz >= minZ - 1 && dz <= maxZ + 1;
     }
 
     public void applyControls(float dt, float throttle, float rudder, float wheel01) {
-        physics.applyControls(dt, throttle, rudder, wheel01);
+        ShipBody b = body;
+        // Em transição o navio está "preso": não acumula velocidade
+        if (b == null || b.lifecycle.isTransitioning()) return;
+        b.recorder.beginFrame(b.state, dt, throttle, rudder, wheel01);
+        b.physics.applyControls(dt, throttle, rudder, wheel01);
     }
 
     public void tick(World world,
@@ -110,39 +556,129 @@ public final class ShipController {
                      CommandBuffer<EntityStore> commandBuffer,
                      float dt) {
 
-        if (activationRequested && !lifecycle.isActiveEntity()) {
+        ShipBody b = body;
+        if (b == null) return;
+
+        if (activationRequested && b.lifecycle.isDocked() && !pendingPlacement) {
             activationRequested = false;
-            lifecycle.activate(world, store, commandBuffer, geometry, state.getYawDeg(), shipId);
+            b.lifecycle.beginActivation(b.geometry, shipId);
+            syncShard(b);
+            publishPose(b);
+            if (journal != null) journal.shipActivated(shipId);
+            // nova sessão de pilotagem => nova gravação
+            b.recorder.clear();
+        }
+
+        residency.touch();
+
+        if (b.lifecycle.isTransitioning()) {
+            // docking já em andamento (ou ativação ainda não terminou): ignora novo pedido
+            dockingRequested = false;
+            return;
         }
 
-        if (!lifecycle.isActiveEntity()) return;
+        if (!b.lifecycle.isActiveEntity()) return;
 
-        physics.tickMovement(world, geometry, collision, dt);
-        lifecycle.updateTransforms(commandBuffer, geometry, state.getYawDeg());
+        b.lifecycle.syncEditedStructure(store, commandBuffer, b.geometry);
+        b.recorder.commitFrame();
+        b.physics.tickMovement(world, b.geometry, b.collision, dt);
+        // um cálculo do helm por tick: snapshot para outras threads + grid de proximidade
+        Vector3d helm = b.geometry.computeHelmWorldPosition(b.geometry.pose(), helmScratch);
+        poseSnapshot.publish(ShipPoseSnapshot.MODE_ACTIVE, b.state, helm.getX(), helm.getY(), helm.getZ());
+        ShipWorldShard s = shard;
+        if (s != null) s.moved(this, helm);
+        b.lifecycle.updateInterest(commandBuffer, b.geometry, playerTracker, worldName);
+        b.lifecycle.updateTransforms(commandBuffer, b.geometry, nearestPlayerDistSq(b));
 
-        tickCounter++;
-        if ((tickCounter % 20) == 0) {
-            ShipLogger.debug("[Ship] shipId=" + shipId + " origin=" + state.getOrigin()
-                    + " yaw=" + state.getYawDeg() + " speed=" + state.getSpeed());
+        b.tickCounter++;
+        if ((b.tickCounter % 20) == 0) {
+            ShipLogger.debug("[Ship] shipId=" + shipId + " origin=" + b.state.getOrigin()
+                    + " yaw=" + b.state.getYawDeg() + " speed=" + b.state.getSpeed()
+                    + " partesAtualizadas=" + b.lifecycle.getLastPartsUpdated()
+                    + " partesPuladas=" + b.lifecycle.getLastPartsSkipped()
+                    + " lod=" + b.lifecycle.getLastLodBand()
+                    + " partesSoContorno=" + b.lifecycle.getCulledPartCount());
         }
 
         if (dockingRequested) {
             dockingRequested = false;
-            lifecycle.tryDock(world, commandBuffer, geometry, physics, shipId);
+            if (b.lifecycle.beginDocking(world, commandBuffer, b.geometry, b.physics, shipId)) {
+                syncShard(b);
+                publishPose(b);
+            } else {
+                dumpRecording(world);
+            }
+        }
+    }
+
+    /**
+     * Passo da ativação/docking em andamento, com ou sem piloto, tirando do orçamento do tick do
+     * mundo. O ShipTransitionSystem chama uma vez por tick; o tick de pilotagem só começa a transição.
+     */
+    public void tickTransition(World world, Store<EntityStore> store, ShipTransitionTick tick) {
+        ShipBody b = body;
+        if (b == null || !b.lifecycle.isTransitioning()) return;
+        tickTransition(b, world, store, tick);
+    }
+
+    private void tickTransition(ShipBody b, World world, Store<EntityStore> store, ShipTransitionTick tick) {
+        boolean docking = b.lifecycle.isDocking();
+        b.lifecycle.tickTransition(world, store, tick, b.geometry, shipId);
+        if (docking && b.lifecycle.isDocked()) {
+            Vector3i dockedHelm = getDockedHelm();
+            int ori = getDockedOrientation();
+            header.dockedAt(dockedHelm, ori);
+            if (journal != null) journal.shipDocked(shipId, dockedHelm, ori);
         }
+        syncShard(b);
+        publishPose(b);
+    }
+
+    /**
+     * Jogador mais próximo do navio (uma vez por tick). Sem tracker, assume perto.
+     */
+    private double nearestPlayerDistSq(ShipBody b) {
+        if (playerTracker == null) return 0.0;
+        ShipPose pose = b.geometry.pose();
+        return playerTracker.nearestDistanceSq(worldName, pose.originX, pose.originY, pose.originZ);
+    }
+
+    /**
+     * Salva a gravação da sessão atual (ex.: "navio travou no cais") para replay headless.
+     * A captura lê o mundo (thread do mundo); a escrita em disco vai para background.
+     */
+    public Path dumpRecording(World world) {
+        ShipBody b = body;
+        if (recordingDirectory == null || b == null || b.recorder.size() == 0) return null;
+
+        ShipRecording recording = ShipRecording.capture(world, b.structure, header.getHelmBlock(),
+                header.getHelmOrientation(), b.recorder, b.geometry);
+        Path file = recordingDirectory.resolve(shipId + "-" + System.currentTimeMillis() + ".shrec");
+
+        CompletableFuture.runAsync(() -> {
+            try {
+                recording.write(file);
+                ShipLogger.info("[SHIPS] Gravacao salva: " + file + " frames=" + recording.frames.size);
+            } catch (Exception e) {
+                ShipLogger.error("[SHIPS] Falha ao salvar gravacao " + file + ": " + e.getMessage());
+            }
+        });
+        return file;
     }
 
     public Vector3d resolvePlayerCollision(Vector3d playerPos, Vector3d playerDelta, Box playerBox) {
-        return collision.resolvePlayerCollision(
+        ShipBody b = body;
+        if (b == null) return null;
+        return b.collision.resolvePlayerCollision(
                 playerPos,
                 playerDelta,
                 playerBox,
-                state.getOrigin(),
-                state.getYawDeg(),
-                state.getLastMoveX(),
-                state.getLastMoveZ(),
-                state.getLastYawDelta(),
-                lifecycle.isActiveEntity()
+                b.state.getOrigin(),
+                b.state.getYawDeg(),
+                b.state.getLastMoveX(),
+                b.state.getLastMoveZ(),
+                b.state.getLastYawDelta(),
+                b.lifecycle.isActiveEntity()
         );
     }
 }
@@ -0,0 +1,130 @@
+package com.michallves.ships.ship;
+
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.michallves.ships.ship.assembly.ShipBounds;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Parte residente de um navio: o que fica em memória para todo navio registrado, mesmo docado
+ * e sem uso (índice de helm, registro, edição perto do navio). Estrutura, geometria, colisão e
+ * entidades ficam no ShipBody, carregado sob demanda (ver ShipController.ensureBody).
+ *
+ * Poucas centenas de bytes: posições em int e, se o navio não mudou desde que foi lido do
+ * registro, a fatia do corpo no snapshot do registro (aponta para o arquivo mapeado, não para o heap).
+ * Só a thread do mundo do navio altera.
+ */
+public final class ShipHeader {
+
+    private final UUID shipId;
+    private final String worldName;
+    private final Vector3i helmBlock;
+    private final byte helmOri;
+
+    // última pose docada (helm no grid + orientação)
+    private int dockedX;
+    private int dockedY;
+    private int dockedZ;
+    private byte dockedOri;
+
+    // null = estrutura vazia
+    private ShipBounds bounds;
+    private int blockCount;
+
+    // corpo salvo igual à estrutura atual; null = mudou depois do load (recarrega montando de novo)
+    private ByteBuffer persistedBody;
+
+    public ShipHeader(UUID shipId, String worldName, Vector3i helmBlock, int helmOri) {
+        this.shipId = shipId;
+        this.worldName = worldName;
+        this.helmBlock = new Vector3i(helmBlock);
+        this.helmOri = (byte) (helmOri & 3);
+        dockedAt(helmBlock, helmOri);
+    }
+
+    public UUID getShipId() {
+        return shipId;
+    }
+
+    public String getWorldName() {
+        return worldName;
+    }
+
+    /**
+     * Helm onde o navio foi montado (chave do índice de helms).
+     */
+    public Vector3i getHelmBlock() {
+        return helmBlock;
+    }
+
+    public int getHelmOrientation() {
+        return helmOri;
+    }
+
+    public Vector3i getDockedHelm() {
+        return new Vector3i(dockedX, dockedY, dockedZ);
+    }
+
+    public int getDockedX() {
+        return dockedX;
+    }
+
+    public int getDockedY() {
+        return dockedY;
+    }
+
+    public int getDockedZ() {
+        return dockedZ;
+    }
+
+    public int getDockedOrientation() {
+        return dockedOri;
+    }
+
+    public ShipBounds getBounds() {
+        return bounds;
+    }
+
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    /**
+     * Fatia do corpo salvo (nova posição a cada chamada), ou null se a estrutura mudou depois.
+     */
+    public ByteBuffer getPersistedBody() {
+        ByteBuffer b = persistedBody;
+        return b != null ? b.duplicate() : null;
+    }
+
+    void dockedAt(Vector3i helm, int ori) {
+        dockedX = helm.x;
+        dockedY = helm.y;
+        dockedZ = helm.z;
+        dockedOri = (byte) (ori & 3);
+    }
+
+    void persisted(ShipBounds bounds, int blockCount, ByteBuffer body) {
+        this.bounds = bounds;
+        this.blockCount = blockCount;
+        this.persistedBody = body;
+    }
+
+    /**
+     * Estrutura editada/remontada: o corpo salvo não vale mais.
+     */
+    void structureChanged(ShipBounds bounds, int blockCount) {
+        this.bounds = bounds;
+        this.blockCount = blockCount;
+        this.persistedBody = null;
+    }
+
+    /**
+     * Estimativa do heap: objeto + UUID + Vector3i + limites + fatia do arquivo (o nome do
+     * mundo é compartilhado entre navios).
+     */
+    public long estimateHeapBytes() {
+        return 48L + 32L + 24L + (bounds != null ? 40L : 0L) + (persistedBody != null ? 64L : 0L);
+    }
+}
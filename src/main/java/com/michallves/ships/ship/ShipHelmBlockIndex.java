@@ -0,0 +1,294 @@
+package com.michallves.ships.ship;
+
+import com.hypixel.hytale.math.util.ChunkUtil;
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.function.IntPredicate;
+
+/**
+ * Posições dos blocos de helm de um mundo, por chunk. Cada chunk é varrido uma vez quando
+ * aparece em memória (seção por seção, com orçamento por tick) e depois só muda pelos eventos
+ * de colocar/quebrar e pelas escritas das transições dos navios. Busca de helm perto de um
+ * ponto vira olhar a lista de poucos chunks; cada candidato é conferido no chunk antes de
+ * valer (escrita por fora do plugin deixa célula velha, que sai da lista aí).
+ *
+ * Chunk recarregado (outra instância de WorldChunk) é varrido de novo; a referência é fraca
+ * para não segurar chunks descarregados. Só a thread do mundo usa.
+ */
+final class ShipHelmBlockIndex {
+
+    private static final int CHUNK_SHIFT = 5;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int WORLD_MIN_Y = 0;
+    private static final int WORLD_MAX_Y = 320;
+    private static final int SECTION_HEIGHT = 32;
+    private static final int SECTIONS = (WORLD_MAX_Y - WORLD_MIN_Y) / SECTION_HEIGHT;
+
+    /**
+     * Helm achado na varredura de um chunk (para pré-registrar navios docados).
+     */
+    interface HelmFound {
+        void found(WorldChunk chunk, int x, int y, int z);
+    }
+
+    private static final class ChunkHelms {
+        final long index;
+        final int baseX;
+        final int baseZ;
+        WeakReference<WorldChunk> chunk;
+        // (y << 10) | (lz << 5) | lx
+        int[] cells = new int[4];
+        int count;
+        // seções já varridas; SECTIONS = pronto
+        int nextSection;
+
+        ChunkHelms(long index, int baseX, int baseZ) {
+            this.index = index;
+            this.baseX = baseX;
+            this.baseZ = baseZ;
+        }
+
+        boolean isCurrent(WorldChunk c) {
+            return c != null && chunk != null && chunk.get() == c;
+        }
+
+        boolean isScanned() {
+            return nextSection >= SECTIONS;
+        }
+
+        void add(int cell) {
+            for (int i = 0; i < count; i++) {
+                if (cells[i] == cell) return;
+            }
+            if (count == cells.length) cells = Arrays.copyOf(cells, count * 2);
+            cells[count++] = cell;
+        }
+
+        void remove(int cell) {
+            for (int i = 0; i < count; i++) {
+                if (cells[i] != cell) continue;
+                cells[i] = cells[--count];
+                return;
+            }
+        }
+    }
+
+    private final Long2ObjectOpenHashMap<ChunkHelms> chunks = new Long2ObjectOpenHashMap<>();
+    private final ArrayDeque<ChunkHelms> pending = new ArrayDeque<>();
+
+    private long chunksScanned = 0L;
+    private long sectionsScanned = 0L;
+    private long staleDropped = 0L;
+
+    /**
+     * Confere o chunk da coluna (x,z): em memória e ainda não indexado (ou recarregado) =>
+     * entra na fila de varredura.
+     */
+    void watch(World world, int x, int z) {
+        long index = ChunkUtil.indexChunkFromBlock(x, z);
+        WorldChunk c = world.getChunkIfInMemory(index);
+        if (c == null) return;
+        ChunkHelms h = chunks.get(index);
+        if (h != null && h.isCurrent(c)) return;
+        if (h == null) {
+            h = new ChunkHelms(index, (x >> CHUNK_SHIFT) << CHUNK_SHIFT, (z >> CHUNK_SHIFT) << CHUNK_SHIFT);
+            chunks.put(index, h);
+        } else {
+            pending.remove(h);
+        }
+        h.chunk = new WeakReference<>(c);
+        h.count = 0;
+        h.nextSection = 0;
+        pending.add(h);
+    }
+
+    boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Varre seções dos chunks na fila até budgetNanos (uma seção 32³ por vez).
+     *
+     * @return seções varridas
+     */
+    int scan(World world, long budgetNanos, IntPredicate isHelm, HelmFound onFound) {
+        long deadline = System.nanoTime() + budgetNanos;
+        int done = 0;
+        while (!pending.isEmpty() && (done == 0 || System.nanoTime() < deadline)) {
+            ChunkHelms h = pending.peek();
+            WorldChunk c = world.getChunkIfInMemory(h.index);
+            if (!h.isCurrent(c)) {
+                // descarregou (ou recarregou) no meio: o próximo watch agenda de novo
+                pending.poll();
+                chunks.remove(h.index);
+                continue;
+            }
+
+            int y0 = WORLD_MIN_Y + h.nextSection * SECTION_HEIGHT;
+            for (int y = y0; y < y0 + SECTION_HEIGHT; y++) {
+                for (int lz = 0; lz < CHUNK_SIZE; lz++) {
+                    for (int lx = 0; lx < CHUNK_SIZE; lx++) {
+                        if (isHelm.test(c.getBlock(lx, y, lz))) h.add(pack(lx, y, lz));
+                    }
+                }
+            }
+            h.nextSection++;
+            done++;
+            sectionsScanned++;
+
+            if (h.isScanned()) {
+                pending.poll();
+                chunksScanned++;
+                if (onFound != null) {
+                    for (int i = 0; i < h.count; i++) {
+                        int cell = h.cells[i];
+                        onFound.found(c, h.baseX + (cell & 31), cell >>> 10, h.baseZ + ((cell >>> 5) & 31));
+                    }
+                }
+            }
+        }
+        return done;
+    }
+
+    /**
+     * Bloco (x,y,z) mudou (depois da mudança valer). Chunk não indexado fica para a varredura;
+     * seção ainda não varrida também.
+     */
+    void onBlockChanged(World world, int x, int y, int z, IntPredicate isHelm) {
+        if (y < WORLD_MIN_Y || y >= WORLD_MAX_Y) return;
+        long index = ChunkUtil.indexChunkFromBlock(x, z);
+        ChunkHelms h = chunks.get(index);
+        if (h == null) return;
+        WorldChunk c = world.getChunkIfInMemory(index);
+        if (!h.isCurrent(c)) return;
+        if ((y - WORLD_MIN_Y) / SECTION_HEIGHT >= h.nextSection) return;
+
+        int lx = ChunkUtil.localCoordinate(x);
+        int lz = ChunkUtil.localCoordinate(z);
+        int cell = pack(lx, y, lz);
+        if (isHelm.test(c.getBlock(lx, y, lz))) {
+            h.add(cell);
+        } else {
+            h.remove(cell);
+        }
+    }
+
+    /**
+     * Helm mais perto de (cx,cy,cz) na caixa de raio radiusXZ (x,z) e radiusY (y). Chunk já
+     * indexado responde pela lista; chunk em memória ainda sem índice é lido direto na caixa
+     * (como antes) e entra na fila.
+     */
+    Vector3i nearest(World world, int cx, int cy, int cz, int radiusXZ, int radiusY, IntPredicate isHelm) {
+        int minX = cx - radiusXZ, maxX = cx + radiusXZ;
+        int minZ = cz - radiusXZ, maxZ = cz + radiusXZ;
+        int minY = Math.max(WORLD_MIN_Y, cy - radiusY), maxY = Math.min(WORLD_MAX_Y - 1, cy + radiusY);
+
+        int bestX = 0, bestY = 0, bestZ = 0;
+        int bestD2 = Integer.MAX_VALUE;
+
+        for (int chx = minX >> CHUNK_SHIFT; chx <= maxX >> CHUNK_SHIFT; chx++) {
+            for (int chz = minZ >> CHUNK_SHIFT; chz <= maxZ >> CHUNK_SHIFT; chz++) {
+                int baseX = chx << CHUNK_SHIFT;
+                int baseZ = chz << CHUNK_SHIFT;
+                long index = ChunkUtil.indexChunkFromBlock(baseX, baseZ);
+                WorldChunk c = world.getChunkIfInMemory(index);
+                if (c == null) continue;
+
+                ChunkHelms h = chunks.get(index);
+                if (h != null && h.isCurrent(c) && h.isScanned()) {
+                    for (int i = 0; i < h.count; i++) {
+                        int cell = h.cells[i];
+                        int x = baseX + (cell & 31);
+                        int y = cell >>> 10;
+                        int z = baseZ + ((cell >>> 5) & 31);
+                        if (x < minX || x > maxX || y < minY || y > maxY || z < minZ || z > maxZ) continue;
+                        int dx = x - cx, dy = y - cy, dz = z - cz;
+                        int d2 = dx * dx + dy * dy + dz * dz;
+                        if (d2 >= bestD2) continue;
+                        if (!isHelm.test(c.getBlock(cell & 31, y, (cell >>> 5) & 31))) {
+                            // o bloco mudou sem passar pelo índice: sai (a última célula vem para i)
+                            h.remove(cell);
+                            i--;
+                            staleDropped++;
+                            continue;
+                        }
+                        bestD2 = d2;
+                        bestX = x;
+                        bestY = y;
+                        bestZ = z;
+                    }
+                    continue;
+                }
+
+                watch(world, baseX, baseZ);
+                int x0 = Math.max(minX, baseX), x1 = Math.min(maxX, baseX + CHUNK_SIZE - 1);
+                int z0 = Math.max(minZ, baseZ), z1 = Math.min(maxZ, baseZ + CHUNK_SIZE - 1);
+                for (int x = x0; x <= x1; x++) {
+                    for (int y = minY; y <= maxY; y++) {
+                        for (int z = z0; z <= z1; z++) {
+                            if (!isHelm.test(c.getBlock(x - baseX, y, z - baseZ))) continue;
+                            int dx = x - cx, dy = y - cy, dz = z - cz;
+                            int d2 = dx * dx + dy * dy + dz * dz;
+                            if (d2 < bestD2) {
+                                bestD2 = d2;
+                                bestX = x;
+                                bestY = y;
+                                bestZ = z;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return bestD2 == Integer.MAX_VALUE ? null : new Vector3i(bestX, bestY, bestZ);
+    }
+
+    /**
+     * Tira do índice os chunks que já saíram da memória (referência coletada).
+     *
+     * @return quantos saíram
+     */
+    int prune() {
+        int removed = 0;
+        Iterator<ChunkHelms> it = chunks.values().iterator();
+        while (it.hasNext()) {
+            ChunkHelms h = it.next();
+            if (h.chunk != null && h.chunk.get() == null) {
+                it.remove();
+                pending.remove(h);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    int size() {
+        return chunks.size();
+    }
+
+    long getChunksScanned() {
+        return chunksScanned;
+    }
+
+    long getSectionsScanned() {
+        return sectionsScanned;
+    }
+
+    /**
+     * Células do índice que não eram mais helm quando conferidas na busca.
+     */
+    long getStaleDropped() {
+        return staleDropped;
+    }
+
+    private static int pack(int lx, int y, int lz) {
+        return (y << 10) | (lz << 5) | lx;
+    }
+}
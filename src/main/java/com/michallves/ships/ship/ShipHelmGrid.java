@@ -0,0 +1,201 @@
+package com.michallves.ships.ship;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Posição do helm dos navios de um mundo num grid de colunas CELL x CELL (x,z). Consulta
+ * visita só as colunas em volta do ponto: custo pelo número de navios por perto, não pelo
+ * total do mundo.
+ *
+ * Cada navio tem um Entry (guardado por quem chama); put() só troca de coluna quando o helm
+ * cruza a borda. Não é thread-safe: o ShipWorldShard usa sob o lock dele.
+ */
+final class ShipHelmGrid<T> {
+
+    static final int CELL_SHIFT = 4;
+    static final int CELL = 1 << CELL_SHIFT;
+
+    static final class Entry<T> {
+        final T value;
+        double x;
+        double y;
+        double z;
+        long cell;
+        boolean indexed;
+
+        Entry(T value) {
+            this.value = value;
+        }
+    }
+
+    private static final class Cell<T> {
+        @SuppressWarnings("unchecked")
+        Entry<T>[] items = (Entry<T>[]) new Entry[4];
+        int count;
+    }
+
+    private final Long2ObjectOpenHashMap<Cell<T>> cells = new Long2ObjectOpenHashMap<>();
+    private int size = 0;
+
+    // k-nearest: distâncias das melhores até agora (reaproveitado)
+    private double[] bestDist = new double[8];
+
+    int size() {
+        return size;
+    }
+
+    void put(Entry<T> e, double x, double y, double z) {
+        long cell = cellKey(x, z);
+        e.x = x;
+        e.y = y;
+        e.z = z;
+        if (e.indexed) {
+            if (e.cell == cell) return;
+            unlink(e);
+        }
+        link(e, cell);
+    }
+
+    void remove(Entry<T> e) {
+        if (!e.indexed) return;
+        unlink(e);
+    }
+
+    /**
+     * Copia para out os valores com o helm a até radius de (x,y,z).
+     *
+     * @return quantos foram copiados (no máximo out.length)
+     */
+    int withinRadius(double x, double y, double z, double radius, T[] out) {
+        double radiusSq = radius * radius;
+        int minCx = floorCell(x - radius);
+        int maxCx = floorCell(x + radius);
+        int minCz = floorCell(z - radius);
+        int maxCz = floorCell(z + radius);
+        int n = 0;
+        for (int cx = minCx; cx <= maxCx; cx++) {
+            for (int cz = minCz; cz <= maxCz; cz++) {
+                Cell<T> cell = cells.get(pack(cx, cz));
+                if (cell == null) continue;
+                for (int i = 0; i < cell.count; i++) {
+                    if (n >= out.length) return n;
+                    Entry<T> e = cell.items[i];
+                    if (distSq(e, x, y, z) <= radiusSq) out[n++] = e.value;
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Os até out.length mais próximos de (x,y,z) a até maxRadius, em ordem de distância.
+     * Varre anéis de colunas a partir da do ponto e para quando o anel seguinte não tem como
+     * ter nada mais perto que o k-ésimo achado.
+     *
+     * @return quantos foram copiados
+     */
+    int nearest(double x, double y, double z, double maxRadius, T[] out) {
+        int k = out.length;
+        if (k == 0 || size == 0) return 0;
+        if (bestDist.length < k) bestDist = new double[Math.max(k, bestDist.length * 2)];
+        double[] dist = bestDist;
+        double maxSq = maxRadius * maxRadius;
+
+        int ccx = floorCell(x);
+        int ccz = floorCell(z);
+        // distância do ponto até a borda da própria coluna
+        double fx = x - ((double) ccx * CELL);
+        double fz = z - ((double) ccz * CELL);
+        double edge = Math.min(Math.min(fx, CELL - fx), Math.min(fz, CELL - fz));
+        int maxRing = (int) Math.ceil(maxRadius / CELL) + 1;
+
+        int n = 0;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            if (ring > 0) {
+                double reach = (ring - 1) * (double) CELL + edge;
+                double reachSq = reach * reach;
+                if (reachSq > maxSq) break;
+                if (n == k && reachSq >= dist[k - 1]) break;
+            }
+            for (int cx = ccx - ring; cx <= ccx + ring; cx++) {
+                boolean side = cx == ccx - ring || cx == ccx + ring;
+                // colunas do meio do anel: só as duas pontas em z
+                int step = side ? 1 : 2 * ring;
+                for (int cz = ccz - ring; cz <= ccz + ring; cz += step) {
+                    Cell<T> cell = cells.get(pack(cx, cz));
+                    if (cell == null) continue;
+                    for (int i = 0; i < cell.count; i++) {
+                        Entry<T> e = cell.items[i];
+                        double d = distSq(e, x, y, z);
+                        if (d > maxSq || (n == k && d >= dist[k - 1])) continue;
+                        // inserção ordenada no top-k
+                        int at = n < k ? n++ : k - 1;
+                        while (at > 0 && dist[at - 1] > d) {
+                            dist[at] = dist[at - 1];
+                            out[at] = out[at - 1];
+                            at--;
+                        }
+                        dist[at] = d;
+                        out[at] = e.value;
+                    }
+                }
+            }
+        }
+        return n;
+    }
+
+    void clear() {
+        cells.clear();
+        size = 0;
+    }
+
+    private void link(Entry<T> e, long key) {
+        Cell<T> cell = cells.get(key);
+        if (cell == null) {
+            cell = new Cell<>();
+            cells.put(key, cell);
+        } else if (cell.count == cell.items.length) {
+            cell.items = Arrays.copyOf(cell.items, cell.items.length * 2);
+        }
+        cell.items[cell.count++] = e;
+        e.cell = key;
+        e.indexed = true;
+        size++;
+    }
+
+    private void unlink(Entry<T> e) {
+        e.indexed = false;
+        Cell<T> cell = cells.get(e.cell);
+        if (cell == null) return;
+        for (int i = 0; i < cell.count; i++) {
+            if (cell.items[i] != e) continue;
+            // troca com o último: ordem dentro da coluna não importa
+            cell.items[i] = cell.items[--cell.count];
+            cell.items[cell.count] = null;
+            size--;
+            break;
+        }
+        if (cell.count == 0) cells.remove(e.cell);
+    }
+
+    private static double distSq(Entry<?> e, double x, double y, double z) {
+        double dx = e.x - x;
+        double dy = e.y - y;
+        double dz = e.z - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static int floorCell(double v) {
+        return ((int) Math.floor(v)) >> CELL_SHIFT;
+    }
+
+    private static long cellKey(double x, double z) {
+        return pack(floorCell(x), floorCell(z));
+    }
+
+    private static long pack(int cx, int cz) {
+        return ((long) cx << 32) | (cz & 0xFFFFFFFFL);
+    }
+}
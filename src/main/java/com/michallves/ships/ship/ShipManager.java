@@ -1,75 +1,672 @@
 package com.michallves.ships.ship;
 
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.math.util.ChunkUtil;
+import com.hypixel.hytale.math.vector.Vector3d;
 import com.hypixel.hytale.math.vector.Vector3i;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.michallves.ships.ship.assembly.ShipAssemblyCache;
+import com.michallves.ships.ship.assembly.ShipAssemblyService;
+import com.michallves.ships.ship.assembly.ShipAssemblySettings;
+import com.michallves.ships.ship.assembly.ShipBlockStore;
+import com.michallves.ships.ship.assembly.ShipBlueprintPlacement;
+import com.michallves.ships.ship.assembly.ShipBounds;
+import com.michallves.ships.ship.assembly.ShipChunkStamps;
 import com.michallves.ships.ship.assembly.ShipStructure;
+import com.michallves.ships.ship.collision.ShipBlockIdTable;
+import com.michallves.ships.ship.persistence.ShipBlueprint;
+import com.michallves.ships.ship.persistence.ShipJournal;
+import com.michallves.ships.ship.persistence.ShipJournalSettings;
+import com.michallves.ships.ship.runtime.ShipCompactionSettings;
+import com.michallves.ships.ship.runtime.ShipEntityPool;
+import com.michallves.ships.ship.runtime.ShipHelmIndexSettings;
+import com.michallves.ships.ship.runtime.ShipInterestSettings;
+import com.michallves.ships.ship.runtime.ShipLodSettings;
+import com.michallves.ships.ship.runtime.ShipPlayerTracker;
+import com.michallves.ships.ship.runtime.ShipResidencySettings;
+import com.michallves.ships.ship.runtime.ShipTransitionBudget;
+import com.michallves.ships.ship.runtime.ShipTransitionTick;
+import com.michallves.ships.utils.ShipLogger;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 public final class ShipManager {
 
     private final Map<UUID, ShipController> ships = new ConcurrentHashMap<>();
-    private final Map<String, Map<Long, UUID>> helmIndex = new ConcurrentHashMap<>();
+    private final Map<String, ShipWorldShard> shards = new ConcurrentHashMap<>();
     private final Map<UUID, UUID> shipPilot = new ConcurrentHashMap<>();
 
+    private final ShipTransitionBudget transitionBudget = new ShipTransitionBudget();
+    private final ShipLodSettings lodSettings = new ShipLodSettings();
+    private final ShipEntityPool entityPool = new ShipEntityPool();
+    private final ShipInterestSettings interestSettings = new ShipInterestSettings();
+    private final ShipPlayerTracker playerTracker = new ShipPlayerTracker();
+    private final ShipChunkStamps chunkStamps = new ShipChunkStamps();
+    private final ShipAssemblyCache assemblyCache = new ShipAssemblyCache(chunkStamps);
+    private final ShipAssemblySettings assemblySettings = new ShipAssemblySettings();
+    private final ShipAssemblyService assemblyService = new ShipAssemblyService(chunkStamps, assemblyCache, transitionBudget,
+            assemblySettings);
+    private final ShipHelmIndexSettings helmIndexSettings = new ShipHelmIndexSettings();
+    private final ShipRegistryService registry = new ShipRegistryService(chunkStamps);
+    private final ShipResidencyService residency = new ShipResidencyService(ships.values(), shipPilot);
+
+    // coleta de navios sem helm
+    private final Map<String, Long> lastOrphanSweep = new ConcurrentHashMap<>();
+    private final AtomicInteger orphanCursor = new AtomicInteger();
+    private final AtomicLong orphansCollected = new AtomicLong();
+    private static final long ORPHAN_SWEEP_INTERVAL_MILLIS = 30_000L;
+    // partes estacionadas que o descarregamento de chunk levou
+    private final Map<String, Long> lastPoolSweep = new ConcurrentHashMap<>();
+    private static final long POOL_SWEEP_INTERVAL_MILLIS = 5_000L;
+    private static final int ORPHAN_CHECKS_PER_SWEEP = 64;
+    static final ShipBlockIdTable HELM_IDS = ShipBlockIdTable.byAssetId("Helm");
+    private static final int HELM_INDEX_CHUNK_SIZE = 32;
+
+    // por mundo: última procura de chunks novos para o índice de helms
+    private final Map<String, Long> lastHelmWatch = new ConcurrentHashMap<>();
+    private final AtomicLong preRegistered = new AtomicLong();
+
+    // blueprints sendo colocados (fatiados por tick, um por mundo de cada vez)
+    private final ConcurrentLinkedQueue<Placement> blueprintPlacements = new ConcurrentLinkedQueue<>();
+
+    private static final Pattern BLUEPRINT_NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private Path recordingDirectory;
+    private Path blueprintDirectory;
+
+    public void setRecordingDirectory(Path recordingDirectory) {
+        this.recordingDirectory = recordingDirectory;
+    }
+
+    public void setBlueprintDirectory(Path blueprintDirectory) {
+        this.blueprintDirectory = blueprintDirectory;
+    }
+
+    /**
+     * Snapshot do registro; o journal fica ao lado (mesmo nome, .journal).
+     */
+    public void setRegistryFile(Path registryFile) {
+        registry.setRegistryFile(registryFile);
+    }
+
     public ShipController createShip(String worldName, Vector3i helmBlock, int helmOri, ShipStructure structure) {
         UUID id = UUID.randomUUID();
         ShipController ship = new ShipController(id, worldName, helmBlock, helmOri, structure);
-        ships.put(id, ship);
-        indexHelm(worldName, helmBlock, id);
+        register(ship);
+        ShipJournal journal = registry.getJournal();
+        if (journal != null) journal.shipCreated(id, worldName, helmBlock, helmOri, structure);
         return ship;
     }
 
+    private void register(ShipController ship) {
+        ship.setRecordingDirectory(recordingDirectory);
+        ship.setLodSettings(lodSettings);
+        ship.setEntityPool(entityPool);
+        ship.setInterestSettings(interestSettings);
+        ship.setPlayerTracker(playerTracker);
+        ship.setChunkStamps(chunkStamps);
+        ship.setJournal(registry.getJournal());
+        ship.setAssemblyService(assemblyService);
+        ships.put(ship.getShipId(), ship);
+        ShipWorldShard shard = shard(ship.getWorldName());
+        ship.setShard(shard);
+        shard.add(ship);
+    }
+
+    /**
+     * Carrega o registro (snapshot + journal); ver ShipRegistryService.
+     */
+    public void loadRegistry() {
+        registry.load(this::register);
+    }
+
+    /**
+     * Grava todos os navios no registro (desligamento).
+     */
+    public void saveRegistry() {
+        registry.save(ships.values());
+    }
+
+    /**
+     * Recoloca os blocos dos navios deste mundo salvos fora do modo bloco (thread do mundo);
+     * sem espaço para voltar, o navio sai do registro.
+     */
+    public void placeRestoredShips(World world) {
+        ShipWorldShard shard = shards.get(world.getName());
+        if (shard != null) registry.placeRestored(world, shard.ships(), this::removeShip);
+    }
+
+    public boolean hasPendingRestores() {
+        return registry.hasPendingRestores();
+    }
+
+    /**
+     * Tira um navio docado do registro (índices, piloto, journal). Os blocos ficam no mundo
+     * como blocos comuns; usar o helm de novo monta um navio novo. Thread do mundo.
+     *
+     * @return false se o navio está fora do modo bloco (as partes ainda são entidades)
+     */
+    public boolean unregister(ShipController ship) {
+        if (ship.isActiveEntity() || ship.isTransitioning()) return false;
+        removeShip(ship);
+        return true;
+    }
+
+    private void removeShip(ShipController ship) {
+        ShipJournal journal = registry.getJournal();
+        if (ships.remove(ship.getShipId(), ship) && journal != null) journal.shipRemoved(ship.getShipId());
+        shipPilot.remove(ship.getShipId());
+        ShipWorldShard shard = shards.get(ship.getWorldName());
+        if (shard != null) shard.remove(ship);
+        ship.detach();
+    }
+
+    /**
+     * Tira do registro os navios docados deste mundo cujo helm sumiu fora dos eventos
+     * (thread do mundo; ORPHAN_CHECKS_PER_SWEEP navios a cada ORPHAN_SWEEP_INTERVAL_MILLIS).
+     */
+    public void collectOrphanedShips(World world) {
+        String worldName = world.getName();
+        ShipWorldShard shard = shards.get(worldName);
+        if (shard == null) return;
+
+        long now = System.currentTimeMillis();
+        Long last = lastOrphanSweep.get(worldName);
+        if (last != null && now - last < ORPHAN_SWEEP_INTERVAL_MILLIS) return;
+        lastOrphanSweep.put(worldName, now);
+
+        ShipController[] list = shard.ships();
+        int n = list.length;
+        if (n == 0) return;
+        int start = Math.floorMod(orphanCursor.getAndAdd(ORPHAN_CHECKS_PER_SWEEP), n);
+        int removed = 0;
+        for (int i = 0; i < Math.min(n, ORPHAN_CHECKS_PER_SWEEP); i++) {
+            ShipController ship = list[(start + i) % n];
+            if (!isOrphaned(world, ship)) continue;
+            ShipLogger.info("[SHIPS] Navio sem helm removido do registro: shipId=" + ship.getShipId()
+                    + " helm=" + ship.getHeader().getDockedHelm());
+            removeShip(ship);
+            removed++;
+        }
+        if (removed > 0) orphansCollected.addAndGet(removed);
+    }
+
+    /**
+     * Esquece as partes estacionadas que foram embora com um chunk descarregado (thread do mundo).
+     */
+    public void pruneParkedParts(World world) {
+        String worldName = world.getName();
+        long now = System.currentTimeMillis();
+        Long last = lastPoolSweep.get(worldName);
+        if (last != null && now - last < POOL_SWEEP_INTERVAL_MILLIS) return;
+        lastPoolSweep.put(worldName, now);
+
+        int dropped = entityPool.dropUnloaded(world);
+        if (dropped > 0) {
+            ShipLogger.debug("[SHIPS] Pool de entidades: " + dropped + " navios perderam partes com chunk descarregado (" + worldName + ")");
+        }
+    }
+
+    /**
+     * Mundo removido do servidor: esquece as partes estacionadas nele.
+     */
+    public void worldRemoved(World world) {
+        entityPool.dropWorld(world);
+        lastPoolSweep.remove(world.getName());
+    }
+
+    public long getOrphansCollected() {
+        return orphansCollected.get();
+    }
+
+    // docado, sem piloto, sem blocos pendentes, chunk em memória e sem Helm na célula docada
+    private boolean isOrphaned(World world, ShipController ship) {
+        if (ship.isPendingPlacement() || ship.isActiveEntity() || ship.isTransitioning()) return false;
+        if (shipPilot.containsKey(ship.getShipId())) return false;
+
+        ShipHeader h = ship.getHeader();
+        int x = h.getDockedX();
+        int y = h.getDockedY();
+        int z = h.getDockedZ();
+        WorldChunk chunk = world.getChunkIfInMemory(ChunkUtil.indexChunkFromBlock(x, z));
+        if (chunk == null) return false;
+        return !HELM_IDS.test(chunk.getBlock(ChunkUtil.localCoordinate(x), y, ChunkUtil.localCoordinate(z)));
+    }
+
+    public ShipTransitionBudget getTransitionBudget() {
+        return transitionBudget;
+    }
+
+    public ShipEntityPool getEntityPool() {
+        return entityPool;
+    }
+
+    public ShipInterestSettings getInterestSettings() {
+        return interestSettings;
+    }
+
+    public ShipLodSettings getLodSettings() {
+        return lodSettings;
+    }
+
+    public ShipPlayerTracker getPlayerTracker() {
+        return playerTracker;
+    }
+
+    public ShipChunkStamps getChunkStamps() {
+        return chunkStamps;
+    }
+
+    public ShipAssemblyCache getAssemblyCache() {
+        return assemblyCache;
+    }
+
+    public ShipAssemblyService getAssemblyService() {
+        return assemblyService;
+    }
+
+    public ShipCompactionSettings getCompactionSettings() {
+        return residency.getCompactionSettings();
+    }
+
+    public ShipJournalSettings getJournalSettings() {
+        return registry.getJournalSettings();
+    }
+
+    public ShipResidencySettings getResidencySettings() {
+        return residency.getResidencySettings();
+    }
+
+    public ShipAssemblySettings getAssemblySettings() {
+        return assemblySettings;
+    }
+
+    public ShipHelmIndexSettings getHelmIndexSettings() {
+        return helmIndexSettings;
+    }
+
+    public ShipJournal getJournal() {
+        return registry.getJournal();
+    }
+
+    public long getCompactions() {
+        return residency.getCompactions();
+    }
+
+    /**
+     * Soma da economia estimada de heap de todas as compactações.
+     */
+    public long getCompactionSavedBytes() {
+        return residency.getCompactionSavedBytes();
+    }
+
+    public long getEvictions() {
+        return residency.getEvictions();
+    }
+
+    /**
+     * Soma do heap estimado dos corpos soltos.
+     */
+    public long getEvictedBytes() {
+        return residency.getEvictedBytes();
+    }
+
+    /**
+     * Navios com o corpo em memória (todos os mundos).
+     */
+    public int getResidentBodyCount() {
+        return residency.getResidentBodyCount();
+    }
+
+    /**
+     * Compacta navios docados ociosos deste mundo (thread do mundo; ver ShipCompactionSettings).
+     */
+    public void compactIdleShips(World world) {
+        ShipWorldShard shard = shards.get(world.getName());
+        if (shard != null) residency.compactIdleShips(world, shard.ships());
+    }
+
+    /**
+     * Solta corpos frios deste mundo quando passam do orçamento (thread do mundo; ver
+     * ShipResidencySettings).
+     */
+    public void evictColdBodies(World world) {
+        residency.evictColdBodies(world);
+    }
+
+    /**
+     * Índice de helms do mundo (chamado a cada tick do mundo, na thread dele): a cada
+     * watchIntervalMillis procura chunks que entraram em memória em volta dos jogadores;
+     * a cada tick varre seções pendentes dentro do orçamento.
+     */
+    public void tickHelmIndex(World world) {
+        ShipHelmIndexSettings settings = helmIndexSettings;
+        if (!settings.isEnabled()) return;
+
+        String worldName = world.getName();
+        ShipWorldShard shard = shard(worldName);
+        ShipHelmBlockIndex index = shard.helmBlocks;
+
+        long now = System.currentTimeMillis();
+        Long last = lastHelmWatch.get(worldName);
+        if (last == null || now - last >= settings.getWatchIntervalMillis()) {
+            lastHelmWatch.put(worldName, now);
+            double[] players = new double[3 * 256];
+            int n = playerTracker.collectAll(worldName, players);
+            int r = settings.getWatchRadiusChunks();
+            for (int p = 0; p < n; p++) {
+                int px = (int) Math.floor(players[p * 3]);
+                int pz = (int) Math.floor(players[p * 3 + 2]);
+                for (int dx = -r; dx <= r; dx++) {
+                    for (int dz = -r; dz <= r; dz++) {
+                        index.watch(world, px + dx * HELM_INDEX_CHUNK_SIZE, pz + dz * HELM_INDEX_CHUNK_SIZE);
+                    }
+                }
+            }
+            index.prune();
+        }
+
+        if (!index.hasPending()) return;
+        ShipHelmBlockIndex.HelmFound onFound = settings.isPreRegisterDocked()
+                ? (chunk, x, y, z) -> preRegisterHelm(world, shard, chunk, x, y, z)
+                : null;
+        index.scan(world, settings.getMaxScanNanosPerTick(), HELM_IDS, onFound);
+    }
+
+    /**
+     * Helm mais perto de pos na caixa radiusXZ x radiusY, pelo índice de helms (thread do
+     * mundo). Chunk ainda não indexado é lido direto e entra na fila de varredura.
+     */
+    public Vector3i findNearestHelm(World world, Vector3d pos, int radiusXZ, int radiusY) {
+        ShipHelmBlockIndex index = shard(world.getName()).helmBlocks;
+        return index.nearest(world, (int) Math.floor(pos.getX()), (int) Math.floor(pos.getY()),
+                (int) Math.floor(pos.getZ()), radiusXZ, radiusY, HELM_IDS);
+    }
+
+    /**
+     * Navios docados registrados a partir de helms achados pela varredura.
+     */
+    public long getPreRegistered() {
+        return preRegistered.get();
+    }
+
+    // helm sem navio achado na varredura: monta (assíncrono) e registra docado
+    @SuppressWarnings("removal")
+    private void preRegisterHelm(World world, ShipWorldShard shard, WorldChunk chunk, int x, int y, int z) {
+        if (shard.getByHelm(x, y, z) != null) return;
+
+        String worldName = world.getName();
+        Vector3i helm = new Vector3i(x, y, z);
+        int ori = chunk.getRotationIndex(ChunkUtil.localCoordinate(x), y, ChunkUtil.localCoordinate(z));
+        assemblyService.request(world, helm, ori, structure -> {
+            if (structure.size() == 0 || getByHelm(worldName, helm) != null) return;
+            ShipController ship = createShip(worldName, helm, ori, structure);
+            preRegistered.incrementAndGet();
+            ShipLogger.info("[SHIPS] Navio docado pre-registrado pelo indice de helms: shipId=" + ship.getShipId()
+                    + " helm=" + helm + " blocos=" + structure.size());
+        });
+    }
+
+    /**
+     * Arquivo do blueprint com esse nome (letras, números, _ e -), ou null se o nome não serve.
+     */
+    public Path resolveBlueprint(String name) {
+        if (blueprintDirectory == null || name == null || !BLUEPRINT_NAME.matcher(name).matches()) return null;
+        return blueprintDirectory.resolve(name + ShipBlueprint.EXTENSION);
+    }
+
+    /**
+     * Exporta o navio para um blueprint. Thread do mundo: carrega o corpo se estiver solto e
+     * pega o store atual (imutável); a compressão e a escrita vão para background.
+     *
+     * @return tamanho do arquivo; falha se o nome não serve, o corpo não carrega ou o disco falhar
+     */
+    public CompletableFuture<Long> exportBlueprint(World world, ShipController ship, String name) {
+        Path file = resolveBlueprint(name);
+        if (file == null) return CompletableFuture.failedFuture(new IOException("Nome de blueprint invalido: " + name));
+        if (!ship.ensureBody(world)) return CompletableFuture.failedFuture(new IOException("Navio sem corpo carregavel"));
+
+        ShipStructure structure = ship.getStructure();
+        ShipBlockStore store = structure.getStore();
+        ShipBounds bounds = structure.bounds();
+        int helmOri = ship.getHelmOrientation();
+        UUID shipId = ship.getShipId();
+
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                long bytes = ShipBlueprint.write(file, store, bounds, helmOri);
+                ShipLogger.success("[SHIPS] Blueprint exportado: " + file + " shipId=" + shipId + " blocos=" + store.size()
+                        + " arquivo=" + (bytes / 1024) + "KB (" + (bytes * 100 / Math.max(1L, (long) store.size() * ShipBlockStore.bytesPerBlock()))
+                        + "% dos arrays) em " + ((System.nanoTime() - start) / 1_000_000L) + "ms");
+                return bytes;
+            } catch (IOException e) {
+                ShipLogger.error("[SHIPS] Falha ao exportar blueprint " + file + ": " + e.getMessage());
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Começa a colocar o blueprint com o helm em origin (lido do disco em janelas, fatiado por
+     * tick com o orçamento das transições). onFinish roda na thread do mundo ao terminar.
+     */
+    public ShipBlueprintPlacement importBlueprint(World world, String name, Vector3i origin, int orientation,
+                                                  Consumer<ShipBlueprintPlacement> onFinish) throws IOException {
+        Path file = resolveBlueprint(name);
+        if (file == null) throw new IOException("Nome de blueprint invalido: " + name);
+
+        ShipBlueprintPlacement placement = new ShipBlueprintPlacement(file, world.getName(), origin, orientation);
+        blueprintPlacements.add(new Placement(placement, onFinish));
+        ShipLogger.info("[SHIPS] Blueprint na fila: " + file.getFileName() + " blocos=" + placement.size()
+                + " em " + world.getName() + " " + origin + " ori=" + (orientation & 3));
+        return placement;
+    }
+
+    public boolean hasBlueprintPlacements() {
+        return !blueprintPlacements.isEmpty();
+    }
+
+    /**
+     * Avança o primeiro blueprint deste mundo na fila (thread do mundo).
+     */
+    public void tickBlueprintPlacements(World world) {
+        String worldName = world.getName();
+        for (Placement p : blueprintPlacements) {
+            if (!worldName.equals(p.placement.getWorldName())) continue;
+
+            if (p.placement.tick(world, transitionBudget.getMaxNanosPerTick(), chunkStamps)) {
+                blueprintPlacements.remove(p);
+                if (p.onFinish != null) p.onFinish.accept(p.placement);
+            }
+            return;
+        }
+    }
+
+    private static final class Placement {
+        final ShipBlueprintPlacement placement;
+        final Consumer<ShipBlueprintPlacement> onFinish;
+
+        Placement(ShipBlueprintPlacement placement, Consumer<ShipBlueprintPlacement> onFinish) {
+            this.placement = placement;
+            this.onFinish = onFinish;
+        }
+    }
+
+    /**
+     * Navio do mundo com o helm mais perto de pos, dentro de radius (null se nenhum).
+     * Busca no grid de helms do mundo: só as colunas em volta de pos.
+     */
+    public ShipController findNearestShip(String worldName, Vector3d pos, double radius) {
+        ShipWorldShard shard = shards.get(worldName);
+        return shard != null ? shard.nearest(pos.getX(), pos.getY(), pos.getZ(), radius) : null;
+    }
+
+    /**
+     * Os até out.length navios com o helm mais perto de pos (dentro de radius), em ordem de
+     * distância.
+     *
+     * @return quantos foram copiados para out
+     */
+    public int findNearestShips(String worldName, Vector3d pos, double radius, ShipController[] out) {
+        ShipWorldShard shard = shards.get(worldName);
+        return shard != null ? shard.nearest(pos.getX(), pos.getY(), pos.getZ(), radius, out) : 0;
+    }
+
+    /**
+     * Navios com o helm a até radius de pos (sem ordem).
+     *
+     * @return quantos foram copiados para out (no máximo out.length)
+     */
+    public int findShipsWithin(String worldName, Vector3d pos, double radius, ShipController[] out) {
+        ShipWorldShard shard = shards.get(worldName);
+        return shard != null ? shard.withinRadius(pos.getX(), pos.getY(), pos.getZ(), radius, out) : 0;
+    }
+
+    /**
+     * Bloco colocado/quebrado no mundo (chamado pelos sistemas de evento, antes da mudança valer).
+     * Marca o chunk e, no próximo passo da thread do mundo, corrige a estrutura dos navios
+     * docados que alcançam a célula.
+     */
+    public void onWorldBlockChanged(World world, int x, int y, int z) {
+        String worldName = world.getName();
+        chunkStamps.markChanged(worldName, x, z);
+
+        world.execute(() -> {
+            ShipWorldShard shard = shard(worldName);
+            shard.helmBlocks.onBlockChanged(world, x, y, z, HELM_IDS);
+            for (ShipController ship : shard.ships()) {
+                if (!ship.mayContainDocked(x, y, z)) continue;
+                ship.applyWorldEdit(world, x, y, z, assemblySettings.getRadiusXZ(), assemblySettings.getMaxBlocks());
+            }
+            // o próprio helm docado quebrou: o navio sai do registro na hora
+            ShipController owner = shard.getByHelm(x, y, z);
+            if (owner != null && isOrphaned(world, owner)) {
+                ShipLogger.info("[SHIPS] Helm quebrado, navio removido do registro: shipId=" + owner.getShipId()
+                        + " helm=" + x + "," + y + "," + z);
+                removeShip(owner);
+                orphansCollected.incrementAndGet();
+            }
+        });
+    }
+
     public ShipController get(UUID shipId) {
         return ships.get(shipId);
     }
 
+    /**
+     * Navio docado com o helm nesta célula (pose docada atual, não a da montagem).
+     */
     public ShipController getByHelm(String worldName, Vector3i helmBlock) {
-        Map<Long, UUID> map = helmIndex.get(worldName);
-        if (map == null) return null;
-
-        UUID id = map.get(pack(helmBlock.x, helmBlock.y, helmBlock.z));
-        if (id == null) return null;
-        return ships.get(id);
+        ShipWorldShard shard = shards.get(worldName);
+        return shard != null ? shard.getByHelm(helmBlock.x, helmBlock.y, helmBlock.z) : null;
     }
 
     public boolean tryAssignPilot(UUID shipId, UUID pilotUuid) {
-        return shipPilot.putIfAbsent(shipId, pilotUuid) == null;
+        if (shipPilot.putIfAbsent(shipId, pilotUuid) != null) return false;
+        ShipJournal journal = registry.getJournal();
+        if (journal != null) journal.pilotChanged(shipId, pilotUuid);
+        return true;
     }
 
     public void releasePilot(UUID shipId, UUID pilotUuid) {
-        shipPilot.remove(shipId, pilotUuid);
+        ShipJournal journal = registry.getJournal();
+        if (shipPilot.remove(shipId, pilotUuid) && journal != null) journal.pilotChanged(shipId, null);
     }
 
     public UUID getPilot(UUID shipId) {
         return shipPilot.get(shipId);
     }
 
+    /**
+     * Todos os navios, todos os mundos (varreduras raras; no caminho quente usar
+     * getShips/getActiveShips do mundo).
+     */
     public Collection<ShipController> getAllShips() {
         return ships.values();
     }
 
-    private void indexHelm(String worldName, Vector3i helmBlock, UUID shipId) {
-        helmIndex.computeIfAbsent(worldName, k -> new ConcurrentHashMap<>())
-                .put(pack(helmBlock.x, helmBlock.y, helmBlock.z), shipId);
+    private static final ShipController[] NO_SHIPS = new ShipController[0];
+
+    private ShipWorldShard shard(String worldName) {
+        return shards.computeIfAbsent(worldName, ShipWorldShard::new);
     }
 
-    public void clear() {
-        ships.clear();
-        helmIndex.clear();
-        shipPilot.clear();
+    /**
+     * Navios do mundo. Array publicado: sem lock nem cópia, não alterar.
+     */
+    public ShipController[] getShips(String worldName) {
+        ShipWorldShard shard = shards.get(worldName);
+        return shard != null ? shard.ships() : NO_SHIPS;
+    }
+
+    /**
+     * Navios do mundo fora do modo bloco (ativos ou em transição). Array publicado: sem lock
+     * nem cópia, não alterar.
+     */
+    public ShipController[] getActiveShips(String worldName) {
+        ShipWorldShard shard = shards.get(worldName);
+        return shard != null ? shard.active() : NO_SHIPS;
+    }
+
+    /**
+     * Há navio do mundo no meio de uma ativação/docking?
+     */
+    public boolean hasTransitions(String worldName) {
+        for (ShipController ship : getActiveShips(worldName)) {
+            if (ship.isTransitioning()) return true;
+        }
+        return false;
     }
 
-    private static final int WORLD_BIAS = 1 << 25;
-    private static final long MASK_26 = 0x3FFFFFFL;
-    private static final long MASK_12 = 0xFFFL;
+    /**
+     * Anda as ativações/dockings do mundo, com ou sem piloto, dividindo o orçamento do tick.
+     */
+    public void tickTransitions(World world, Store<EntityStore> store) {
+        ShipWorldShard shard = shards.get(world.getName());
+        if (shard == null) return;
+        ShipTransitionTick tick = shard.transitionTick;
+        tick.begin(transitionBudget);
+
+        ShipController[] active = shard.active();
+        int n = active.length;
+        if (n == 0) return;
+        int first = Math.floorMod(tick.round(), n);
+        for (int i = 0; i < n && !tick.exhausted(); i++) {
+            active[(first + i) % n].tickTransition(world, store, tick);
+        }
+    }
 
-    private static long pack(int x, int y, int z) {
-        long xx = ((long) (x + WORLD_BIAS)) & MASK_26;
-        long zz = ((long) (z + WORLD_BIAS)) & MASK_26;
-        long yy = ((long) y) & MASK_12;
-        return (xx << 38) | (zz << 12) | yy;
+    public void clear() {
+        ships.clear();
+        shards.clear();
+        shipPilot.clear();
+        playerTracker.clear();
+        assemblyService.clear();
+        assemblyCache.clear();
+        chunkStamps.clear();
+        residency.clear();
+        lastOrphanSweep.clear();
+        lastPoolSweep.clear();
+        lastHelmWatch.clear();
+        registry.clear();
+        for (Placement p : blueprintPlacements) p.placement.cancel();
+        blueprintPlacements.clear();
+        // partes estacionadas não podem sobrar no mundo depois do plugin sair
+        entityPool.clear();
     }
 }
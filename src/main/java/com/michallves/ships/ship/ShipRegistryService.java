@@ -0,0 +1,237 @@
+package com.michallves.ships.ship;
+
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.michallves.ships.ship.assembly.ShipChunkStamps;
+import com.michallves.ships.ship.assembly.ShipStructure;
+import com.michallves.ships.ship.assembly.ShipWritePlan;
+import com.michallves.ships.ship.persistence.ShipJournal;
+import com.michallves.ships.ship.persistence.ShipJournalSettings;
+import com.michallves.ships.ship.persistence.ShipRegistryFile;
+import com.michallves.ships.utils.ShipLogger;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Registro de navios em disco: snapshot (ShipRegistryFile) + journal, e a recolocação dos
+ * navios salvos fora do modo bloco.
+ */
+final class ShipRegistryService {
+
+    private final ShipJournalSettings journalSettings = new ShipJournalSettings();
+    private final ShipChunkStamps chunkStamps;
+
+    // navios do registro esperando os blocos voltarem ao mundo
+    private final AtomicInteger pendingRestores = new AtomicInteger();
+
+    private Path registryFile;
+    private ShipJournal journal;
+
+    ShipRegistryService(ShipChunkStamps chunkStamps) {
+        this.chunkStamps = chunkStamps;
+    }
+
+    /**
+     * Snapshot do registro; o journal fica ao lado (mesmo nome, .journal).
+     */
+    void setRegistryFile(Path registryFile) {
+        this.registryFile = registryFile;
+        this.journal = registryFile != null ? new ShipJournal(journalFile(), registryFile, journalSettings) : null;
+    }
+
+    ShipJournal getJournal() {
+        return journal;
+    }
+
+    ShipJournalSettings getJournalSettings() {
+        return journalSettings;
+    }
+
+    /**
+     * Snapshot (só os headers; as estruturas ficam no arquivo mapeado) + journal por cima.
+     * Depois disso o journal passa a gravar os eventos novos.
+     */
+    void load(Consumer<ShipController> register) {
+        if (registryFile == null) return;
+
+        long start = System.nanoTime();
+        long generation = 0L;
+        long journalLength = -1L;
+        Collection<ShipRegistryFile.Entry> entries;
+        try {
+            ShipRegistryFile.Snapshot snapshot = ShipRegistryFile.read(registryFile);
+            generation = snapshot.generation;
+            Map<UUID, ShipRegistryFile.Entry> map = ShipJournal.toMap(snapshot.entries);
+            journalLength = ShipJournal.replay(journalFile(), generation, map);
+            entries = map.values();
+        } catch (Exception e) {
+            ShipLogger.error("[SHIPS] Falha ao ler registro " + registryFile + ": " + e.getMessage());
+            return;
+        }
+
+        int pending = 0;
+        for (ShipRegistryFile.Entry e : entries) {
+            ShipController ship = ShipController.restore(e.shipId, e.worldName, e.helmBlock, e.helmOri,
+                    e.structure, e.bounds, e.dockedHelm, e.dockedOri, e.pendingPlacement);
+            register.accept(ship);
+            if (e.pendingPlacement) pending++;
+        }
+        pendingRestores.addAndGet(pending);
+
+        if (!entries.isEmpty()) {
+            ShipLogger.success("[SHIPS] Registro carregado: " + entries.size() + " navios ("
+                    + pending + " a recolocar) em " + ((System.nanoTime() - start) / 1_000_000L) + "ms");
+        }
+
+        try {
+            journal.open(generation, journalLength);
+        } catch (Exception e) {
+            ShipLogger.error("[SHIPS] Falha ao abrir journal " + journalFile() + ": " + e.getMessage());
+        }
+    }
+
+    private Path journalFile() {
+        return registryFile.resolveSibling(registryFile.getFileName() + ".journal");
+    }
+
+    /**
+     * Grava todos os navios (desligamento). Navios fora do modo bloco ficam docados no grid
+     * mais próximo e voltam ao mundo no próximo início (ver placeRestored).
+     */
+    void save(Collection<ShipController> ships) {
+        if (registryFile == null) return;
+
+        // o que ainda estava nas filas vai para o journal: se o snapshot falhar, nada se perde
+        journal.close();
+
+        long start = System.nanoTime();
+        List<ShipRegistryFile.Entry> entries = new ArrayList<>(ships.size());
+        Map<UUID, ShipRegistryFile.Entry> onDisk = null;
+        for (ShipController ship : ships) {
+            prepareForSave(ship);
+            ShipStructure structure = ship.getStructure();
+            if (structure == null) {
+                // corpo solto: igual ao registro lido ou, se mudou depois, ao que está no journal
+                ShipHeader header = ship.getHeader();
+                ByteBuffer saved = header.getPersistedBody();
+                if (saved != null) {
+                    structure = ShipStructure.fromPackedBody(header.getBlockCount(), header.getBounds(), saved);
+                } else {
+                    if (onDisk == null) {
+                        try {
+                            onDisk = journal.readState();
+                        } catch (Exception e) {
+                            // snapshot + journal antigos continuam valendo no próximo início
+                            ShipLogger.error("[SHIPS] Falha ao ler journal para salvar navios sem corpo: " + e.getMessage());
+                            return;
+                        }
+                    }
+                    ShipRegistryFile.Entry e = onDisk.get(ship.getShipId());
+                    if (e == null) {
+                        ShipLogger.warn("[SHIPS] Navio sem corpo fora do journal, nao salvo: shipId=" + ship.getShipId());
+                        continue;
+                    }
+                    structure = e.structure;
+                }
+            }
+            if (structure.size() == 0) continue;
+            entries.add(new ShipRegistryFile.Entry(ship.getShipId(), ship.getWorldName(),
+                    ship.getHelmBlock(), ship.getHelmOrientation(),
+                    ship.getDockedHelm(), ship.getDockedOrientation(), ship.isPendingPlacement(),
+                    structure.bounds(), structure));
+        }
+
+        try {
+            long generation = journal.getGeneration() + 1;
+            ShipRegistryFile.write(registryFile, generation, entries);
+            journal.reset(generation);
+            ShipLogger.success("[SHIPS] Registro salvo: " + entries.size() + " navios em "
+                    + ((System.nanoTime() - start) / 1_000_000L) + "ms");
+        } catch (Exception e) {
+            ShipLogger.error("[SHIPS] Falha ao salvar registro " + registryFile + ": " + e.getMessage());
+        }
+    }
+
+    // blocos fora do mundo (ativo ou em transição): descarta as partes e fica docado no grid
+    // mais próximo, marcado para recolocar quando o mundo voltar
+    private static void prepareForSave(ShipController ship) {
+        ShipBody b = ship.body();
+        if (b == null) return;
+        if (b.lifecycle.hasBlocksInWorld()) {
+            b.lifecycle.discardParts(ship.getShipId());
+            ship.syncAndPublish(b);
+            return;
+        }
+
+        Vector3i dockedHelm = ship.getDockedHelm();
+        int ori = ship.getDockedOrientation();
+        b.lifecycle.discardParts(ship.getShipId());
+        b.dockAt(dockedHelm, ori);
+        ship.getHeader().dockedAt(dockedHelm, ori);
+        ship.clearRequests();
+        ship.setPendingPlacement(true);
+        ship.syncAndPublish(b);
+    }
+
+    boolean hasPendingRestores() {
+        return pendingRestores.get() > 0;
+    }
+
+    /**
+     * Recoloca os blocos dos navios do mundo salvos fora do modo bloco (thread do mundo).
+     * Chunk ainda não carregado => tenta no próximo tick; lugar ocupado => onBlocked.
+     */
+    void placeRestored(World world, ShipController[] ships, Consumer<ShipController> onBlocked) {
+        for (ShipController ship : ships) {
+            if (!ship.isPendingPlacement()) continue;
+
+            int result = placeRestored(world, ship);
+            if (result == 0) continue;
+            pendingRestores.decrementAndGet();
+            if (result < 0) {
+                ShipLogger.warn("[SHIPS] Navio restaurado sem espaco para voltar ao mundo, removido: shipId="
+                        + ship.getShipId() + " helm=" + ship.getDockedHelm());
+                onBlocked.accept(ship);
+            }
+        }
+    }
+
+    // 1 colocado, 0 chunks ainda não carregados, -1 lugar ocupado
+    private int placeRestored(World world, ShipController ship) {
+        if (!ship.ensureBody(world)) return -1;
+
+        UUID shipId = ship.getShipId();
+        ShipHeader header = ship.getHeader();
+        ShipStructure structure = ship.getStructure();
+        ShipWritePlan plan = structure.planWrites(header.getDockedHelm(), header.getDockedOrientation());
+        if (!plan.chunksInMemory(world)) return 0;
+
+        if (structure.isPlacedIn(world, plan)) {
+            // crash com o mundo salvo antes da ativação: os blocos nunca saíram
+            ShipLogger.info("[SHIPS] Navio restaurado ja estava no mundo: shipId=" + shipId + " helm=" + plan.origin);
+        } else {
+            if (!structure.canPlace(world, plan)) return -1;
+            structure.placeIntoWorld(world, plan, 0, plan.size);
+            plan.markChunks(chunkStamps, ship.getWorldName(), 0, plan.size);
+            ship.onBlocksWritten(world, plan, 0, plan.size);
+            ShipLogger.info("[SHIPS] Navio restaurado recolocado: shipId=" + shipId + " helm=" + plan.origin
+                    + " ori=" + plan.orientation + " blocos=" + structure.size());
+        }
+        ship.setPendingPlacement(false);
+        ship.residency.touch();
+        if (journal != null) journal.shipDocked(shipId, plan.origin, plan.orientation);
+        return 1;
+    }
+
+    void clear() {
+        pendingRestores.set(0);
+    }
+}
@@ -0,0 +1,179 @@
+package com.michallves.ships.ship;
+
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.michallves.ships.ship.runtime.ShipCompactionSettings;
+import com.michallves.ships.ship.runtime.ShipResidencySettings;
+import com.michallves.ships.utils.ShipLogger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Varreduras de memória dos navios docados: compacta os ociosos e solta o corpo dos frios
+ * quando passam do orçamento. Chamado a cada tick do mundo, na thread dele.
+ */
+final class ShipResidencyService {
+
+    private final Collection<ShipController> ships;
+    private final Map<UUID, UUID> shipPilot;
+
+    private final ShipCompactionSettings compactionSettings = new ShipCompactionSettings();
+    private final ShipResidencySettings residencySettings = new ShipResidencySettings();
+
+    // por mundo: última varredura de navios ociosos
+    private final Map<String, Long> lastCompactionSweep = new ConcurrentHashMap<>();
+    private final AtomicLong compactions = new AtomicLong();
+    private final AtomicLong compactionSavedBytes = new AtomicLong();
+
+    // por mundo: última conferência do orçamento de corpos
+    private final Map<String, Long> lastResidencySweep = new ConcurrentHashMap<>();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong evictedBytes = new AtomicLong();
+
+    ShipResidencyService(Collection<ShipController> ships, Map<UUID, UUID> shipPilot) {
+        this.ships = ships;
+        this.shipPilot = shipPilot;
+    }
+
+    ShipCompactionSettings getCompactionSettings() {
+        return compactionSettings;
+    }
+
+    ShipResidencySettings getResidencySettings() {
+        return residencySettings;
+    }
+
+    long getCompactions() {
+        return compactions.get();
+    }
+
+    long getCompactionSavedBytes() {
+        return compactionSavedBytes.get();
+    }
+
+    long getEvictions() {
+        return evictions.get();
+    }
+
+    long getEvictedBytes() {
+        return evictedBytes.get();
+    }
+
+    int getResidentBodyCount() {
+        int n = 0;
+        for (ShipController ship : ships) {
+            if (ship.hasBody()) n++;
+        }
+        return n;
+    }
+
+    /**
+     * Compacta navios docados ociosos do mundo (a cada sweepIntervalMillis, no máximo
+     * maxShipsPerSweep navios).
+     */
+    void compactIdleShips(World world, ShipController[] worldShips) {
+        ShipCompactionSettings settings = compactionSettings;
+        if (!settings.isEnabled()) return;
+
+        String worldName = world.getName();
+        long now = System.currentTimeMillis();
+        Long last = lastCompactionSweep.get(worldName);
+        if (last != null && now - last < settings.getSweepIntervalMillis()) return;
+        lastCompactionSweep.put(worldName, now);
+
+        int done = 0;
+        long saved = 0L;
+        long idle = settings.getIdleMillis();
+        int max = settings.getMaxShipsPerSweep();
+        for (ShipController ship : worldShips) {
+            if (done >= max) break;
+            if (shipPilot.containsKey(ship.getShipId())) continue;
+
+            long s = ship.residency.compactIfIdle(now, idle);
+            if (s < 0) continue;
+            done++;
+            saved += s;
+        }
+
+        if (done > 0) {
+            long total = compactionSavedBytes.addAndGet(saved);
+            compactions.addAndGet(done);
+            ShipLogger.info("[SHIPS] Compactacao (" + worldName + "): " + done + " navios, economia "
+                    + (saved / 1024) + "KB (total " + (total / 1024) + "KB em " + compactions.get() + " compactacoes)");
+        }
+    }
+
+    /**
+     * Solta os corpos docados do mundo usados há mais tempo (LRU) enquanto os corpos de todos
+     * os mundos passam do orçamento ou o heap da JVM está alto. Os outros mundos entram com o
+     * heap da última varredura deles.
+     */
+    void evictColdBodies(World world) {
+        ShipResidencySettings settings = residencySettings;
+        if (!settings.isEnabled()) return;
+
+        String worldName = world.getName();
+        long now = System.currentTimeMillis();
+        Long last = lastResidencySweep.get(worldName);
+        if (last != null && now - last < settings.getSweepIntervalMillis()) return;
+        lastResidencySweep.put(worldName, now);
+
+        int resident = 0;
+        long residentBytes = 0L;
+        List<ShipController> candidates = new ArrayList<>();
+        for (ShipController ship : ships) {
+            if (!ship.hasBody()) continue;
+            resident++;
+            if (worldName.equals(ship.getWorldName())) {
+                residentBytes += ship.residency.heapBytes();
+                if (!shipPilot.containsKey(ship.getShipId())) candidates.add(ship);
+            } else {
+                residentBytes += ship.residency.cachedHeapBytes();
+            }
+        }
+
+        Runtime rt = Runtime.getRuntime();
+        boolean pressure = (rt.totalMemory() - rt.freeMemory()) > rt.maxMemory() * settings.getHeapPressureRatio();
+        int maxBodies = settings.getMaxResidentBodies();
+        long maxBytes = settings.getMaxResidentBytes();
+        if (!pressure && resident <= maxBodies && residentBytes <= maxBytes) return;
+
+        // usado há mais tempo primeiro
+        candidates.sort(Comparator.comparingLong(ship -> ship.residency.lastActivityMillis()));
+
+        int done = 0;
+        long freed = 0L;
+        long idle = settings.getMinIdleMillis();
+        int max = settings.getMaxEvictionsPerSweep();
+        for (ShipController ship : candidates) {
+            if (done >= max) break;
+            if (!pressure && resident <= maxBodies && residentBytes <= maxBytes) break;
+
+            long bytes = ship.residency.evict(now, idle);
+            if (bytes < 0) continue;
+            done++;
+            resident--;
+            residentBytes -= bytes;
+            freed += bytes;
+        }
+
+        if (done > 0) {
+            evictions.addAndGet(done);
+            evictedBytes.addAndGet(freed);
+            ShipLogger.info("[SHIPS] Corpos soltos (" + worldName + (pressure ? ", heap da JVM alto" : "") + "): "
+                    + done + " navios, " + (freed / 1024) + "KB; em memoria " + resident + " corpos / "
+                    + (residentBytes / 1024) + "KB de " + ships.size() + " navios");
+        }
+    }
+
+    void clear() {
+        lastCompactionSweep.clear();
+        lastResidencySweep.clear();
+    }
+}
@@ -0,0 +1,168 @@
+package com.michallves.ships.ship;
+
+import com.hypixel.hytale.math.vector.Vector3d;
+import com.michallves.ships.ship.runtime.ShipTransitionTick;
+import com.michallves.ships.utils.ShipBlockKeys;
+import com.michallves.ships.utils.ShipLogger;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Navios de um mundo: índice helm docado -> navio (chave long, sem boxing nem segundo salto
+ * por UUID), todos os navios e os que estão fora do modo bloco (ativos/em transição).
+ *
+ * As listas são arrays copy-on-write: quem varre (colisão por jogador, edições de bloco,
+ * varreduras) lê o array publicado sem lock e sem alocar; só registrar, remover, ativar e
+ * docar (raros) copiam. O índice de helm fica sob o lock do shard.
+ *
+ * Navio ativo sai do índice (o helm não está mais lá) e volta na posição em que docar.
+ * A posição do helm de todos (docados e em movimento) fica num ShipHelmGrid para as buscas
+ * por proximidade; os blocos de helm do mundo (com ou sem navio) ficam no ShipHelmBlockIndex.
+ */
+final class ShipWorldShard {
+
+    private static final ShipController[] EMPTY = new ShipController[0];
+
+    final String worldName;
+
+    private final Long2ObjectOpenHashMap<ShipController> byHelm = new Long2ObjectOpenHashMap<>();
+    private volatile ShipController[] ships = EMPTY;
+    private volatile ShipController[] active = EMPTY;
+
+    private final ShipHelmGrid<ShipController> helms = new ShipHelmGrid<>();
+
+    // blocos de helm do mundo por chunk (só a thread do mundo)
+    final ShipHelmBlockIndex helmBlocks = new ShipHelmBlockIndex();
+    // orçamento das transições do tick atual, dividido por todos os navios do mundo (thread do mundo)
+    final ShipTransitionTick transitionTick = new ShipTransitionTick();
+    private final Vector3d scratch = new Vector3d();
+    private final ShipController[] one = new ShipController[1];
+
+    ShipWorldShard(String worldName) {
+        this.worldName = worldName;
+    }
+
+    synchronized void add(ShipController ship) {
+        ships = append(ships, ship);
+        if (ship.isListedActive()) {
+            active = append(active, ship);
+        } else {
+            indexDocked(ship);
+        }
+        placeHelm(ship);
+    }
+
+    synchronized void remove(ShipController ship) {
+        ships = without(ships, ship);
+        active = without(active, ship);
+        ShipHeader h = ship.getHeader();
+        byHelm.remove(ShipBlockKeys.packWorld(h.getDockedX(), h.getDockedY(), h.getDockedZ()), ship);
+        helms.remove(ship.helmEntry);
+    }
+
+    synchronized ShipController getByHelm(int x, int y, int z) {
+        return byHelm.get(ShipBlockKeys.packWorld(x, y, z));
+    }
+
+    /**
+     * Saiu do modo bloco: o helm docado não vale mais até docar de novo.
+     */
+    synchronized void activated(ShipController ship) {
+        ShipHeader h = ship.getHeader();
+        byHelm.remove(ShipBlockKeys.packWorld(h.getDockedX(), h.getDockedY(), h.getDockedZ()), ship);
+        active = append(active, ship);
+    }
+
+    /**
+     * Voltou ao modo bloco na pose docada atual do header.
+     */
+    synchronized void docked(ShipController ship) {
+        active = without(active, ship);
+        indexDocked(ship);
+        placeHelm(ship);
+    }
+
+    /**
+     * Helm do navio em movimento (a cada tick do navio ativo; só mexe no grid ao trocar de coluna).
+     */
+    synchronized void moved(ShipController ship, Vector3d helmWorld) {
+        if (!ship.helmEntry.indexed) return;
+        helms.put(ship.helmEntry, helmWorld.getX(), helmWorld.getY(), helmWorld.getZ());
+    }
+
+    synchronized ShipController nearest(double x, double y, double z, double radius) {
+        if (helms.nearest(x, y, z, radius, one) == 0) return null;
+        ShipController best = one[0];
+        one[0] = null;
+        return best;
+    }
+
+    /**
+     * @see ShipHelmGrid#nearest
+     */
+    synchronized int nearest(double x, double y, double z, double radius, ShipController[] out) {
+        return helms.nearest(x, y, z, radius, out);
+    }
+
+    /**
+     * @see ShipHelmGrid#withinRadius
+     */
+    synchronized int withinRadius(double x, double y, double z, double radius, ShipController[] out) {
+        return helms.withinRadius(x, y, z, radius, out);
+    }
+
+    private void placeHelm(ShipController ship) {
+        Vector3d p = ship.getHelmWorldPosition(scratch);
+        helms.put(ship.helmEntry, p.getX(), p.getY(), p.getZ());
+    }
+
+    private void indexDocked(ShipController ship) {
+        ShipHeader h = ship.getHeader();
+        ShipController old = byHelm.put(ShipBlockKeys.packWorld(h.getDockedX(), h.getDockedY(), h.getDockedZ()), ship);
+        if (old != null && old != ship) {
+            // dois navios docados com o helm na mesma célula: fica o mais novo no índice
+            ShipLogger.warn("[SHIPS] Helm docado compartilhado em " + h.getDockedHelm()
+                    + ": shipId=" + ship.getShipId() + " substitui " + old.getShipId() + " no indice");
+        }
+    }
+
+    /**
+     * Todos os navios do mundo (array publicado; não alterar).
+     */
+    ShipController[] ships() {
+        return ships;
+    }
+
+    /**
+     * Navios fora do modo bloco (array publicado; não alterar).
+     */
+    ShipController[] active() {
+        return active;
+    }
+
+    int size() {
+        return ships.length;
+    }
+
+    private static ShipController[] append(ShipController[] arr, ShipController ship) {
+        for (ShipController s : arr) {
+            if (s == ship) return arr;
+        }
+        ShipController[] next = Arrays.copyOf(arr, arr.length + 1);
+        next[arr.length] = ship;
+        return next;
+    }
+
+    private static ShipController[] without(ShipController[] arr, ShipController ship) {
+        for (int i = 0; i < arr.length; i++) {
+            if (arr[i] != ship) continue;
+            if (arr.length == 1) return EMPTY;
+            ShipController[] next = new ShipController[arr.length - 1];
+            System.arraycopy(arr, 0, next, 0, i);
+            System.arraycopy(arr, i + 1, next, i, arr.length - i - 1);
+            return next;
+        }
+        return arr;
+    }
+}
@@ -1,32 +1,32 @@
 package com.michallves.ships.ship.assembly;
 
-import com.hypixel.hytale.math.util.ChunkUtil;
 import com.hypixel.hytale.math.vector.Vector3i;
 import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
 import com.hypixel.hytale.server.core.universe.world.World;
-import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
 import com.michallves.ships.utils.ShipLogger;
-import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
-
-import java.util.ArrayDeque;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
 
 public final class ShipAssembler {
 
+    // Tamanho máximo de navio (montagem e edições incrementais)
+    public static final int DEFAULT_MAX_BLOCKS = 6000;
+
     // LIMITES DE SEGURANÇA (pra não puxar terreno / mundo)
-    // Ajuste depois se quiser navios maiores.
-    private static final int MAX_RADIUS_XZ = 48;   // alcance horizontal a partir do helm
-    private static final int MAX_DOWN_Y   = 10;   // quantos blocos pode descer abaixo do helm
-    private static final int MAX_UP_Y     = 40;   // quantos blocos pode subir acima do helm
-
-    private static final int WORLD_BIAS = 1 << 25;
-    private static final long MASK_26 = 0x3FFFFFFL;
-    private static final long MASK_12 = 0xFFFL;
-
-    private static long pack(int x, int y, int z) {
-        long xx = ((long) (x + WORLD_BIAS)) & MASK_26;
-        long zz = ((long) (z + WORLD_BIAS)) & MASK_26;
-        long yy = ((long) y) & MASK_12;
-        return (xx << 38) | (zz << 12) | yy;
+    // Navios maiores: ShipAssemblySettings (capitania, opcional), até MAX_RADIUS_XZ.
+    static final int DEFAULT_RADIUS_XZ = 48;   // alcance horizontal a partir do helm
+    static final int MAX_RADIUS_XZ = 96;   // teto do alcance (capitania)
+    static final int MAX_DOWN_Y   = 10;   // quantos blocos pode descer abaixo do helm
+    static final int MAX_UP_Y     = 40;   // quantos blocos pode subir acima do helm
+
+    // Altura da caixa de busca ao redor do helm (índice do bitmap de visitados)
+    private static final int BOX_Y = MAX_DOWN_Y + MAX_UP_Y + 1;
+
+    private static final int WORLD_MIN_Y = 0;
+    private static final int WORLD_MAX_Y = 320;
+
+    // Fila guarda offsets relativos à caixa: 16 bits por eixo
+    private static long pack(int rx, int ry, int rz) {
+        return ((long) rx << 32) | ((long) rz << 16) | ry;
     }
 
     private ShipAssembler() {}
@@ -35,126 +35,133 @@ public final class ShipAssembler {
      * Captura APENAS blocos conectados (6-direções) ao Helm.
      *
      * @param baseOri orientação do helm (0..3) para normalizar offsets locais do navio
+     * @param radiusXZ alcance horizontal (até MAX_RADIUS_XZ)
      * @param maxBlocks hard cap de segurança
      */
-    public static ShipStructure assembleConnected(World world, Vector3i helmBlock, int baseOri, int maxBlocks) {
-        ArrayDeque<Vector3i> queue = new ArrayDeque<>();
-        LongOpenHashSet visited = new LongOpenHashSet(Math.max(1024, maxBlocks * 2));
-
-        queue.add(new Vector3i(helmBlock));
-        visited.add(pack(helmBlock.x, helmBlock.y, helmBlock.z));
-
-        ShipBlock[] temp = new ShipBlock[Math.min(maxBlocks, 2048)];
-        int count = 0;
-
-        int minX = helmBlock.x, maxX = helmBlock.x;
-        int minY = helmBlock.y, maxY = helmBlock.y;
-        int minZ = helmBlock.z, maxZ = helmBlock.z;
+    public static ShipStructure assembleConnected(World world, Vector3i helmBlock, int baseOri, int radiusXZ, int maxBlocks) {
+        return assembleConnected(new WorldCellReader(world), helmBlock, baseOri, radiusXZ, maxBlocks, true);
+    }
 
+    /**
+     * Flood fill (BFS) em fila de longs + bitmap de visitados do tamanho da caixa de busca:
+     * nenhuma alocação por célula nem por bloco (arrays primitivos do ShipBlockStoreBuilder).
+     */
+    static ShipStructure assembleConnected(ShipCellReader reader, Vector3i helmBlock, int baseOri, int radiusXZ,
+                                           int maxBlocks, boolean log) {
+        final int radius = Math.max(1, Math.min(MAX_RADIUS_XZ, radiusXZ));
+        final int boxXZ = radius * 2 + 1;
         final int hx = helmBlock.x;
         final int hy = helmBlock.y;
         final int hz = helmBlock.z;
 
+        // origem da caixa (rx/ry/rz = 0 no canto mínimo)
+        final int bx = hx - radius;
+        final int by = hy - MAX_DOWN_Y;
+        final int bz = hz - radius;
+
+        LongArrayFIFOQueue queue = new LongArrayFIFOQueue(1024);
+        long[] visited = new long[(boxXZ * boxXZ * BOX_Y + 63) >>> 6];
+
+        queue.enqueue(pack(radius, MAX_DOWN_Y, radius));
+        markVisited(visited, boxXZ, radius, MAX_DOWN_Y, radius);
+
+        ShipBlockStoreBuilder found = new ShipBlockStoreBuilder(Math.min(maxBlocks, 2048));
+        int count = 0;
+
+        int minX = hx, maxX = hx;
+        int minY = hy, maxY = hy;
+        int minZ = hz, maxZ = hz;
+
         // inverso da orientação do helm pra converter mundo -> local
         final int invOri = floorMod(-baseOri, 4);
 
         while (!queue.isEmpty() && count < maxBlocks) {
-            Vector3i p = queue.removeFirst();
+            long p = queue.dequeueLong();
+            int rx = (int) (p >>> 32);
+            int rz = (int) (p >>> 16) & 0xFFFF;
+            int ry = (int) p & 0xFFFF;
 
-            // Limites (evita puxar o mundo)
-            if (Math.abs(p.x - hx) > MAX_RADIUS_XZ) continue;
-            if (Math.abs(p.z - hz) > MAX_RADIUS_XZ) continue;
-            if (p.y < hy - MAX_DOWN_Y) continue;
-            if (p.y > hy + MAX_UP_Y) continue;
+            int x = bx + rx;
+            int y = by + ry;
+            int z = bz + rz;
 
-            int id = world.getBlock(p.x, p.y, p.z);
+            int id = reader.read(x, y, z);
 
-            // *** FIX PRINCIPAL ***
-            // Se é EMPTY, NÃO expande vizinhos.
+            // Se é EMPTY (ou asset desconhecido), NÃO expande vizinhos.
             if (id == BlockType.EMPTY_ID) {
                 continue;
             }
 
-            BlockType type = BlockType.getAssetMap().getAsset(id);
-            if (type == null) {
-                continue;
-            }
-
-            int rot = getRotationIndex(world, p);
-
             // offsets mundo
-            int dxW = p.x - hx;
-            int dy = p.y - hy;
-            int dzW = p.z - hz;
+            int dxW = x - hx;
+            int dy = y - hy;
+            int dzW = z - hz;
 
             // converte para offsets locais (normalizado pela orientação do helm)
-            Vector3i local = ShipStructure.rotateOffset(dxW, dy, dzW, invOri);
+            int lx;
+            int lz;
+            switch (invOri) {
+                case 0 -> { lx = dxW; lz = dzW; }
+                case 1 -> { lx = -dzW; lz = dxW; }
+                case 2 -> { lx = -dxW; lz = -dzW; }
+                default -> { lx = dzW; lz = -dxW; }
+            }
 
             // rotação local do bloco relativa ao helm
-            int localRot = (rot - baseOri) & 3;
-
-            if (count >= temp.length) {
-                // cresce sem passar do maxBlocks
-                int newLen = Math.min(maxBlocks, temp.length * 2);
-                ShipBlock[] grow = new ShipBlock[newLen];
-                System.arraycopy(temp, 0, grow, 0, temp.length);
-                temp = grow;
-            }
+            int localRot = (reader.rotation() - baseOri) & 3;
 
-            temp[count++] = new ShipBlock(local.x, local.y, local.z, id, type, localRot);
+            found.add(lx, dy, lz, id, reader.type(), localRot);
+            count++;
 
             // bounds log
-            minX = Math.min(minX, p.x);
-            maxX = Math.max(maxX, p.x);
-            minY = Math.min(minY, p.y);
-            maxY = Math.max(maxY, p.y);
-            minZ = Math.min(minZ, p.z);
-            maxZ = Math.max(maxZ, p.z);
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+            minZ = Math.min(minZ, z);
+            maxZ = Math.max(maxZ, z);
 
             // Só expande vizinhos PORQUE este bloco é sólido (não-empty)
-            expand(queue, visited, hx, hy, hz, p.x + 1, p.y, p.z);
-            expand(queue, visited, hx, hy, hz, p.x - 1, p.y, p.z);
-            expand(queue, visited, hx, hy, hz, p.x, p.y + 1, p.z);
-            expand(queue, visited, hx, hy, hz, p.x, p.y - 1, p.z);
-            expand(queue, visited, hx, hy, hz, p.x, p.y, p.z + 1);
-            expand(queue, visited, hx, hy, hz, p.x, p.y, p.z - 1);
+            expand(queue, visited, boxXZ, by, rx + 1, ry, rz);
+            expand(queue, visited, boxXZ, by, rx - 1, ry, rz);
+            expand(queue, visited, boxXZ, by, rx, ry + 1, rz);
+            expand(queue, visited, boxXZ, by, rx, ry - 1, rz);
+            expand(queue, visited, boxXZ, by, rx, ry, rz + 1);
+            expand(queue, visited, boxXZ, by, rx, ry, rz - 1);
         }
 
-        ShipLogger.info("[SHIPS] ShipAssembler: capturou " + count + " blocos. Bounds=("
-                + minX + "," + minY + "," + minZ + ") -> (" + maxX + "," + maxY + "," + maxZ + ")");
+        if (log) {
+            ShipLogger.info("[SHIPS] ShipAssembler: capturou " + count + " blocos. Bounds=("
+                    + minX + "," + minY + "," + minZ + ") -> (" + maxX + "," + maxY + "," + maxZ + ")");
+        }
 
-        ShipBlock[] blocks = new ShipBlock[count];
-        System.arraycopy(temp, 0, blocks, 0, count);
-        return new ShipStructure(blocks);
+        return new ShipStructure(found);
     }
 
-    private static void expand(ArrayDeque<Vector3i> queue,
-                               LongOpenHashSet visited,
-                               int hx, int hy, int hz,
-                               int x, int y, int z) {
-
-        // limites iguais aos do loop (pra não enfileirar lixo)
-        if (Math.abs(x - hx) > MAX_RADIUS_XZ) return;
-        if (Math.abs(z - hz) > MAX_RADIUS_XZ) return;
-        if (y < hy - MAX_DOWN_Y) return;
-        if (y > hy + MAX_UP_Y) return;
+    private static void expand(LongArrayFIFOQueue queue, long[] visited, int boxXZ, int by, int rx, int ry, int rz) {
+        // limites da caixa (evita puxar o mundo)
+        if (rx < 0 || rx >= boxXZ) return;
+        if (rz < 0 || rz >= boxXZ) return;
+        if (ry < 0 || ry >= BOX_Y) return;
 
-        if (y < 0 || y >= 320) return;
+        int y = by + ry;
+        if (y < WORLD_MIN_Y || y >= WORLD_MAX_Y) return;
 
-        long k = pack(x, y, z);
-        if (visited.add(k)) {
-            queue.add(new Vector3i(x, y, z));
+        if (markVisited(visited, boxXZ, rx, ry, rz)) {
+            queue.enqueue(pack(rx, ry, rz));
         }
     }
 
-    @SuppressWarnings("removal")
-    private static int getRotationIndex(World world, Vector3i pos) {
-        WorldChunk chunk = world.getChunkIfInMemory(ChunkUtil.indexChunkFromBlock(pos.x, pos.z));
-        if (chunk == null) return 0;
-
-        int lx = ChunkUtil.localCoordinate(pos.x);
-        int lz = ChunkUtil.localCoordinate(pos.z);
-        return chunk.getRotationIndex(lx, pos.y, lz);
+    /**
+     * @return true se a célula ainda não tinha sido visitada
+     */
+    private static boolean markVisited(long[] visited, int boxXZ, int rx, int ry, int rz) {
+        int bit = (rx * boxXZ + rz) * BOX_Y + ry;
+        int word = bit >>> 6;
+        long mask = 1L << (bit & 63);
+        if ((visited[word] & mask) != 0) return false;
+        visited[word] |= mask;
+        return true;
     }
 
     private static int floorMod(int a, int b) {
@@ -0,0 +1,278 @@
+package com.michallves.ships.ship.assembly;
+
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
+import com.michallves.ships.utils.ShipLogger;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+
+/**
+ * Benchmark headless do flood fill: casco sintético (~6000 blocos) num mundo em chunks
+ * 32x320x32, comparando a travessia antiga (ArrayDeque de Vector3i, getBlock + rotação
+ * separados por célula) com a atual (fila de longs + cursor de chunk) e com o flood por
+ * seções em paralelo; depois o mesmo para uma nau capitânia de ~100k blocos.
+ *
+ * <pre>
+ * ShipAssemblerBenchmark [blocos] [repeticoes] [blocosCapitania]
+ * </pre>
+ */
+public final class ShipAssemblerBenchmark {
+
+    private static final int WARMUP = 20;
+
+    private ShipAssemblerBenchmark() {}
+
+    public static void main(String[] args) {
+        int hullBlocks = args.length > 0 ? Integer.parseInt(args[0]) : 6000;
+        int reps = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int flagshipBlocks = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+
+        SyntheticWorld world = SyntheticWorld.hull(hullBlocks);
+        Vector3i helm = world.helm;
+
+        int legacyCount = legacyAssemble(world, helm, 0, Integer.MAX_VALUE).size();
+        int currentCount = ShipAssembler.assembleConnected(world.reader(), helm, 0, ShipAssembler.MAX_RADIUS_XZ, Integer.MAX_VALUE, false).size();
+        ShipLogger.info("[BENCH] casco=" + world.solidCount + " blocos capturados antigo=" + legacyCount
+                + " atual=" + currentCount);
+        if (legacyCount != currentCount) {
+            ShipLogger.warn("[BENCH] Contagens diferentes entre as travessias!");
+        }
+
+        report("antigo", measure(reps, () -> legacyAssemble(world, helm, 0, Integer.MAX_VALUE)));
+        report("atual ", measure(reps, () -> ShipAssembler.assembleConnected(world.reader(), helm, 0, ShipAssembler.MAX_RADIUS_XZ, Integer.MAX_VALUE, false)));
+        report("secoes", measure(reps, () -> ShipSectionFlood.assemble(world.grid(), helm, 0, ShipAssembler.MAX_RADIUS_XZ, Integer.MAX_VALUE, false)));
+
+        // nau capitânia: sequencial vs seções em paralelo
+        SyntheticWorld flagship = SyntheticWorld.flagship(flagshipBlocks);
+        int seq = ShipAssembler.assembleConnected(flagship.reader(), flagship.helm, 0, ShipAssembler.MAX_RADIUS_XZ, Integer.MAX_VALUE, false).size();
+        int par = ShipSectionFlood.assemble(flagship.grid(), flagship.helm, 0, ShipAssembler.MAX_RADIUS_XZ, Integer.MAX_VALUE, false).size();
+        ShipLogger.info("[BENCH] capitania=" + flagship.solidCount + " blocos capturados sequencial=" + seq
+                + " secoes=" + par + " (threads=" + java.util.concurrent.ForkJoinPool.getCommonPoolParallelism() + ")");
+        if (seq != par) {
+            ShipLogger.warn("[BENCH] Contagens diferentes entre sequencial e secoes!");
+        }
+        // ShipBlock: cabeçalho 12 + 5 ints + referência 4, alinhado em 8 => 40, + 4 no array
+        ShipLogger.info("[BENCH] armazenamento capitania: " + (par * (long) ShipBlockStore.bytesPerBlock() / 1024)
+                + "KB em arrays contra ~" + (par * 44L / 1024) + "KB como ShipBlock[]");
+        int flagReps = Math.max(1, reps / 10);
+        report("capitania sequencial", measure(flagReps, () -> ShipAssembler.assembleConnected(flagship.reader(), flagship.helm, 0, ShipAssembler.MAX_RADIUS_XZ, Integer.MAX_VALUE, false)));
+        report("capitania secoes    ", measure(flagReps, () -> ShipSectionFlood.assemble(flagship.grid(), flagship.helm, 0, ShipAssembler.MAX_RADIUS_XZ, Integer.MAX_VALUE, false)));
+    }
+
+    private static long[] measure(int reps, Runnable run) {
+        for (int i = 0; i < WARMUP; i++) run.run();
+
+        long best = Long.MAX_VALUE;
+        long total = 0L;
+        long bytesBefore = allocatedBytes();
+        for (int i = 0; i < reps; i++) {
+            long t0 = System.nanoTime();
+            run.run();
+            long t = System.nanoTime() - t0;
+            best = Math.min(best, t);
+            total += t;
+        }
+        long bytes = allocatedBytes() - bytesBefore;
+        return new long[] { total / Math.max(1, reps), best, bytes < 0 ? -1L : bytes / Math.max(1, reps) };
+    }
+
+    private static void report(String label, long[] r) {
+        ShipLogger.info(String.format("[BENCH] %s: media=%.3fms melhor=%.3fms alocado=%s/montagem",
+                label, r[0] / 1.0e6, r[1] / 1.0e6, r[2] < 0 ? "n/d" : (r[2] / 1024) + "KB"));
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean sun) {
+            return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return Long.MIN_VALUE;
+    }
+
+    /**
+     * Travessia antiga, mantida só como referência de comparação.
+     */
+    private static ShipStructure legacyAssemble(SyntheticWorld world, Vector3i helmBlock, int baseOri, int maxBlocks) {
+        ArrayDeque<Vector3i> queue = new ArrayDeque<>();
+        LongOpenHashSet visited = new LongOpenHashSet(Math.max(1024, Math.min(maxBlocks, 6000) * 2));
+
+        queue.add(new Vector3i(helmBlock));
+        visited.add(SyntheticWorld.key(helmBlock.x, helmBlock.y, helmBlock.z));
+
+        ShipBlock[] temp = new ShipBlock[2048];
+        int count = 0;
+        int invOri = (4 - (baseOri & 3)) & 3;
+
+        while (!queue.isEmpty() && count < maxBlocks) {
+            Vector3i p = queue.removeFirst();
+            if (Math.abs(p.x - helmBlock.x) > 48 || Math.abs(p.z - helmBlock.z) > 48) continue;
+            if (p.y < helmBlock.y - 10 || p.y > helmBlock.y + 40) continue;
+
+            int id = world.getBlock(p.x, p.y, p.z);
+            if (id == BlockType.EMPTY_ID) continue;
+
+            int rot = world.getRotationIndex(p.x, p.y, p.z);
+            Vector3i local = ShipStructure.rotateOffset(p.x - helmBlock.x, p.y - helmBlock.y, p.z - helmBlock.z, invOri);
+
+            if (count >= temp.length) {
+                ShipBlock[] grow = new ShipBlock[temp.length * 2];
+                System.arraycopy(temp, 0, grow, 0, temp.length);
+                temp = grow;
+            }
+            temp[count++] = new ShipBlock(local.x, local.y, local.z, id, null, (rot - baseOri) & 3);
+
+            int[][] dirs = { {1, 0, 0}, {-1, 0, 0}, {0, 1, 0}, {0, -1, 0}, {0, 0, 1}, {0, 0, -1} };
+            for (int[] d : dirs) {
+                int x = p.x + d[0], y = p.y + d[1], z = p.z + d[2];
+                if (y < 0 || y >= SyntheticWorld.HEIGHT) continue;
+                if (visited.add(SyntheticWorld.key(x, y, z))) {
+                    queue.add(new Vector3i(x, y, z));
+                }
+            }
+        }
+
+        ShipBlock[] blocks = new ShipBlock[count];
+        System.arraycopy(temp, 0, blocks, 0, count);
+        return new ShipStructure(blocks);
+    }
+
+    /**
+     * Mundo em chunks de 32x320x32 com um casco retangular sólido e o helm no convés.
+     */
+    static final class SyntheticWorld {
+        static final int HEIGHT = 320;
+        private static final int SHIFT = 5;
+        private static final int SIZE = 1 << SHIFT;
+
+        final Vector3i helm;
+        final int solidCount;
+        private final Long2ObjectOpenHashMap<int[]> chunks = new Long2ObjectOpenHashMap<>();
+
+        private SyntheticWorld(Vector3i helm, int solidCount) {
+            this.helm = helm;
+            this.solidCount = solidCount;
+        }
+
+        static SyntheticWorld hull(int hullBlocks) {
+            return box(hullBlocks, 15, 5);
+        }
+
+        /**
+         * Casco largo e fundo (~100k blocos cabem na caixa de montagem).
+         */
+        static SyntheticWorld flagship(int hullBlocks) {
+            return box(hullBlocks, 61, ShipAssembler.MAX_DOWN_Y);
+        }
+
+        private static SyntheticWorld box(int hullBlocks, int width, int depth) {
+            int maxLength = ShipAssembler.MAX_RADIUS_XZ * 2;
+            int length = Math.max(1, Math.min(maxLength, (hullBlocks + width * depth - 1) / (width * depth)));
+            int deckY = 64;
+
+            SyntheticWorld w = new SyntheticWorld(new Vector3i(0, deckY, 0), width * depth * length + 1);
+            for (int z = -length / 2; z < length - length / 2; z++) {
+                for (int y = deckY - depth; y < deckY; y++) {
+                    for (int x = -width / 2; x <= width / 2; x++) {
+                        w.set(x, y, z, 1, (x + z) & 3);
+                    }
+                }
+            }
+            w.set(0, deckY, 0, 2, 0); // helm
+            return w;
+        }
+
+        static long key(int x, int y, int z) {
+            return ((long) (x + (1 << 25)) << 38) | ((long) (z + (1 << 25)) << 12) | y;
+        }
+
+        private static long chunkIndex(int x, int z) {
+            return ((long) (x >> SHIFT) << 32) | ((z >> SHIFT) & 0xFFFFFFFFL);
+        }
+
+        private static int cell(int x, int y, int z) {
+            return ((y * SIZE) + (z & (SIZE - 1))) * SIZE + (x & (SIZE - 1));
+        }
+
+        private void set(int x, int y, int z, int id, int rot) {
+            int[] c = chunks.get(chunkIndex(x, z));
+            if (c == null) {
+                c = new int[SIZE * SIZE * HEIGHT];
+                chunks.put(chunkIndex(x, z), c);
+            }
+            c[cell(x, y, z)] = id | (rot << 24);
+        }
+
+        // API "antiga": cada chamada resolve o chunk de novo
+        int getBlock(int x, int y, int z) {
+            int[] c = chunks.get(chunkIndex(x, z));
+            return c == null ? BlockType.EMPTY_ID : c[cell(x, y, z)] & 0xFFFFFF;
+        }
+
+        int getRotationIndex(int x, int y, int z) {
+            int[] c = chunks.get(chunkIndex(x, z));
+            return c == null ? 0 : c[cell(x, y, z)] >>> 24;
+        }
+
+        /**
+         * Caixa de montagem ao redor do helm, sem estado (várias threads).
+         */
+        ShipCellGrid grid() {
+            int bx = helm.x - ShipAssembler.MAX_RADIUS_XZ;
+            int by = helm.y - ShipAssembler.MAX_DOWN_Y;
+            int bz = helm.z - ShipAssembler.MAX_RADIUS_XZ;
+            return new ShipCellGrid() {
+                @Override
+                public int id(int rx, int ry, int rz) {
+                    return getBlock(bx + rx, by + ry, bz + rz);
+                }
+
+                @Override
+                public int rotation(int rx, int ry, int rz) {
+                    return getRotationIndex(bx + rx, by + ry, bz + rz);
+                }
+
+                @Override
+                public BlockType type(int id) {
+                    return null;
+                }
+            };
+        }
+
+        /**
+         * Leitor com cursor de chunk: só troca de chunk quando a célula sai do último.
+         */
+        ShipCellReader reader() {
+            return new ShipCellReader() {
+                private long lastIndex = Long.MIN_VALUE;
+                private int[] last;
+                private int rotation;
+
+                @Override
+                public int read(int x, int y, int z) {
+                    long index = chunkIndex(x, z);
+                    if (index != lastIndex) {
+                        lastIndex = index;
+                        last = chunks.get(index);
+                    }
+                    if (last == null) return BlockType.EMPTY_ID;
+                    int v = last[cell(x, y, z)];
+                    rotation = v >>> 24;
+                    return v & 0xFFFFFF;
+                }
+
+                @Override
+                public int rotation() {
+                    return rotation;
+                }
+
+                @Override
+                public BlockType type() {
+                    return null;
+                }
+            };
+        }
+    }
+}
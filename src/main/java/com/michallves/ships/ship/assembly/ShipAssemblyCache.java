@@ -0,0 +1,241 @@
+package com.michallves.ships.ship.assembly;
+
+import com.hypixel.hytale.math.util.ChunkUtil;
+import com.hypixel.hytale.math.vector.Vector3i;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Resultados de montagem por (mundo, helm, orientação). Cada entrada guarda o carimbo
+ * (ShipChunkStamps) dos chunks que a estrutura ocupa ou encosta; se nenhum mudou, a
+ * estrutura é candidata a ser devolvida sem flood fill. Os carimbos só andam com as edições
+ * que o plugin vê, então quem usa confere a candidata contra o mundo (ShipStructureCheck)
+ * e devolve com rejectHit se não bater.
+ *
+ * Limite de memória estimado por bloco; acima dele sai a entrada usada há mais tempo (LRU).
+ * Compartilhado por todos os mundos, por isso sincronizado.
+ */
+public final class ShipAssemblyCache {
+
+    // arrays do ShipBlockStore + índices/caches da estrutura (estimativa)
+    private static final long BYTES_PER_BLOCK = 64L;
+
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    private final ShipChunkStamps stamps;
+
+    // ordem de acesso: o primeiro é o usado há mais tempo
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long cachedBytes = 0L;
+    private volatile long maxBytes = DEFAULT_MAX_BYTES;
+
+    private long hits = 0L;
+    private long misses = 0L;
+    private long staleMisses = 0L;
+
+    public ShipAssemblyCache(ShipChunkStamps stamps) {
+        this.stamps = stamps;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = Math.max(0L, maxBytes);
+    }
+
+    /**
+     * @return estrutura em cache com os chunks intactos, ou null (miss). Chamar na thread do mundo.
+     */
+    public synchronized ShipStructure get(String worldName, Vector3i helmBlock, int helmOri) {
+        Key key = new Key(worldName, helmBlock, helmOri);
+        Entry e = entries.get(key);
+        if (e == null) {
+            misses++;
+            return null;
+        }
+
+        for (int i = 0; i < e.chunks.length; i++) {
+            if (stamps.stamp(worldName, e.chunks[i]) != e.chunkStamps[i]) {
+                entries.remove(key);
+                cachedBytes -= e.bytes;
+                staleMisses++;
+                misses++;
+                return null;
+            }
+        }
+
+        hits++;
+        return e.structure;
+    }
+
+    /**
+     * A estrutura devolvida por get não bate com o mundo (edição que não mexeu nos carimbos):
+     * sai do cache e o hit vira miss.
+     */
+    public synchronized void rejectHit(String worldName, Vector3i helmBlock, int helmOri, ShipStructure structure) {
+        Key key = new Key(worldName, helmBlock, helmOri);
+        Entry e = entries.get(key);
+        if (e != null && e.structure == structure) {
+            entries.remove(key);
+            cachedBytes -= e.bytes;
+        }
+        hits--;
+        misses++;
+        staleMisses++;
+    }
+
+    /**
+     * A entrada ainda é essa estrutura e nenhum chunk dela mudou (sem contar como consulta).
+     */
+    public synchronized boolean isCurrent(String worldName, Vector3i helmBlock, int helmOri, ShipStructure structure) {
+        Entry e = entries.get(new Key(worldName, helmBlock, helmOri));
+        if (e == null || e.structure != structure) return false;
+        for (int i = 0; i < e.chunks.length; i++) {
+            if (stamps.stamp(worldName, e.chunks[i]) != e.chunkStamps[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Guarda uma estrutura recém-montada. Os carimbos são lidos agora, então só chamar
+     * quando a montagem foi validada contra o estado atual dos chunks.
+     */
+    public synchronized void put(String worldName, Vector3i helmBlock, int helmOri, ShipStructure structure) {
+        long bytes = structure.size() * BYTES_PER_BLOCK;
+        if (bytes > maxBytes) return;
+
+        long[] chunks = touchedChunks(structure, helmBlock, helmOri);
+        long[] chunkStamps = new long[chunks.length];
+        for (int i = 0; i < chunks.length; i++) {
+            chunkStamps[i] = stamps.stamp(worldName, chunks[i]);
+        }
+
+        Entry old = entries.put(new Key(worldName, helmBlock, helmOri), new Entry(structure, chunks, chunkStamps, bytes));
+        if (old != null) cachedBytes -= old.bytes;
+        cachedBytes += bytes;
+
+        long max = maxBytes;
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (cachedBytes > max && it.hasNext()) {
+            cachedBytes -= it.next().getValue().bytes;
+            it.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Misses por entrada invalidada (algum chunk mudou, ou não bateu com o mundo).
+     */
+    public synchronized long getStaleMisses() {
+        return staleMisses;
+    }
+
+    /**
+     * @return hits / consultas (0 sem consultas)
+     */
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : hits / (double) total;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        cachedBytes = 0L;
+        hits = 0L;
+        misses = 0L;
+        staleMisses = 0L;
+    }
+
+    /**
+     * Chunks de cada bloco e dos vizinhos em x/z: um bloco colado no casco em outro chunk
+     * também mudaria o resultado do flood fill.
+     */
+    private static long[] touchedChunks(ShipStructure structure, Vector3i helm, int helmOri) {
+        LongOpenHashSet out = new LongOpenHashSet();
+        int ori = helmOri & 3;
+        ShipBlockStore s = structure.getStore();
+        for (int i = 0; i < s.size(); i++) {
+            int dx = s.getDx(i);
+            int dz = s.getDz(i);
+            int wx;
+            int wz;
+            switch (ori) {
+                case 0 -> { wx = dx;  wz = dz; }
+                case 1 -> { wx = -dz; wz = dx; }
+                case 2 -> { wx = -dx; wz = -dz; }
+                default -> { wx = dz; wz = -dx; }
+            }
+            wx += helm.x;
+            wz += helm.z;
+            out.add(ChunkUtil.indexChunkFromBlock(wx, wz));
+            out.add(ChunkUtil.indexChunkFromBlock(wx + 1, wz));
+            out.add(ChunkUtil.indexChunkFromBlock(wx - 1, wz));
+            out.add(ChunkUtil.indexChunkFromBlock(wx, wz + 1));
+            out.add(ChunkUtil.indexChunkFromBlock(wx, wz - 1));
+        }
+        return out.toLongArray();
+    }
+
+    private static final class Key {
+        private final String worldName;
+        private final int x;
+        private final int y;
+        private final int z;
+        private final int ori;
+
+        private Key(String worldName, Vector3i helm, int ori) {
+            this.worldName = worldName;
+            this.x = helm.x;
+            this.y = helm.y;
+            this.z = helm.z;
+            this.ori = ori & 3;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key k)) return false;
+            return x == k.x && y == k.y && z == k.z && ori == k.ori && worldName.equals(k.worldName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(worldName, x, y, z, ori);
+        }
+    }
+
+    private static final class Entry {
+        private final ShipStructure structure;
+        private final long[] chunks;
+        private final long[] chunkStamps;
+        private final long bytes;
+
+        private Entry(ShipStructure structure, long[] chunks, long[] chunkStamps, long bytes) {
+            this.structure = structure;
+            this.chunks = chunks;
+            this.chunkStamps = chunkStamps;
+            this.bytes = bytes;
+        }
+    }
+}
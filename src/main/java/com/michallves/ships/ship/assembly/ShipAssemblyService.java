@@ -0,0 +1,276 @@
+package com.michallves.ships.ship.assembly;
+
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.michallves.ships.ship.runtime.ShipTransitionBudget;
+import com.michallves.ships.utils.ShipLogger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Montagem de navios fora da thread do mundo.
+ *
+ * <pre>
+ * 1) snapshot das colunas de chunk pedidas, uma por vez (thread do mundo, com orçamento);
+ *    no começo só a coluna do helm
+ * 2) flood fill sobre o snapshot, por seções em paralelo (ShipSectionFlood); se a fronteira
+ *    chega numa coluna não capturada, volta para 1) com essas colunas e depois continua
+ * 3) de volta na thread do mundo: se algum chunk mudou desde o snapshot, refaz; senão entrega
+ * </pre>
+ *
+ * Limites (blocos e alcance) do ShipAssemblySettings no momento do pedido. Região que não
+ * para de mudar falha o pedido (quem pediu tenta de novo); nunca monta direto no mundo.
+ *
+ * O custo na thread do mundo acompanha as colunas que o navio ocupa, não a caixa inteira.
+ *
+ * Antes de tudo consulta o ShipAssemblyCache: helm já montado e chunks intactos = confere os
+ * blocos da estrutura (e o vazio em volta do casco) contra o mundo, fatiado, e entrega sem flood.
+ */
+public final class ShipAssemblyService {
+
+    // depois disso o pedido falha (região mudando sem parar)
+    private static final int MAX_ATTEMPTS = 3;
+    // espera antes de refazer a captura de um navio que chega em chunk descarregado
+    private static final long UNLOADED_RETRY_NANOS = 1_000_000_000L;
+
+    private final ShipChunkStamps stamps;
+    private final ShipAssemblyCache cache;
+    private final ShipTransitionBudget budget;
+    private final ShipAssemblySettings settings;
+
+    private final Map<String, List<Job>> jobsByWorld = new ConcurrentHashMap<>();
+
+    public ShipAssemblyService(ShipChunkStamps stamps, ShipAssemblyCache cache, ShipTransitionBudget budget,
+                               ShipAssemblySettings settings) {
+        this.stamps = stamps;
+        this.cache = cache;
+        this.budget = budget;
+        this.settings = settings;
+    }
+
+    public ShipAssemblySettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Agenda a montagem do navio do helm. onAssembled roda na thread do mundo.
+     *
+     * @return false se já existe uma montagem em andamento para esse helm
+     */
+    public boolean request(World world, Vector3i helmBlock, int helmOri, Consumer<ShipStructure> onAssembled) {
+        return request(world, helmBlock, helmOri, onAssembled, null);
+    }
+
+    /**
+     * @param onFailed thread do mundo, quando a montagem desiste (pode ser null)
+     */
+    public boolean request(World world, Vector3i helmBlock, int helmOri,
+                           Consumer<ShipStructure> onAssembled, Runnable onFailed) {
+        List<Job> jobs = jobsByWorld.computeIfAbsent(world.getName(), k -> new ArrayList<>());
+        synchronized (jobs) {
+            for (Job j : jobs) {
+                if (j.helm.equals(helmBlock)) return false;
+            }
+            jobs.add(new Job(world.getName(), helmBlock, helmOri, settings.getRadiusXZ(), settings.getMaxBlocks(),
+                    onAssembled, onFailed));
+        }
+        return true;
+    }
+
+    public boolean isAssembling(String worldName, Vector3i helmBlock) {
+        List<Job> jobs = jobsByWorld.get(worldName);
+        if (jobs == null) return false;
+        synchronized (jobs) {
+            for (Job j : jobs) {
+                if (j.helm.equals(helmBlock)) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Avança as montagens do mundo (chamado uma vez por tick, na thread do mundo).
+     */
+    public void tick(World world) {
+        List<Job> jobs = jobsByWorld.get(world.getName());
+        if (jobs == null) return;
+
+        List<Job> snapshot;
+        synchronized (jobs) {
+            if (jobs.isEmpty()) return;
+            snapshot = new ArrayList<>(jobs);
+        }
+
+        long start = System.nanoTime();
+        long maxNanos = budget.getMaxNanosPerTick();
+
+        for (Job job : snapshot) {
+            boolean finished;
+            try {
+                finished = advance(world, job, start, maxNanos);
+            } catch (Exception e) {
+                ShipLogger.error("[SHIPS] Falha na montagem do navio em " + job.helm + ": " + e.getMessage());
+                if (job.onFailed != null) job.onFailed.run();
+                finished = true;
+            }
+            if (finished) {
+                synchronized (jobs) {
+                    jobs.remove(job);
+                }
+            }
+        }
+    }
+
+    private boolean advance(World world, Job job, long tickStart, long maxNanos) {
+        // 0) mesmo helm/orientação e nenhum chunk mexido desde a última montagem: confere no
+        //    mundo (edição fora dos eventos do plugin não mexe nos carimbos) e entrega sem flood fill
+        if (!job.cacheChecked) {
+            if (job.check == null) {
+                ShipStructure cached = cache.get(job.worldName, job.helm, job.helmOri);
+                if (cached == null) {
+                    job.cacheChecked = true;
+                } else {
+                    job.check = new ShipStructureCheck(cached, job.helm, job.helmOri, job.radiusXZ,
+                            cached.size() < job.maxBlocks);
+                }
+            }
+            if (job.check != null) {
+                int result = job.check.advance(world, tickStart + maxNanos);
+                if (result == 0) return false;
+                ShipStructure cached = job.check.structure;
+                if (result > 0 && cache.isCurrent(job.worldName, job.helm, job.helmOri, cached)) {
+                    ShipLogger.info("[SHIPS] Montagem em cache: blocos=" + cached.size() + " helm=" + job.helm
+                            + " conferidas=" + job.check.getCellsRead()
+                            + " taxaAcerto=" + Math.round(cache.getHitRate() * 100.0) + "%");
+                    job.onAssembled.accept(cached);
+                    return true;
+                }
+                cache.rejectHit(job.worldName, job.helm, job.helmOri, cached);
+                ShipLogger.info("[SHIPS] Montagem em cache nao bate com o mundo, montando de novo. helm=" + job.helm);
+                job.check = null;
+                job.cacheChecked = true;
+            }
+        }
+
+        if (job.region == null) {
+            if (System.nanoTime() < job.retryAtNanos) return false;
+            job.region = new ShipRegionSnapshot(job.worldName, job.helm,
+                    job.radiusXZ, ShipAssembler.MAX_DOWN_Y, ShipAssembler.MAX_UP_Y);
+            job.flood = null;
+            job.attempts++;
+        }
+
+        // 1) colunas pedidas (pelo menos uma por tick para sempre progredir)
+        if (!job.region.isComplete()) {
+            long t0 = System.nanoTime();
+            do {
+                job.region.captureNextColumn(world, stamps);
+            } while (!job.region.isComplete() && System.nanoTime() - tickStart < maxNanos);
+            job.snapshotNanos += System.nanoTime() - t0;
+            job.snapshotTicks++;
+            if (!job.region.isComplete()) return false;
+        }
+
+        // 2) flood fill no worker, seções de 16³ em paralelo no ForkJoinPool
+        if (job.future == null) {
+            if (job.flood == null) {
+                job.flood = ShipSectionFlood.start(job.region, job.helm, job.helmOri, job.radiusXZ, job.maxBlocks);
+            }
+            ShipSectionFlood flood = job.flood;
+            job.future = CompletableFuture.supplyAsync(flood::flood);
+            return false;
+        }
+        if (!job.future.isDone()) return false;
+
+        boolean finished = job.future.join();
+        job.future = null;
+        if (!finished) {
+            // a fronteira chegou em colunas ainda não capturadas
+            job.flood.requestWaiting(job.region);
+            return false;
+        }
+        ShipStructure structure = job.flood.build(false);
+
+        // 3) o navio chega em chunk descarregado: monta de novo depois (o jogador perto tende a carregá-lo)
+        if (job.region.unloadedColumns() > 0) {
+            if (job.attempts < MAX_ATTEMPTS) {
+                ShipLogger.info("[SHIPS] Navio alcanca chunk nao carregado, refazendo. helm=" + job.helm
+                        + " colunas=" + job.region.unloadedColumns() + " tentativa=" + job.attempts);
+                job.region = null;
+                job.retryAtNanos = System.nanoTime() + UNLOADED_RETRY_NANOS;
+                return false;
+            }
+            ShipLogger.warn("[SHIPS] Navio alcanca chunk nao carregado; montagem cancelada. helm=" + job.helm
+                    + " tentativas=" + job.attempts);
+            if (job.onFailed != null) job.onFailed.run();
+            return true;
+        }
+
+        // 4) validação: o mundo mudou enquanto o snapshot/worker rodava?
+        if (job.region.isStale(stamps)) {
+            if (job.attempts < MAX_ATTEMPTS) {
+                ShipLogger.info("[SHIPS] Regiao do navio mudou durante a montagem, refazendo. helm=" + job.helm
+                        + " tentativa=" + job.attempts);
+                job.region = null;
+                return false;
+            }
+            ShipLogger.warn("[SHIPS] Regiao muda sem parar; montagem cancelada. helm=" + job.helm
+                    + " tentativas=" + job.attempts);
+            if (job.onFailed != null) job.onFailed.run();
+            return true;
+        }
+
+        cache.put(job.worldName, job.helm, job.helmOri, structure);
+
+        ShipLogger.info("[SHIPS] Montagem assincrona concluida: blocos=" + structure.size()
+                + " tentativas=" + job.attempts
+                + " snapshot=" + job.region.capturedColumns() + "/" + job.region.columnCount() + " colunas, "
+                + (job.snapshotNanos / 1000) + "us em " + job.snapshotTicks + " ticks"
+                + " total=" + ((System.nanoTime() - job.createdNanos) / 1_000_000) + "ms"
+                + " cache=" + cache.size() + " taxaAcerto=" + Math.round(cache.getHitRate() * 100.0) + "%");
+
+        job.onAssembled.accept(structure);
+        return true;
+    }
+
+    public void clear() {
+        jobsByWorld.clear();
+    }
+
+    private static final class Job {
+        private final String worldName;
+        private final Vector3i helm;
+        private final int helmOri;
+        private final int radiusXZ;
+        private final int maxBlocks;
+        private final Consumer<ShipStructure> onAssembled;
+        private final Runnable onFailed;
+        private final long createdNanos = System.nanoTime();
+
+        private boolean cacheChecked = false;
+        private ShipStructureCheck check;
+        private ShipRegionSnapshot region;
+        private ShipSectionFlood flood;
+        private CompletableFuture<Boolean> future;
+        private int attempts = 0;
+        private long retryAtNanos = 0L;
+        private long snapshotNanos = 0L;
+        private int snapshotTicks = 0;
+
+        private Job(String worldName, Vector3i helm, int helmOri, int radiusXZ, int maxBlocks,
+                    Consumer<ShipStructure> onAssembled, Runnable onFailed) {
+            this.worldName = worldName;
+            this.helm = new Vector3i(helm);
+            this.helmOri = helmOri;
+            this.radiusXZ = radiusXZ;
+            this.maxBlocks = maxBlocks;
+            this.onAssembled = onAssembled;
+            this.onFailed = onFailed;
+        }
+    }
+}
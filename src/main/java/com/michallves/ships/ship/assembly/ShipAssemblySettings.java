@@ -0,0 +1,73 @@
+package com.michallves.ships.ship.assembly;
+
+/**
+ * Limites da montagem pelo helm. Compartilhado por todos os mundos do ShipManager; pode ser
+ * ajustado em runtime (vale para as próximas montagens e edições).
+ *
+ * <pre>
+ * maxBlocks / radiusXZ : navio comum (helm em qualquer lugar, inclusive no chão)
+ * flagshipEnabled      : liga os limites de capitania para todos os helms
+ * flagshipMaxBlocks    : blocos da capitania
+ * flagshipRadiusXZ     : alcance horizontal da capitania (até ShipAssembler.MAX_RADIUS_XZ)
+ * </pre>
+ */
+public final class ShipAssemblySettings {
+
+    public static final int DEFAULT_FLAGSHIP_MAX_BLOCKS = 100_000;
+
+    private volatile int maxBlocks = ShipAssembler.DEFAULT_MAX_BLOCKS;
+    private volatile int radiusXZ = ShipAssembler.DEFAULT_RADIUS_XZ;
+    private volatile boolean flagshipEnabled = false;
+    private volatile int flagshipMaxBlocks = DEFAULT_FLAGSHIP_MAX_BLOCKS;
+    private volatile int flagshipRadiusXZ = ShipAssembler.MAX_RADIUS_XZ;
+
+    /**
+     * Blocos por navio nos limites em vigor.
+     */
+    public int getMaxBlocks() {
+        return flagshipEnabled ? flagshipMaxBlocks : maxBlocks;
+    }
+
+    /**
+     * Alcance horizontal a partir do helm nos limites em vigor.
+     */
+    public int getRadiusXZ() {
+        return flagshipEnabled ? flagshipRadiusXZ : radiusXZ;
+    }
+
+    public void setMaxBlocks(int maxBlocks) {
+        this.maxBlocks = Math.max(1, maxBlocks);
+    }
+
+    public void setRadiusXZ(int radiusXZ) {
+        this.radiusXZ = clampRadius(radiusXZ);
+    }
+
+    public boolean isFlagshipEnabled() {
+        return flagshipEnabled;
+    }
+
+    public void setFlagshipEnabled(boolean flagshipEnabled) {
+        this.flagshipEnabled = flagshipEnabled;
+    }
+
+    public int getFlagshipMaxBlocks() {
+        return flagshipMaxBlocks;
+    }
+
+    public void setFlagshipMaxBlocks(int flagshipMaxBlocks) {
+        this.flagshipMaxBlocks = Math.max(1, flagshipMaxBlocks);
+    }
+
+    public int getFlagshipRadiusXZ() {
+        return flagshipRadiusXZ;
+    }
+
+    public void setFlagshipRadiusXZ(int flagshipRadiusXZ) {
+        this.flagshipRadiusXZ = clampRadius(flagshipRadiusXZ);
+    }
+
+    private static int clampRadius(int radius) {
+        return Math.max(1, Math.min(ShipAssembler.MAX_RADIUS_XZ, radius));
+    }
+}
@@ -0,0 +1,206 @@
+package com.michallves.ships.ship.assembly;
+
+import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Blocos do navio em arrays paralelos (structure-of-arrays): offsets locais em short,
+ * id em int e rotação em byte — 11 bytes por bloco contra ~48 de um ShipBlock + referência.
+ * O BlockType sai de uma tabela id -> tipo por navio (poucos tipos distintos).
+ *
+ * Na criação os blocos são ordenados em ordem de Morton (Z-order) dos offsets: blocos
+ * vizinhos no navio ficam vizinhos na memória, e os loops por bloco (colisão, transforms,
+ * escrita no mundo) andam pelos arrays quase sequencialmente.
+ *
+ * Não muda depois de publicado: a ShipStructure troca por uma cópia a cada edição.
+ */
+public final class ShipBlockStore {
+
+    // 10 bits por eixo (±512 do helm); fora disso só piora o agrupamento, não a correção
+    private static final int MORTON_BIAS = 1 << 9;
+    private static final int MORTON_MASK = 0x3FF;
+
+    private static long morton(int dx, int dy, int dz) {
+        return spread((dx + MORTON_BIAS) & MORTON_MASK)
+                | (spread((dy + MORTON_BIAS) & MORTON_MASK) << 1)
+                | (spread((dz + MORTON_BIAS) & MORTON_MASK) << 2);
+    }
+
+    // 10 bits -> 30 bits, dois zeros entre cada bit
+    private static long spread(int v) {
+        long x = v;
+        x = (x | (x << 16)) & 0x030000FFL;
+        x = (x | (x << 8)) & 0x0300F00FL;
+        x = (x | (x << 4)) & 0x030C30C3L;
+        x = (x | (x << 2)) & 0x09249249L;
+        return x;
+    }
+
+    private int size;
+    private short[] dx;
+    private short[] dy;
+    private short[] dz;
+    private int[] ids;
+    private byte[] rotations;
+    private final Int2ObjectOpenHashMap<BlockType> types;
+
+    private ShipBlockStore(int capacity, Int2ObjectOpenHashMap<BlockType> types) {
+        this.dx = new short[capacity];
+        this.dy = new short[capacity];
+        this.dz = new short[capacity];
+        this.ids = new int[capacity];
+        this.rotations = new byte[capacity];
+        this.types = types;
+    }
+
+    /**
+     * Copia os blocos para arrays em ordem de Morton.
+     */
+    static ShipBlockStore of(ShipBlock[] blocks) {
+        int n = blocks.length;
+
+        // (morton << 32) | índice => sort primitivo sem alocar objetos
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            ShipBlock b = blocks[i];
+            keys[i] = (morton(b.dx, b.dy, b.dz) << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        ShipBlockStore store = new ShipBlockStore(n, new Int2ObjectOpenHashMap<>());
+        for (int k = 0; k < n; k++) {
+            store.set(k, blocks[(int) keys[k]]);
+        }
+        store.size = n;
+        return store;
+    }
+
+    /**
+     * Copia os blocos da montagem para arrays em ordem de Morton (mesma ordem de
+     * {@link #of(ShipBlock[])} para os mesmos blocos na mesma ordem). A tabela de tipos do
+     * builder passa a ser deste store.
+     */
+    static ShipBlockStore of(ShipBlockStoreBuilder b) {
+        int n = b.size;
+
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = (morton(b.dx[i], b.dy[i], b.dz[i]) << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        ShipBlockStore store = new ShipBlockStore(n, b.types);
+        for (int k = 0; k < n; k++) {
+            int i = (int) keys[k];
+            store.set(k, b.dx[i], b.dy[i], b.dz[i], b.ids[i], b.rotations[i]);
+        }
+        store.size = n;
+        return store;
+    }
+
+    /**
+     * Arrays vazios para n blocos, na ordem em que forem preenchidos (ShipPackedBlocks).
+     */
+    static ShipBlockStore empty(int n, Int2ObjectOpenHashMap<BlockType> types) {
+        return new ShipBlockStore(n, types);
+    }
+
+    /**
+     * Cópia para edição, com espaço para mais blocos no fim.
+     */
+    ShipBlockStore copy(int capacity) {
+        ShipBlockStore c = new ShipBlockStore(0, new Int2ObjectOpenHashMap<>(types));
+        c.dx = Arrays.copyOf(dx, capacity);
+        c.dy = Arrays.copyOf(dy, capacity);
+        c.dz = Arrays.copyOf(dz, capacity);
+        c.ids = Arrays.copyOf(ids, capacity);
+        c.rotations = Arrays.copyOf(rotations, capacity);
+        c.size = Math.min(size, capacity);
+        return c;
+    }
+
+    void set(int i, ShipBlock b) {
+        dx[i] = (short) b.dx;
+        dy[i] = (short) b.dy;
+        dz[i] = (short) b.dz;
+        ids[i] = b.blockId;
+        rotations[i] = (byte) b.rotationIndex;
+        if (b.type != null) types.putIfAbsent(b.blockId, b.type);
+    }
+
+    void set(int i, int x, int y, int z, int blockId, int rotation) {
+        dx[i] = (short) x;
+        dy[i] = (short) y;
+        dz[i] = (short) z;
+        ids[i] = blockId;
+        rotations[i] = (byte) rotation;
+    }
+
+    void move(int from, int to) {
+        dx[to] = dx[from];
+        dy[to] = dy[from];
+        dz[to] = dz[from];
+        ids[to] = ids[from];
+        rotations[to] = rotations[from];
+    }
+
+    void setSize(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Corta a sobra da cópia de edição.
+     */
+    void trim() {
+        if (dx.length == size) return;
+        dx = Arrays.copyOf(dx, size);
+        dy = Arrays.copyOf(dy, size);
+        dz = Arrays.copyOf(dz, size);
+        ids = Arrays.copyOf(ids, size);
+        rotations = Arrays.copyOf(rotations, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getDx(int i) { return dx[i]; }
+    public int getDy(int i) { return dy[i]; }
+    public int getDz(int i) { return dz[i]; }
+
+    public int getBlockId(int i) {
+        return ids[i];
+    }
+
+    public int getRotation(int i) {
+        return rotations[i];
+    }
+
+    public BlockType getType(int i) {
+        return types.get(ids[i]);
+    }
+
+    /**
+     * Bloco i como objeto (caminhos frios: edição, gravação).
+     */
+    public ShipBlock getBlock(int i) {
+        return new ShipBlock(dx[i], dy[i], dz[i], ids[i], getType(i), rotations[i]);
+    }
+
+    Int2ObjectOpenHashMap<BlockType> types() {
+        return types;
+    }
+
+    long estimateHeapBytes() {
+        return 5 * 16L + (long) dx.length * bytesPerBlock();
+    }
+
+    /**
+     * Bytes dos arrays por bloco (sem a tabela de tipos).
+     */
+    public static int bytesPerBlock() {
+        return Short.BYTES * 3 + Integer.BYTES + Byte.BYTES;
+    }
+}
@@ -0,0 +1,81 @@
+package com.michallves.ships.ship.assembly;
+
+import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Blocos achados pela montagem, direto em arrays primitivos que crescem (mesmo layout do
+ * ShipBlockStore): o flood não cria um ShipBlock por bloco nem um ShipBlock[] no fim.
+ * {@link ShipBlockStore#of(ShipBlockStoreBuilder)} ordena em Morton na hora de publicar.
+ *
+ * Não é thread-safe: cada tarefa do flood tem o seu.
+ */
+final class ShipBlockStoreBuilder {
+
+    int size;
+    short[] dx;
+    short[] dy;
+    short[] dz;
+    int[] ids;
+    byte[] rotations;
+    final Int2ObjectOpenHashMap<BlockType> types = new Int2ObjectOpenHashMap<>();
+
+    ShipBlockStoreBuilder(int capacity) {
+        int c = Math.max(16, capacity);
+        this.dx = new short[c];
+        this.dy = new short[c];
+        this.dz = new short[c];
+        this.ids = new int[c];
+        this.rotations = new byte[c];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void add(int x, int y, int z, int blockId, BlockType type, int rotation) {
+        if (size == ids.length) grow(size * 2);
+        int i = size++;
+        dx[i] = (short) x;
+        dy[i] = (short) y;
+        dz[i] = (short) z;
+        ids[i] = blockId;
+        rotations[i] = (byte) rotation;
+        if (type != null && !types.containsKey(blockId)) types.put(blockId, type);
+    }
+
+    /**
+     * Copia até limit blocos de other para o fim (na ordem de other).
+     *
+     * @return quantos foram copiados
+     */
+    int addAll(ShipBlockStoreBuilder other, int limit) {
+        int n = Math.min(other.size, Math.max(0, limit));
+        if (n == 0) return 0;
+        if (size + n > ids.length) grow(Math.max(size + n, size * 2));
+        System.arraycopy(other.dx, 0, dx, size, n);
+        System.arraycopy(other.dy, 0, dy, size, n);
+        System.arraycopy(other.dz, 0, dz, size, n);
+        System.arraycopy(other.ids, 0, ids, size, n);
+        System.arraycopy(other.rotations, 0, rotations, size, n);
+        size += n;
+        for (var e : other.types.int2ObjectEntrySet()) {
+            types.putIfAbsent(e.getIntKey(), e.getValue());
+        }
+        return n;
+    }
+
+    private void grow(int capacity) {
+        dx = Arrays.copyOf(dx, capacity);
+        dy = Arrays.copyOf(dy, capacity);
+        dz = Arrays.copyOf(dz, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        rotations = Arrays.copyOf(rotations, capacity);
+    }
+}
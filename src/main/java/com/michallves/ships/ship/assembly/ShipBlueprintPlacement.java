@@ -0,0 +1,234 @@
+package com.michallves.ships.ship.assembly;
+
+import com.hypixel.hytale.math.util.ChunkUtil;
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
+import com.michallves.ships.ship.persistence.ShipBlueprint;
+import com.michallves.ships.utils.ShipLogger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Coloca um blueprint no mundo direto do arquivo, fatiado por tick (thread do mundo).
+ *
+ * Duas passadas pelo stream: CHECK confere que os chunks estão carregados e as células vazias,
+ * PLACE escreve. Cada passada lê uma janela de blocos, ordena por (chunk, seção) e resolve o
+ * WorldChunk uma vez por grupo, como o ShipWritePlan; a memória é a da janela, não a do navio.
+ * Com o helm de volta no mundo, o navio é montado no primeiro uso, como qualquer outro.
+ */
+public final class ShipBlueprintPlacement {
+
+    public enum Phase { CHECK, PLACE, DONE, FAILED }
+
+    private static final int WINDOW = 4096;
+    private static final int CHUNK_SHIFT = 5;
+    private static final int SECTION_BITS = 6;
+
+    private final Path file;
+    private final String worldName;
+    private final Vector3i origin;
+    private final int orientation;
+
+    private ShipBlueprint.Reader reader;
+    private Phase phase = Phase.CHECK;
+    private String failure;
+
+    // janela atual, ordenada por (grupo << 32) | posição na janela
+    private final long[] keys = new long[WINDOW];
+    private final int[] wx = new int[WINDOW];
+    private final int[] wy = new int[WINDOW];
+    private final int[] wz = new int[WINDOW];
+    private final int[] ids = new int[WINDOW];
+    private final int[] rots = new int[WINDOW];
+    private final BlockType[] types = new BlockType[WINDOW];
+    private int windowSize = 0;
+    private int windowCursor = 0;
+
+    private int placed = 0;
+    private int skipped = 0;
+    private int ticks = 0;
+    private final long startNanos = System.nanoTime();
+
+    public ShipBlueprintPlacement(Path file, String worldName, Vector3i origin, int orientation) throws IOException {
+        this.file = file;
+        this.worldName = worldName;
+        this.origin = new Vector3i(origin);
+        this.orientation = orientation & 3;
+        this.reader = ShipBlueprint.open(file);
+    }
+
+    public String getWorldName() {
+        return worldName;
+    }
+
+    public Vector3i getOrigin() {
+        return origin;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+
+    public int getPlaced() {
+        return placed;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public int size() {
+        return reader != null ? reader.size() : placed + skipped;
+    }
+
+    /**
+     * Avança até budgetNanos. Thread do mundo.
+     *
+     * @return true quando terminou (DONE ou FAILED)
+     */
+    public boolean tick(World world, long budgetNanos, ShipChunkStamps chunkStamps) {
+        if (phase == Phase.DONE || phase == Phase.FAILED) return true;
+        ticks++;
+        long deadline = System.nanoTime() + budgetNanos;
+
+        try {
+            while (System.nanoTime() < deadline) {
+                if (windowCursor == windowSize && !fillWindow()) {
+                    if (phase == Phase.CHECK) {
+                        // tudo livre: segunda passada escreve
+                        reader.close();
+                        reader = ShipBlueprint.open(file);
+                        phase = Phase.PLACE;
+                        continue;
+                    }
+                    finish(Phase.DONE, null);
+                    return true;
+                }
+                if (phase == Phase.CHECK) {
+                    if (!checkGroup(world)) return true;
+                } else {
+                    placeGroup(world, chunkStamps);
+                }
+            }
+        } catch (IOException e) {
+            finish(Phase.FAILED, "erro lendo " + file.getFileName() + ": " + e.getMessage());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Interrompe (desligamento, mundo saiu). O que já foi escrito fica.
+     */
+    public void cancel() {
+        if (phase != Phase.DONE && phase != Phase.FAILED) finish(Phase.FAILED, "cancelado");
+    }
+
+    private boolean fillWindow() throws IOException {
+        int baseCx = origin.x >> CHUNK_SHIFT;
+        int baseCz = origin.z >> CHUNK_SHIFT;
+        int n = 0;
+        while (n < WINDOW && reader.next()) {
+            int id = reader.getBlockId();
+            if (id < 0) {
+                if (phase == Phase.PLACE) skipped++;
+                continue;
+            }
+            int dx = reader.getDx();
+            int dz = reader.getDz();
+            switch (orientation) {
+                case 0 -> { wx[n] = origin.x + dx;  wz[n] = origin.z + dz; }
+                case 1 -> { wx[n] = origin.x - dz;  wz[n] = origin.z + dx; }
+                case 2 -> { wx[n] = origin.x - dx;  wz[n] = origin.z - dz; }
+                default -> { wx[n] = origin.x + dz; wz[n] = origin.z - dx; }
+            }
+            wy[n] = origin.y + reader.getDy();
+            ids[n] = id;
+            types[n] = reader.getType();
+            rots[n] = (reader.getRotation() + orientation) & 3;
+            keys[n] = ((long) groupKey(wx[n], wy[n], wz[n], baseCx, baseCz) << 32) | n;
+            n++;
+        }
+        Arrays.sort(keys, 0, n);
+        windowSize = n;
+        windowCursor = 0;
+        return n > 0;
+    }
+
+    // um grupo (chunk, seção) da janela; false se achou chunk descarregado ou célula ocupada
+    private boolean checkGroup(World world) {
+        int group = (int) (keys[windowCursor] >>> 32);
+        int first = (int) keys[windowCursor];
+        WorldChunk chunk = world.getChunkIfInMemory(ChunkUtil.indexChunkFromBlock(wx[first], wz[first]));
+        if (chunk == null) {
+            finish(Phase.FAILED, "chunk nao carregado em " + wx[first] + "," + wz[first]);
+            return false;
+        }
+        for (; windowCursor < windowSize && (int) (keys[windowCursor] >>> 32) == group; windowCursor++) {
+            int k = (int) keys[windowCursor];
+            if (chunk.getBlock(ChunkUtil.localCoordinate(wx[k]), wy[k], ChunkUtil.localCoordinate(wz[k])) != BlockType.EMPTY_ID) {
+                finish(Phase.FAILED, "lugar ocupado em " + wx[k] + "," + wy[k] + "," + wz[k]);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void placeGroup(World world, ShipChunkStamps chunkStamps) {
+        int group = (int) (keys[windowCursor] >>> 32);
+        int first = (int) keys[windowCursor];
+        long chunkIndex = ChunkUtil.indexChunkFromBlock(wx[first], wz[first]);
+        WorldChunk chunk = world.getChunkIfInMemory(chunkIndex);
+
+        for (; windowCursor < windowSize && (int) (keys[windowCursor] >>> 32) == group; windowCursor++) {
+            int k = (int) keys[windowCursor];
+            int lx = ChunkUtil.localCoordinate(wx[k]);
+            int lz = ChunkUtil.localCoordinate(wz[k]);
+            // chunk saiu da memória ou alguém construiu ali depois da checagem: não sobrescreve
+            if (chunk == null || chunk.getBlock(lx, wy[k], lz) != BlockType.EMPTY_ID) {
+                skipped++;
+                continue;
+            }
+            chunk.setBlock(lx, wy[k], lz, ids[k], types[k], rots[k], 0, 0);
+            placed++;
+        }
+        if (chunk != null && chunkStamps != null) chunkStamps.markChunk(worldName, chunkIndex);
+    }
+
+    private void finish(Phase end, String reason) {
+        phase = end;
+        failure = reason;
+        try {
+            if (reader != null) reader.close();
+        } catch (IOException e) {
+            // só leitura
+        }
+        reader = null;
+
+        long ms = (System.nanoTime() - startNanos) / 1_000_000L;
+        if (end == Phase.DONE) {
+            ShipLogger.success("[SHIPS] Blueprint colocado: " + file.getFileName() + " em " + worldName + " " + origin
+                    + " ori=" + orientation + " blocos=" + placed + " pulados=" + skipped
+                    + " ticks=" + ticks + " (" + ms + "ms)");
+        } else {
+            ShipLogger.warn("[SHIPS] Blueprint " + file.getFileName() + " nao colocado em " + origin + ": " + reason
+                    + " (blocos ja escritos=" + placed + ")");
+        }
+    }
+
+    // chunk relativo à origem (10 bits cada) + seção vertical (SECTION_BITS)
+    private static int groupKey(int wx, int wy, int wz, int baseCx, int baseCz) {
+        int rcx = ((wx >> CHUNK_SHIFT) - baseCx + 512) & 0x3FF;
+        int rcz = ((wz >> CHUNK_SHIFT) - baseCz + 512) & 0x3FF;
+        int section = ((wy >> CHUNK_SHIFT) + 8) & ((1 << SECTION_BITS) - 1);
+        return (((rcx << 10) | rcz) << SECTION_BITS) | section;
+    }
+}
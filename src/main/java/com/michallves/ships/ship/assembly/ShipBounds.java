@@ -0,0 +1,32 @@
+package com.michallves.ships.ship.assembly;
+
+/**
+ * Limites locais do navio (min/max de dx, dy, dz) congelados num valor. Permite montar
+ * geometria/colisão sem varrer os blocos (ex.: navio carregado do registro ainda não lido).
+ */
+public final class ShipBounds {
+
+    public final int minDx;
+    public final int maxDx;
+    public final int minDy;
+    public final int maxDy;
+    public final int minDz;
+    public final int maxDz;
+
+    public ShipBounds(int minDx, int maxDx, int minDy, int maxDy, int minDz, int maxDz) {
+        this.minDx = minDx;
+        this.maxDx = maxDx;
+        this.minDy = minDy;
+        this.maxDy = maxDy;
+        this.minDz = minDz;
+        this.maxDz = maxDz;
+    }
+
+    static ShipBounds of(ShipExtents extents) {
+        return new ShipBounds(
+                extents.getMinDx(), extents.getMaxDx(),
+                extents.getMinDy(), extents.getMaxDy(),
+                extents.getMinDz(), extents.getMaxDz()
+        );
+    }
+}
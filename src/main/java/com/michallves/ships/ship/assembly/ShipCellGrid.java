@@ -0,0 +1,31 @@
+package com.michallves.ships.ship.assembly;
+
+import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
+
+/**
+ * Caixa de montagem já capturada, lida por coordenada relativa ao canto mínimo
+ * (helm - (MAX_RADIUS_XZ, MAX_DOWN_Y, MAX_RADIUS_XZ)). Sem estado de "última célula":
+ * pode ser lida de várias threads ao mesmo tempo (flood fill por seções).
+ */
+interface ShipCellGrid {
+
+    /**
+     * @return id do bloco, ou {@link BlockType#EMPTY_ID} se vazio, desconhecido ou fora da caixa
+     */
+    int id(int rx, int ry, int rz);
+
+    int rotation(int rx, int ry, int rz);
+
+    /**
+     * A coluna (rx,rz) já está na grade? Grade capturada sob demanda (ShipRegionSnapshot)
+     * responde false para colunas que o flood ainda não pediu.
+     */
+    default boolean isCaptured(int rx, int rz) {
+        return true;
+    }
+
+    /**
+     * Tipo do id (pode ser null fora do servidor, ex.: benchmark).
+     */
+    BlockType type(int id);
+}
@@ -0,0 +1,25 @@
+package com.michallves.ships.ship.assembly;
+
+import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
+
+/**
+ * Leitura célula a célula para o flood fill do ShipAssembler: id, rotação e tipo
+ * saem de uma só consulta.
+ */
+interface ShipCellReader {
+
+    /**
+     * @return id do bloco em (x,y,z), ou {@link BlockType#EMPTY_ID} se vazio ou desconhecido
+     */
+    int read(int x, int y, int z);
+
+    /**
+     * Rotação da última célula lida.
+     */
+    int rotation();
+
+    /**
+     * Tipo da última célula lida (pode ser null fora do servidor, ex.: benchmark).
+     */
+    BlockType type();
+}
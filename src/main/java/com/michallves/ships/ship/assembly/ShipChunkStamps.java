@@ -0,0 +1,37 @@
+package com.michallves.ships.ship.assembly;
+
+import com.hypixel.hytale.math.util.ChunkUtil;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Contador de modificações por chunk (por mundo), alimentado pelos eventos de
+ * quebrar/colocar bloco e pelas transições dos próprios navios (que escrevem direto no chunk). Serve para saber se uma região mudou desde um snapshot
+ * sem reler os blocos. Cada mundo só é lido/escrito na própria thread.
+ */
+public final class ShipChunkStamps {
+
+    private final Map<String, Long2LongOpenHashMap> worlds = new ConcurrentHashMap<>();
+
+    public void markChanged(String worldName, int x, int z) {
+        markChunk(worldName, ChunkUtil.indexChunkFromBlock(x, z));
+    }
+
+    public void markChunk(String worldName, long chunkIndex) {
+        worlds.computeIfAbsent(worldName, k -> new Long2LongOpenHashMap()).addTo(chunkIndex, 1L);
+    }
+
+    /**
+     * @return carimbo atual do chunk (0 = nunca modificado desde que o plugin subiu)
+     */
+    public long stamp(String worldName, long chunkIndex) {
+        Long2LongOpenHashMap map = worlds.get(worldName);
+        return map == null ? 0L : map.get(chunkIndex);
+    }
+
+    public void clear() {
+        worlds.clear();
+    }
+}
@@ -0,0 +1,76 @@
+package com.michallves.ships.ship.assembly;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+
+/**
+ * Limites locais (min/max de dx, dy, dz) do navio, mantidos por contagem de blocos
+ * por coordenada: adicionar/remover um bloco não precisa varrer a estrutura.
+ */
+public final class ShipExtents {
+
+    private final Axis x = new Axis();
+    private final Axis y = new Axis();
+    private final Axis z = new Axis();
+
+    ShipExtents(ShipBlockStore store) {
+        for (int i = 0; i < store.size(); i++) {
+            add(store.getDx(i), store.getDy(i), store.getDz(i));
+        }
+    }
+
+    void add(int dx, int dy, int dz) {
+        x.add(dx);
+        y.add(dy);
+        z.add(dz);
+    }
+
+    void remove(int dx, int dy, int dz) {
+        x.remove(dx);
+        y.remove(dy);
+        z.remove(dz);
+    }
+
+    public boolean isEmpty() {
+        return x.counts.isEmpty();
+    }
+
+    public int getMinDx() { return x.min; }
+    public int getMaxDx() { return x.max; }
+    public int getMinDy() { return y.min; }
+    public int getMaxDy() { return y.max; }
+    public int getMinDz() { return z.min; }
+    public int getMaxDz() { return z.max; }
+
+    private static final class Axis {
+        private final Int2IntOpenHashMap counts = new Int2IntOpenHashMap();
+        private int min = 0;
+        private int max = 0;
+
+        private void add(int v) {
+            if (counts.isEmpty()) {
+                min = max = v;
+            } else {
+                if (v < min) min = v;
+                if (v > max) max = v;
+            }
+            counts.addTo(v, 1);
+        }
+
+        private void remove(int v) {
+            int left = counts.addTo(v, -1) - 1;
+            if (left > 0) return;
+            counts.remove(v);
+            if (counts.isEmpty()) {
+                min = max = 0;
+                return;
+            }
+            // o extremo sumiu: anda até a próxima coordenada ocupada (no máximo a largura do navio)
+            if (v == min) {
+                while (!counts.containsKey(min)) min++;
+            }
+            if (v == max) {
+                while (!counts.containsKey(max)) max--;
+            }
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.michallves.ships.ship.assembly;
+
+import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
+import com.michallves.ships.utils.ShipLogger;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Forma compacta de um ShipBlockStore para navios ociosos: paleta dos pares (id, rotação)
+ * distintos e, por bloco, offsets relativos ao mínimo + índice na paleta, tudo empacotado
+ * em bits num long[] (largura = bits dos três eixos + bits da paleta).
+ *
+ * Casco de ~6000 blocos com 20 pares distintos: ~19 bits por bloco contra 88 nos arrays.
+ * Mantém a ordem dos blocos, então índices guardados por fora continuam valendo depois de inflar.
+ *
+ * Também é o corpo de cada navio no registro em disco ({@link #write}/{@link #read}):
+ *
+ * <pre>
+ * int size | int minDx, minDy, minDz | byte bitsX, bitsY, bitsZ, bitsPalette
+ * int palette | (short len, utf8 chave do BlockType, int id, byte rot) * palette
+ * int words | long * words
+ * </pre>
+ *
+ * A chave do tipo vai junto porque o id numérico do asset pode mudar entre reinícios.
+ */
+final class ShipPackedBlocks {
+
+    private final int size;
+
+    private final int minDx;
+    private final int minDy;
+    private final int minDz;
+    private final int bitsX;
+    private final int bitsY;
+    private final int bitsZ;
+    private final int bitsPalette;
+
+    private final int[] paletteIds;
+    private final byte[] paletteRotations;
+    private final Int2ObjectOpenHashMap<BlockType> types;
+
+    private final long[] bits;
+
+    private ShipPackedBlocks(int size, int minDx, int minDy, int minDz,
+                             int bitsX, int bitsY, int bitsZ, int bitsPalette,
+                             int[] paletteIds, byte[] paletteRotations,
+                             Int2ObjectOpenHashMap<BlockType> types, long[] bits) {
+        this.size = size;
+        this.minDx = minDx;
+        this.minDy = minDy;
+        this.minDz = minDz;
+        this.bitsX = bitsX;
+        this.bitsY = bitsY;
+        this.bitsZ = bitsZ;
+        this.bitsPalette = bitsPalette;
+        this.paletteIds = paletteIds;
+        this.paletteRotations = paletteRotations;
+        this.types = types;
+        this.bits = bits;
+    }
+
+    ShipPackedBlocks(ShipBlockStore store) {
+        int n = store.size();
+        this.size = n;
+        this.types = store.types();
+
+        int loX = 0, hiX = 0, loY = 0, hiY = 0, loZ = 0, hiZ = 0;
+        Long2IntOpenHashMap pairs = new Long2IntOpenHashMap();
+        pairs.defaultReturnValue(-1);
+        int[] ids = new int[16];
+        byte[] rots = new byte[16];
+        int[] entry = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            int dx = store.getDx(i);
+            int dy = store.getDy(i);
+            int dz = store.getDz(i);
+            if (i == 0) {
+                loX = hiX = dx;
+                loY = hiY = dy;
+                loZ = hiZ = dz;
+            } else {
+                loX = Math.min(loX, dx); hiX = Math.max(hiX, dx);
+                loY = Math.min(loY, dy); hiY = Math.max(hiY, dy);
+                loZ = Math.min(loZ, dz); hiZ = Math.max(hiZ, dz);
+            }
+
+            int id = store.getBlockId(i);
+            int rot = store.getRotation(i);
+            long key = ((long) id << 8) | (rot & 0xFF);
+            int p = pairs.get(key);
+            if (p < 0) {
+                p = pairs.size();
+                pairs.put(key, p);
+                if (p == ids.length) {
+                    ids = Arrays.copyOf(ids, p * 2);
+                    rots = Arrays.copyOf(rots, p * 2);
+                }
+                ids[p] = id;
+                rots[p] = (byte) rot;
+            }
+            entry[i] = p;
+        }
+
+        int paletteSize = pairs.size();
+        this.paletteIds = Arrays.copyOf(ids, paletteSize);
+        this.paletteRotations = Arrays.copyOf(rots, paletteSize);
+
+        this.minDx = loX;
+        this.minDy = loY;
+        this.minDz = loZ;
+        this.bitsX = bitsFor(hiX - loX + 1);
+        this.bitsY = bitsFor(hiY - loY + 1);
+        this.bitsZ = bitsFor(hiZ - loZ + 1);
+        this.bitsPalette = bitsFor(paletteSize);
+
+        int width = width();
+        this.bits = new long[(int) (((long) n * width + 63) >>> 6)];
+        long pos = 0;
+        for (int i = 0; i < n; i++) {
+            pos = write(pos, bitsX, store.getDx(i) - loX);
+            pos = write(pos, bitsY, store.getDy(i) - loY);
+            pos = write(pos, bitsZ, store.getDz(i) - loZ);
+            pos = write(pos, bitsPalette, entry[i]);
+        }
+    }
+
+    /**
+     * Volta para arrays, na mesma ordem.
+     */
+    ShipBlockStore inflate() {
+        ShipBlockStore store = ShipBlockStore.empty(size, types);
+        long pos = 0;
+        for (int i = 0; i < size; i++) {
+            int dx = minDx + read(pos, bitsX);
+            pos += bitsX;
+            int dy = minDy + read(pos, bitsY);
+            pos += bitsY;
+            int dz = minDz + read(pos, bitsZ);
+            pos += bitsZ;
+            int p = read(pos, bitsPalette);
+            pos += bitsPalette;
+            store.set(i, dx, dy, dz, paletteIds[p], paletteRotations[p]);
+        }
+        store.setSize(size);
+        return store;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        out.writeInt(minDx);
+        out.writeInt(minDy);
+        out.writeInt(minDz);
+        out.writeByte(bitsX);
+        out.writeByte(bitsY);
+        out.writeByte(bitsZ);
+        out.writeByte(bitsPalette);
+
+        out.writeInt(paletteIds.length);
+        for (int p = 0; p < paletteIds.length; p++) {
+            BlockType type = types.get(paletteIds[p]);
+            String key = type != null && type.getId() != null ? type.getId() : "";
+            byte[] utf = key.getBytes(StandardCharsets.UTF_8);
+            out.writeShort(utf.length);
+            out.write(utf);
+            out.writeInt(paletteIds[p]);
+            out.writeByte(paletteRotations[p]);
+        }
+
+        out.writeInt(bits.length);
+        for (long w : bits) {
+            out.writeLong(w);
+        }
+    }
+
+    /**
+     * Lê um corpo gravado por {@link #write} (posição atual do buffer). Ids da paleta são
+     * resolvidos de novo pela chave do tipo; chave desconhecida fica com o id gravado.
+     */
+    static ShipPackedBlocks read(ByteBuffer in) {
+        int size = in.getInt();
+        int minDx = in.getInt();
+        int minDy = in.getInt();
+        int minDz = in.getInt();
+        int bitsX = in.get();
+        int bitsY = in.get();
+        int bitsZ = in.get();
+        int bitsPalette = in.get();
+
+        int paletteSize = in.getInt();
+        int[] ids = new int[paletteSize];
+        byte[] rots = new byte[paletteSize];
+        Int2ObjectOpenHashMap<BlockType> types = new Int2ObjectOpenHashMap<>();
+        int unknown = 0;
+        for (int p = 0; p < paletteSize; p++) {
+            byte[] utf = new byte[in.getShort() & 0xFFFF];
+            in.get(utf);
+            int savedId = in.getInt();
+            rots[p] = in.get();
+
+            int id = savedId;
+            if (utf.length > 0) {
+                int current = BlockType.getAssetMap().getIndex(new String(utf, StandardCharsets.UTF_8));
+                if (current >= 0) id = current;
+                else unknown++;
+            }
+            ids[p] = id;
+            BlockType type = BlockType.getAssetMap().getAsset(id);
+            if (type != null) types.put(id, type);
+        }
+        if (unknown > 0) {
+            ShipLogger.warn("[SHIPS] Registro: " + unknown + " tipos de bloco desconhecidos (mantido o id gravado)");
+        }
+
+        long[] bits = new long[in.getInt()];
+        in.asLongBuffer().get(bits);
+        in.position(in.position() + bits.length * Long.BYTES);
+
+        return new ShipPackedBlocks(size, minDx, minDy, minDz, bitsX, bitsY, bitsZ, bitsPalette,
+                ids, rots, types, bits);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int paletteSize() {
+        return paletteIds.length;
+    }
+
+    int bitsPerBlock() {
+        return width();
+    }
+
+    long estimateHeapBytes() {
+        return 16L + bits.length * 8L
+                + 16L + paletteIds.length * 4L
+                + 16L + paletteRotations.length;
+    }
+
+    private int width() {
+        return bitsX + bitsY + bitsZ + bitsPalette;
+    }
+
+    private long write(long pos, int width, int value) {
+        if (width == 0) return pos;
+        int word = (int) (pos >>> 6);
+        int shift = (int) (pos & 63);
+        long v = value & ((1L << width) - 1);
+        bits[word] |= v << shift;
+        if (shift + width > 64) {
+            bits[word + 1] |= v >>> (64 - shift);
+        }
+        return pos + width;
+    }
+
+    private int read(long pos, int width) {
+        if (width == 0) return 0;
+        int word = (int) (pos >>> 6);
+        int shift = (int) (pos & 63);
+        long v = bits[word] >>> shift;
+        if (shift + width > 64) {
+            v |= bits[word + 1] << (64 - shift);
+        }
+        return (int) (v & ((1L << width) - 1));
+    }
+
+    // bits para guardar valores 0..count-1
+    private static int bitsFor(int count) {
+        return count <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(count - 1);
+    }
+}
@@ -0,0 +1,248 @@
+package com.michallves.ships.ship.assembly;
+
+import com.hypixel.hytale.math.util.ChunkUtil;
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cópia dos blocos da caixa de montagem ao redor do helm, capturada por coluna de chunk só
+ * quando o flood chega nela (navio pequeno = uma ou duas colunas, não a caixa inteira).
+ * Captura na thread do mundo; leitura pelo flood fill num worker, só de colunas capturadas
+ * antes de ele rodar. Guarda o carimbo de cada chunk capturado para detectar mudanças depois.
+ *
+ * Só lê chunks em memória: coluna com o chunk descarregado fica vazia e é contada em
+ * {@link #unloadedColumns()} (quem monta tenta de novo depois, nada é carregado aqui).
+ */
+final class ShipRegionSnapshot implements ShipCellReader, ShipCellGrid {
+
+    private static final int CHUNK_SHIFT = 5;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final int WORLD_MIN_Y = 0;
+
+    private final String worldName;
+
+    // canto mínimo da caixa e dimensões
+    private final int bx;
+    private final int by;
+    private final int bz;
+    private final int sizeXZ;
+    private final int sizeY;
+
+    // colunas de chunk que cobrem a caixa; por coluna: ((x & 31) * 32 + (z & 31)) * sizeY + ry
+    private final int firstCx;
+    private final int firstCz;
+    private final int columnsX;
+    private final int columnsZ;
+    private final int[][] ids;
+    private final byte[][] rotations;
+    private final long[] columnStamps;
+
+    // colunas pedidas pelo flood e ainda não capturadas (thread do mundo)
+    private final boolean[] requested;
+    private final int[] queue;
+    private int queueHead = 0;
+    private int queueTail = 0;
+    private int capturedColumns = 0;
+    private int unloadedColumns = 0;
+
+    // resolvido pelos workers; asset desconhecido fica como UNKNOWN
+    private static final Object UNKNOWN = new Object();
+    private final ConcurrentHashMap<Integer, Object> types = new ConcurrentHashMap<>();
+
+    // só usado pela leitura sequencial (ShipCellReader)
+    private int rotation;
+    private BlockType type;
+
+    ShipRegionSnapshot(String worldName, Vector3i helm, int radiusXZ, int downY, int upY) {
+        this.worldName = worldName;
+        this.bx = helm.x - radiusXZ;
+        this.by = helm.y - downY;
+        this.bz = helm.z - radiusXZ;
+        this.sizeXZ = radiusXZ * 2 + 1;
+        this.sizeY = downY + upY + 1;
+
+        this.firstCx = bx >> CHUNK_SHIFT;
+        this.firstCz = bz >> CHUNK_SHIFT;
+        this.columnsX = ((bx + sizeXZ - 1) >> CHUNK_SHIFT) - firstCx + 1;
+        this.columnsZ = ((bz + sizeXZ - 1) >> CHUNK_SHIFT) - firstCz + 1;
+        int columns = columnsX * columnsZ;
+        this.ids = new int[columns][];
+        this.rotations = new byte[columns][];
+        this.columnStamps = new long[columns];
+        this.requested = new boolean[columns];
+        this.queue = new int[columns];
+
+        // a coluna do helm sempre entra (semente do flood)
+        request(radiusXZ, radiusXZ);
+    }
+
+    int columnCount() {
+        return columnStamps.length;
+    }
+
+    int capturedColumns() {
+        return capturedColumns;
+    }
+
+    /**
+     * Colunas pedidas pelo flood cujo chunk não estava em memória (ficaram vazias).
+     */
+    int unloadedColumns() {
+        return unloadedColumns;
+    }
+
+    private int column(int rx, int rz) {
+        return (((bx + rx) >> CHUNK_SHIFT) - firstCx) * columnsZ + (((bz + rz) >> CHUNK_SHIFT) - firstCz);
+    }
+
+    /**
+     * Pede a coluna da célula (rx,rz) para a próxima captura (thread do mundo).
+     */
+    void request(int rx, int rz) {
+        if (rx < 0 || rx >= sizeXZ || rz < 0 || rz >= sizeXZ) return;
+        int c = column(rx, rz);
+        if (requested[c]) return;
+        requested[c] = true;
+        queue[queueTail++] = c;
+    }
+
+    /**
+     * Tudo o que foi pedido já está capturado?
+     */
+    boolean isComplete() {
+        return queueHead == queueTail;
+    }
+
+    /**
+     * Copia a próxima coluna pedida (thread do mundo).
+     */
+    @SuppressWarnings("removal")
+    void captureNextColumn(World world, ShipChunkStamps stamps) {
+        if (queueHead == queueTail) return;
+        int c = queue[queueHead++];
+        int cx = firstCx + c / columnsZ;
+        int cz = firstCz + c % columnsZ;
+
+        int x0 = Math.max(bx, cx << CHUNK_SHIFT);
+        int x1 = Math.min(bx + sizeXZ, (cx << CHUNK_SHIFT) + CHUNK_SIZE);
+        int z0 = Math.max(bz, cz << CHUNK_SHIFT);
+        int z1 = Math.min(bz + sizeXZ, (cz << CHUNK_SHIFT) + CHUNK_SIZE);
+        int y0 = Math.max(by, WORLD_MIN_Y);
+        int y1 = Math.min(by + sizeY, ChunkUtil.HEIGHT);
+
+        long chunkIndex = ChunkUtil.indexChunkFromBlock(x0, z0);
+        columnStamps[c] = stamps.stamp(worldName, chunkIndex);
+        WorldChunk chunk = world.getChunkIfInMemory(chunkIndex);
+
+        int[] colIds = new int[CHUNK_SIZE * CHUNK_SIZE * sizeY];
+        byte[] colRots = new byte[colIds.length];
+        capturedColumns++;
+        if (chunk == null) {
+            // sem leitura bloco a bloco (carregaria o chunk na thread do mundo): fica vazia
+            unloadedColumns++;
+            ids[c] = colIds;
+            rotations[c] = colRots;
+            return;
+        }
+        for (int x = x0; x < x1; x++) {
+            for (int z = z0; z < z1; z++) {
+                int lx = ChunkUtil.localCoordinate(x);
+                int lz = ChunkUtil.localCoordinate(z);
+                int base = ((x & CHUNK_MASK) * CHUNK_SIZE + (z & CHUNK_MASK)) * sizeY;
+
+                for (int y = y0; y < y1; y++) {
+                    int id = chunk.getBlock(lx, y, lz);
+                    int rot = id != BlockType.EMPTY_ID ? chunk.getRotationIndex(lx, y, lz) : 0;
+                    colIds[base + (y - by)] = id;
+                    colRots[base + (y - by)] = (byte) rot;
+                }
+            }
+        }
+        ids[c] = colIds;
+        rotations[c] = colRots;
+    }
+
+    /**
+     * Algum chunk capturado mudou depois da captura (thread do mundo)?
+     */
+    boolean isStale(ShipChunkStamps stamps) {
+        for (int c = 0; c < ids.length; c++) {
+            if (ids[c] == null) continue;
+            int cx = firstCx + c / columnsZ;
+            int cz = firstCz + c % columnsZ;
+            long chunkIndex = ChunkUtil.indexChunkFromBlock(cx << CHUNK_SHIFT, cz << CHUNK_SHIFT);
+            if (stamps.stamp(worldName, chunkIndex) != columnStamps[c]) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isCaptured(int rx, int rz) {
+        if (rx < 0 || rx >= sizeXZ || rz < 0 || rz >= sizeXZ) return true;
+        return ids[column(rx, rz)] != null;
+    }
+
+    private int cell(int rx, int ry, int rz) {
+        return (((bx + rx) & CHUNK_MASK) * CHUNK_SIZE + ((bz + rz) & CHUNK_MASK)) * sizeY + ry;
+    }
+
+    @Override
+    public int read(int x, int y, int z) {
+        int rx = x - bx;
+        int ry = y - by;
+        int rz = z - bz;
+        int id = id(rx, ry, rz);
+        if (id == BlockType.EMPTY_ID) {
+            type = null;
+            return id;
+        }
+
+        rotation = rotation(rx, ry, rz);
+        type = type(id);
+        return id;
+    }
+
+    @Override
+    public int id(int rx, int ry, int rz) {
+        if (rx < 0 || rx >= sizeXZ || rz < 0 || rz >= sizeXZ || ry < 0 || ry >= sizeY) {
+            return BlockType.EMPTY_ID;
+        }
+        int[] col = ids[column(rx, rz)];
+        if (col == null) return BlockType.EMPTY_ID;
+        int id = col[cell(rx, ry, rz)];
+        if (id == BlockType.EMPTY_ID || type(id) == null) return BlockType.EMPTY_ID;
+        return id;
+    }
+
+    @Override
+    public int rotation(int rx, int ry, int rz) {
+        byte[] col = rotations[column(rx, rz)];
+        return col != null ? col[cell(rx, ry, rz)] & 0xFF : 0;
+    }
+
+    @Override
+    public BlockType type(int id) {
+        // asset map é só leitura depois do carregamento
+        Object t = types.computeIfAbsent(id, k -> {
+            BlockType bt = BlockType.getAssetMap().getAsset(k);
+            return bt == null ? UNKNOWN : bt;
+        });
+        return t == UNKNOWN ? null : (BlockType) t;
+    }
+
+    @Override
+    public int rotation() {
+        return rotation;
+    }
+
+    @Override
+    public BlockType type() {
+        return type;
+    }
+}
@@ -0,0 +1,306 @@
+package com.michallves.ships.ship.assembly;
+
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
+import com.michallves.ships.utils.ShipLogger;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Flood fill da caixa de montagem por seções de 16³, em rodadas no ForkJoinPool:
+ *
+ * <pre>
+ * rodada: cada seção com sementes pendentes vira uma tarefa; a tarefa faz BFS só dentro
+ *         da seção (bitmap de visitados próprio) e devolve as células da fronteira que
+ *         caíram em seções vizinhas
+ * entre rodadas: as fronteiras viram sementes das seções vizinhas
+ * </pre>
+ *
+ * Uma seção nunca roda em duas tarefas da mesma rodada, então os bitmaps não precisam de
+ * sincronização (o join da rodada publica tudo). Mesmo resultado do flood sequencial,
+ * exceto a ordem dos blocos (e quais ficam de fora quando maxBlocks corta).
+ *
+ * Grade capturada sob demanda: célula de coluna ainda não capturada fica esperando; flood()
+ * para quando só sobram essas, quem chama captura as colunas (requestWaiting) e chama
+ * flood() de novo.
+ */
+final class ShipSectionFlood {
+
+    private static final int SHIFT = 4;
+    private static final int SIZE = 1 << SHIFT;
+    private static final int MASK = SIZE - 1;
+
+    private static final int WORLD_MIN_Y = 0;
+    private static final int WORLD_MAX_Y = 320;
+
+    // Mesmo empacotamento do ShipAssembler: 16 bits por eixo, relativo à caixa
+    private static long pack(int rx, int ry, int rz) {
+        return ((long) rx << 32) | ((long) rz << 16) | ry;
+    }
+
+    private final ShipCellGrid grid;
+    private final int radiusXZ;
+    private final int boxXZ;
+    private final int boxY;
+    private final int by;
+    private final int baseOri;
+    private final int maxBlocks;
+
+    private final int sectionsXZ;
+    private final int sectionsY;
+
+    // por seção: bitmap 16³ (criado na primeira visita) e sementes da próxima rodada
+    private final long[][] visited;
+    private final LongArrayList[] seeds;
+
+    private final AtomicInteger accepted = new AtomicInteger();
+
+    // entre chamadas de flood() (thread de quem chama)
+    private final IntArrayList active = new IntArrayList();
+    private final List<SectionTask> done = new ArrayList<>();
+    private final LongArrayList waiting = new LongArrayList();
+    private int rounds = 0;
+    private int tasks = 0;
+    private long floodNanos = 0L;
+
+    private ShipSectionFlood(ShipCellGrid grid, Vector3i helm, int baseOri, int radiusXZ, int maxBlocks) {
+        this.grid = grid;
+        this.radiusXZ = radiusXZ;
+        this.boxXZ = radiusXZ * 2 + 1;
+        this.boxY = ShipAssembler.MAX_DOWN_Y + ShipAssembler.MAX_UP_Y + 1;
+        this.by = helm.y - ShipAssembler.MAX_DOWN_Y;
+        this.baseOri = baseOri;
+        this.maxBlocks = maxBlocks;
+
+        this.sectionsXZ = (boxXZ + MASK) >> SHIFT;
+        this.sectionsY = (boxY + MASK) >> SHIFT;
+        int sections = sectionsXZ * sectionsXZ * sectionsY;
+        this.visited = new long[sections][];
+        this.seeds = new LongArrayList[sections];
+    }
+
+    static ShipStructure assemble(ShipCellGrid grid, Vector3i helm, int baseOri, int radiusXZ, int maxBlocks, boolean log) {
+        // grade completa: nada fica esperando coluna, uma chamada basta
+        ShipSectionFlood flood = start(grid, helm, baseOri, radiusXZ, maxBlocks);
+        flood.flood();
+        return flood.build(log);
+    }
+
+    /**
+     * Flood com a semente no helm; avança com flood().
+     */
+    static ShipSectionFlood start(ShipCellGrid grid, Vector3i helm, int baseOri, int radiusXZ, int maxBlocks) {
+        ShipSectionFlood flood = new ShipSectionFlood(grid, helm, baseOri, radiusXZ, maxBlocks);
+        flood.waiting.add(pack(radiusXZ, ShipAssembler.MAX_DOWN_Y, radiusXZ));
+        return flood;
+    }
+
+    private int sectionOf(int rx, int ry, int rz) {
+        return ((rx >> SHIFT) * sectionsXZ + (rz >> SHIFT)) * sectionsY + (ry >> SHIFT);
+    }
+
+    /**
+     * Roda rodadas até acabar ou só sobrarem células de colunas não capturadas (worker).
+     *
+     * @return true se terminou (nada esperando, ou maxBlocks atingido)
+     */
+    boolean flood() {
+        long start = System.nanoTime();
+
+        // células que esperavam coluna: as capturadas viram sementes
+        LongArrayList still = new LongArrayList();
+        for (int i = 0; i < waiting.size(); i++) {
+            long p = waiting.getLong(i);
+            int rx = (int) (p >>> 32);
+            int rz = (int) (p >>> 16) & 0xFFFF;
+            if (grid.isCaptured(rx, rz)) {
+                addSeed(active, rx, (int) p & 0xFFFF, rz);
+            } else {
+                still.add(p);
+            }
+        }
+        waiting.clear();
+        waiting.addAll(still);
+
+        while (!active.isEmpty() && accepted.get() < maxBlocks) {
+            List<SectionTask> round = new ArrayList<>(active.size());
+            for (int i = 0; i < active.size(); i++) {
+                int s = active.getInt(i);
+                round.add(new SectionTask(s, seeds[s]));
+                seeds[s] = null;
+            }
+            active.clear();
+
+            ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(round);
+                }
+            });
+
+            for (SectionTask t : round) {
+                LongArrayList out = t.frontier;
+                for (int i = 0; i < out.size(); i++) {
+                    long p = out.getLong(i);
+                    addSeed(active, (int) (p >>> 32), (int) p & 0xFFFF, (int) (p >>> 16) & 0xFFFF);
+                }
+                waiting.addAll(t.uncaptured);
+                if (!t.found.isEmpty()) done.add(t);
+            }
+            rounds++;
+            tasks += round.size();
+        }
+
+        floodNanos += System.nanoTime() - start;
+        return waiting.isEmpty() || accepted.get() >= maxBlocks;
+    }
+
+    /**
+     * Pede ao snapshot as colunas das células esperando (thread do mundo, entre flood()s).
+     */
+    void requestWaiting(ShipRegionSnapshot region) {
+        for (int i = 0; i < waiting.size(); i++) {
+            long p = waiting.getLong(i);
+            region.request((int) (p >>> 32), (int) (p >>> 16) & 0xFFFF);
+        }
+    }
+
+    ShipStructure build(boolean log) {
+        int count = 0;
+        for (SectionTask t : done) count += t.found.size();
+        count = Math.min(count, maxBlocks);
+
+        ShipBlockStoreBuilder blocks = new ShipBlockStoreBuilder(count);
+        for (SectionTask t : done) {
+            if (blocks.addAll(t.found, count - blocks.size()) == 0) break;
+        }
+
+        if (log) {
+            ShipLogger.info("[SHIPS] ShipAssembler (secoes): capturou " + count + " blocos em "
+                    + rounds + " rodadas / " + tasks + " tarefas, "
+                    + (floodNanos / 1000) + "us");
+        }
+        return new ShipStructure(blocks);
+    }
+
+    private void addSeed(IntArrayList active, int rx, int ry, int rz) {
+        int s = sectionOf(rx, ry, rz);
+        LongArrayList list = seeds[s];
+        if (list == null) {
+            list = new LongArrayList();
+            seeds[s] = list;
+            active.add(s);
+        }
+        list.add(pack(rx, ry, rz));
+    }
+
+    private final class SectionTask extends RecursiveAction {
+        private final int section;
+        private final LongArrayList start;
+
+        private final ShipBlockStoreBuilder found = new ShipBlockStoreBuilder(64);
+        private final LongArrayList frontier = new LongArrayList();
+        // vizinhos em colunas ainda não capturadas (sem marcar: voltam como semente)
+        private final LongArrayList uncaptured = new LongArrayList();
+
+        private SectionTask(int section, LongArrayList start) {
+            this.section = section;
+            this.start = start;
+        }
+
+        @Override
+        protected void compute() {
+            long[] bits = visited[section];
+            if (bits == null) {
+                bits = new long[(SIZE * SIZE * SIZE) >>> 6];
+                visited[section] = bits;
+            }
+
+            LongArrayFIFOQueue queue = new LongArrayFIFOQueue(Math.max(16, start.size()));
+            for (int i = 0; i < start.size(); i++) {
+                long p = start.getLong(i);
+                if (mark(bits, (int) (p >>> 32), (int) p & 0xFFFF, (int) (p >>> 16) & 0xFFFF)) {
+                    queue.enqueue(p);
+                }
+            }
+
+            final int hx = radiusXZ;
+            final int invOri = (4 - (baseOri & 3)) & 3;
+
+            while (!queue.isEmpty()) {
+                long p = queue.dequeueLong();
+                int rx = (int) (p >>> 32);
+                int rz = (int) (p >>> 16) & 0xFFFF;
+                int ry = (int) p & 0xFFFF;
+
+                int id = grid.id(rx, ry, rz);
+                // vazio (ou asset desconhecido): não expande
+                if (id == BlockType.EMPTY_ID) continue;
+
+                if (accepted.getAndIncrement() >= maxBlocks) return;
+
+                int dxW = rx - hx;
+                int dy = ry - ShipAssembler.MAX_DOWN_Y;
+                int dzW = rz - hx;
+                int lx;
+                int lz;
+                switch (invOri) {
+                    case 0 -> { lx = dxW; lz = dzW; }
+                    case 1 -> { lx = -dzW; lz = dxW; }
+                    case 2 -> { lx = -dxW; lz = -dzW; }
+                    default -> { lx = dzW; lz = -dxW; }
+                }
+                int localRot = (grid.rotation(rx, ry, rz) - baseOri) & 3;
+                found.add(lx, dy, lz, id, grid.type(id), localRot);
+
+                expand(queue, bits, rx + 1, ry, rz);
+                expand(queue, bits, rx - 1, ry, rz);
+                expand(queue, bits, rx, ry + 1, rz);
+                expand(queue, bits, rx, ry - 1, rz);
+                expand(queue, bits, rx, ry, rz + 1);
+                expand(queue, bits, rx, ry, rz - 1);
+            }
+        }
+
+        private void expand(LongArrayFIFOQueue queue, long[] bits, int rx, int ry, int rz) {
+            if (rx < 0 || rx >= boxXZ) return;
+            if (rz < 0 || rz >= boxXZ) return;
+            if (ry < 0 || ry >= boxY) return;
+
+            int y = by + ry;
+            if (y < WORLD_MIN_Y || y >= WORLD_MAX_Y) return;
+
+            if (!grid.isCaptured(rx, rz)) {
+                uncaptured.add(pack(rx, ry, rz));
+                return;
+            }
+            if (sectionOf(rx, ry, rz) != section) {
+                // fronteira: a seção vizinha decide na próxima rodada
+                frontier.add(pack(rx, ry, rz));
+                return;
+            }
+            if (mark(bits, rx, ry, rz)) {
+                queue.enqueue(pack(rx, ry, rz));
+            }
+        }
+    }
+
+    /**
+     * @return true se a célula ainda não tinha sido visitada (bitmap da própria seção)
+     */
+    private static boolean mark(long[] bits, int rx, int ry, int rz) {
+        int bit = (((rx & MASK) << SHIFT) | (rz & MASK)) << SHIFT | (ry & MASK);
+        int word = bit >>> 6;
+        long mask = 1L << (bit & 63);
+        if ((bits[word] & mask) != 0) return false;
+        bits[word] |= mask;
+        return true;
+    }
+}
@@ -2,46 +2,496 @@ package com.michallves.ships.ship.assembly;
 
 import com.hypixel.hytale.math.util.ChunkUtil;
 import com.hypixel.hytale.math.vector.Vector3i;
+import com.hypixel.hytale.protocol.BlockMaterial;
+import com.hypixel.hytale.protocol.Opacity;
 import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
 import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
+import com.michallves.ships.utils.ShipBlockKeys;
 import com.michallves.ships.utils.ShipMath;
+import it.unimi.dsi.fastutil.Hash;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
 
 public final class ShipStructure {
 
-    private static final int WORLD_BIAS = 1 << 25;
-    private static final long MASK_26 = 0x3FFFFFFL;
-    private static final long MASK_12 = 0xFFFL;
+    // Chunk de 32 colunas / seções de 32 de altura (só afeta o agrupamento, não a correção)
+    private static final int CHUNK_SHIFT = 5;
+    private static final int SECTION_BITS = 6;
 
-    private static long packWorld(int x, int y, int z) {
-        long xx = ((long) (x + WORLD_BIAS)) & MASK_26;
-        long zz = ((long) (z + WORLD_BIAS)) & MASK_26;
-        long yy = ((long) y) & MASK_12;
-        return (xx << 38) | (zz << 12) | yy;
-    }
+    // Arrays paralelos em ordem de Morton. Trocado por uma cópia a cada edição
+    // (quem guardou a referência vê a versão antiga). null enquanto compactado.
+    private ShipBlockStore store;
+
+    // Forma compacta (paleta + bits) de um navio ocioso; inflada no primeiro acesso
+    private ShipPackedBlocks packed;
+
+    // Corpo ainda no arquivo do registro (mapeado); decodificado no primeiro acesso
+    private ByteBuffer pendingBody;
+    private int pendingSize;
+    private ShipBounds pendingBounds;
+
+    // Muda a cada edição (compactar/inflar não muda: a ordem dos blocos é a mesma)
+    private int revision;
+
+    // Offset local empacotado -> índice em blocks. Construído sob demanda.
+    private Long2IntOpenHashMap localIndex;
+
+    // Limites locais mantidos incrementalmente. Construído sob demanda.
+    private ShipExtents extents;
+
+    // Offsets rotacionados por orientação (0..3), calculados sob demanda
+    private final int[][] rotated = new int[4][];
+
+    // Offsets locais de blocos que tampam a visão (sólidos). Construído sob demanda.
+    private LongOpenHashSet occluders;
+
+    // Blocos da silhueta (extremos em alguma linha x/y/z). Construído sob demanda.
+    private boolean[] outline;
 
-    private final ShipBlock[] blocks;
+    // Blocos expostos (superfície). Construído sob demanda.
+    private ShipSurface surface;
 
     public ShipStructure(ShipBlock[] blocks) {
-        this.blocks = blocks;
+        this.store = ShipBlockStore.of(blocks);
+    }
+
+    /**
+     * Estrutura da montagem (flood), sem passar por ShipBlock.
+     */
+    ShipStructure(ShipBlockStoreBuilder blocks) {
+        this.store = ShipBlockStore.of(blocks);
+    }
+
+    private ShipStructure() {
+    }
+
+    /**
+     * Estrutura carregada do registro sem ler os blocos: o corpo (formato de
+     * {@link #writePacked}) só é decodificado quando alguém precisar deles.
+     */
+    public static ShipStructure fromPackedBody(int size, ShipBounds bounds, ByteBuffer body) {
+        ShipStructure s = new ShipStructure();
+        s.pendingBody = body;
+        s.pendingSize = size;
+        s.pendingBounds = bounds;
+        return s;
     }
 
     public int size() {
-        return blocks.length;
+        if (store != null) return store.size();
+        return packed != null ? packed.size() : pendingSize;
+    }
+
+    public ShipBlockStore getStore() {
+        return store();
+    }
+
+    private ShipBlockStore store() {
+        ShipBlockStore s = store;
+        if (s == null) {
+            if (packed == null) {
+                packed = ShipPackedBlocks.read(pendingBody.duplicate());
+                pendingBody = null;
+            }
+            s = packed.inflate();
+            store = s;
+            packed = null;
+        }
+        return s;
+    }
+
+    public int getRevision() {
+        return revision;
+    }
+
+    public boolean isCompacted() {
+        return store == null;
+    }
+
+    /**
+     * Troca os arrays pela forma compacta (paleta de pares id/rotação + índices em bits) e
+     * solta os índices/caches derivados. Qualquer acesso depois disso infla de novo.
+     * Chamar na thread do mundo do navio.
+     *
+     * @return false se já estava compactado
+     */
+    public boolean compact() {
+        if (store == null) return false;
+        packed = new ShipPackedBlocks(store);
+        store = null;
+        localIndex = null;
+        occluders = null;
+        outline = null;
+        surface = null;
+        Arrays.fill(rotated, null);
+        return true;
+    }
+
+    /**
+     * Infla agora (ex.: uso do helm), em vez de no primeiro acesso.
+     */
+    public void inflate() {
+        store();
+    }
+
+    /**
+     * true enquanto os blocos ainda estão só no arquivo do registro.
+     */
+    public boolean isPendingLoad() {
+        return store == null && packed == null;
+    }
+
+    /**
+     * Corpo ainda não lido (fatia do registro), ou null se os blocos já estão em memória.
+     */
+    public ByteBuffer pendingBody() {
+        ByteBuffer b = pendingBody;
+        return b != null && isPendingLoad() ? b.duplicate() : null;
+    }
+
+    /**
+     * Grava os blocos na forma compacta (corpo do registro). Não infla: navio compactado
+     * usa o que já tem, e corpo ainda não lido é copiado como está.
+     */
+    public void writePacked(DataOutputStream out) throws IOException {
+        ShipBlockStore s = store;
+        if (s != null) {
+            new ShipPackedBlocks(s).write(out);
+            return;
+        }
+        ShipPackedBlocks p = packed;
+        if (p != null) {
+            p.write(out);
+            return;
+        }
+        ByteBuffer body = pendingBody.duplicate();
+        byte[] raw = new byte[body.remaining()];
+        body.get(raw);
+        out.write(raw);
+    }
+
+    /**
+     * Pares (id, rotação) distintos da forma compacta (0 = não compactado).
+     */
+    public int getPaletteSize() {
+        ShipPackedBlocks p = packed;
+        return p != null ? p.paletteSize() : 0;
+    }
+
+    public int getPackedBitsPerBlock() {
+        ShipPackedBlocks p = packed;
+        return p != null ? p.bitsPerBlock() : 0;
+    }
+
+    /**
+     * Estimativa do heap da estrutura: arrays (ou forma compacta) + índices/caches construídos.
+     */
+    public long estimateHeapBytes() {
+        if (isPendingLoad()) return 0L;
+        long bytes = store != null ? store.estimateHeapBytes() : packed.estimateHeapBytes();
+        int n = size();
+        if (localIndex != null) bytes += hashBytes(localIndex.size(), 12);
+        if (occluders != null) bytes += hashBytes(occluders.size(), 8);
+        if (outline != null) bytes += 16L + outline.length;
+        if (surface != null) bytes += 16L + n * 5L;
+        for (int[] rot : rotated) {
+            if (rot != null) bytes += 16L + rot.length * 4L;
+        }
+        return bytes;
+    }
+
+    // tabela aberta do fastutil: potência de 2 acima de n / 0.75, chave (+ valor) por slot
+    private static long hashBytes(int n, int bytesPerSlot) {
+        return 16L + (long) HashCommon.arraySize(Math.max(1, n), Hash.DEFAULT_LOAD_FACTOR) * bytesPerSlot;
+    }
+
+    /**
+     * Bloco index como objeto (caminhos frios). Loops por bloco leem direto do getStore().
+     */
+    public ShipBlock getBlock(int index) {
+        return store().getBlock(index);
+    }
+
+    /**
+     * Todos os blocos como objetos (exportação/gravação).
+     */
+    public ShipBlock[] toBlocks() {
+        ShipBlockStore s = store();
+        ShipBlock[] out = new ShipBlock[s.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = s.getBlock(i);
+        }
+        return out;
+    }
+
+    /**
+     * @return índice do bloco no offset local, ou -1
+     */
+    public int indexOf(int dx, int dy, int dz) {
+        return localIndex().get(ShipBlockKeys.packLocal(dx, dy, dz));
+    }
+
+    public boolean contains(int dx, int dy, int dz) {
+        return localIndex().containsKey(ShipBlockKeys.packLocal(dx, dy, dz));
+    }
+
+    /**
+     * Blocos expostos do navio (colisão e transforms só andam por eles).
+     */
+    public ShipSurface surface() {
+        if (surface == null) {
+            surface = new ShipSurface(this);
+        }
+        return surface;
+    }
+
+    /**
+     * Limites atuais. Não lê os blocos se os limites já estiverem à mão (extents construídos
+     * ou gravados no registro). null se a estrutura estiver vazia.
+     */
+    public ShipBounds bounds() {
+        ShipExtents e = extents;
+        if (e == null && pendingBounds != null) return pendingBounds;
+        e = extents();
+        return e.isEmpty() ? null : ShipBounds.of(e);
+    }
+
+    public ShipExtents extents() {
+        if (extents == null) {
+            extents = new ShipExtents(store());
+        }
+        return extents;
+    }
+
+    private Long2IntOpenHashMap localIndex() {
+        if (localIndex == null) {
+            ShipBlockStore s = store();
+            Long2IntOpenHashMap idx = new Long2IntOpenHashMap(Math.max(16, s.size()));
+            idx.defaultReturnValue(-1);
+            for (int i = 0; i < s.size(); i++) {
+                idx.put(ShipBlockKeys.packLocal(s.getDx(i), s.getDy(i), s.getDz(i)), i);
+            }
+            localIndex = idx;
+        }
+        return localIndex;
+    }
+
+    /**
+     * Aplica uma edição (navio docado): troca, remove e adiciona blocos numa cópia só dos arrays.
+     * Índices, oclusores e limites são corrigidos bloco a bloco; offsets rotacionados,
+     * silhueta e seções são refeitos sob demanda na próxima transição (que já é O(n) de qualquer jeito).
+     * Remoção troca o bloco com o último e adição vai para o fim (a ordem dos blocos não é estável
+     * entre edições, e a ordem de Morton só vale de novo numa montagem nova).
+     */
+    public void applyEdit(List<ShipBlock> removed, List<ShipBlock> added, List<ShipBlock> replaced) {
+        Long2IntOpenHashMap idx = localIndex();
+        ShipExtents ext = extents();
+        LongOpenHashSet occ = occluders;
+
+        ShipBlockStore next = store().copy(store().size() + added.size());
+        int n = store().size();
+
+        for (ShipBlock b : replaced) {
+            int i = idx.get(ShipBlockKeys.packLocal(b.dx, b.dy, b.dz));
+            if (i < 0) continue;
+            if (occ != null) updateOccluder(occ, next.getDx(i), next.getDy(i), next.getDz(i), next.getType(i), false);
+            next.set(i, b);
+            if (occ != null) updateOccluder(occ, b.dx, b.dy, b.dz, b.type, true);
+        }
+
+        for (ShipBlock r : removed) {
+            long key = ShipBlockKeys.packLocal(r.dx, r.dy, r.dz);
+            int i = idx.remove(key);
+            if (i < 0) continue;
+
+            int gx = next.getDx(i);
+            int gy = next.getDy(i);
+            int gz = next.getDz(i);
+            BlockType gType = next.getType(i);
+            int last = --n;
+            if (i != last) {
+                next.move(last, i);
+                idx.put(ShipBlockKeys.packLocal(next.getDx(i), next.getDy(i), next.getDz(i)), i);
+            }
+            ext.remove(gx, gy, gz);
+            if (occ != null) updateOccluder(occ, gx, gy, gz, gType, false);
+        }
+
+        for (ShipBlock b : added) {
+            long key = ShipBlockKeys.packLocal(b.dx, b.dy, b.dz);
+            if (idx.containsKey(key)) continue;
+            next.set(n, b);
+            idx.put(key, n);
+            n++;
+            ext.add(b.dx, b.dy, b.dz);
+            if (occ != null) updateOccluder(occ, b.dx, b.dy, b.dz, b.type, true);
+        }
+
+        next.setSize(n);
+        next.trim();
+        store = next;
+        revision++;
+        Arrays.fill(rotated, null);
+        outline = null;
+        surface = null;
+    }
+
+    private static void updateOccluder(LongOpenHashSet occ, int dx, int dy, int dz, BlockType type, boolean present) {
+        if (!isOccluding(type)) return;
+        long key = ShipBlockKeys.packLocal(dx, dy, dz);
+        if (present) occ.add(key);
+        else occ.remove(key);
     }
 
-    public ShipBlock[] getBlocks() {
-        return blocks;
+    /**
+     * Bloco totalmente cercado (6 vizinhos opacos do próprio navio): nunca aparece,
+     * então não precisa virar entidade. Continua valendo para colisão e docking.
+     */
+    public boolean isEnclosed(int dx, int dy, int dz) {
+        LongOpenHashSet occ = occluders();
+        return occ.contains(ShipBlockKeys.packLocal(dx + 1, dy, dz))
+                && occ.contains(ShipBlockKeys.packLocal(dx - 1, dy, dz))
+                && occ.contains(ShipBlockKeys.packLocal(dx, dy + 1, dz))
+                && occ.contains(ShipBlockKeys.packLocal(dx, dy - 1, dz))
+                && occ.contains(ShipBlockKeys.packLocal(dx, dy, dz + 1))
+                && occ.contains(ShipBlockKeys.packLocal(dx, dy, dz - 1));
+    }
+
+    public boolean isEnclosed(int index) {
+        ShipBlockStore s = store();
+        return isEnclosed(s.getDx(index), s.getDy(index), s.getDz(index));
+    }
+
+    private LongOpenHashSet occluders() {
+        if (occluders == null) {
+            ShipBlockStore s = store();
+            LongOpenHashSet occ = new LongOpenHashSet(Math.max(16, s.size()));
+            for (int i = 0; i < s.size(); i++) {
+                if (isOccluding(s.getType(i))) {
+                    occ.add(ShipBlockKeys.packLocal(s.getDx(i), s.getDy(i), s.getDz(i)));
+                }
+            }
+            occluders = occ;
+        }
+        return occluders;
+    }
+
+    /**
+     * Bloco da silhueta: primeiro ou último da sua linha em algum dos 3 eixos.
+     * É o que sobra do navio quando só o contorno é replicado (visto de longe).
+     */
+    public boolean isOutline(int index) {
+        if (outline == null) {
+            boolean[] out = new boolean[store().size()];
+            markLineExtremes(out, 0);
+            markLineExtremes(out, 1);
+            markLineExtremes(out, 2);
+            outline = out;
+        }
+        return outline[index];
+    }
+
+    private void markLineExtremes(boolean[] out, int axis) {
+        ShipBlockStore s = store();
+        int n = s.size();
+        Long2IntOpenHashMap min = new Long2IntOpenHashMap(Math.max(16, n / 4));
+        Long2IntOpenHashMap max = new Long2IntOpenHashMap(Math.max(16, n / 4));
+        min.defaultReturnValue(Integer.MAX_VALUE);
+        max.defaultReturnValue(Integer.MIN_VALUE);
+
+        for (int i = 0; i < n; i++) {
+            long key = lineKey(s, i, axis);
+            int v = axisValue(s, i, axis);
+            if (v < min.get(key)) min.put(key, v);
+            if (v > max.get(key)) max.put(key, v);
+        }
+
+        for (int i = 0; i < n; i++) {
+            long key = lineKey(s, i, axis);
+            int v = axisValue(s, i, axis);
+            if (v == min.get(key) || v == max.get(key)) out[i] = true;
+        }
+    }
+
+    private static long lineKey(ShipBlockStore s, int i, int axis) {
+        return ShipBlockKeys.packLocal(axis == 0 ? 0 : s.getDx(i), axis == 1 ? 0 : s.getDy(i), axis == 2 ? 0 : s.getDz(i));
+    }
+
+    private static int axisValue(ShipBlockStore s, int i, int axis) {
+        return axis == 0 ? s.getDx(i) : (axis == 1 ? s.getDy(i) : s.getDz(i));
+    }
+
+    // sólido e opaco: vidro, folhas e grades são sólidos mas deixam ver o bloco de trás
+    private static boolean isOccluding(BlockType type) {
+        return type != null && type.getMaterial() == BlockMaterial.Solid && type.getOpacity() == Opacity.Solid;
+    }
+
+    /**
+     * Monta o plano de escrita (offsets já rotacionados, agrupados por chunk/seção).
+     */
+    public ShipWritePlan planWrites(Vector3i origin, int orientation) {
+        int ori = orientation & 3;
+        int[] rot = rotatedOffsets(ori);
+        int n = store().size();
+
+        int baseCx = origin.x >> CHUNK_SHIFT;
+        int baseCz = origin.z >> CHUNK_SHIFT;
+
+        // (grupo << 32) | índice => sort primitivo sem alocar objetos
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            int wx = origin.x + rot[i * 3];
+            int wy = origin.y + rot[i * 3 + 1];
+            int wz = origin.z + rot[i * 3 + 2];
+            keys[i] = ((long) groupKey(wx, wy, wz, baseCx, baseCz) << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        ShipWritePlan plan = new ShipWritePlan(origin, ori, n);
+        for (int k = 0; k < n; k++) {
+            int i = (int) keys[k];
+            plan.blockIndex[k] = i;
+            plan.x[k] = origin.x + rot[i * 3];
+            plan.y[k] = origin.y + rot[i * 3 + 1];
+            plan.z[k] = origin.z + rot[i * 3 + 2];
+            // só a parte do chunk (sem a seção)
+            plan.chunkGroup[k] = (int) (keys[k] >>> 32) >>> SECTION_BITS;
+        }
+        return plan;
     }
 
     public boolean canPlace(World world, Vector3i origin, int orientation) {
-        for (ShipBlock b : blocks) {
-            Vector3i o = rotateOffset(b.dx, b.dy, b.dz, orientation);
-            int wx = origin.x + o.x;
-            int wy = origin.y + o.y;
-            int wz = origin.z + o.z;
+        return canPlace(world, planWrites(origin, orientation));
+    }
+
+    /**
+     * Leituras agrupadas por chunk; para no primeiro bloco ocupado.
+     */
+    public boolean canPlace(World world, ShipWritePlan plan) {
+        WorldChunk chunk = null;
+        int lastGroup = -1;
 
-            int existing = world.getBlock(wx, wy, wz);
+        for (int k = 0; k < plan.size; k++) {
+            int wx = plan.x[k];
+            int wy = plan.y[k];
+            int wz = plan.z[k];
+
+            if (plan.chunkGroup[k] != lastGroup) {
+                lastGroup = plan.chunkGroup[k];
+                chunk = world.getChunkIfInMemory(ChunkUtil.indexChunkFromBlock(wx, wz));
+            }
+
+            int existing = (chunk != null)
+                    ? chunk.getBlock(ChunkUtil.localCoordinate(wx), wy, ChunkUtil.localCoordinate(wz))
+                    : world.getBlock(wx, wy, wz);
             if (existing != BlockType.EMPTY_ID) {
                 return false;
             }
@@ -49,23 +499,119 @@ public final class ShipStructure {
         return true;
     }
 
+    /**
+     * Todas as células do plano já têm o bloco do navio (mesmo id). Só leitura.
+     */
+    public boolean isPlacedIn(World world, ShipWritePlan plan) {
+        WorldChunk chunk = null;
+        int lastGroup = -1;
+        ShipBlockStore s = store();
+
+        for (int k = 0; k < plan.size; k++) {
+            int wx = plan.x[k];
+            int wy = plan.y[k];
+            int wz = plan.z[k];
+
+            if (plan.chunkGroup[k] != lastGroup) {
+                lastGroup = plan.chunkGroup[k];
+                chunk = world.getChunkIfInMemory(ChunkUtil.indexChunkFromBlock(wx, wz));
+            }
+
+            int existing = (chunk != null)
+                    ? chunk.getBlock(ChunkUtil.localCoordinate(wx), wy, ChunkUtil.localCoordinate(wz))
+                    : world.getBlock(wx, wy, wz);
+            if (existing != s.getBlockId(plan.blockIndex[k])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public void clearFromWorld(World world, Vector3i origin, int orientation) {
-        for (ShipBlock b : blocks) {
-            Vector3i o = rotateOffset(b.dx, b.dy, b.dz, orientation);
-            setBlockFast(world, origin.x + o.x, origin.y + o.y, origin.z + o.z,
-                    BlockType.EMPTY_ID, BlockType.EMPTY, 0);
+        ShipWritePlan plan = planWrites(origin, orientation);
+        clearFromWorld(world, plan, 0, plan.size);
+    }
+
+    /**
+     * Limpa as entradas [from, to) do plano — usado pelas transições fatiadas por tick.
+     */
+    public void clearFromWorld(World world, ShipWritePlan plan, int from, int to) {
+        WorldChunk chunk = null;
+        int lastGroup = -1;
+
+        for (int k = from; k < to; k++) {
+            if (plan.chunkGroup[k] != lastGroup) {
+                lastGroup = plan.chunkGroup[k];
+                chunk = world.getChunkIfInMemory(ChunkUtil.indexChunkFromBlock(plan.x[k], plan.z[k]));
+            }
+            if (chunk == null) continue;
+
+            chunk.setBlock(ChunkUtil.localCoordinate(plan.x[k]), plan.y[k], ChunkUtil.localCoordinate(plan.z[k]),
+                    BlockType.EMPTY_ID, BlockType.EMPTY, 0, 0, 0);
         }
     }
 
     public void placeIntoWorld(World world, Vector3i origin, int orientation) {
-        for (ShipBlock b : blocks) {
-            Vector3i o = rotateOffset(b.dx, b.dy, b.dz, orientation);
+        ShipWritePlan plan = planWrites(origin, orientation);
+        placeIntoWorld(world, plan, 0, plan.size);
+    }
+
+    /**
+     * Coloca as entradas [from, to) do plano — usado pelas transições fatiadas por tick.
+     */
+    public void placeIntoWorld(World world, ShipWritePlan plan, int from, int to) {
+        WorldChunk chunk = null;
+        int lastGroup = -1;
+        int ori = plan.orientation;
+        ShipBlockStore s = store();
+
+        for (int k = from; k < to; k++) {
+            if (plan.chunkGroup[k] != lastGroup) {
+                lastGroup = plan.chunkGroup[k];
+                chunk = world.getChunkIfInMemory(ChunkUtil.indexChunkFromBlock(plan.x[k], plan.z[k]));
+            }
+            if (chunk == null) continue;
+
+            int i = plan.blockIndex[k];
+            int rot = (s.getRotation(i) + ori) & 3;
+
+            chunk.setBlock(ChunkUtil.localCoordinate(plan.x[k]), plan.y[k], ChunkUtil.localCoordinate(plan.z[k]),
+                    s.getBlockId(i), s.getType(i), rot, 0, 0);
+        }
+    }
 
-            int rot = (b.rotationIndex + (orientation & 3)) & 3;
+    /**
+     * Offsets (dx,dy,dz) de todos os blocos já rotacionados para a orientação, em array plano.
+     * Calculado uma vez por orientação.
+     */
+    private int[] rotatedOffsets(int orientation) {
+        int[] rot = rotated[orientation];
+        if (rot != null) return rot;
 
-            setBlockFast(world, origin.x + o.x, origin.y + o.y, origin.z + o.z,
-                    b.blockId, b.type, rot);
+        ShipBlockStore s = store();
+        rot = new int[s.size() * 3];
+        for (int i = 0; i < s.size(); i++) {
+            int dx = s.getDx(i);
+            int dy = s.getDy(i);
+            int dz = s.getDz(i);
+            int j = i * 3;
+            switch (orientation) {
+                case 0 -> { rot[j] = dx;  rot[j + 1] = dy; rot[j + 2] = dz; }
+                case 1 -> { rot[j] = -dz; rot[j + 1] = dy; rot[j + 2] = dx; }
+                case 2 -> { rot[j] = -dx; rot[j + 1] = dy; rot[j + 2] = -dz; }
+                default -> { rot[j] = dz; rot[j + 1] = dy; rot[j + 2] = -dx; }
+            }
         }
+        rotated[orientation] = rot;
+        return rot;
+    }
+
+    // chunk relativo à origem (10 bits cada) + seção vertical (SECTION_BITS)
+    private static int groupKey(int wx, int wy, int wz, int baseCx, int baseCz) {
+        int rcx = ((wx >> CHUNK_SHIFT) - baseCx + 512) & 0x3FF;
+        int rcz = ((wz >> CHUNK_SHIFT) - baseCz + 512) & 0x3FF;
+        int section = ((wy >> CHUNK_SHIFT) + 8) & ((1 << SECTION_BITS) - 1);
+        return (((rcx << 10) | rcz) << SECTION_BITS) | section;
     }
 
     public static int nearestOrientationFromYaw(float yawDeg) {
@@ -83,16 +629,6 @@ public final class ShipStructure {
         };
     }
 
-    private static void setBlockFast(World world, int x, int y, int z, int id, BlockType type, int rotationIndex) {
-        WorldChunk chunk = world.getChunkIfInMemory(ChunkUtil.indexChunkFromBlock(x, z));
-        if (chunk == null) return;
-
-        int lx = ChunkUtil.localCoordinate(x);
-        int lz = ChunkUtil.localCoordinate(z);
-
-        chunk.setBlock(lx, y, lz, id, type, rotationIndex, 0, 0);
-    }
-
     public static Vector3i rotateOffsetStatic(int x, int y, int z, int orientation) {
         orientation = ShipMath.floorMod(orientation, 4);
 
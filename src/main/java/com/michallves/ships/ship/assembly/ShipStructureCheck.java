@@ -0,0 +1,115 @@
+package com.michallves.ships.ship.assembly;
+
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
+import com.hypixel.hytale.server.core.universe.world.World;
+
+/**
+ * Confere uma estrutura em cache contra o mundo antes de entregar: cada bloco ainda com o
+ * mesmo id e rotação, e (opcional) as células vazias em volta dos blocos expostos ainda
+ * vazias (nada grudou no casco). Os carimbos de chunk só pegam edições que passam pelos
+ * eventos do plugin; comando, outro plugin, explosão ou fluido só aparecem lendo o mundo.
+ *
+ * Fatiado por prazo (thread do mundo): o cursor continua no tick seguinte.
+ */
+final class ShipStructureCheck {
+
+    private static final int WORLD_MIN_Y = 0;
+    private static final int WORLD_MAX_Y = 320;
+
+    private static final int[] DIR_X = { 1, -1, 0, 0, 0, 0 };
+    private static final int[] DIR_Y = { 0, 0, 1, -1, 0, 0 };
+    private static final int[] DIR_Z = { 0, 0, 0, 0, 1, -1 };
+
+    final ShipStructure structure;
+    private final Vector3i helm;
+    private final int ori;
+    private final int radiusXZ;
+    private final boolean checkShell;
+
+    private WorldCellReader reader;
+    private int cursor = 0;
+    private int cellsRead = 0;
+
+    /**
+     * @param checkShell false para estrutura cortada pelo maxBlocks (tem vizinhos ocupados de propósito)
+     */
+    ShipStructureCheck(ShipStructure structure, Vector3i helm, int helmOri, int radiusXZ, boolean checkShell) {
+        this.structure = structure;
+        this.helm = new Vector3i(helm);
+        this.ori = helmOri & 3;
+        this.radiusXZ = radiusXZ;
+        this.checkShell = checkShell;
+    }
+
+    /**
+     * Confere blocos até deadlineNanos (pelo menos um).
+     *
+     * @return 1 confere, -1 o mundo mudou, 0 ainda não terminou
+     */
+    int advance(World world, long deadlineNanos) {
+        if (reader == null) reader = new WorldCellReader(world);
+        ShipBlockStore s = structure.getStore();
+        ShipSurface surface = checkShell ? structure.surface() : null;
+
+        while (cursor < s.size()) {
+            int i = cursor++;
+            int dx = s.getDx(i);
+            int dy = s.getDy(i);
+            int dz = s.getDz(i);
+
+            cellsRead++;
+            if (reader.read(worldX(dx, dz), helm.y + dy, worldZ(dx, dz)) != s.getBlockId(i)) return -1;
+            if (((reader.rotation() - ori) & 3) != s.getRotation(i)) return -1;
+
+            if (surface != null && surface.isExposed(i)) {
+                for (int d = 0; d < 6; d++) {
+                    int nx = dx + DIR_X[d];
+                    int ny = dy + DIR_Y[d];
+                    int nz = dz + DIR_Z[d];
+                    if (structure.contains(nx, ny, nz) || !insideBox(nx, ny, nz)) continue;
+                    cellsRead++;
+                    if (reader.read(worldX(nx, nz), helm.y + ny, worldZ(nx, nz)) != BlockType.EMPTY_ID) return -1;
+                }
+            }
+
+            if ((cursor & 63) == 0 && System.nanoTime() >= deadlineNanos) break;
+        }
+        if (cursor < s.size()) return 0;
+        reader = null;
+        return 1;
+    }
+
+    int getCellsRead() {
+        return cellsRead;
+    }
+
+    // mesma caixa do flood fill (o que fica fora dela nunca entraria no navio)
+    private boolean insideBox(int dx, int dy, int dz) {
+        int wx = worldX(dx, dz) - helm.x;
+        int wz = worldZ(dx, dz) - helm.z;
+        int y = helm.y + dy;
+        return Math.abs(wx) <= radiusXZ && Math.abs(wz) <= radiusXZ
+                && dy >= -ShipAssembler.MAX_DOWN_Y && dy <= ShipAssembler.MAX_UP_Y
+                && y >= WORLD_MIN_Y && y < WORLD_MAX_Y;
+    }
+
+    // local -> mundo na orientação do helm (mesma rotação de ShipStructure.rotateOffset)
+    private int worldX(int dx, int dz) {
+        return helm.x + switch (ori) {
+            case 0 -> dx;
+            case 1 -> -dz;
+            case 2 -> -dx;
+            default -> dz;
+        };
+    }
+
+    private int worldZ(int dx, int dz) {
+        return helm.z + switch (ori) {
+            case 0 -> dz;
+            case 1 -> dx;
+            case 2 -> -dz;
+            default -> -dx;
+        };
+    }
+}
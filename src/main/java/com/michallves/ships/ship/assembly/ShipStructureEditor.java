@@ -0,0 +1,307 @@
+package com.michallves.ships.ship.assembly;
+
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.michallves.ships.utils.ShipBlockKeys;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Atualiza a estrutura de um navio docado a partir de uma célula do mundo que mudou,
+ * sem refazer o flood fill inteiro:
+ *
+ * <pre>
+ * bloco novo encostado no navio  -> flood só pelo que ficou conectado através dele
+ * bloco do navio removido        -> buscas em paralelo a partir dos vizinhos; o pedaço
+ *                                   que esgota sem alcançar o helm se soltou
+ * bloco do navio trocado         -> troca no lugar
+ * </pre>
+ *
+ * Mesmos limites da montagem (caixa de raio radiusXZ ao redor do helm + maxBlocks).
+ * Roda na thread do mundo.
+ */
+public final class ShipStructureEditor {
+
+    // alcance máximo de uma célula de qualquer navio a partir do helm (filtro rápido para quem chama)
+    public static final int MAX_REACH_XZ = ShipAssembler.MAX_RADIUS_XZ + 1;
+    public static final int MAX_REACH_Y = Math.max(ShipAssembler.MAX_DOWN_Y, ShipAssembler.MAX_UP_Y) + 1;
+
+    private static final int WORLD_MIN_Y = 0;
+    private static final int WORLD_MAX_Y = 320;
+
+    private static final int[] DIR_X = { 1, -1, 0, 0, 0, 0 };
+    private static final int[] DIR_Y = { 0, 0, 1, -1, 0, 0 };
+    private static final int[] DIR_Z = { 0, 0, 0, 0, 1, -1 };
+
+    private ShipStructureEditor() {}
+
+    /**
+     * Resultado da edição (listas vazias = nada mudou).
+     */
+    public static final class Edit {
+        public final List<ShipBlock> added = new ArrayList<>();
+        public final List<ShipBlock> removed = new ArrayList<>();
+        public final List<ShipBlock> replaced = new ArrayList<>();
+
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty() && replaced.isEmpty();
+        }
+
+        public int size() {
+            return added.size() + removed.size() + replaced.size();
+        }
+    }
+
+    /**
+     * Reconcilia a célula (x,y,z) do mundo com a estrutura do navio docado em helmBlock/orientation
+     * e aplica o resultado na estrutura.
+     */
+    public static Edit apply(World world, ShipStructure structure, Vector3i helmBlock, int orientation,
+                             int x, int y, int z, int radiusXZ, int maxBlocks) {
+        return apply(new WorldCellReader(world), structure, helmBlock, orientation, x, y, z, radiusXZ, maxBlocks);
+    }
+
+    static Edit apply(ShipCellReader reader, ShipStructure structure, Vector3i helmBlock, int orientation,
+                      int x, int y, int z, int radiusXZ, int maxBlocks) {
+        Edit edit = new Edit();
+        int ori = orientation & 3;
+
+        int dxW = x - helmBlock.x;
+        int dy = y - helmBlock.y;
+        int dzW = z - helmBlock.z;
+        if (!insideBox(dxW, dy, dzW, radiusXZ)) return edit;
+
+        int lx = toLocalX(dxW, dzW, ori);
+        int lz = toLocalZ(dxW, dzW, ori);
+
+        int id = reader.read(x, y, z);
+        int index = structure.indexOf(lx, dy, lz);
+
+        if (index >= 0) {
+            ShipBlock current = structure.getBlock(index);
+            if (id == BlockType.EMPTY_ID) {
+                // o helm some junto com o navio; isso não é edição incremental
+                if (lx == 0 && dy == 0 && lz == 0) return edit;
+                removeAndDetach(structure, current, edit);
+            } else {
+                int rot = (reader.rotation() - ori) & 3;
+                if (current.blockId != id || current.rotationIndex != rot) {
+                    edit.replaced.add(new ShipBlock(lx, dy, lz, id, reader.type(), rot));
+                }
+            }
+        } else if (id != BlockType.EMPTY_ID && touchesStructure(structure, lx, dy, lz)) {
+            floodAdded(reader, structure, helmBlock, ori, x, y, z, radiusXZ, maxBlocks, edit);
+        }
+
+        if (!edit.isEmpty()) {
+            structure.applyEdit(edit.removed, edit.added, edit.replaced);
+        }
+        return edit;
+    }
+
+    // ------------------------------------------------------------------------------------------
+    // Adição: flood a partir do bloco novo, só por células fora do navio
+    // ------------------------------------------------------------------------------------------
+
+    private static void floodAdded(ShipCellReader reader, ShipStructure structure, Vector3i helm, int ori,
+                                   int x, int y, int z, int radiusXZ, int maxBlocks, Edit edit) {
+        int budget = maxBlocks - structure.size();
+        if (budget <= 0) return;
+
+        LongArrayFIFOQueue queue = new LongArrayFIFOQueue();
+        LongOpenHashSet visited = new LongOpenHashSet();
+
+        long start = ShipBlockKeys.packLocal(x - helm.x, y - helm.y, z - helm.z);
+        queue.enqueue(start);
+        visited.add(start);
+
+        while (!queue.isEmpty() && edit.added.size() < budget) {
+            long p = queue.dequeueLong();
+            int dxW = ShipBlockKeys.localX(p);
+            int dy = ShipBlockKeys.localY(p);
+            int dzW = ShipBlockKeys.localZ(p);
+
+            int id = reader.read(helm.x + dxW, helm.y + dy, helm.z + dzW);
+            if (id == BlockType.EMPTY_ID) continue;
+
+            int lx = toLocalX(dxW, dzW, ori);
+            int lz = toLocalZ(dxW, dzW, ori);
+            int rot = (reader.rotation() - ori) & 3;
+            edit.added.add(new ShipBlock(lx, dy, lz, id, reader.type(), rot));
+
+            for (int d = 0; d < 6; d++) {
+                int nx = dxW + DIR_X[d];
+                int ny = dy + DIR_Y[d];
+                int nz = dzW + DIR_Z[d];
+                if (!insideBox(nx, ny, nz, radiusXZ)) continue;
+
+                int wy = helm.y + ny;
+                if (wy < WORLD_MIN_Y || wy >= WORLD_MAX_Y) continue;
+
+                // já faz parte do navio: não lê de novo
+                if (structure.contains(toLocalX(nx, nz, ori), ny, toLocalZ(nx, nz, ori))) continue;
+
+                long k = ShipBlockKeys.packLocal(nx, ny, nz);
+                if (visited.add(k)) queue.enqueue(k);
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------
+    // Remoção: buscas simultâneas a partir dos vizinhos do bloco removido
+    // ------------------------------------------------------------------------------------------
+
+    /**
+     * Cada vizinho do bloco removido começa uma busca; todas avançam um passo por rodada.
+     * Buscas que se encontram viram um conjunto só. Um conjunto que esgota sem conter o
+     * helm se soltou do navio. Para assim que sobra um conjunto só, então o custo é
+     * proporcional ao menor lado do corte, não ao tamanho do navio.
+     */
+    private static void removeAndDetach(ShipStructure structure, ShipBlock gone, Edit edit) {
+        edit.removed.add(gone);
+
+        long goneKey = ShipBlockKeys.packLocal(gone.dx, gone.dy, gone.dz);
+        long helmKey = ShipBlockKeys.packLocal(0, 0, 0);
+
+        long[] seeds = new long[6];
+        int n = 0;
+        for (int d = 0; d < 6; d++) {
+            int nx = gone.dx + DIR_X[d];
+            int ny = gone.dy + DIR_Y[d];
+            int nz = gone.dz + DIR_Z[d];
+            if (structure.contains(nx, ny, nz)) {
+                seeds[n++] = ShipBlockKeys.packLocal(nx, ny, nz);
+            }
+        }
+        // folha (ou bloco solto): não separa nada
+        if (n <= 1) return;
+
+        Long2IntOpenHashMap owner = new Long2IntOpenHashMap();
+        owner.defaultReturnValue(-1);
+        owner.put(goneKey, n); // dono fictício: a célula removida nunca é visitada
+
+        LongArrayFIFOQueue[] queues = new LongArrayFIFOQueue[n];
+        LongArrayList[] members = new LongArrayList[n];
+        int[] parent = new int[n];
+        boolean[] anchored = new boolean[n];
+        boolean[] settled = new boolean[n];
+
+        for (int i = 0; i < n; i++) {
+            queues[i] = new LongArrayFIFOQueue();
+            members[i] = new LongArrayList();
+            parent[i] = i;
+            owner.put(seeds[i], i);
+            queues[i].enqueue(seeds[i]);
+            members[i].add(seeds[i]);
+            anchored[i] = seeds[i] == helmKey;
+        }
+
+        int live = n;
+        while (live > 1) {
+            for (int i = 0; i < n; i++) {
+                if (queues[i].isEmpty()) continue;
+
+                long p = queues[i].dequeueLong();
+                int px = ShipBlockKeys.localX(p);
+                int py = ShipBlockKeys.localY(p);
+                int pz = ShipBlockKeys.localZ(p);
+
+                for (int d = 0; d < 6; d++) {
+                    int nx = px + DIR_X[d];
+                    int ny = py + DIR_Y[d];
+                    int nz = pz + DIR_Z[d];
+                    if (!structure.contains(nx, ny, nz)) continue;
+
+                    long k = ShipBlockKeys.packLocal(nx, ny, nz);
+                    int o = owner.get(k);
+                    if (o < 0) {
+                        owner.put(k, i);
+                        queues[i].enqueue(k);
+                        members[i].add(k);
+                        if (k == helmKey) anchored[find(parent, i)] = true;
+                    } else if (o < n) {
+                        int a = find(parent, o);
+                        int b = find(parent, i);
+                        if (a != b) {
+                            parent[a] = b;
+                            anchored[b] |= anchored[a];
+                            live--;
+                        }
+                    }
+                }
+            }
+
+            // conjuntos que esgotaram
+            for (int r = 0; r < n && live > 1; r++) {
+                if (parent[r] != r || settled[r] || !exhausted(queues, parent, r)) continue;
+                settled[r] = true;
+                if (anchored[r]) continue; // lado do helm inteiro visitado: os outros vão esgotar também
+
+                for (int j = 0; j < n; j++) {
+                    if (find(parent, j) != r) continue;
+                    LongArrayList list = members[j];
+                    for (int m = 0; m < list.size(); m++) {
+                        long k = list.getLong(m);
+                        int idx = structure.indexOf(ShipBlockKeys.localX(k), ShipBlockKeys.localY(k), ShipBlockKeys.localZ(k));
+                        if (idx >= 0) edit.removed.add(structure.getBlock(idx));
+                    }
+                }
+                live--;
+            }
+        }
+    }
+
+    private static boolean exhausted(LongArrayFIFOQueue[] queues, int[] parent, int root) {
+        for (int j = 0; j < queues.length; j++) {
+            if (find(parent, j) == root && !queues[j].isEmpty()) return false;
+        }
+        return true;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static boolean touchesStructure(ShipStructure structure, int lx, int dy, int lz) {
+        for (int d = 0; d < 6; d++) {
+            if (structure.contains(lx + DIR_X[d], dy + DIR_Y[d], lz + DIR_Z[d])) return true;
+        }
+        return false;
+    }
+
+    private static boolean insideBox(int dxW, int dy, int dzW, int radiusXZ) {
+        return Math.abs(dxW) <= radiusXZ
+                && Math.abs(dzW) <= radiusXZ
+                && dy >= -ShipAssembler.MAX_DOWN_Y
+                && dy <= ShipAssembler.MAX_UP_Y;
+    }
+
+    // mundo -> local (inverso da orientação do navio docado), igual ao ShipAssembler
+    private static int toLocalX(int dxW, int dzW, int ori) {
+        return switch (ori) {
+            case 0 -> dxW;
+            case 1 -> dzW;
+            case 2 -> -dxW;
+            default -> -dzW;
+        };
+    }
+
+    private static int toLocalZ(int dxW, int dzW, int ori) {
+        return switch (ori) {
+            case 0 -> dzW;
+            case 1 -> -dxW;
+            case 2 -> -dzW;
+            default -> dxW;
+        };
+    }
+}
@@ -0,0 +1,52 @@
+package com.michallves.ships.ship.assembly;
+
+/**
+ * Superfície do navio: os blocos expostos (não cercados pelo próprio navio).
+ *
+ * Quem só precisa da superfície (colisão com o mundo, transforms das partes) percorre
+ * {@link #exposedIndices()}; o custo por tick fica proporcional à área do casco, não ao
+ * volume. Os índices seguem a ordem do ShipBlockStore (Morton), então vizinhos no casco
+ * ficam vizinhos na lista.
+ *
+ * Imutável: a ShipStructure refaz sob demanda depois de uma edição.
+ */
+public final class ShipSurface {
+
+    private final int[] exposed;
+    private final boolean[] exposedFlag;
+
+    ShipSurface(ShipStructure structure) {
+        ShipBlockStore store = structure.getStore();
+        int n = store.size();
+
+        this.exposedFlag = new boolean[n];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (!structure.isEnclosed(store.getDx(i), store.getDy(i), store.getDz(i))) {
+                exposedFlag[i] = true;
+                count++;
+            }
+        }
+
+        this.exposed = new int[count];
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            if (exposedFlag[i]) exposed[k++] = i;
+        }
+    }
+
+    /**
+     * Índices (em structure.getStore()) dos blocos não cercados.
+     */
+    public int[] exposedIndices() {
+        return exposed;
+    }
+
+    public int exposedCount() {
+        return exposed.length;
+    }
+
+    public boolean isExposed(int index) {
+        return exposedFlag[index];
+    }
+}
@@ -0,0 +1,78 @@
+package com.michallves.ships.ship.assembly;
+
+import com.hypixel.hytale.math.util.ChunkUtil;
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.hypixel.hytale.server.core.universe.world.World;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Posições de mundo dos blocos de um navio para uma origem/orientação, ordenadas por
+ * chunk e seção: cada WorldChunk é resolvido uma vez e as escritas de uma seção saem juntas.
+ * Pode ser aplicado em fatias [from, to) pelas transições por tick.
+ */
+public final class ShipWritePlan {
+
+    public final Vector3i origin;
+    public final int orientation;
+    public final int size;
+
+    // Ordenados por (chunk, seção)
+    final int[] x;
+    final int[] y;
+    final int[] z;
+    final int[] blockIndex;
+    final int[] chunkGroup;
+
+    /**
+     * Célula de mundo de uma entrada do plano.
+     */
+    public interface CellVisitor {
+        void visit(int x, int y, int z);
+    }
+
+    ShipWritePlan(Vector3i origin, int orientation, int size) {
+        this.origin = new Vector3i(origin);
+        this.orientation = orientation & 3;
+        this.size = size;
+        this.x = new int[size];
+        this.y = new int[size];
+        this.z = new int[size];
+        this.blockIndex = new int[size];
+        this.chunkGroup = new int[size];
+    }
+
+    /**
+     * Todos os chunks do plano estão carregados (escrever num chunk fora da memória o carregaria).
+     */
+    public boolean chunksInMemory(World world) {
+        int lastGroup = -1;
+        for (int k = 0; k < size; k++) {
+            if (chunkGroup[k] == lastGroup) continue;
+            lastGroup = chunkGroup[k];
+            if (world.getChunkIfInMemory(ChunkUtil.indexChunkFromBlock(x[k], z[k])) == null) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Marca em stamps os chunks das entradas [from, to) (uma vez por grupo de chunk).
+     */
+    public void markChunks(ShipChunkStamps stamps, String worldName, int from, int to) {
+        int lastGroup = -1;
+        for (int k = from; k < to; k++) {
+            if (chunkGroup[k] == lastGroup) continue;
+            lastGroup = chunkGroup[k];
+            stamps.markChunk(worldName, ChunkUtil.indexChunkFromBlock(x[k], z[k]));
+        }
+    }
+
+    /**
+     * Visita as entradas [from, to) cujo id de bloco (em blocks, a estrutura do plano) passa em ids.
+     */
+    public void forEachBlock(ShipBlockStore blocks, int from, int to, IntPredicate ids, CellVisitor visitor) {
+        for (int k = from; k < to; k++) {
+            if (ids.test(blocks.getBlockId(blockIndex[k]))) visitor.visit(x[k], y[k], z[k]);
+        }
+    }
+}
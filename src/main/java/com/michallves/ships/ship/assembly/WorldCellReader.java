@@ -0,0 +1,98 @@
+package com.michallves.ships.ship.assembly;
+
+import com.hypixel.hytale.math.util.ChunkUtil;
+import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+/**
+ * Cursor de chunk sobre o mundo: cada chunk é resolvido uma vez por montagem, id e
+ * rotação saem do mesmo chunk, e o asset de cada id é buscado uma vez só.
+ */
+final class WorldCellReader implements ShipCellReader {
+
+    private final World world;
+
+    // chunks já resolvidos nesta montagem (null = não carregado)
+    private final Long2ObjectOpenHashMap<WorldChunk> chunks = new Long2ObjectOpenHashMap<>();
+    private long lastChunkIndex;
+    private WorldChunk lastChunk;
+    private boolean hasLast = false;
+
+    private final Int2ObjectOpenHashMap<BlockType> types = new Int2ObjectOpenHashMap<>();
+
+    private int rotation;
+    private BlockType type;
+
+    WorldCellReader(World world) {
+        this.world = world;
+    }
+
+    @Override
+    @SuppressWarnings("removal")
+    public int read(int x, int y, int z) {
+        WorldChunk chunk = chunkAt(x, z);
+
+        int id;
+        int rot = 0;
+        if (chunk != null) {
+            int lx = ChunkUtil.localCoordinate(x);
+            int lz = ChunkUtil.localCoordinate(z);
+            id = chunk.getBlock(lx, y, lz);
+            if (id != BlockType.EMPTY_ID) {
+                rot = chunk.getRotationIndex(lx, y, lz);
+            }
+        } else {
+            // fora da memória: mesmo fallback de antes (sem rotação)
+            id = world.getBlock(x, y, z);
+        }
+
+        if (id == BlockType.EMPTY_ID) {
+            type = null;
+            return id;
+        }
+
+        BlockType t = types.get(id);
+        if (t == null && !types.containsKey(id)) {
+            t = BlockType.getAssetMap().getAsset(id);
+            types.put(id, t);
+        }
+        if (t == null) {
+            // asset desconhecido conta como vazio (não expande)
+            type = null;
+            return BlockType.EMPTY_ID;
+        }
+
+        rotation = rot;
+        type = t;
+        return id;
+    }
+
+    @Override
+    public int rotation() {
+        return rotation;
+    }
+
+    @Override
+    public BlockType type() {
+        return type;
+    }
+
+    private WorldChunk chunkAt(int x, int z) {
+        long index = ChunkUtil.indexChunkFromBlock(x, z);
+        if (hasLast && index == lastChunkIndex) return lastChunk;
+
+        WorldChunk chunk = chunks.get(index);
+        if (chunk == null && !chunks.containsKey(index)) {
+            chunk = world.getChunkIfInMemory(index);
+            chunks.put(index, chunk);
+        }
+
+        lastChunkIndex = index;
+        lastChunk = chunk;
+        hasLast = true;
+        return chunk;
+    }
+}
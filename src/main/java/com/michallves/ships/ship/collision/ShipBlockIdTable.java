@@ -0,0 +1,67 @@
+package com.michallves.ships.ship.collision;
+
+import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Classificação densa por id de bloco: o asset de cada id é consultado uma vez e o resultado
+ * fica num byte[] indexado pelo id. Depois disso, test(id) é uma leitura de array (sem asset
+ * map nem comparação de string).
+ *
+ * Pode ser compartilhada entre threads: preencher uma entrada é idempotente e o array só é
+ * trocado (nunca alterado no lugar) quando cresce.
+ */
+public final class ShipBlockIdTable implements IntPredicate {
+
+    private static final byte UNKNOWN = 0;
+    private static final byte YES = 1;
+    private static final byte NO = 2;
+
+    private final Predicate<BlockType> predicate;
+    private volatile byte[] table = new byte[256];
+
+    public ShipBlockIdTable(Predicate<BlockType> predicate) {
+        this.predicate = predicate;
+    }
+
+    /**
+     * Blocos cujo asset tem essa chave (ex.: "Helm").
+     */
+    public static ShipBlockIdTable byAssetId(String assetId) {
+        return new ShipBlockIdTable(type -> assetId.equals(type.getId()));
+    }
+
+    @Override
+    public boolean test(int id) {
+        if (id == BlockType.EMPTY_ID || id < 0) return false;
+        byte[] t = table;
+        if (id < t.length) {
+            byte v = t[id];
+            if (v != UNKNOWN) return v == YES;
+        }
+        return resolve(id);
+    }
+
+    /**
+     * Esquece as classificações (assets recarregados).
+     */
+    public void clear() {
+        table = new byte[table.length];
+    }
+
+    private boolean resolve(int id) {
+        BlockType type = BlockType.getAssetMap().getAsset(id);
+        boolean match = type != null && predicate.test(type);
+
+        byte[] t = table;
+        if (id >= t.length) {
+            t = Arrays.copyOf(t, Math.max(id + 1, t.length * 2));
+            table = t;
+        }
+        t[id] = match ? YES : NO;
+        return match;
+    }
+}
@@ -0,0 +1,13 @@
+package com.michallves.ships.ship.collision;
+
+/**
+ * Consulta de células do mundo usada pela colisão navio x mundo.
+ * Permite rodar a física fora do servidor (replay/benchmark) com um mundo sintético.
+ */
+public interface ShipBlockProbe {
+
+    /**
+     * @return true se a célula bloqueia o casco (bloco sólido ou chunk não carregado)
+     */
+    boolean isBlocking(int x, int y, int z);
+}
@@ -1,15 +1,17 @@
 package com.michallves.ships.ship.collision;
 
 import com.hypixel.hytale.math.shape.Box;
-import com.hypixel.hytale.math.util.ChunkUtil;
 import com.hypixel.hytale.math.vector.Vector3d;
-import com.hypixel.hytale.protocol.BlockMaterial;
-import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
 import com.hypixel.hytale.server.core.universe.world.World;
-import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
 import com.michallves.ships.ship.assembly.ShipBlock;
+import com.michallves.ships.ship.assembly.ShipBlockStore;
+import com.michallves.ships.ship.assembly.ShipBounds;
+import com.michallves.ships.ship.assembly.ShipStructureEditor;
 import com.michallves.ships.ship.assembly.ShipStructure;
+import com.michallves.ships.utils.ShipBlockKeys;
 import com.michallves.ships.utils.ShipLogger;
+import it.unimi.dsi.fastutil.Hash;
+import it.unimi.dsi.fastutil.HashCommon;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 
 import java.util.ArrayList;
@@ -21,15 +23,14 @@ public final class ShipCollision {
     private static final double COLLISION_EPS = 1.0e-4;
     private static final double SNAP_DISTANCE = 0.6;
     private static final double PLAYER_DECK_TOLERANCE = 0.35;
-    private static final int CHUNK_NOT_LOADED = Integer.MIN_VALUE;
     
     // --- Otimização Espacial ---
-    private static final int LOCAL_BIAS = 1 << 20;
-    private static final long LOCAL_MASK = 0x1FFFFFL;
-
     private final ShipStructure structure;
     private final Vector3d centerOffset;
     private final LongOpenHashSet blockIndex = new LongOpenHashSet();
+    // índice solto com o navio ocioso (compactado): refeito na próxima consulta de colisão
+    private boolean indexReleased = false;
+    private final WorldBlockProbe worldProbe = new WorldBlockProbe();
 
     // Cache de limites
     private double minLocalX, maxLocalX;
@@ -45,6 +46,17 @@ public final class ShipCollision {
         buildCollisionIndex();
     }
 
+    /**
+     * Sem varrer blocos: só os limites (navio carregado do registro). O índice é montado
+     * na primeira consulta de colisão, como depois de {@link #releaseIndex()}.
+     */
+    public ShipCollision(ShipStructure structure, Vector3d centerOffset, ShipBounds bounds) {
+        this.structure = structure;
+        this.centerOffset = centerOffset;
+        this.indexReleased = true;
+        applyBounds(bounds);
+    }
+
     // ============================================================================================
     // LÓGICA 1: COLISÃO JOGADOR vs NAVIO (Anti-Jitter + Physics)
     // ============================================================================================
@@ -67,6 +79,7 @@ public final class ShipCollision {
         double dz = safePlayerPos.getZ() - origin.getZ();
         double maxR = collisionRadius + 2.0;
         if (dx * dx + dz * dz > maxR * maxR) return null;
+        if (indexReleased) buildCollisionIndex();
 
         double yawRad = Math.toRadians(yawDeg);
         double cos = Math.cos(yawRad);
@@ -172,17 +185,29 @@ public final class ShipCollision {
     // ============================================================================================
 
     public boolean collidesAt(World world, double originX, double originY, double originZ, float yawDeg) {
-        if (world == null || structure.size() == 0) return false;
+        if (world == null) return false;
+        return collidesAt(worldProbe.bind(world), originX, originY, originZ, yawDeg);
+    }
+
+    public boolean collidesAt(ShipBlockProbe probe, double originX, double originY, double originZ, float yawDeg) {
+        if (probe == null || structure.size() == 0) return false;
 
         double yawRad = Math.toRadians(yawDeg);
         double cos = Math.cos(yawRad);
         double sin = Math.sin(yawRad);
 
-        // Otimização: Não precisamos alocar objetos aqui se possível
-        for (ShipBlock b : structure.getBlocks()) {
+        // Só a superfície: bloco cercado pelo próprio navio não encosta no mundo antes de um
+        // exposto (o passo por tick é bem menor que um bloco).
+        ShipBlockStore blocks = structure.getStore();
+        int[] exposed = structure.surface().exposedIndices();
+        double cx = centerOffset.getX();
+        double cz = centerOffset.getZ();
+
+        for (int k = 0; k < exposed.length; k++) {
+            int i = exposed[k];
             // Coordenadas locais (centralizadas)
-            double lx = (b.dx + 0.5) - centerOffset.getX();
-            double lz = (b.dz + 0.5) - centerOffset.getZ();
+            double lx = (blocks.getDx(i) + 0.5) - cx;
+            double lz = (blocks.getDz(i) + 0.5) - cz;
 
             // Rotacionar
             double rx = lx * cos - lz * sin;
@@ -190,26 +215,16 @@ public final class ShipCollision {
 
             // Converter para Mundo
             double wx = originX + rx;
-            double wy = originY + b.dy + 0.5;
+            double wy = originY + blocks.getDy(i) + 0.5;
             double wz = originZ + rz;
 
             int bx = (int) Math.floor(wx);
             int by = (int) Math.floor(wy);
             int bz = (int) Math.floor(wz);
-            
-            // Check rápido: Chunk carregado?
-            int id = getBlockIfLoaded(world, bx, by, bz);
-            if (id == CHUNK_NOT_LOADED) {
-                return true;
-            }
-            if (id == BlockType.EMPTY_ID) continue;
-
-            BlockType type = BlockType.getAssetMap().getAsset(id);
-            if (type == null) continue;
 
-            // Colide somente com blocos sólidos (material Solid).
-            if (type.getMaterial() == BlockMaterial.Solid) {
-                 return true;
+            // Sólido ou chunk não carregado
+            if (probe.isBlocking(bx, by, bz)) {
+                return true;
             }
         }
         return false;
@@ -236,7 +251,7 @@ public final class ShipCollision {
         for (int dy = checkY - 1; dy <= checkY; dy++) {
              for (int dx = minDx; dx <= maxDx; dx++) {
                 for (int dz = minDz; dz <= maxDz; dz++) {
-                    if (blockIndex.contains(packLocal(dx, dy, dz))) {
+                    if (blockIndex.contains(ShipBlockKeys.packLocal(dx, dy, dz))) {
                         double topY = dy + 1.0; 
                         if (topY > highestBlockY) {
                             highestBlockY = topY;
@@ -257,17 +272,6 @@ public final class ShipCollision {
         return null;
     }
 
-    private static int getBlockIfLoaded(World world, int x, int y, int z) {
-        WorldChunk chunk = world.getChunkIfInMemory(ChunkUtil.indexChunkFromBlock(x, z));
-        if (chunk == null) {
-            return CHUNK_NOT_LOADED;
-        }
-
-        int lx = ChunkUtil.localCoordinate(x);
-        int lz = ChunkUtil.localCoordinate(z);
-        return chunk.getBlock(lx, y, lz);
-    }
-
     private List<Aabb> trajectoryQuery(Aabb oldBox, Aabb newBox) {
         Aabb trajectoryBox = oldBox.union(newBox);
         List<Aabb> obstacles = new ArrayList<>();
@@ -282,7 +286,7 @@ public final class ShipCollision {
         for (int dx = minDx; dx <= maxDx; dx++) {
             for (int dy = minDyCheck; dy <= maxDyCheck; dy++) {
                 for (int dz = minDz; dz <= maxDz; dz++) {
-                    if (!blockIndex.contains(packLocal(dx, dy, dz))) continue;
+                    if (!blockIndex.contains(ShipBlockKeys.packLocal(dx, dy, dz))) continue;
                     double bMinX = dx - centerOffset.getX();
                     double bMinY = dy;
                     double bMinZ = dz - centerOffset.getZ();
@@ -311,7 +315,7 @@ public final class ShipCollision {
         for (int dy = feetBlockY - 2; dy <= feetBlockY; dy++) {
             for (int dx = minDx; dx <= maxDx; dx++) {
                 for (int dz = minDz; dz <= maxDz; dz++) {
-                    if (blockIndex.contains(packLocal(dx, dy, dz))) {
+                    if (blockIndex.contains(ShipBlockKeys.packLocal(dx, dy, dz))) {
                          double top = dy + 1.0;
                          if (footLocalY >= top - 0.5 && footLocalY <= top + PLAYER_DECK_TOLERANCE) {
                              return true;
@@ -391,7 +395,54 @@ public final class ShipCollision {
         return (d != 0.0 && d != original) ? (d > 0 ? d - 1.0e-3 : d + 1.0e-3) : d;
     }
 
+    /**
+     * Aplica uma edição da estrutura (navio docado): só as células mexidas entram/saem do
+     * índice; limites saem dos extremos mantidos pela estrutura. O raio vira o do canto do
+     * retângulo de limites (um pouco maior que o exato, só serve de corte rápido).
+     */
+    public void applyEdit(ShipStructureEditor.Edit edit) {
+        if (!indexReleased) {
+            for (ShipBlock b : edit.removed) blockIndex.remove(ShipBlockKeys.packLocal(b.dx, b.dy, b.dz));
+            for (ShipBlock b : edit.added) blockIndex.add(ShipBlockKeys.packLocal(b.dx, b.dy, b.dz));
+        }
+
+        ShipBounds bounds = structure.bounds();
+        if (bounds != null) applyBounds(bounds);
+    }
+
+    private void applyBounds(ShipBounds b) {
+        minDy = b.minDy;
+        maxDy = b.maxDy;
+        minLocalX = b.minDx - centerOffset.getX();
+        maxLocalX = b.maxDx - centerOffset.getX() + 1.0;
+        minLocalZ = b.minDz - centerOffset.getZ();
+        maxLocalZ = b.maxDz - centerOffset.getZ() + 1.0;
+
+        double rx = Math.max(Math.abs(minLocalX), Math.abs(maxLocalX - 1.0));
+        double rz = Math.max(Math.abs(minLocalZ), Math.abs(maxLocalZ - 1.0));
+        collisionRadius = Math.sqrt(rx * rx + rz * rz) + 2.0;
+    }
+
+    /**
+     * Navio ocioso: solta o índice de blocos (os limites ficam). A próxima consulta refaz.
+     */
+    public void releaseIndex() {
+        blockIndex.clear();
+        blockIndex.trim();
+        indexReleased = true;
+    }
+
+    public boolean isIndexReleased() {
+        return indexReleased;
+    }
+
+    public long estimateHeapBytes() {
+        if (indexReleased) return 0L;
+        return 16L + (long) HashCommon.arraySize(Math.max(1, blockIndex.size()), Hash.DEFAULT_LOAD_FACTOR) * Long.BYTES;
+    }
+
     private void buildCollisionIndex() {
+        indexReleased = false;
         blockIndex.clear();
         if (structure.size() == 0) return;
 
@@ -400,14 +451,18 @@ public final class ShipCollision {
         int minDz = Integer.MAX_VALUE, maxDz = Integer.MIN_VALUE;
         double maxRadiusSq = 0;
 
-        for (ShipBlock b : structure.getBlocks()) {
-            blockIndex.add(packLocal(b.dx, b.dy, b.dz));
-            minDx = Math.min(minDx, b.dx); maxDx = Math.max(maxDx, b.dx);
-            minDz = Math.min(minDz, b.dz); maxDz = Math.max(maxDz, b.dz);
-            minDy = Math.min(minDy, b.dy); maxDy = Math.max(maxDy, b.dy);
+        ShipBlockStore blocks = structure.getStore();
+        for (int i = 0; i < blocks.size(); i++) {
+            int dx = blocks.getDx(i);
+            int dy = blocks.getDy(i);
+            int dz = blocks.getDz(i);
+            blockIndex.add(ShipBlockKeys.packLocal(dx, dy, dz));
+            minDx = Math.min(minDx, dx); maxDx = Math.max(maxDx, dx);
+            minDz = Math.min(minDz, dz); maxDz = Math.max(maxDz, dz);
+            minDy = Math.min(minDy, dy); maxDy = Math.max(maxDy, dy);
             
-            double lx = b.dx - centerOffset.getX();
-            double lz = b.dz - centerOffset.getZ();
+            double lx = dx - centerOffset.getX();
+            double lz = dz - centerOffset.getZ();
             double rSq = lx*lx + lz*lz;
             if(rSq > maxRadiusSq) maxRadiusSq = rSq;
         }
@@ -419,12 +474,6 @@ public final class ShipCollision {
         collisionRadius = Math.sqrt(maxRadiusSq) + 2.0;
     }
 
-    private static long packLocal(int x, int y, int z) {
-        return (((long)(x + LOCAL_BIAS) & LOCAL_MASK) << 42) |
-               (((long)(z + LOCAL_BIAS) & LOCAL_MASK) << 21) |
-               ((long)(y + LOCAL_BIAS) & LOCAL_MASK);
-    }
-    
     private static final class Aabb {
         final double minX, minY, minZ, maxX, maxY, maxZ;
         Aabb(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
@@ -0,0 +1,180 @@
+package com.michallves.ships.ship.collision;
+
+import com.hypixel.hytale.math.util.ChunkUtil;
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Raycast exato no grid de blocos (Amanatides–Woo): anda de célula em célula pela face que o
+ * raio cruza primeiro, então cada célula atravessada é visitada uma vez (inclusive as que o
+ * raio só corta no canto) e nenhuma é visitada duas vezes.
+ *
+ * O chunk atual fica em cache enquanto o raio não sai dele. Quem aceita o bloco é um
+ * IntPredicate sobre o id (ex.: ShipBlockIdTable). Reaproveitável: uma instância por thread
+ * (o resultado fica nos campos do último cast).
+ */
+public final class ShipVoxelRaycast {
+
+    public static final int FACE_NONE = -1;
+    public static final int FACE_X = 0;
+    public static final int FACE_Y = 1;
+    public static final int FACE_Z = 2;
+
+    private long chunkIndex;
+    private WorldChunk chunk;
+    private boolean hasChunk = false;
+
+    private int hitX;
+    private int hitY;
+    private int hitZ;
+    private int hitId;
+    private int hitFace;
+    private double hitDistance;
+    private int visited;
+
+    /**
+     * Direção do olhar (yaw/pitch em graus, convenção das entidades) => vetor unitário em out.
+     */
+    public static double[] lookDirection(float yawDeg, float pitchDeg, double[] out) {
+        double yaw = Math.toRadians(yawDeg);
+        double pitch = Math.toRadians(pitchDeg);
+        double cosPitch = Math.cos(pitch);
+        out[0] = -Math.sin(yaw) * cosPitch;
+        out[1] = -Math.sin(pitch);
+        out[2] = Math.cos(yaw) * cosPitch;
+        return out;
+    }
+
+    /**
+     * Lança o raio de (ox,oy,oz) na direção (dx,dy,dz) até maxDistance e para no primeiro
+     * bloco aceito. Chunk fora da memória conta como vazio. Thread do mundo.
+     *
+     * @return true se achou (ver getHit*)
+     */
+    public boolean cast(World world, double ox, double oy, double oz,
+                        double dx, double dy, double dz, double maxDistance, IntPredicate accept) {
+        hasChunk = false;
+        chunk = null;
+        visited = 0;
+        hitFace = FACE_NONE;
+
+        double len = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (len == 0.0) return false;
+        dx /= len;
+        dy /= len;
+        dz /= len;
+
+        int x = (int) Math.floor(ox);
+        int y = (int) Math.floor(oy);
+        int z = (int) Math.floor(oz);
+
+        int stepX = dx > 0 ? 1 : (dx < 0 ? -1 : 0);
+        int stepY = dy > 0 ? 1 : (dy < 0 ? -1 : 0);
+        int stepZ = dz > 0 ? 1 : (dz < 0 ? -1 : 0);
+
+        // t até cruzar a próxima face em cada eixo, e t para atravessar uma célula inteira
+        double tDeltaX = stepX != 0 ? Math.abs(1.0 / dx) : Double.POSITIVE_INFINITY;
+        double tDeltaY = stepY != 0 ? Math.abs(1.0 / dy) : Double.POSITIVE_INFINITY;
+        double tDeltaZ = stepZ != 0 ? Math.abs(1.0 / dz) : Double.POSITIVE_INFINITY;
+        double tMaxX = stepX > 0 ? (x + 1 - ox) * tDeltaX : (stepX < 0 ? (ox - x) * tDeltaX : Double.POSITIVE_INFINITY);
+        double tMaxY = stepY > 0 ? (y + 1 - oy) * tDeltaY : (stepY < 0 ? (oy - y) * tDeltaY : Double.POSITIVE_INFINITY);
+        double tMaxZ = stepZ > 0 ? (z + 1 - oz) * tDeltaZ : (stepZ < 0 ? (oz - z) * tDeltaZ : Double.POSITIVE_INFINITY);
+
+        double t = 0.0;
+        int face = FACE_NONE;
+        while (true) {
+            visited++;
+            int id = blockAt(world, x, y, z);
+            if (id != BlockType.EMPTY_ID && accept.test(id)) {
+                hitX = x;
+                hitY = y;
+                hitZ = z;
+                hitId = id;
+                hitFace = face;
+                hitDistance = t;
+                return true;
+            }
+
+            if (tMaxX < tMaxY && tMaxX < tMaxZ) {
+                t = tMaxX;
+                if (t > maxDistance) return false;
+                x += stepX;
+                tMaxX += tDeltaX;
+                face = FACE_X;
+            } else if (tMaxY < tMaxZ) {
+                t = tMaxY;
+                if (t > maxDistance) return false;
+                y += stepY;
+                tMaxY += tDeltaY;
+                face = FACE_Y;
+            } else {
+                t = tMaxZ;
+                if (t > maxDistance) return false;
+                z += stepZ;
+                tMaxZ += tDeltaZ;
+                face = FACE_Z;
+            }
+        }
+    }
+
+    public int getHitX() {
+        return hitX;
+    }
+
+    public int getHitY() {
+        return hitY;
+    }
+
+    public int getHitZ() {
+        return hitZ;
+    }
+
+    public Vector3i getHitPosition() {
+        return new Vector3i(hitX, hitY, hitZ);
+    }
+
+    public int getHitBlockId() {
+        return hitId;
+    }
+
+    /**
+     * Eixo da face por onde o raio entrou na célula (FACE_NONE: a origem já estava nela).
+     */
+    public int getHitFace() {
+        return hitFace;
+    }
+
+    public double getHitDistance() {
+        return hitDistance;
+    }
+
+    /**
+     * Células visitadas no último cast.
+     */
+    public int getVisited() {
+        return visited;
+    }
+
+    /**
+     * Rotação do bloco atingido, do chunk em cache (0 se fora da memória).
+     */
+    @SuppressWarnings("removal")
+    public int getHitRotation() {
+        return chunk != null ? chunk.getRotationIndex(ChunkUtil.localCoordinate(hitX), hitY, ChunkUtil.localCoordinate(hitZ)) : 0;
+    }
+
+    private int blockAt(World world, int x, int y, int z) {
+        long index = ChunkUtil.indexChunkFromBlock(x, z);
+        if (!hasChunk || index != chunkIndex) {
+            chunkIndex = index;
+            chunk = world.getChunkIfInMemory(index);
+            hasChunk = true;
+        }
+        if (chunk == null) return BlockType.EMPTY_ID;
+        return chunk.getBlock(ChunkUtil.localCoordinate(x), y, ChunkUtil.localCoordinate(z));
+    }
+}
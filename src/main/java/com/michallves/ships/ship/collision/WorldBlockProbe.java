@@ -0,0 +1,33 @@
+package com.michallves.ships.ship.collision;
+
+import com.hypixel.hytale.math.util.ChunkUtil;
+import com.hypixel.hytale.protocol.BlockMaterial;
+import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.chunk.WorldChunk;
+
+public final class WorldBlockProbe implements ShipBlockProbe {
+
+    private World world;
+
+    public WorldBlockProbe bind(World world) {
+        this.world = world;
+        return this;
+    }
+
+    @Override
+    public boolean isBlocking(int x, int y, int z) {
+        WorldChunk chunk = world.getChunkIfInMemory(ChunkUtil.indexChunkFromBlock(x, z));
+        // Chunk não carregado conta como parede (navio não entra no desconhecido)
+        if (chunk == null) return true;
+
+        int id = chunk.getBlock(ChunkUtil.localCoordinate(x), y, ChunkUtil.localCoordinate(z));
+        if (id == BlockType.EMPTY_ID) return false;
+
+        BlockType type = BlockType.getAssetMap().getAsset(id);
+        if (type == null) return false;
+
+        // Colide somente com blocos sólidos (material Solid).
+        return type.getMaterial() == BlockMaterial.Solid;
+    }
+}
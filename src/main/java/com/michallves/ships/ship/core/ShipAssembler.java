@@ -3,36 +3,15 @@ package com.michallves.ships.ship.core;
 import com.hypixel.hytale.math.vector.Vector3i;
 import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
 import com.hypixel.hytale.server.core.universe.world.World;
+import com.michallves.ships.utils.ShipBlockKeys;
 import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
 import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 
 public final class ShipAssembler {
 
-    private static final int PACK_BIAS = 1 << 20;
-    private static final long PACK_MASK = 0x1FFFFFL;
-
     private static final int WORLD_MIN_Y = 0;
     private static final int WORLD_MAX_Y = 320;
 
-    private static long pack(int x, int y, int z) {
-        long xx = ((long) (x + PACK_BIAS)) & PACK_MASK;
-        long zz = ((long) (z + PACK_BIAS)) & PACK_MASK;
-        long yy = ((long) (y + PACK_BIAS)) & PACK_MASK;
-        return (xx << 42) | (zz << 21) | yy;
-    }
-
-    private static int unpackX(long packed) {
-        return (int) ((packed >>> 42) & PACK_MASK) - PACK_BIAS;
-    }
-
-    private static int unpackZ(long packed) {
-        return (int) ((packed >>> 21) & PACK_MASK) - PACK_BIAS;
-    }
-
-    private static int unpackY(long packed) {
-        return (int) (packed & PACK_MASK) - PACK_BIAS;
-    }
-
     private ShipAssembler() {
     }
 
@@ -45,15 +24,15 @@ public final class ShipAssembler {
         LongArrayFIFOQueue queue = new LongArrayFIFOQueue();
         LongOpenHashSet visited = new LongOpenHashSet(Math.max(1024, maxBlocks * 2));
 
-        long start = pack(helmWorldPos.x, helmWorldPos.y, helmWorldPos.z);
+        long start = ShipBlockKeys.packLocal(helmWorldPos.x, helmWorldPos.y, helmWorldPos.z);
         queue.enqueue(start);
         visited.add(start);
 
         while (!queue.isEmpty() && structure.size() < maxBlocks) {
             long packed = queue.dequeueLong();
-            int wx = unpackX(packed);
-            int wy = unpackY(packed);
-            int wz = unpackZ(packed);
+            int wx = ShipBlockKeys.localX(packed);
+            int wy = ShipBlockKeys.localY(packed);
+            int wz = ShipBlockKeys.localZ(packed);
 
             if (wy < WORLD_MIN_Y || wy >= WORLD_MAX_Y) {
                 continue;
@@ -89,7 +68,7 @@ public final class ShipAssembler {
         if (y < WORLD_MIN_Y || y >= WORLD_MAX_Y) {
             return;
         }
-        long packed = pack(x, y, z);
+        long packed = ShipBlockKeys.packLocal(x, y, z);
         if (visited.add(packed)) {
             queue.enqueue(packed);
         }
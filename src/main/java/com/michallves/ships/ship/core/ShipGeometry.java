@@ -2,19 +2,48 @@ package com.michallves.ships.ship.core;
 
 import com.hypixel.hytale.math.vector.Vector3d;
 import com.hypixel.hytale.math.vector.Vector3i;
-import com.michallves.ships.ship.assembly.ShipBlock;
+import com.michallves.ships.ship.assembly.ShipBlockStore;
+import com.michallves.ships.ship.assembly.ShipBounds;
+import com.michallves.ships.ship.assembly.ShipExtents;
 import com.michallves.ships.ship.assembly.ShipStructure;
 
 public final class ShipGeometry {
 
+    private final ShipStructure structure;
     private final ShipState state;
     private final Vector3d centerOffset = new Vector3d();
     private final Vector3i helmBlockWorld;
 
+    // (dx - centro, dy, dz - centro) por bloco, na ordem de structure.getStore().
+    // null depois de uma edição da estrutura: refeito no próximo uso.
+    private double[] localOffsets;
+
+    // Pose do tick atual (refeita só quando origem/yaw mudam)
+    private ShipPose pose;
+
     public ShipGeometry(ShipStructure structure, ShipState state, Vector3i helmBlock, float yawDeg) {
+        this.structure = structure;
         this.state = state;
         this.helmBlockWorld = new Vector3i(helmBlock);
         computeCenterOffset(structure);
+        this.localOffsets = computeLocalOffsets(structure);
+        state.setYawDeg(yawDeg);
+        state.setLastYawDeg(yawDeg);
+        updateOriginFromHelm(helmBlock, yawDeg);
+    }
+
+    /**
+     * Sem varrer blocos: centro a partir de limites já conhecidos (navio carregado do registro).
+     * Os offsets por bloco ficam para o primeiro uso.
+     */
+    public ShipGeometry(ShipStructure structure, ShipState state, Vector3i helmBlock, float yawDeg, ShipBounds bounds) {
+        this.structure = structure;
+        this.state = state;
+        this.helmBlockWorld = new Vector3i(helmBlock);
+        centerOffset.setX((bounds.minDx + bounds.maxDx) * 0.5);
+        centerOffset.setY(0.0);
+        centerOffset.setZ((bounds.minDz + bounds.maxDz) * 0.5);
+        this.localOffsets = null;
         state.setYawDeg(yawDeg);
         state.setLastYawDeg(yawDeg);
         updateOriginFromHelm(helmBlock, yawDeg);
@@ -32,25 +61,78 @@ public final class ShipGeometry {
         return helmBlockWorld;
     }
 
+    public ShipStructure getStructure() {
+        return structure;
+    }
+
+    public double[] getLocalOffsets() {
+        double[] local = localOffsets;
+        if (local == null) {
+            local = computeLocalOffsets(structure);
+            localOffsets = local;
+        }
+        return local;
+    }
+
+    /**
+     * Navio ocioso: solta os offsets por bloco (refeitos no próximo uso).
+     */
+    public void releaseLocalOffsets() {
+        localOffsets = null;
+    }
+
+    public long estimateHeapBytes() {
+        double[] local = localOffsets;
+        return local == null ? 0L : 16L + local.length * 8L;
+    }
+
+    /**
+     * A estrutura foi editada com o navio docado com o helm em helmBlock: o centro sai dos
+     * limites mantidos pela estrutura (sem varrer blocos) e a origem é refeita a partir do helm.
+     * Os offsets por bloco só são refeitos quando alguém precisar deles (ativação).
+     */
+    public void onStructureEdited(Vector3i helmBlock, float yawDeg) {
+        computeCenterOffset(structure.extents());
+        localOffsets = null;
+        updateOriginFromHelm(helmBlock, yawDeg);
+    }
+
+    /**
+     * Pose atual do navio. Enquanto origem e yaw não mudam, devolve a mesma instância.
+     */
+    public ShipPose pose() {
+        Vector3d origin = state.getOrigin();
+        float yawDeg = state.getYawDeg();
+        ShipPose p = pose;
+        if (p == null || !p.matches(origin, yawDeg)) {
+            p = new ShipPose(origin, yawDeg);
+            pose = p;
+        }
+        return p;
+    }
+
+    private ShipPose poseFor(float yawDeg) {
+        ShipPose p = pose();
+        return p.yawDeg == yawDeg ? p : new ShipPose(state.getOrigin(), yawDeg);
+    }
+
     public Vector3d computePilotAnchorPosition(float yawDeg) {
-        Vector3d helmWorld = computeHelmWorldPosition(yawDeg);
-        Vector3d helmCenter = new Vector3d(helmWorld.getX() + 0.5, helmWorld.getY(), helmWorld.getZ() + 0.5);
+        return computePilotAnchorPosition(poseFor(yawDeg), new Vector3d());
+    }
 
-        double yawRad = Math.toRadians(yawDeg);
-        double fx = -Math.sin(yawRad);
-        double fz = Math.cos(yawRad);
+    public Vector3d computePilotAnchorPosition(ShipPose pose, Vector3d out) {
+        computeHelmWorldPosition(pose, out);
 
+        // forward = (-sin, cos)
         double radius = 0.85;
-        Vector3d anchor = new Vector3d(
-                helmCenter.getX() - fx * radius,
-                helmCenter.getY(),
-                helmCenter.getZ() - fz * radius
-        );
+        double ax = out.getX() + 0.5 + pose.sin * radius;
+        double az = out.getZ() + 0.5 - pose.cos * radius;
 
-        anchor.setX(Math.round(anchor.getX() * 16.0) / 16.0);
-        anchor.setZ(Math.round(anchor.getZ() * 16.0) / 16.0);
-
-        return anchor;
+        return out.assign(
+                Math.round(ax * 16.0) / 16.0,
+                out.getY(),
+                Math.round(az * 16.0) / 16.0
+        );
     }
 
     public Vector3d computeWorldPosContinuous(int dx, int dy, int dz, float yawDeg) {
@@ -70,6 +152,59 @@ public final class ShipGeometry {
         );
     }
 
+    /**
+     * Posição de mundo do bloco index (ordem de structure.getStore()), sem alocação.
+     */
+    public Vector3d computeWorldPos(ShipPose pose, int index, Vector3d out) {
+        double[] local = getLocalOffsets();
+        int i = index * 3;
+        double lx = local[i];
+        double lz = local[i + 2];
+        return out.assign(pose.worldX(lx, lz), pose.originY + local[i + 1], pose.worldZ(lx, lz));
+    }
+
+    /**
+     * Posições de mundo de todos os blocos em out (x,y,z por bloco; out.length >= 3 * blocos).
+     */
+    public void computeWorldPositions(ShipPose pose, double[] out) {
+        double[] local = getLocalOffsets();
+        double cos = pose.cos;
+        double sin = pose.sin;
+        double ox = pose.originX;
+        double oy = pose.originY;
+        double oz = pose.originZ;
+
+        for (int i = 0; i < local.length; i += 3) {
+            double lx = local[i];
+            double lz = local[i + 2];
+            out[i] = ox + lx * cos - lz * sin;
+            out[i + 1] = oy + local[i + 1];
+            out[i + 2] = oz + lx * sin + lz * cos;
+        }
+    }
+
+    /**
+     * Como {@link #computeWorldPositions(ShipPose, double[])}, mas só para os índices dados
+     * (ex.: blocos expostos): blocos internos não pagam nada.
+     */
+    public void computeWorldPositions(ShipPose pose, double[] out, int[] indices) {
+        double[] local = getLocalOffsets();
+        double cos = pose.cos;
+        double sin = pose.sin;
+        double ox = pose.originX;
+        double oy = pose.originY;
+        double oz = pose.originZ;
+
+        for (int k = 0; k < indices.length; k++) {
+            int i = indices[k] * 3;
+            double lx = local[i];
+            double lz = local[i + 2];
+            out[i] = ox + lx * cos - lz * sin;
+            out[i + 1] = oy + local[i + 1];
+            out[i + 2] = oz + lx * sin + lz * cos;
+        }
+    }
+
     public void updateOriginFromHelm(Vector3i helmBlock, float yawDeg) {
         Vector3d offset = rotateLocal(centerOffset.getX(), centerOffset.getZ(), yawDeg);
         Vector3d origin = state.getOrigin();
@@ -79,9 +214,13 @@ public final class ShipGeometry {
     }
 
     public Vector3d computeHelmWorldPosition(float yawDeg) {
-        Vector3d offset = rotateLocal(-centerOffset.getX(), -centerOffset.getZ(), yawDeg);
-        Vector3d origin = state.getOrigin();
-        return new Vector3d(origin.getX() + offset.getX(), origin.getY(), origin.getZ() + offset.getZ());
+        return computeHelmWorldPosition(poseFor(yawDeg), new Vector3d());
+    }
+
+    public Vector3d computeHelmWorldPosition(ShipPose pose, Vector3d out) {
+        double lx = -centerOffset.getX();
+        double lz = -centerOffset.getZ();
+        return out.assign(pose.worldX(lx, lz), pose.originY, pose.worldZ(lx, lz));
     }
 
     private static Vector3d rotateLocal(double x, double z, float yawDeg) {
@@ -91,6 +230,26 @@ public final class ShipGeometry {
         return new Vector3d(rx, 0.0, rz);
     }
 
+    private double[] computeLocalOffsets(ShipStructure structure) {
+        ShipBlockStore blocks = structure.getStore();
+        double cx = centerOffset.getX();
+        double cz = centerOffset.getZ();
+
+        double[] out = new double[blocks.size() * 3];
+        for (int i = 0; i < blocks.size(); i++) {
+            out[i * 3] = blocks.getDx(i) - cx;
+            out[i * 3 + 1] = blocks.getDy(i);
+            out[i * 3 + 2] = blocks.getDz(i) - cz;
+        }
+        return out;
+    }
+
+    private void computeCenterOffset(ShipExtents extents) {
+        centerOffset.setX((extents.getMinDx() + extents.getMaxDx()) * 0.5);
+        centerOffset.setY(0.0);
+        centerOffset.setZ((extents.getMinDz() + extents.getMaxDz()) * 0.5);
+    }
+
     private void computeCenterOffset(ShipStructure structure) {
         boolean first = true;
         double minX = 0.0;
@@ -98,18 +257,21 @@ public final class ShipGeometry {
         double minZ = 0.0;
         double maxZ = 0.0;
 
-        for (ShipBlock b : structure.getBlocks()) {
+        ShipBlockStore blocks = structure.getStore();
+        for (int i = 0; i < blocks.size(); i++) {
+            int dx = blocks.getDx(i);
+            int dz = blocks.getDz(i);
             if (first) {
-                minX = maxX = b.dx;
-                minZ = maxZ = b.dz;
+                minX = maxX = dx;
+                minZ = maxZ = dz;
                 first = false;
                 continue;
             }
 
-            minX = Math.min(minX, b.dx);
-            maxX = Math.max(maxX, b.dx);
-            minZ = Math.min(minZ, b.dz);
-            maxZ = Math.max(maxZ, b.dz);
+            minX = Math.min(minX, dx);
+            maxX = Math.max(maxX, dx);
+            minZ = Math.min(minZ, dz);
+            maxZ = Math.max(maxZ, dz);
         }
 
         centerOffset.setX((minX + maxX) * 0.5);
@@ -0,0 +1,51 @@
+package com.michallves.ships.ship.core;
+
+import com.hypixel.hytale.math.vector.Vector3d;
+
+/**
+ * Pose imutável do navio num tick: origem + yaw com cos/sin já calculados.
+ * Todos os consumidores do tick (partes, helm, âncora do piloto) usam a mesma
+ * instância, então o trig roda uma vez por navio por tick.
+ */
+public final class ShipPose {
+
+    public final double originX;
+    public final double originY;
+    public final double originZ;
+    public final float yawDeg;
+    public final double cos;
+    public final double sin;
+
+    public ShipPose(double originX, double originY, double originZ, float yawDeg) {
+        this.originX = originX;
+        this.originY = originY;
+        this.originZ = originZ;
+        this.yawDeg = yawDeg;
+
+        double yawRad = Math.toRadians(yawDeg);
+        this.cos = Math.cos(yawRad);
+        this.sin = Math.sin(yawRad);
+    }
+
+    public ShipPose(Vector3d origin, float yawDeg) {
+        this(origin.getX(), origin.getY(), origin.getZ(), yawDeg);
+    }
+
+    /**
+     * Mesma pose (igualdade exata: só reaproveita se nada mudou).
+     */
+    public boolean matches(Vector3d origin, float yawDeg) {
+        return this.yawDeg == yawDeg
+                && originX == origin.getX()
+                && originY == origin.getY()
+                && originZ == origin.getZ();
+    }
+
+    public double worldX(double lx, double lz) {
+        return originX + lx * cos - lz * sin;
+    }
+
+    public double worldZ(double lx, double lz) {
+        return originZ + lx * sin + lz * cos;
+    }
+}
@@ -0,0 +1,161 @@
+package com.michallves.ships.ship.core;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Pose publicada de um navio para leitores de outras threads (métricas, mapas, painéis,
+ * checagens assíncronas). ShipState/ShipPose são da thread do mundo; isto é a cópia que
+ * pode ser lida de qualquer lugar.
+ *
+ * Seqlock: o escritor (thread do mundo, um por navio) deixa a versão ímpar, grava os campos
+ * primitivos e deixa par de novo; o leitor copia os campos para um Sample dele e confere que
+ * a versão não mudou no meio (se mudou, copia de novo). Sem lock e sem alocação dos dois
+ * lados.
+ */
+public final class ShipPoseSnapshot {
+
+    public static final int MODE_DOCKED = 0;
+    public static final int MODE_ACTIVE = 1;
+    public static final int MODE_TRANSITIONING = 2;
+
+    private static final VarHandle SEQ;
+
+    static {
+        try {
+            SEQ = MethodHandles.lookup().findVarHandle(ShipPoseSnapshot.class, "seq", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Cópia de leitura (do leitor; reaproveitar entre leituras).
+     * Origem NaN: o corpo do navio nunca foi carregado desde o load, só o helm é conhecido.
+     */
+    public static final class Sample {
+        public long version;
+        public int mode;
+        public double originX;
+        public double originY;
+        public double originZ;
+        public double helmX;
+        public double helmY;
+        public double helmZ;
+        public float yawDeg;
+        public float speed;
+        public float yawVel;
+        public double velX;
+        public double velZ;
+        public long publishedMillis;
+    }
+
+    // par = estável, ímpar = escrita em andamento
+    @SuppressWarnings("unused")
+    private volatile long seq = 0L;
+
+    private int mode;
+    private double originX = Double.NaN;
+    private double originY = Double.NaN;
+    private double originZ = Double.NaN;
+    private double helmX;
+    private double helmY;
+    private double helmZ;
+    private float yawDeg;
+    private float speed;
+    private float yawVel;
+    private double velX;
+    private double velZ;
+    private long publishedMillis;
+
+    /**
+     * Publica a pose do tick (thread do mundo dona do navio).
+     */
+    public void publish(int mode, ShipState state, double helmX, double helmY, double helmZ) {
+        long s = (long) SEQ.getOpaque(this);
+        SEQ.setOpaque(this, s + 1);
+        VarHandle.storeStoreFence();
+
+        this.mode = mode;
+        this.originX = state.getOrigin().getX();
+        this.originY = state.getOrigin().getY();
+        this.originZ = state.getOrigin().getZ();
+        this.helmX = helmX;
+        this.helmY = helmY;
+        this.helmZ = helmZ;
+        this.yawDeg = state.getYawDeg();
+        this.speed = state.getSpeed();
+        this.yawVel = state.getYawVel();
+        this.velX = state.getVelX();
+        this.velZ = state.getVelZ();
+        this.publishedMillis = System.currentTimeMillis();
+
+        SEQ.setRelease(this, s + 2);
+    }
+
+    /**
+     * Navio docado só com o header (corpo solto ou nunca carregado): helm e yaw da pose
+     * docada; a origem fica a última publicada (NaN se nunca houve corpo).
+     */
+    public void publishDocked(double helmX, double helmY, double helmZ, float yawDeg) {
+        long s = (long) SEQ.getOpaque(this);
+        SEQ.setOpaque(this, s + 1);
+        VarHandle.storeStoreFence();
+
+        this.mode = MODE_DOCKED;
+        this.helmX = helmX;
+        this.helmY = helmY;
+        this.helmZ = helmZ;
+        this.yawDeg = yawDeg;
+        this.speed = 0.0f;
+        this.yawVel = 0.0f;
+        this.velX = 0.0;
+        this.velZ = 0.0;
+        this.publishedMillis = System.currentTimeMillis();
+
+        SEQ.setRelease(this, s + 2);
+    }
+
+    /**
+     * Versão da última publicação (0 = nunca publicado). Muda a cada publish.
+     */
+    public long version() {
+        return ((long) SEQ.getAcquire(this) & ~1L) >>> 1;
+    }
+
+    /**
+     * Copia a última pose consistente para out. Qualquer thread.
+     *
+     * @return false se nada foi publicado ainda
+     */
+    public boolean read(Sample out) {
+        while (true) {
+            long before = (long) SEQ.getAcquire(this);
+            if ((before & 1L) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            if (before == 0L) return false;
+
+            out.mode = mode;
+            out.originX = originX;
+            out.originY = originY;
+            out.originZ = originZ;
+            out.helmX = helmX;
+            out.helmY = helmY;
+            out.helmZ = helmZ;
+            out.yawDeg = yawDeg;
+            out.speed = speed;
+            out.yawVel = yawVel;
+            out.velX = velX;
+            out.velZ = velZ;
+            out.publishedMillis = publishedMillis;
+
+            VarHandle.loadLoadFence();
+            if ((long) SEQ.getOpaque(this) == before) {
+                out.version = before >>> 1;
+                return true;
+            }
+        }
+    }
+}
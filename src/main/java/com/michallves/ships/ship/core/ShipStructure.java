@@ -2,24 +2,14 @@ package com.michallves.ships.ship.core;
 
 import com.hypixel.hytale.math.vector.Vector3d;
 import com.hypixel.hytale.math.vector.Vector3i;
+import com.michallves.ships.utils.ShipBlockKeys;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 
 import java.util.Collection;
-import java.util.HashMap;
 
 public final class ShipStructure {
 
-    private static final int PACK_BIAS = 1 << 20;
-    private static final long PACK_MASK = 0x1FFFFFL;
-
-    private static long pack(int x, int y, int z) {
-        long xx = ((long) (x + PACK_BIAS)) & PACK_MASK;
-        long zz = ((long) (z + PACK_BIAS)) & PACK_MASK;
-        long yy = ((long) (y + PACK_BIAS)) & PACK_MASK;
-        return (xx << 42) | (zz << 21) | yy;
-    }
-
-    private final HashMap<Vector3i, ShipBlockData> blocks;
+    // Índice único por offset empacotado (sem um HashMap<Vector3i, ...> paralelo)
     private final Long2ObjectOpenHashMap<ShipBlockData> blockIndex;
 
     private int minX;
@@ -37,7 +27,6 @@ public final class ShipStructure {
 
     public ShipStructure(int expectedBlocks) {
         int cap = Math.max(16, expectedBlocks);
-        this.blocks = new HashMap<>(cap * 2);
         this.blockIndex = new Long2ObjectOpenHashMap<>(cap * 2);
         this.boundsDirty = true;
     }
@@ -47,31 +36,26 @@ public final class ShipStructure {
     }
 
     public Collection<ShipBlockData> getBlocks() {
-        return blocks.values();
+        return blockIndex.values();
     }
 
     public ShipBlockData getBlockAt(int x, int y, int z) {
-        return blockIndex.get(pack(x, y, z));
+        return blockIndex.get(ShipBlockKeys.packLocal(x, y, z));
     }
 
     public boolean contains(int x, int y, int z) {
-        return blockIndex.containsKey(pack(x, y, z));
+        return blockIndex.containsKey(ShipBlockKeys.packLocal(x, y, z));
     }
 
     public ShipBlockData addBlock(Vector3i localPos, ShipBlockBase block) {
-        Vector3i key = new Vector3i(localPos);
-        ShipBlockData data = new ShipBlockData(localPos.x, localPos.y, localPos.z, block.getBlockId(), (byte) 0, block, key);
+        ShipBlockData data = new ShipBlockData(localPos.x, localPos.y, localPos.z, block.getBlockId(), (byte) 0, block);
 
-        long packed = pack(localPos.x, localPos.y, localPos.z);
+        long packed = ShipBlockKeys.packLocal(localPos.x, localPos.y, localPos.z);
         ShipBlockData previous = blockIndex.put(packed, data);
-        ShipBlockData removed = blocks.put(key, data);
 
         if (previous != null) {
             removeMass(previous);
         }
-        if (removed != null && removed != previous) {
-            removeMass(removed);
-        }
 
         addMass(data);
         updateBoundsOnAdd(data);
@@ -79,10 +63,9 @@ public final class ShipStructure {
     }
 
     public ShipBlockData removeBlock(Vector3i localPos) {
-        long packed = pack(localPos.x, localPos.y, localPos.z);
+        long packed = ShipBlockKeys.packLocal(localPos.x, localPos.y, localPos.z);
         ShipBlockData removed = blockIndex.remove(packed);
         if (removed != null) {
-            blocks.remove(removed.key);
             removeMass(removed);
             boundsDirty = true;
         }
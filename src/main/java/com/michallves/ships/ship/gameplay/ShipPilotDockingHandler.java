@@ -23,6 +23,9 @@ public final class ShipPilotDockingHandler {
                                         UUID uuid) {
         if (!session.isDockingRequested()) return false;
 
+        // Ativação/docking ainda rodando em fatias: espera terminar
+        if (ship.isTransitioning()) return false;
+
         if (!ship.isActiveEntity()) {
             pilotManager.stop(uuid);
             shipManager.releasePilot(session.getShipId(), uuid);
@@ -0,0 +1,35 @@
+package com.michallves.ships.ship.gameplay;
+
+import com.hypixel.hytale.component.CommandBuffer;
+import com.hypixel.hytale.server.core.Message;
+import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.michallves.ships.piloting.PilotSession;
+import com.michallves.ships.ship.ShipController;
+
+public final class ShipPilotTransitionNotifier {
+
+    // Avisa o piloto a cada 25% (evita spam no chat)
+    private static final int PROGRESS_STEPS = 4;
+
+    private static final String KEY_ACTIVATING = "server.ships.transition.activating";
+    private static final String KEY_DOCKING = "server.ships.transition.docking";
+
+    public void notifyProgress(PilotSession session, ShipController ship, CommandBuffer<EntityStore> commandBuffer) {
+        if (!ship.isTransitioning()) {
+            session.setLastTransitionStep(-1);
+            return;
+        }
+
+        int step = Math.min(PROGRESS_STEPS - 1, (int) (ship.getTransitionProgress() * PROGRESS_STEPS));
+        if (step == session.getLastTransitionStep()) return;
+        session.setLastTransitionStep(step);
+
+        PlayerRef playerRef = commandBuffer.getComponent(session.getPlayerRef(), PlayerRef.getComponentType());
+        if (playerRef == null) return;
+
+        int percent = step * (100 / PROGRESS_STEPS);
+        String key = ship.isDocking() ? KEY_DOCKING : KEY_ACTIVATING;
+        playerRef.sendMessage(Message.translation(key).param("percent", percent));
+    }
+}
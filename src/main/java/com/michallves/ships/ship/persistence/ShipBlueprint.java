@@ -0,0 +1,333 @@
+package com.michallves.ships.ship.persistence;
+
+import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
+import com.michallves.ships.ship.assembly.ShipBlockStore;
+import com.michallves.ships.ship.assembly.ShipBounds;
+import com.michallves.ships.utils.ShipLogger;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Blueprint de navio (.shbp): a estrutura num arquivo para levar para outro servidor ou
+ * colocar navios prontos (eventos). Independe do registro: ids numéricos não vão, só a
+ * chave do BlockType.
+ *
+ * Formato (big-endian):
+ * <pre>
+ * int magic 'SHBP' | short version
+ * --- daqui em diante comprimido (Deflater/zlib) ---
+ * int blocks | byte helmOri (orientação do helm na exportação, informativa)
+ * int minDx, maxDx, minDy, maxDy, minDz, maxDz
+ * int palette | (short len, utf8 chave do BlockType, byte rot) * palette
+ * (varint deltaMorton, varint paleta) * blocks
+ * </pre>
+ *
+ * Os blocos vão em ordem de Morton dos offsets relativos ao mínimo (10 bits por eixo) e cada
+ * código é gravado como diferença do anterior: blocos vizinhos viram deltas pequenos, que
+ * comprimem bem. A leitura é um cursor (Reader): um bloco por vez, sem montar a estrutura.
+ */
+public final class ShipBlueprint {
+
+    private static final int MAGIC = 0x53484250; // "SHBP"
+    private static final short VERSION = 1;
+
+    private static final int AXIS_BITS = 10;
+    private static final int AXIS_MAX = 1 << AXIS_BITS;
+
+    public static final String EXTENSION = ".shbp";
+
+    private ShipBlueprint() {
+    }
+
+    /**
+     * Grava a estrutura (offsets relativos ao helm, como na montagem). O store não muda depois
+     * de publicado, então pode ser gravado fora da thread do mundo.
+     *
+     * @return tamanho do arquivo
+     */
+    public static long write(Path file, ShipBlockStore store, ShipBounds bounds, int helmOri) throws IOException {
+        int n = store.size();
+        if (n == 0 || bounds == null) throw new IOException("Navio sem blocos");
+        if (bounds.maxDx - bounds.minDx >= AXIS_MAX || bounds.maxDy - bounds.minDy >= AXIS_MAX
+                || bounds.maxDz - bounds.minDz >= AXIS_MAX) {
+            throw new IOException("Navio grande demais para blueprint (maximo " + AXIS_MAX + " por eixo)");
+        }
+
+        // (morton << 32) | índice => sort primitivo
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            long code = morton(store.getDx(i) - bounds.minDx, store.getDy(i) - bounds.minDy, store.getDz(i) - bounds.minDz);
+            keys[i] = (code << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        Long2IntOpenHashMap pairs = new Long2IntOpenHashMap();
+        pairs.defaultReturnValue(-1);
+        int[] entry = new int[n];
+        int[] firstOf = new int[16];
+        for (int i = 0; i < n; i++) {
+            long key = ((long) store.getBlockId(i) << 8) | (store.getRotation(i) & 0xFF);
+            int p = pairs.get(key);
+            if (p < 0) {
+                p = pairs.size();
+                pairs.put(key, p);
+                if (p == firstOf.length) firstOf = Arrays.copyOf(firstOf, p * 2);
+                firstOf[p] = i;
+            }
+            entry[i] = p;
+        }
+
+        Path parent = file.getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (OutputStream raw = new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16)) {
+            DataOutputStream header = new DataOutputStream(raw);
+            header.writeInt(MAGIC);
+            header.writeShort(VERSION);
+            header.flush();
+
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            try {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        new DeflaterOutputStream(raw, deflater, 1 << 16), 1 << 16));
+                out.writeInt(n);
+                out.writeByte(helmOri & 3);
+                out.writeInt(bounds.minDx);
+                out.writeInt(bounds.maxDx);
+                out.writeInt(bounds.minDy);
+                out.writeInt(bounds.maxDy);
+                out.writeInt(bounds.minDz);
+                out.writeInt(bounds.maxDz);
+
+                out.writeInt(pairs.size());
+                for (int p = 0; p < pairs.size(); p++) {
+                    int i = firstOf[p];
+                    BlockType type = store.getType(i);
+                    byte[] utf = (type != null ? type.getId() : "").getBytes(StandardCharsets.UTF_8);
+                    out.writeShort(utf.length);
+                    out.write(utf);
+                    out.writeByte(store.getRotation(i));
+                }
+
+                long prev = 0L;
+                for (int k = 0; k < n; k++) {
+                    long code = keys[k] >>> 32;
+                    int i = (int) keys[k];
+                    writeVarLong(out, code - prev);
+                    writeVarLong(out, entry[i]);
+                    prev = code;
+                }
+                // fecha o deflater (termina o stream zlib) e o arquivo
+                out.close();
+            } finally {
+                deflater.end();
+            }
+        }
+
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return Files.size(file);
+    }
+
+    public static Reader open(Path file) throws IOException {
+        return new Reader(file);
+    }
+
+    /**
+     * Cursor sobre os blocos de um blueprint: memória constante (paleta + buffers do stream),
+     * qualquer que seja o tamanho do navio.
+     */
+    public static final class Reader implements Closeable {
+
+        private final DataInputStream in;
+
+        private final int size;
+        private final int helmOri;
+        private final ShipBounds bounds;
+
+        private final int[] paletteIds;
+        private final BlockType[] paletteTypes;
+        private final byte[] paletteRotations;
+        private final int unknownTypes;
+
+        private int read = 0;
+        private long code = 0L;
+
+        // bloco atual (depois de next())
+        private int dx;
+        private int dy;
+        private int dz;
+        private int palette;
+
+        private Reader(Path file) throws IOException {
+            InputStream raw = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+            try {
+                DataInputStream header = new DataInputStream(raw);
+                if (header.readInt() != MAGIC) throw new IOException("Arquivo não é um blueprint de navio: " + file);
+                short version = header.readShort();
+                if (version != VERSION) throw new IOException("Versão de blueprint não suportada: " + version);
+
+                this.in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(raw), 1 << 16));
+                this.size = in.readInt();
+                this.helmOri = in.readByte() & 3;
+                this.bounds = new ShipBounds(in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt());
+
+                int n = in.readInt();
+                this.paletteIds = new int[n];
+                this.paletteTypes = new BlockType[n];
+                this.paletteRotations = new byte[n];
+                int unknown = 0;
+                for (int p = 0; p < n; p++) {
+                    byte[] utf = new byte[in.readShort() & 0xFFFF];
+                    in.readFully(utf);
+                    String key = new String(utf, StandardCharsets.UTF_8);
+                    paletteRotations[p] = in.readByte();
+
+                    // id do servidor atual pela chave; tipo que não existe aqui => bloco pulado
+                    int id = key.isEmpty() ? -1 : BlockType.getAssetMap().getIndex(key);
+                    paletteIds[p] = id;
+                    paletteTypes[p] = id >= 0 ? BlockType.getAssetMap().getAsset(id) : null;
+                    if (id < 0) {
+                        unknown++;
+                        ShipLogger.warn("[SHIPS] Blueprint: tipo de bloco desconhecido '" + key + "' (blocos pulados)");
+                    }
+                }
+                this.unknownTypes = unknown;
+            } catch (IOException e) {
+                raw.close();
+                throw e;
+            }
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int getHelmOrientation() {
+            return helmOri;
+        }
+
+        public ShipBounds getBounds() {
+            return bounds;
+        }
+
+        public int getUnknownTypes() {
+            return unknownTypes;
+        }
+
+        /**
+         * Avança para o próximo bloco.
+         *
+         * @return false no fim
+         */
+        public boolean next() throws IOException {
+            if (read >= size) return false;
+            code += readVarLong(in);
+            int p = (int) readVarLong(in);
+            if (p < 0 || p >= paletteIds.length) throw new IOException("Blueprint corrompido: paleta " + p);
+            palette = p;
+            dx = bounds.minDx + compact(code);
+            dy = bounds.minDy + compact(code >>> 1);
+            dz = bounds.minDz + compact(code >>> 2);
+            read++;
+            return true;
+        }
+
+        public int getDx() {
+            return dx;
+        }
+
+        public int getDy() {
+            return dy;
+        }
+
+        public int getDz() {
+            return dz;
+        }
+
+        /**
+         * -1 se o tipo do bloco não existe neste servidor.
+         */
+        public int getBlockId() {
+            return paletteIds[palette];
+        }
+
+        public BlockType getType() {
+            return paletteTypes[palette];
+        }
+
+        public int getRotation() {
+            return paletteRotations[palette];
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static long morton(int x, int y, int z) {
+        return spread(x) | (spread(y) << 1) | (spread(z) << 2);
+    }
+
+    // 10 bits -> 30 bits, dois zeros entre cada bit
+    private static long spread(int v) {
+        long x = v & (AXIS_MAX - 1);
+        x = (x | (x << 16)) & 0x030000FFL;
+        x = (x | (x << 8)) & 0x0300F00FL;
+        x = (x | (x << 4)) & 0x030C30C3L;
+        x = (x | (x << 2)) & 0x09249249L;
+        return x;
+    }
+
+    // inverso de spread (bits 0, 3, 6, ...)
+    private static int compact(long code) {
+        long x = code & 0x09249249L;
+        x = (x | (x >>> 2)) & 0x030C30C3L;
+        x = (x | (x >>> 4)) & 0x0300F00FL;
+        x = (x | (x >>> 8)) & 0x030000FFL;
+        x = (x | (x >>> 16)) & 0x000003FFL;
+        return (int) x;
+    }
+
+    private static void writeVarLong(DataOutputStream out, long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long v = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new EOFException("Blueprint cortado");
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Blueprint corrompido: varint longo demais");
+    }
+}
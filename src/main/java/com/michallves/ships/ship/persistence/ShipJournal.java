@@ -0,0 +1,594 @@
+package com.michallves.ships.ship.persistence;
+
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.hypixel.hytale.server.core.asset.type.blocktype.config.BlockType;
+import com.michallves.ships.ship.assembly.ShipBlock;
+import com.michallves.ships.ship.assembly.ShipBounds;
+import com.michallves.ships.ship.assembly.ShipStructure;
+import com.michallves.ships.utils.ShipLogger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Journal append-only dos eventos de navio (criado, ativado, docado, estrutura editada,
+ * piloto, removido), gravado por uma thread própria. Quem gera o evento (thread do mundo)
+ * só serializa o registro em memória e o põe na sua fila SPSC (ShipJournalQueue): nunca
+ * espera pelo disco.
+ *
+ * A cada flushIntervalMillis o writer drena as filas e grava no arquivo; um kill -9 perde no
+ * máximo esse intervalo. Journal grande/velho é dobrado num novo snapshot (geração + 1, em
+ * arquivo próprio: ver ShipRegistryFile) e recomeça vazio. No início, o journal da mesma
+ * geração do snapshot é reaplicado por cima dele.
+ *
+ * Formato (big-endian):
+ * <pre>
+ * int magic 'SHJN' | short version | long generation
+ * (int len | byte type, long uuidMsb, uuidLsb, payload | int crc32) * registros
+ *
+ * CREATED   : short len, utf8 mundo | int helmX, helmY, helmZ | byte helmOri
+ *             int minDx, maxDx, minDy, maxDy, minDz, maxDz | int blocks | int bodyLen, corpo
+ * ACTIVATED : -
+ * DOCKED    : int helmX, helmY, helmZ | byte ori
+ * EDITED    : (int n | (int dx, dy, dz, id | byte rot | short len, utf8 chave) * n) * 3 (removidos, adicionados, trocados)
+ * PILOT     : long pilotMsb, pilotLsb (0, 0 = sem piloto)
+ * REMOVED   : -
+ * REBUILT   : como CREATED a partir dos limites (estrutura remontada do mundo; pose mantida)
+ * </pre>
+ *
+ * Um registro cortado ou com CRC errado no fim (morte no meio da escrita) encerra o replay
+ * e é truncado antes de voltar a gravar.
+ */
+public final class ShipJournal {
+
+    private static final int MAGIC = 0x53484A4E; // "SHJN"
+    private static final short VERSION = 1;
+    private static final int FILE_HEADER_BYTES = 4 + 2 + 8;
+
+    private static final byte CREATED = 1;
+    private static final byte ACTIVATED = 2;
+    private static final byte DOCKED = 3;
+    private static final byte EDITED = 4;
+    private static final byte PILOT = 5;
+    private static final byte REMOVED = 6;
+    private static final byte REBUILT = 7;
+
+    private final Path file;
+    private final Path snapshotFile;
+    private final ShipJournalSettings settings;
+
+    private final CopyOnWriteArrayList<ShipJournalQueue> queues = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<ShipJournalQueue> localQueue = new ThreadLocal<>();
+
+    private volatile boolean running = false;
+    private volatile long generation;
+    private Thread writer;
+
+    private final AtomicLong recordsWritten = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+
+    // Estado do writer (só a thread do writer mexe depois do open)
+    private FileChannel channel;
+    private long journalBytes;
+    private long lastCompactMillis;
+    private final ByteArrayOutputStream batch = new ByteArrayOutputStream(1 << 16);
+    private final DataOutputStream batchOut = new DataOutputStream(batch);
+    private final CRC32 crc = new CRC32();
+    // lote enquadrado que não foi para o disco: volta na frente do próximo flush
+    private byte[] pendingBatch;
+    private int pendingRecords;
+
+    public ShipJournal(Path file, Path snapshotFile, ShipJournalSettings settings) {
+        this.file = file;
+        this.snapshotFile = snapshotFile;
+        this.settings = settings;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public long getRecordsWritten() {
+        return recordsWritten.get();
+    }
+
+    public long getCompactions() {
+        return compactions.get();
+    }
+
+    // ============================================================================================
+    // Eventos (qualquer thread; só serializa e enfileira)
+    // ============================================================================================
+
+    public void shipCreated(UUID shipId, String worldName, Vector3i helmBlock, int helmOri, ShipStructure structure) {
+        submit(CREATED, shipId, out -> {
+            writeString(out, worldName);
+            writeVector(out, helmBlock);
+            out.writeByte(helmOri & 3);
+            writeBody(out, structure);
+        });
+    }
+
+    /**
+     * Corpo de um navio sem corpo em memória foi montado de novo do mundo (ver
+     * ShipController.ensureBody): a estrutura inteira substitui a anterior.
+     */
+    public void structureRebuilt(UUID shipId, ShipStructure structure) {
+        submit(REBUILT, shipId, out -> writeBody(out, structure));
+    }
+
+    public void shipActivated(UUID shipId) {
+        submit(ACTIVATED, shipId, out -> { });
+    }
+
+    public void shipDocked(UUID shipId, Vector3i dockedHelm, int dockedOri) {
+        submit(DOCKED, shipId, out -> {
+            writeVector(out, dockedHelm);
+            out.writeByte(dockedOri & 3);
+        });
+    }
+
+    public void structureEdited(UUID shipId, List<ShipBlock> removed, List<ShipBlock> added, List<ShipBlock> replaced) {
+        submit(EDITED, shipId, out -> {
+            writeBlocks(out, removed);
+            writeBlocks(out, added);
+            writeBlocks(out, replaced);
+        });
+    }
+
+    public void pilotChanged(UUID shipId, UUID pilot) {
+        submit(PILOT, shipId, out -> {
+            out.writeLong(pilot != null ? pilot.getMostSignificantBits() : 0L);
+            out.writeLong(pilot != null ? pilot.getLeastSignificantBits() : 0L);
+        });
+    }
+
+    public void shipRemoved(UUID shipId) {
+        submit(REMOVED, shipId, out -> { });
+    }
+
+    private interface Payload {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private void submit(byte type, UUID shipId, Payload payload) {
+        if (!running) return;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(type);
+            out.writeLong(shipId.getMostSignificantBits());
+            out.writeLong(shipId.getLeastSignificantBits());
+            payload.write(out);
+        } catch (IOException e) {
+            // só memória: não acontece
+            ShipLogger.error("[SHIPS] Journal: falha ao serializar evento " + type + ": " + e.getMessage());
+            return;
+        }
+
+        ShipJournalQueue q = localQueue.get();
+        if (q == null) {
+            q = new ShipJournalQueue(settings.getQueueCapacity());
+            localQueue.set(q);
+            queues.add(q);
+        }
+        q.offer(bytes.toByteArray());
+    }
+
+    // ============================================================================================
+    // Writer
+    // ============================================================================================
+
+    /**
+     * Abre o journal para gravar na geração dada e sobe o writer.
+     *
+     * @param validLength fim do último registro íntegro (replay), ou -1 para começar um arquivo novo
+     */
+    public void open(long generation, long validLength) throws IOException {
+        this.generation = generation;
+        Path parent = file.getParent();
+        if (parent != null) Files.createDirectories(parent);
+
+        if (validLength < FILE_HEADER_BYTES) {
+            startFresh();
+        } else {
+            channel = FileChannel.open(file, StandardOpenOption.WRITE);
+            channel.truncate(validLength);
+            channel.position(validLength);
+            journalBytes = validLength;
+        }
+        lastCompactMillis = System.currentTimeMillis();
+
+        running = true;
+        writer = new Thread(this::runWriter, "ships-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Para o writer depois de gravar o que já estava nas filas.
+     */
+    public void close() {
+        if (!running) return;
+        running = false;
+        Thread w = writer;
+        if (w != null) {
+            LockSupport.unpark(w);
+            try {
+                w.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        writer = null;
+        if (pendingBatch != null) {
+            // o snapshot completo do desligamento (saveRegistry) cobre esses eventos
+            ShipLogger.warn("[SHIPS] Journal: " + pendingRecords + " registros nao gravados ao fechar " + file);
+            pendingBatch = null;
+            pendingRecords = 0;
+        }
+        try {
+            if (channel != null) {
+                channel.force(true);
+                channel.close();
+            }
+        } catch (IOException e) {
+            ShipLogger.error("[SHIPS] Journal: falha ao fechar " + file + ": " + e.getMessage());
+        }
+        channel = null;
+    }
+
+    /**
+     * Depois de um snapshot completo (desligamento): recomeça vazio na nova geração, sem writer.
+     */
+    public void reset(long newGeneration) {
+        generation = newGeneration;
+        try {
+            startFresh();
+            channel.close();
+        } catch (IOException e) {
+            ShipLogger.error("[SHIPS] Journal: falha ao reiniciar " + file + ": " + e.getMessage());
+        }
+        channel = null;
+    }
+
+    private void runWriter() {
+        while (running) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(settings.getFlushIntervalMillis()));
+            writeBatch();
+            if (running) compactIfDue();
+        }
+        writeBatch();
+    }
+
+    private void writeBatch() {
+        batch.reset();
+        int n = pendingRecords;
+        if (pendingBatch != null) batch.write(pendingBatch, 0, pendingBatch.length);
+        for (ShipJournalQueue q : queues) {
+            n += q.drain(this::frame);
+        }
+        if (n == 0) return;
+
+        byte[] bytes = batch.toByteArray();
+        try {
+            if (channel == null || !channel.isOpen()) throw new IOException("arquivo fechado");
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            while (buf.hasRemaining()) channel.write(buf);
+            journalBytes += bytes.length;
+            recordsWritten.addAndGet(n);
+            pendingBatch = null;
+            pendingRecords = 0;
+        } catch (IOException e) {
+            pendingBatch = bytes;
+            pendingRecords = n;
+            ShipLogger.error("[SHIPS] Journal: falha ao gravar " + n + " registros (" + (bytes.length / 1024)
+                    + "KB), nova tentativa no proximo flush: " + e.getMessage());
+            rewind();
+        }
+    }
+
+    /**
+     * Escrita falhou no meio: corta o pedaço gravado para o lote voltar inteiro no próximo flush.
+     */
+    private void rewind() {
+        try {
+            if (channel == null || !channel.isOpen()) {
+                channel = FileChannel.open(file, StandardOpenOption.WRITE);
+            }
+            channel.truncate(journalBytes);
+            channel.position(journalBytes);
+        } catch (IOException e) {
+            ShipLogger.error("[SHIPS] Journal: falha ao voltar ao fim de " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void frame(byte[] record) {
+        try {
+            crc.reset();
+            crc.update(record);
+            batchOut.writeInt(record.length);
+            batchOut.write(record);
+            batchOut.writeInt((int) crc.getValue());
+        } catch (IOException e) {
+            // ByteArrayOutputStream não lança
+        }
+    }
+
+    private void compactIfDue() {
+        if (journalBytes <= FILE_HEADER_BYTES) return;
+        long now = System.currentTimeMillis();
+        if (journalBytes < settings.getCompactBytes() && now - lastCompactMillis < settings.getCompactIntervalMillis()) return;
+        lastCompactMillis = now;
+
+        long start = System.nanoTime();
+        long bytes = journalBytes;
+        try {
+            channel.close();
+            Map<UUID, ShipRegistryFile.Entry> entries = readState();
+
+            long next = generation + 1;
+            ShipRegistryFile.write(snapshotFile, next, new ArrayList<>(entries.values()));
+            generation = next;
+            startFresh();
+            compactions.incrementAndGet();
+            ShipLogger.info("[SHIPS] Journal compactado: " + (bytes / 1024) + "KB -> "
+                    + ShipRegistryFile.generationFile(snapshotFile, next).getFileName() + " (geracao " + next
+                    + ", " + entries.size() + " navios) em " + ((System.nanoTime() - start) / 1_000_000L) + "ms");
+        } catch (IOException e) {
+            ShipLogger.error("[SHIPS] Journal: falha ao compactar: " + e.getMessage());
+            try {
+                // segue gravando no mesmo journal (geração não mudou)
+                channel = FileChannel.open(file, StandardOpenOption.WRITE);
+                channel.position(channel.size());
+            } catch (IOException e2) {
+                ShipLogger.error("[SHIPS] Journal: falha ao reabrir " + file + ": " + e2.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Estado em disco: snapshot + journal da geração atual. Com o writer rodando, só a thread
+     * do writer pode chamar (o arquivo está sendo gravado); parado, qualquer uma.
+     */
+    public Map<UUID, ShipRegistryFile.Entry> readState() throws IOException {
+        ShipRegistryFile.Snapshot snapshot = ShipRegistryFile.read(snapshotFile);
+        Map<UUID, ShipRegistryFile.Entry> entries = toMap(snapshot.entries);
+        replay(file, generation, entries);
+        return entries;
+    }
+
+    private void startFresh() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+        header.putInt(MAGIC).putShort(VERSION).putLong(generation).flip();
+        while (header.hasRemaining()) channel.write(header);
+        journalBytes = FILE_HEADER_BYTES;
+    }
+
+    // ============================================================================================
+    // Replay
+    // ============================================================================================
+
+    public static Map<UUID, ShipRegistryFile.Entry> toMap(List<ShipRegistryFile.Entry> entries) {
+        Map<UUID, ShipRegistryFile.Entry> map = new LinkedHashMap<>();
+        for (ShipRegistryFile.Entry e : entries) map.put(e.shipId, e);
+        return map;
+    }
+
+    /**
+     * Reaplica o journal da geração dada sobre entries (snapshot da mesma geração).
+     *
+     * @return fim do último registro íntegro, ou -1 se não há journal dessa geração
+     */
+    public static long replay(Path file, long generation, Map<UUID, ShipRegistryFile.Entry> entries) throws IOException {
+        if (!Files.exists(file)) return -1L;
+
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (in.remaining() < FILE_HEADER_BYTES || in.getInt() != MAGIC) {
+            ShipLogger.warn("[SHIPS] Journal invalido ignorado: " + file);
+            return -1L;
+        }
+        short version = in.getShort();
+        long fileGeneration = in.getLong();
+        if (version != VERSION || fileGeneration != generation) {
+            // geração antiga: já foi dobrada no snapshot (morte entre o snapshot e o reset)
+            if (fileGeneration > generation) {
+                ShipLogger.warn("[SHIPS] Journal de geracao " + fileGeneration + " mais nova que o snapshot ("
+                        + generation + ") ignorado");
+            }
+            return -1L;
+        }
+
+        CRC32 crc = new CRC32();
+        int applied = 0;
+        int pilotEvents = 0;
+        long valid = in.position();
+        while (in.remaining() >= 4) {
+            int len = in.getInt();
+            if (len < 17 || in.remaining() < len + 4) break;
+
+            byte[] record = new byte[len];
+            in.get(record);
+            crc.reset();
+            crc.update(record);
+            if ((int) crc.getValue() != in.getInt()) break;
+
+            if (apply(ByteBuffer.wrap(record), entries)) pilotEvents++;
+            applied++;
+            valid = in.position();
+        }
+
+        if (valid < in.limit()) {
+            ShipLogger.warn("[SHIPS] Journal: " + (in.limit() - valid) + " bytes finais cortados/corrompidos descartados");
+        }
+        if (applied > 0) {
+            ShipLogger.info("[SHIPS] Journal reaplicado: " + applied + " eventos (" + pilotEvents
+                    + " de piloto, nao restaurados) -> " + entries.size() + " navios");
+        }
+        return valid;
+    }
+
+    // true se era um evento de piloto (só contado: a sessão de pilotagem não sobrevive ao reinício)
+    private static boolean apply(ByteBuffer in, Map<UUID, ShipRegistryFile.Entry> entries) {
+        byte type = in.get();
+        UUID id = new UUID(in.getLong(), in.getLong());
+        ShipRegistryFile.Entry e = entries.get(id);
+
+        switch (type) {
+            case CREATED: {
+                String world = readString(in);
+                Vector3i helm = readVector(in);
+                int helmOri = in.get();
+                ShipBounds bounds = readBounds(in);
+                entries.put(id, new ShipRegistryFile.Entry(id, world, helm, helmOri, helm, helmOri, false, bounds,
+                        readBody(in, bounds)));
+                return false;
+            }
+            case REBUILT: {
+                ShipBounds bounds = readBounds(in);
+                ShipStructure structure = readBody(in, bounds);
+                if (e != null) {
+                    entries.put(id, new ShipRegistryFile.Entry(id, e.worldName, e.helmBlock, e.helmOri,
+                            e.dockedHelm, e.dockedOri, e.pendingPlacement, bounds, structure));
+                }
+                return false;
+            }
+            case ACTIVATED: {
+                // blocos saíram do mundo na pose docada: voltam lá se não houver DOCKED depois
+                if (e != null) entries.put(id, withPose(e, e.dockedHelm, e.dockedOri, true));
+                return false;
+            }
+            case DOCKED: {
+                Vector3i docked = readVector(in);
+                int ori = in.get();
+                if (e != null) entries.put(id, withPose(e, docked, ori, false));
+                return false;
+            }
+            case EDITED: {
+                List<ShipBlock> removed = readBlocks(in);
+                List<ShipBlock> added = readBlocks(in);
+                List<ShipBlock> replaced = readBlocks(in);
+                if (e != null) {
+                    e.structure.applyEdit(removed, added, replaced);
+                    entries.put(id, new ShipRegistryFile.Entry(id, e.worldName, e.helmBlock, e.helmOri,
+                            e.dockedHelm, e.dockedOri, e.pendingPlacement, e.structure.bounds(), e.structure));
+                }
+                return false;
+            }
+            case PILOT:
+                return true;
+            case REMOVED:
+                entries.remove(id);
+                return false;
+            default:
+                ShipLogger.warn("[SHIPS] Journal: evento desconhecido " + type + " ignorado");
+                return false;
+        }
+    }
+
+    private static ShipRegistryFile.Entry withPose(ShipRegistryFile.Entry e, Vector3i docked, int ori, boolean pending) {
+        return new ShipRegistryFile.Entry(e.shipId, e.worldName, e.helmBlock, e.helmOri, docked, ori, pending,
+                e.bounds, e.structure);
+    }
+
+    private static void writeBody(DataOutputStream out, ShipStructure structure) throws IOException {
+        ShipBounds b = structure.bounds();
+        if (b == null) b = new ShipBounds(0, 0, 0, 0, 0, 0);
+        out.writeInt(b.minDx);
+        out.writeInt(b.maxDx);
+        out.writeInt(b.minDy);
+        out.writeInt(b.maxDy);
+        out.writeInt(b.minDz);
+        out.writeInt(b.maxDz);
+        out.writeInt(structure.size());
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        structure.writePacked(new DataOutputStream(body));
+        out.writeInt(body.size());
+        body.writeTo(out);
+    }
+
+    private static ShipBounds readBounds(ByteBuffer in) {
+        return new ShipBounds(in.getInt(), in.getInt(), in.getInt(), in.getInt(), in.getInt(), in.getInt());
+    }
+
+    private static ShipStructure readBody(ByteBuffer in, ShipBounds bounds) {
+        int blocks = in.getInt();
+        int bodyLen = in.getInt();
+        return ShipStructure.fromPackedBody(blocks, bounds, in.slice(in.position(), bodyLen));
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] utf = (s != null ? s : "").getBytes(StandardCharsets.UTF_8);
+        out.writeShort(utf.length);
+        out.write(utf);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] utf = new byte[in.getShort() & 0xFFFF];
+        in.get(utf);
+        return new String(utf, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVector(DataOutputStream out, Vector3i v) throws IOException {
+        out.writeInt(v.x);
+        out.writeInt(v.y);
+        out.writeInt(v.z);
+    }
+
+    private static Vector3i readVector(ByteBuffer in) {
+        return new Vector3i(in.getInt(), in.getInt(), in.getInt());
+    }
+
+    private static void writeBlocks(DataOutputStream out, List<ShipBlock> blocks) throws IOException {
+        out.writeInt(blocks.size());
+        for (ShipBlock b : blocks) {
+            out.writeInt(b.dx);
+            out.writeInt(b.dy);
+            out.writeInt(b.dz);
+            out.writeInt(b.blockId);
+            out.writeByte(b.rotationIndex);
+            writeString(out, b.type != null ? b.type.getId() : "");
+        }
+    }
+
+    // id resolvido de novo pela chave do tipo (o índice do asset pode mudar entre reinícios)
+    private static List<ShipBlock> readBlocks(ByteBuffer in) {
+        int n = in.getInt();
+        List<ShipBlock> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int dx = in.getInt();
+            int dy = in.getInt();
+            int dz = in.getInt();
+            int id = in.getInt();
+            int rot = in.get();
+            String key = readString(in);
+            if (!key.isEmpty()) {
+                int current = BlockType.getAssetMap().getIndex(key);
+                if (current >= 0) id = current;
+            }
+            out.add(new ShipBlock(dx, dy, dz, id, BlockType.getAssetMap().getAsset(id), rot));
+        }
+        return out;
+    }
+}
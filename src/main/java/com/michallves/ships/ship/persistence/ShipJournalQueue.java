@@ -0,0 +1,83 @@
+package com.michallves.ships.ship.persistence;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Fila lock-free de um produtor (a thread dona) e um consumidor (o writer do journal):
+ * ring de potência de 2 com head/tail publicados por lazySet, sem CAS nem lock.
+ *
+ * Ring cheio: o produtor não espera, o registro vai para a fila de transbordo e os próximos
+ * também, até o writer esvaziá-la (o writer lê o ring antes do transbordo, então a ordem
+ * do produtor é mantida).
+ */
+final class ShipJournalQueue {
+
+    private final byte[][] ring;
+    private final int mask;
+
+    // próximo a consumir (só o writer escreve)
+    private final AtomicLong head = new AtomicLong();
+    // próximo a produzir (só o dono escreve)
+    private final AtomicLong tail = new AtomicLong();
+    private final ConcurrentLinkedQueue<byte[]> overflow = new ConcurrentLinkedQueue<>();
+
+    // cópia do head vista pelo produtor (evita ler o AtomicLong do writer a cada offer)
+    private long cachedHead;
+    private long overflowed;
+
+    ShipJournalQueue(int capacity) {
+        int cap = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.ring = new byte[cap][];
+        this.mask = cap - 1;
+    }
+
+    /**
+     * Só a thread dona chama. Nunca bloqueia.
+     */
+    void offer(byte[] record) {
+        if (overflow.isEmpty()) {
+            long t = tail.get();
+            if (t - cachedHead >= ring.length) cachedHead = head.get();
+            if (t - cachedHead < ring.length) {
+                ring[(int) t & mask] = record;
+                tail.lazySet(t + 1);
+                return;
+            }
+        }
+        overflowed++;
+        overflow.add(record);
+    }
+
+    /**
+     * Só o writer chama.
+     *
+     * @return registros entregues a sink
+     */
+    int drain(Consumer<byte[]> sink) {
+        long h = head.get();
+        long t = tail.get();
+        int n = 0;
+        for (; h < t; h++, n++) {
+            int idx = (int) h & mask;
+            sink.accept(ring[idx]);
+            ring[idx] = null;
+        }
+        head.lazySet(h);
+
+        byte[] rec;
+        while ((rec = overflow.poll()) != null) {
+            sink.accept(rec);
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Registros que não couberam no ring (leitura aproximada de outra thread).
+     */
+    long getOverflowed() {
+        return overflowed;
+    }
+}
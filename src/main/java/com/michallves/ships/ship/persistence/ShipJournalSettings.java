@@ -0,0 +1,60 @@
+package com.michallves.ships.ship.persistence;
+
+/**
+ * Quando o journal de navios vai para o disco e quando é dobrado num snapshot (ships.bin).
+ * Pode ser ajustado em runtime.
+ *
+ * <pre>
+ * flushIntervalMillis   : de quanto em quanto tempo o writer grava e dá flush (perda máxima num kill -9)
+ * compactBytes          : journal maior que isso é dobrado no snapshot
+ * compactIntervalMillis : journal não vazio mais velho que isso também é dobrado
+ * queueCapacity         : registros no ring de cada thread antes do transbordo
+ * </pre>
+ */
+public final class ShipJournalSettings {
+
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000L;
+    public static final long DEFAULT_COMPACT_BYTES = 4L * 1024L * 1024L;
+    public static final long DEFAULT_COMPACT_INTERVAL_MILLIS = 10L * 60L * 1000L;
+    public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+
+    private volatile long flushIntervalMillis = DEFAULT_FLUSH_INTERVAL_MILLIS;
+    private volatile long compactBytes = DEFAULT_COMPACT_BYTES;
+    private volatile long compactIntervalMillis = DEFAULT_COMPACT_INTERVAL_MILLIS;
+    private volatile int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public void setFlushIntervalMillis(long flushIntervalMillis) {
+        this.flushIntervalMillis = Math.max(10L, flushIntervalMillis);
+    }
+
+    public long getCompactBytes() {
+        return compactBytes;
+    }
+
+    public void setCompactBytes(long compactBytes) {
+        this.compactBytes = Math.max(4096L, compactBytes);
+    }
+
+    public long getCompactIntervalMillis() {
+        return compactIntervalMillis;
+    }
+
+    public void setCompactIntervalMillis(long compactIntervalMillis) {
+        this.compactIntervalMillis = Math.max(1000L, compactIntervalMillis);
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Vale para filas criadas depois (threads que ainda não gravaram).
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = Math.max(16, queueCapacity);
+    }
+}
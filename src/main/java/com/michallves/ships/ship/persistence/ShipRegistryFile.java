@@ -0,0 +1,334 @@
+package com.michallves.ships.ship.persistence;
+
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.michallves.ships.ship.assembly.ShipBounds;
+import com.michallves.ships.ship.assembly.ShipStructure;
+import com.michallves.ships.utils.ShipLogger;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Registro de navios em disco (ships.bin): ids, helm de montagem, pose docada, limites e
+ * estrutura compacta de cada navio.
+ *
+ * Formato binário (big-endian):
+ * <pre>
+ * int magic 'SHRG' | short version | long generation
+ * int worlds | (short len, utf8 nome) * worlds
+ * int ships  | header * ships (tamanho fixo, HEADER_BYTES)
+ * corpos     | ShipPackedBlocks * ships (ver ShipStructure.writePacked)
+ *
+ * header: long uuidMsb, uuidLsb | int world
+ *         int helmX, helmY, helmZ | byte helmOri
+ *         int dockedX, dockedY, dockedZ | byte dockedOri | byte flags
+ *         int minDx, maxDx, minDy, maxDy, minDz, maxDz
+ *         int blocks | long bodyOffset (a partir do início dos corpos) | int bodyLength
+ * </pre>
+ *
+ * A leitura mapeia o arquivo (FileChannel.map) e só percorre os headers: cada corpo vira
+ * uma fatia do mapeamento, decodificada quando o navio for usado.
+ *
+ * Cada geração vai para um arquivo próprio (ships.bin -> ships.&lt;geração&gt;.bin): a escrita
+ * vai para um .tmp e vira o arquivo novo por rename, sem nunca substituir um arquivo que
+ * pode estar mapeado (no Windows não dá para trocar um arquivo com mapeamento aberto, e as
+ * fatias dos corpos seguram o mapeamento enquanto o navio não carrega). A leitura pega a
+ * maior geração; as anteriores são apagadas quando der (mapeadas, ficam para a próxima).
+ *
+ * A geração casa o snapshot com o journal (ShipJournal): só o journal da mesma geração
+ * ainda não foi aplicado a este arquivo.
+ */
+public final class ShipRegistryFile {
+
+    private static final int MAGIC = 0x53485247; // "SHRG"
+    private static final short VERSION = 2;
+
+    static final int HEADER_BYTES = 8 + 8 + 4 + 12 + 1 + 12 + 1 + 1 + 24 + 4 + 8 + 4;
+
+    private static final int FLAG_PENDING_PLACEMENT = 1;
+
+    /**
+     * Um navio do registro.
+     */
+    public static final class Entry {
+        public final UUID shipId;
+        public final String worldName;
+        public final Vector3i helmBlock;
+        public final int helmOri;
+        public final Vector3i dockedHelm;
+        public final int dockedOri;
+        public final boolean pendingPlacement;
+        // null = estrutura vazia
+        public final ShipBounds bounds;
+        public final ShipStructure structure;
+
+        public Entry(UUID shipId, String worldName, Vector3i helmBlock, int helmOri,
+                     Vector3i dockedHelm, int dockedOri, boolean pendingPlacement,
+                     ShipBounds bounds, ShipStructure structure) {
+            this.shipId = shipId;
+            this.worldName = worldName;
+            this.helmBlock = new Vector3i(helmBlock);
+            this.helmOri = helmOri & 3;
+            this.dockedHelm = new Vector3i(dockedHelm);
+            this.dockedOri = dockedOri & 3;
+            this.pendingPlacement = pendingPlacement;
+            this.bounds = bounds;
+            this.structure = structure;
+        }
+    }
+
+    /**
+     * Conteúdo de um snapshot do registro.
+     */
+    public static final class Snapshot {
+        public final long generation;
+        public final List<Entry> entries;
+
+        Snapshot(long generation, List<Entry> entries) {
+            this.generation = generation;
+            this.entries = entries;
+        }
+    }
+
+    private ShipRegistryFile() {
+    }
+
+    /**
+     * Grava a geração em ships.&lt;geração&gt;.bin (file é o nome base, ex.: ships.bin) e tenta
+     * apagar as gerações anteriores.
+     */
+    public static void write(Path file, long generation, List<Entry> entries) throws IOException {
+        Path parent = file.getParent();
+        if (parent != null) Files.createDirectories(parent);
+
+        List<String> worlds = new ArrayList<>();
+        int[] worldIndex = new int[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            String w = entries.get(i).worldName;
+            int idx = worlds.indexOf(w);
+            if (idx < 0) {
+                idx = worlds.size();
+                worlds.add(w);
+            }
+            worldIndex[i] = idx;
+        }
+
+        // corpos primeiro (em memória): os headers precisam dos offsets
+        ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream(1 << 16);
+        DataOutputStream bodies = new DataOutputStream(bodyBytes);
+        long[] offsets = new long[entries.size()];
+        int[] lengths = new int[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            offsets[i] = bodies.size();
+            entries.get(i).structure.writePacked(bodies);
+            lengths[i] = (int) (bodies.size() - offsets[i]);
+        }
+        bodies.flush();
+
+        Path target = generationFile(file, generation);
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(generation);
+
+            out.writeInt(worlds.size());
+            for (String w : worlds) {
+                byte[] utf = w.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(utf.length);
+                out.write(utf);
+            }
+
+            out.writeInt(entries.size());
+            for (int i = 0; i < entries.size(); i++) {
+                Entry e = entries.get(i);
+                out.writeLong(e.shipId.getMostSignificantBits());
+                out.writeLong(e.shipId.getLeastSignificantBits());
+                out.writeInt(worldIndex[i]);
+                out.writeInt(e.helmBlock.x);
+                out.writeInt(e.helmBlock.y);
+                out.writeInt(e.helmBlock.z);
+                out.writeByte(e.helmOri);
+                out.writeInt(e.dockedHelm.x);
+                out.writeInt(e.dockedHelm.y);
+                out.writeInt(e.dockedHelm.z);
+                out.writeByte(e.dockedOri);
+                out.writeByte(e.pendingPlacement ? FLAG_PENDING_PLACEMENT : 0);
+                ShipBounds b = e.bounds != null ? e.bounds : new ShipBounds(0, 0, 0, 0, 0, 0);
+                out.writeInt(b.minDx);
+                out.writeInt(b.maxDx);
+                out.writeInt(b.minDy);
+                out.writeInt(b.maxDy);
+                out.writeInt(b.minDz);
+                out.writeInt(b.maxDz);
+                out.writeInt(e.structure.size());
+                out.writeLong(offsets[i]);
+                out.writeInt(lengths[i]);
+            }
+
+            bodyBytes.writeTo(out);
+        }
+
+        // nome novo: nenhum mapeamento aponta para ele
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        deleteOlder(file, generation);
+    }
+
+    /**
+     * Lê só os headers da maior geração; as estruturas ficam apontando para o arquivo mapeado.
+     * Sem arquivo de geração, lê o ships.bin antigo (antes das gerações por arquivo), se houver.
+     * Nenhum => geração 0, sem navios.
+     */
+    public static Snapshot read(Path file) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        long latest = latestGeneration(file);
+        Path source = latest >= 0 ? generationFile(file, latest) : file;
+        if (!Files.exists(source)) return new Snapshot(0L, entries);
+
+        MappedByteBuffer map;
+        try (FileChannel ch = FileChannel.open(source, StandardOpenOption.READ)) {
+            map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+
+        ByteBuffer in = map.duplicate();
+        if (in.getInt() != MAGIC) {
+            throw new IOException("Arquivo não é um registro de navios: " + source);
+        }
+        short version = in.getShort();
+        if (version != VERSION) {
+            throw new IOException("Versão de registro não suportada: " + version);
+        }
+        long generation = in.getLong();
+
+        String[] worlds = new String[in.getInt()];
+        for (int w = 0; w < worlds.length; w++) {
+            byte[] utf = new byte[in.getShort() & 0xFFFF];
+            in.get(utf);
+            worlds[w] = new String(utf, StandardCharsets.UTF_8);
+        }
+
+        int count = in.getInt();
+        int bodiesStart = in.position() + count * HEADER_BYTES;
+        for (int i = 0; i < count; i++) {
+            UUID id = new UUID(in.getLong(), in.getLong());
+            String world = worlds[in.getInt()];
+            Vector3i helm = new Vector3i(in.getInt(), in.getInt(), in.getInt());
+            int helmOri = in.get();
+            Vector3i docked = new Vector3i(in.getInt(), in.getInt(), in.getInt());
+            int dockedOri = in.get();
+            int flags = in.get();
+            ShipBounds bounds = new ShipBounds(in.getInt(), in.getInt(), in.getInt(), in.getInt(), in.getInt(), in.getInt());
+            int blocks = in.getInt();
+            long offset = in.getLong();
+            int length = in.getInt();
+
+            if (blocks == 0) {
+                ShipLogger.warn("[SHIPS] Registro: navio sem blocos ignorado shipId=" + id);
+                continue;
+            }
+
+            ByteBuffer body = map.slice((int) (bodiesStart + offset), length);
+            ShipStructure structure = ShipStructure.fromPackedBody(blocks, bounds, body);
+            entries.add(new Entry(id, world, helm, helmOri, docked, dockedOri,
+                    (flags & FLAG_PENDING_PLACEMENT) != 0, bounds, structure));
+        }
+        return new Snapshot(generation, entries);
+    }
+
+    /**
+     * Arquivo da geração: ships.bin -> ships.&lt;geração&gt;.bin.
+     */
+    public static Path generationFile(Path file, long generation) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String stem = dot > 0 ? name.substring(0, dot) : name;
+        String ext = dot > 0 ? name.substring(dot) : "";
+        return file.resolveSibling(stem + "." + generation + ext);
+    }
+
+    // geração no nome (ships.<geração>.bin), ou -1 se não é arquivo de geração deste registro
+    private static long generationOf(Path file, Path candidate) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String stem = (dot > 0 ? name.substring(0, dot) : name) + ".";
+        String ext = dot > 0 ? name.substring(dot) : "";
+        String c = candidate.getFileName().toString();
+        if (!c.startsWith(stem) || !c.endsWith(ext) || c.length() <= stem.length() + ext.length()) return -1L;
+        String digits = c.substring(stem.length(), c.length() - ext.length());
+        for (int i = 0; i < digits.length(); i++) {
+            if (!Character.isDigit(digits.charAt(i))) return -1L;
+        }
+        try {
+            return Long.parseLong(digits);
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    private static List<Path> generationFiles(Path file) throws IOException {
+        List<Path> out = new ArrayList<>();
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir == null || !Files.isDirectory(dir)) return out;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path p : stream) {
+                if (generationOf(file, p) >= 0) out.add(p);
+            }
+        }
+        return out;
+    }
+
+    private static long latestGeneration(Path file) throws IOException {
+        long latest = -1L;
+        for (Path p : generationFiles(file)) {
+            latest = Math.max(latest, generationOf(file, p));
+        }
+        return latest;
+    }
+
+    /**
+     * Apaga as gerações anteriores a generation (e o ships.bin antigo). Arquivo que ainda não
+     * dá para apagar (mapeado no Windows) fica para a próxima gravação.
+     *
+     * @return quantos foram apagados
+     */
+    public static int deleteOlder(Path file, long generation) {
+        int deleted = 0;
+        List<Path> old = new ArrayList<>();
+        try {
+            for (Path p : generationFiles(file)) {
+                if (generationOf(file, p) < generation) old.add(p);
+            }
+        } catch (IOException e) {
+            ShipLogger.warn("[SHIPS] Registro: falha ao listar geracoes antigas: " + e.getMessage());
+            return 0;
+        }
+        old.add(file);
+        for (Path p : old) {
+            try {
+                if (Files.deleteIfExists(p)) deleted++;
+            } catch (IOException e) {
+                ShipLogger.debug("[SHIPS] Registro: " + p.getFileName() + " ainda em uso, apagado depois");
+            }
+        }
+        return deleted;
+    }
+}
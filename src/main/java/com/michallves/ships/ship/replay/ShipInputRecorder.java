@@ -0,0 +1,116 @@
+package com.michallves.ships.ship.replay;
+
+import com.hypixel.hytale.math.vector.Vector3d;
+import com.michallves.ships.ship.core.ShipState;
+
+/**
+ * Ring buffer de entradas do piloto por tick (throttle, rudder, dt) + estado do navio
+ * antes de aplicar os controles. Tudo em arrays primitivos: gravar um tick são só stores.
+ */
+public final class ShipInputRecorder {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final int capacity;
+
+    private final float[] dt;
+    private final float[] throttle;
+    private final float[] rudder;
+    private final float[] wheel;
+
+    private final double[] originX;
+    private final double[] originY;
+    private final double[] originZ;
+    private final float[] yawDeg;
+    private final float[] lastYawDeg;
+    private final float[] yawVel;
+    private final double[] velX;
+    private final double[] velZ;
+
+    // próximo slot a ser escrito / quantos frames válidos
+    private int head = 0;
+    private int count = 0;
+    private boolean pending = false;
+
+    public ShipInputRecorder() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ShipInputRecorder(int capacity) {
+        this.capacity = Math.max(16, capacity);
+        this.dt = new float[this.capacity];
+        this.throttle = new float[this.capacity];
+        this.rudder = new float[this.capacity];
+        this.wheel = new float[this.capacity];
+        this.originX = new double[this.capacity];
+        this.originY = new double[this.capacity];
+        this.originZ = new double[this.capacity];
+        this.yawDeg = new float[this.capacity];
+        this.lastYawDeg = new float[this.capacity];
+        this.yawVel = new float[this.capacity];
+        this.velX = new double[this.capacity];
+        this.velZ = new double[this.capacity];
+    }
+
+    /**
+     * Grava o estado pré-controle + entradas no slot atual (sem avançar).
+     * Chamado em applyControls; o frame só vale se {@link #commitFrame()} for chamado no tick.
+     */
+    public void beginFrame(ShipState state, float dt, float throttle, float rudder, float wheel01) {
+        int i = head;
+        Vector3d origin = state.getOrigin();
+
+        this.dt[i] = dt;
+        this.throttle[i] = throttle;
+        this.rudder[i] = rudder;
+        this.wheel[i] = wheel01;
+        this.originX[i] = origin.getX();
+        this.originY[i] = origin.getY();
+        this.originZ[i] = origin.getZ();
+        this.yawDeg[i] = state.getYawDeg();
+        this.lastYawDeg[i] = state.getLastYawDeg();
+        this.yawVel[i] = state.getYawVel();
+        this.velX[i] = state.getVelX();
+        this.velZ[i] = state.getVelZ();
+        pending = true;
+    }
+
+    /**
+     * Confirma o frame pendente (o tick de física rodou de fato).
+     */
+    public void commitFrame() {
+        if (!pending) return;
+        pending = false;
+        head = (head + 1 == capacity) ? 0 : head + 1;
+        if (count < capacity) count++;
+    }
+
+    public void clear() {
+        head = 0;
+        count = 0;
+        pending = false;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Copia os frames (do mais antigo ao mais recente) para uma gravação.
+     */
+    public ShipRecording.Frames snapshotFrames() {
+        ShipRecording.Frames out = new ShipRecording.Frames(count);
+        int start = (head - count + capacity) % capacity;
+        for (int n = 0; n < count; n++) {
+            int i = (start + n) % capacity;
+            out.set(n, dt[i], throttle[i], rudder[i], wheel[i],
+                    originX[i], originY[i], originZ[i],
+                    yawDeg[i], lastYawDeg[i], yawVel[i], velX[i], velZ[i]);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,306 @@
+package com.michallves.ships.ship.replay;
+
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.michallves.ships.ship.assembly.ShipBlock;
+import com.michallves.ships.ship.assembly.ShipBlockStore;
+import com.michallves.ships.ship.assembly.ShipStructure;
+import com.michallves.ships.ship.collision.ShipBlockProbe;
+import com.michallves.ships.ship.collision.WorldBlockProbe;
+import com.michallves.ships.ship.core.ShipGeometry;
+import com.michallves.ships.ship.core.ShipPose;
+import com.michallves.ships.utils.ShipBlockKeys;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Gravação de uma sessão de pilotagem: estrutura, pose do helm, frames de entrada
+ * e um snapshot das células bloqueantes do mundo em volta do navio quando foi salva.
+ *
+ * Os frames vêm do anel em memória do ShipInputRecorder (últimos N ticks); o arquivo só
+ * é escrito no dump (ex.: docking falhou), não a cada tick.
+ *
+ * Formato binário (big-endian):
+ * <pre>
+ * int magic 'SHRC' | short version
+ * int helmX, helmY, helmZ | byte helmOri
+ * int blocks | (short dx, short dy, short dz, int blockId, byte rot) * blocks
+ * int frames | (float dt, throttle, rudder, wheel, double ox, oy, oz,
+ *               float yaw, lastYaw, yawVel, double velX, velZ) * frames
+ * int minX, minY, minZ, maxX, maxY, maxZ | int cells | long packedCell * cells
+ * </pre>
+ */
+public final class ShipRecording {
+
+    private static final int MAGIC = 0x53485243; // "SHRC"
+    private static final short VERSION = 1;
+
+    // snapshot de mundo: casca em volta das células do navio na pose do dump
+    private static final int SNAPSHOT_SHELL = 1;
+
+    public final Vector3i helmBlock;
+    public final int helmOri;
+    public final ShipBlock[] blocks;
+    public final Frames frames;
+
+    public final int minX, minY, minZ;
+    public final int maxX, maxY, maxZ;
+    private final LongOpenHashSet blockedCells;
+
+    public ShipRecording(Vector3i helmBlock, int helmOri, ShipBlock[] blocks, Frames frames,
+                         int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+                         LongOpenHashSet blockedCells) {
+        this.helmBlock = new Vector3i(helmBlock);
+        this.helmOri = helmOri & 3;
+        this.blocks = blocks;
+        this.frames = frames;
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+        this.blockedCells = blockedCells;
+    }
+
+    public ShipStructure toStructure() {
+        return new ShipStructure(blocks);
+    }
+
+    public int blockedCellCount() {
+        return blockedCells.size();
+    }
+
+    /**
+     * Mundo do replay: só as células capturadas bloqueiam; fora do snapshot é água livre.
+     */
+    public ShipBlockProbe toProbe() {
+        return (x, y, z) -> blockedCells.contains(ShipBlockKeys.packWorld(x, y, z));
+    }
+
+    /**
+     * Captura a gravação atual. Precisa rodar na thread do mundo (lê blocos).
+     *
+     * O snapshot do mundo é só a vizinhança do navio na pose atual (onde travou): as células
+     * dos blocos e uma casca de SNAPSHOT_SHELL em volta. Custo pelo tamanho do navio, não do
+     * trajeto; o resto do trajeto fica como água livre no replay (o navio passou por lá).
+     */
+    public static ShipRecording capture(World world,
+                                        ShipStructure structure,
+                                        Vector3i helmBlock,
+                                        int helmOri,
+                                        ShipInputRecorder recorder,
+                                        ShipGeometry geometry) {
+        Frames frames = recorder.snapshotFrames();
+
+        ShipPose pose = geometry.pose();
+        double[] local = geometry.getLocalOffsets();
+        int n = structure.getStore().size();
+
+        // célula do centro de cada bloco na pose atual (yaw livre: a casca cobre a sobra)
+        LongOpenHashSet shipCells = new LongOpenHashSet(Math.max(16, n));
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        int[] cells = new int[n * 3];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            double lx = local[i * 3] + 0.5;
+            double lz = local[i * 3 + 2] + 0.5;
+            int x = (int) Math.floor(pose.worldX(lx, lz));
+            int y = (int) Math.floor(pose.originY + local[i * 3 + 1] + 0.5);
+            int z = (int) Math.floor(pose.worldZ(lx, lz));
+            if (!shipCells.add(ShipBlockKeys.packWorld(x, y, z))) continue;
+            cells[count * 3] = x;
+            cells[count * 3 + 1] = y;
+            cells[count * 3 + 2] = z;
+            count++;
+            minX = Math.min(minX, x - SNAPSHOT_SHELL);
+            minY = Math.min(minY, y - SNAPSHOT_SHELL);
+            minZ = Math.min(minZ, z - SNAPSHOT_SHELL);
+            maxX = Math.max(maxX, x + SNAPSHOT_SHELL);
+            maxY = Math.max(maxY, y + SNAPSHOT_SHELL);
+            maxZ = Math.max(maxZ, z + SNAPSHOT_SHELL);
+        }
+        if (count == 0) {
+            minX = minY = minZ = 0;
+            maxX = maxY = maxZ = -1;
+        }
+
+        WorldBlockProbe probe = new WorldBlockProbe().bind(world);
+        LongOpenHashSet visited = new LongOpenHashSet(Math.max(16, count * 4));
+        LongOpenHashSet blocked = new LongOpenHashSet();
+        for (int c = 0; c < count; c++) {
+            int cx = cells[c * 3], cy = cells[c * 3 + 1], cz = cells[c * 3 + 2];
+            for (int x = cx - SNAPSHOT_SHELL; x <= cx + SNAPSHOT_SHELL; x++) {
+                for (int z = cz - SNAPSHOT_SHELL; z <= cz + SNAPSHOT_SHELL; z++) {
+                    for (int y = cy - SNAPSHOT_SHELL; y <= cy + SNAPSHOT_SHELL; y++) {
+                        long key = ShipBlockKeys.packWorld(x, y, z);
+                        if (!visited.add(key)) continue;
+                        if (probe.isBlocking(x, y, z)) blocked.add(key);
+                    }
+                }
+            }
+        }
+
+        return new ShipRecording(helmBlock, helmOri, structure.toBlocks(), frames,
+                minX, minY, minZ, maxX, maxY, maxZ, blocked);
+    }
+
+    public void write(Path file) throws IOException {
+        Path parent = file.getParent();
+        if (parent != null) Files.createDirectories(parent);
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+
+            out.writeInt(helmBlock.x);
+            out.writeInt(helmBlock.y);
+            out.writeInt(helmBlock.z);
+            out.writeByte(helmOri);
+
+            out.writeInt(blocks.length);
+            for (ShipBlock b : blocks) {
+                out.writeShort(b.dx);
+                out.writeShort(b.dy);
+                out.writeShort(b.dz);
+                out.writeInt(b.blockId);
+                out.writeByte(b.rotationIndex);
+            }
+
+            out.writeInt(frames.size);
+            for (int i = 0; i < frames.size; i++) {
+                out.writeFloat(frames.dt[i]);
+                out.writeFloat(frames.throttle[i]);
+                out.writeFloat(frames.rudder[i]);
+                out.writeFloat(frames.wheel[i]);
+                out.writeDouble(frames.originX[i]);
+                out.writeDouble(frames.originY[i]);
+                out.writeDouble(frames.originZ[i]);
+                out.writeFloat(frames.yawDeg[i]);
+                out.writeFloat(frames.lastYawDeg[i]);
+                out.writeFloat(frames.yawVel[i]);
+                out.writeDouble(frames.velX[i]);
+                out.writeDouble(frames.velZ[i]);
+            }
+
+            out.writeInt(minX);
+            out.writeInt(minY);
+            out.writeInt(minZ);
+            out.writeInt(maxX);
+            out.writeInt(maxY);
+            out.writeInt(maxZ);
+            out.writeInt(blockedCells.size());
+            var it = blockedCells.iterator();
+            while (it.hasNext()) {
+                out.writeLong(it.nextLong());
+            }
+        }
+    }
+
+    public static ShipRecording read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Arquivo não é uma gravação de navio: " + file);
+            }
+            short version = in.readShort();
+            if (version != VERSION) {
+                throw new IOException("Versão de gravação não suportada: " + version);
+            }
+
+            Vector3i helm = new Vector3i(in.readInt(), in.readInt(), in.readInt());
+            int helmOri = in.readByte();
+
+            int blockCount = in.readInt();
+            ShipBlock[] blocks = new ShipBlock[blockCount];
+            for (int i = 0; i < blockCount; i++) {
+                int dx = in.readShort();
+                int dy = in.readShort();
+                int dz = in.readShort();
+                int id = in.readInt();
+                int rot = in.readByte();
+                // tipo não é necessário para física/colisão (replay headless)
+                blocks[i] = new ShipBlock(dx, dy, dz, id, null, rot);
+            }
+
+            int frameCount = in.readInt();
+            Frames frames = new Frames(frameCount);
+            for (int i = 0; i < frameCount; i++) {
+                frames.set(i,
+                        in.readFloat(), in.readFloat(), in.readFloat(), in.readFloat(),
+                        in.readDouble(), in.readDouble(), in.readDouble(),
+                        in.readFloat(), in.readFloat(), in.readFloat(),
+                        in.readDouble(), in.readDouble());
+            }
+
+            int minX = in.readInt(), minY = in.readInt(), minZ = in.readInt();
+            int maxX = in.readInt(), maxY = in.readInt(), maxZ = in.readInt();
+            int cells = in.readInt();
+            LongOpenHashSet blocked = new LongOpenHashSet(Math.max(16, cells));
+            for (int i = 0; i < cells; i++) {
+                blocked.add(in.readLong());
+            }
+
+            return new ShipRecording(helm, helmOri, blocks, frames,
+                    minX, minY, minZ, maxX, maxY, maxZ, blocked);
+        }
+    }
+
+    public static final class Frames {
+        public final int size;
+
+        public final float[] dt;
+        public final float[] throttle;
+        public final float[] rudder;
+        public final float[] wheel;
+        public final double[] originX;
+        public final double[] originY;
+        public final double[] originZ;
+        public final float[] yawDeg;
+        public final float[] lastYawDeg;
+        public final float[] yawVel;
+        public final double[] velX;
+        public final double[] velZ;
+
+        public Frames(int size) {
+            this.size = size;
+            this.dt = new float[size];
+            this.throttle = new float[size];
+            this.rudder = new float[size];
+            this.wheel = new float[size];
+            this.originX = new double[size];
+            this.originY = new double[size];
+            this.originZ = new double[size];
+            this.yawDeg = new float[size];
+            this.lastYawDeg = new float[size];
+            this.yawVel = new float[size];
+            this.velX = new double[size];
+            this.velZ = new double[size];
+        }
+
+        public void set(int i, float dt, float throttle, float rudder, float wheel,
+                        double ox, double oy, double oz,
+                        float yawDeg, float lastYawDeg, float yawVel,
+                        double velX, double velZ) {
+            this.dt[i] = dt;
+            this.throttle[i] = throttle;
+            this.rudder[i] = rudder;
+            this.wheel[i] = wheel;
+            this.originX[i] = ox;
+            this.originY[i] = oy;
+            this.originZ[i] = oz;
+            this.yawDeg[i] = yawDeg;
+            this.lastYawDeg[i] = lastYawDeg;
+            this.yawVel[i] = yawVel;
+            this.velX[i] = velX;
+            this.velZ[i] = velZ;
+        }
+    }
+}
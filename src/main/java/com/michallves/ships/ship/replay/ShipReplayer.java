@@ -0,0 +1,221 @@
+package com.michallves.ships.ship.replay;
+
+import com.hypixel.hytale.math.vector.Vector3d;
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.michallves.ships.ship.assembly.ShipBlock;
+import com.michallves.ships.ship.assembly.ShipStructure;
+import com.michallves.ships.ship.collision.ShipBlockProbe;
+import com.michallves.ships.ship.collision.ShipCollision;
+import com.michallves.ships.ship.core.ShipGeometry;
+import com.michallves.ships.ship.core.ShipState;
+import com.michallves.ships.ship.simulation.ShipPhysics;
+import com.michallves.ships.utils.ShipLogger;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+import java.nio.file.Path;
+
+/**
+ * Replay headless de uma gravação: roda ShipPhysics + ShipCollision contra o
+ * mundo gravado (ou sintético), sem servidor. Também serve de driver de benchmark
+ * para regressões de física.
+ *
+ * <pre>
+ * ShipReplayer &lt;arquivo.shrec&gt; [repeticoes]
+ * ShipReplayer --synthetic &lt;blocos&gt; &lt;ticks&gt; [repeticoes]
+ * </pre>
+ */
+public final class ShipReplayer {
+
+    // divergência de pose considerada não-determinística
+    private static final double DIVERGENCE_EPS = 1.0e-6;
+
+    private ShipReplayer() {}
+
+    public static Result replay(ShipRecording rec) {
+        return replay(rec, rec.toProbe(), true);
+    }
+
+    /**
+     * @param verify compara a pose simulada com a pose gravada no início de cada frame
+     */
+    public static Result replay(ShipRecording rec, ShipBlockProbe probe, boolean verify) {
+        ShipRecording.Frames f = rec.frames;
+        ShipStructure structure = rec.toStructure();
+
+        float helmYaw = rec.helmOri * 90.0f;
+        ShipState state = new ShipState(helmYaw);
+        ShipGeometry geometry = new ShipGeometry(structure, state, rec.helmBlock, helmYaw);
+        ShipCollision collision = new ShipCollision(structure, geometry.getCenterOffset());
+        ShipPhysics physics = new ShipPhysics(state);
+
+        if (f.size > 0) {
+            restore(state, f, 0);
+        }
+
+        double maxDivergence = 0.0;
+        int firstDivergentTick = -1;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < f.size; i++) {
+            if (verify && i > 0) {
+                double d = divergence(state, f, i);
+                if (d > maxDivergence) maxDivergence = d;
+                if (d > DIVERGENCE_EPS && firstDivergentTick < 0) firstDivergentTick = i;
+            }
+
+            physics.applyControls(f.dt[i], f.throttle[i], f.rudder[i], f.wheel[i]);
+            physics.tickMovement(probe, geometry, collision, f.dt[i]);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Vector3d origin = state.getOrigin();
+        return new Result(f.size, elapsed, maxDivergence, firstDivergentTick,
+                origin.getX(), origin.getY(), origin.getZ(), state.getYawDeg());
+    }
+
+    /**
+     * Casco sólido sintético (9 de largura, 4 de calado) com ~hullBlocks blocos e
+     * entradas de "acelera e vira" por ticks ticks.
+     */
+    public static ShipRecording synthetic(int hullBlocks, int ticks) {
+        int width = 9;
+        int depth = 4;
+        int length = Math.max(1, (hullBlocks + width * depth - 1) / (width * depth));
+
+        ShipBlock[] blocks = new ShipBlock[width * depth * length + 1];
+        int n = 0;
+        blocks[n++] = new ShipBlock(0, 0, 0, 1, null, 0); // helm
+        for (int dz = -length / 2; dz < length - length / 2; dz++) {
+            for (int dy = -depth; dy < 0; dy++) {
+                for (int dx = -width / 2; dx <= width / 2; dx++) {
+                    blocks[n++] = new ShipBlock(dx, dy, dz, 1, null, 0);
+                }
+            }
+        }
+
+        Vector3i helm = new Vector3i(0, 64, 0);
+
+        // pose inicial = a que o ShipController montaria a partir do helm
+        ShipState initial = new ShipState(0.0f);
+        new ShipGeometry(new ShipStructure(blocks), initial, helm, 0.0f);
+        Vector3d o = initial.getOrigin();
+
+        ShipRecording.Frames frames = new ShipRecording.Frames(ticks);
+        for (int i = 0; i < ticks; i++) {
+            float throttle = i < ticks / 2 ? 1.0f : -0.5f;
+            float rudder = (float) Math.sin(i * 0.02);
+            frames.set(i, 1.0f / 30.0f, throttle, rudder, 0.0f,
+                    o.getX(), o.getY(), o.getZ(), 0.0f, 0.0f, 0.0f, 0.0, 0.0);
+        }
+
+        return new ShipRecording(helm, 0, blocks, frames,
+                0, 0, 0, 0, 0, 0, new LongOpenHashSet());
+    }
+
+    /**
+     * Mundo sintético: fundo do mar sólido abaixo de seabedY e um cais em z >= wallZ.
+     */
+    public static ShipBlockProbe syntheticWorld(int seabedY, int wallZ) {
+        return (x, y, z) -> y <= seabedY || (z >= wallZ && Math.abs(x) < 32);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            ShipLogger.info("Uso: ShipReplayer <arquivo.shrec> [repeticoes] | --synthetic <blocos> <ticks> [repeticoes]");
+            return;
+        }
+
+        ShipRecording rec;
+        ShipBlockProbe probe;
+        boolean verify;
+        int reps;
+
+        if ("--synthetic".equals(args[0])) {
+            int blocks = args.length > 1 ? Integer.parseInt(args[1]) : 6000;
+            int ticks = args.length > 2 ? Integer.parseInt(args[2]) : 1200;
+            reps = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+            rec = synthetic(blocks, ticks);
+            probe = syntheticWorld(64 - 8, 200);
+            verify = false;
+        } else {
+            rec = ShipRecording.read(Path.of(args[0]));
+            reps = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+            probe = rec.toProbe();
+            verify = true;
+        }
+
+        ShipLogger.info("[REPLAY] blocos=" + rec.blocks.length + " frames=" + rec.frames.size
+                + " celulasMundo=" + rec.blockedCellCount());
+
+        Result first = replay(rec, probe, verify);
+        ShipLogger.info("[REPLAY] " + first);
+
+        // aquecimento + medição (mesmo input => mesmo resultado, senão não é determinístico)
+        long best = Long.MAX_VALUE;
+        long total = 0L;
+        for (int r = 0; r < reps; r++) {
+            Result res = replay(rec, probe, false);
+            if (verify && (res.finalX != first.finalX || res.finalZ != first.finalZ || res.finalYaw != first.finalYaw)) {
+                ShipLogger.warn("[REPLAY] Resultado diferente entre repeticoes (nao deterministico)!");
+            }
+            best = Math.min(best, res.elapsedNanos);
+            total += res.elapsedNanos;
+        }
+
+        if (reps > 0 && rec.frames.size > 0) {
+            ShipLogger.info(String.format("[REPLAY] %d reps: media=%.1f ns/tick melhor=%.1f ns/tick",
+                    reps,
+                    total / (double) reps / rec.frames.size,
+                    best / (double) rec.frames.size));
+        }
+    }
+
+    private static void restore(ShipState state, ShipRecording.Frames f, int i) {
+        state.getOrigin().assign(f.originX[i], f.originY[i], f.originZ[i]);
+        state.setYawDeg(f.yawDeg[i]);
+        state.setLastYawDeg(f.lastYawDeg[i]);
+        state.setYawVel(f.yawVel[i]);
+        state.setVelX(f.velX[i]);
+        state.setVelZ(f.velZ[i]);
+    }
+
+    private static double divergence(ShipState state, ShipRecording.Frames f, int i) {
+        Vector3d o = state.getOrigin();
+        double dx = o.getX() - f.originX[i];
+        double dz = o.getZ() - f.originZ[i];
+        double dyaw = Math.abs(state.getYawDeg() - f.yawDeg[i]);
+        return Math.max(Math.sqrt(dx * dx + dz * dz), dyaw);
+    }
+
+    public static final class Result {
+        public final int ticks;
+        public final long elapsedNanos;
+        public final double maxDivergence;
+        public final int firstDivergentTick;
+        public final double finalX;
+        public final double finalY;
+        public final double finalZ;
+        public final float finalYaw;
+
+        private Result(int ticks, long elapsedNanos, double maxDivergence, int firstDivergentTick,
+                       double finalX, double finalY, double finalZ, float finalYaw) {
+            this.ticks = ticks;
+            this.elapsedNanos = elapsedNanos;
+            this.maxDivergence = maxDivergence;
+            this.firstDivergentTick = firstDivergentTick;
+            this.finalX = finalX;
+            this.finalY = finalY;
+            this.finalZ = finalZ;
+            this.finalYaw = finalYaw;
+        }
+
+        @Override
+        public String toString() {
+            return "ticks=" + ticks
+                    + " tempo=" + (elapsedNanos / 1_000_000.0) + "ms"
+                    + " divergenciaMax=" + maxDivergence
+                    + " primeiroTickDivergente=" + firstDivergentTick
+                    + " final=(" + finalX + "," + finalY + "," + finalZ + ") yaw=" + finalYaw;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.michallves.ships.ship.runtime;
+
+/**
+ * Quando um navio docado parado vira forma compacta (paleta + bits, ver ShipStructure.compact).
+ * Compartilhado por todos os navios do ShipManager; pode ser ajustado em runtime.
+ *
+ * <pre>
+ * idleMillis          : tempo sem helm/edição/tick ativo até compactar
+ * sweepIntervalMillis : de quanto em quanto tempo cada mundo procura navios ociosos
+ * maxShipsPerSweep    : teto de compactações por varredura (cada uma é O(blocos))
+ * </pre>
+ */
+public final class ShipCompactionSettings {
+
+    public static final long DEFAULT_IDLE_MILLIS = 10L * 60L * 1000L;
+    public static final long DEFAULT_SWEEP_INTERVAL_MILLIS = 5000L;
+    public static final int DEFAULT_MAX_SHIPS_PER_SWEEP = 8;
+
+    private volatile boolean enabled = true;
+    private volatile long idleMillis = DEFAULT_IDLE_MILLIS;
+    private volatile long sweepIntervalMillis = DEFAULT_SWEEP_INTERVAL_MILLIS;
+    private volatile int maxShipsPerSweep = DEFAULT_MAX_SHIPS_PER_SWEEP;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getIdleMillis() {
+        return idleMillis;
+    }
+
+    public void setIdleMillis(long idleMillis) {
+        this.idleMillis = Math.max(0L, idleMillis);
+    }
+
+    public long getSweepIntervalMillis() {
+        return sweepIntervalMillis;
+    }
+
+    public void setSweepIntervalMillis(long sweepIntervalMillis) {
+        this.sweepIntervalMillis = Math.max(0L, sweepIntervalMillis);
+    }
+
+    public int getMaxShipsPerSweep() {
+        return maxShipsPerSweep;
+    }
+
+    public void setMaxShipsPerSweep(int maxShipsPerSweep) {
+        this.maxShipsPerSweep = Math.max(1, maxShipsPerSweep);
+    }
+}
@@ -2,7 +2,9 @@ package com.michallves.ships.ship.runtime;
 
 import com.hypixel.hytale.component.AddReason;
 import com.hypixel.hytale.component.CommandBuffer;
+import com.hypixel.hytale.component.ComponentAccessor;
 import com.hypixel.hytale.component.Holder;
+import com.hypixel.hytale.component.NonSerialized;
 import com.hypixel.hytale.component.Ref;
 import com.hypixel.hytale.component.RemoveReason;
 import com.hypixel.hytale.component.Store;
@@ -15,11 +17,16 @@ import com.hypixel.hytale.server.core.modules.entity.component.TransformComponen
 import com.hypixel.hytale.server.core.modules.time.TimeResource;
 import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
-import com.michallves.ships.ship.assembly.ShipBlock;
+import com.michallves.ships.ship.assembly.ShipBlockStore;
+import com.michallves.ships.ship.assembly.ShipChunkStamps;
+import com.michallves.ships.ship.assembly.ShipSurface;
 import com.michallves.ships.ship.assembly.ShipStructure;
+import com.michallves.ships.ship.assembly.ShipWritePlan;
 import com.michallves.ships.ship.core.ShipGeometry;
+import com.michallves.ships.ship.core.ShipPose;
 import com.michallves.ships.ship.simulation.ShipPhysics;
 import com.michallves.ships.utils.ShipLogger;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -27,108 +34,671 @@ import java.util.UUID;
 
 public final class ShipEntityLifecycle {
 
+    // Pose abaixo disso é considerada parada (não reenvia transform das partes)
+    private static final double POSE_EPS_POS = 1.0e-4;
+    private static final float POSE_EPS_YAW = 1.0e-3f;
+
+    // Quantos blocos/entidades processar entre checagens de tempo
+    private static final int TRANSITION_BATCH = 64;
+
+    // Altura onde as partes estacionadas ficam (mesmo x/z => mesmo chunk, fora da vista)
+    private static final double PARK_Y = -1024.0;
+
+    private enum Phase { DOCKED, ACTIVATING, ACTIVE, DOCKING }
+
     private final ShipStructure structure;
     private final List<ShipPart> parts = new ArrayList<>();
-    private boolean activeEntity = false;
+
+    // Blocos internos (cercados) que não viraram entidade
+    private int hiddenBlocks;
+    // Revisão da estrutura que as partes refletem (ativação ou último syncEditedStructure)
+    private int partsRevision;
+
+    // Posições de mundo de todos os blocos (x,y,z), reaproveitado a cada tick
+    private double[] worldPositions;
+
+    private Phase phase = Phase.DOCKED;
+    private ShipLodSettings lod = new ShipLodSettings();
+    private ShipEntityPool pool;
+    private ShipChunkStamps chunkStamps;
+    private WriteListener writeListener;
+    private ShipInterestSettings interestSettings = new ShipInterestSettings();
+    private final ShipInterest interest = new ShipInterest();
+
+    // Job de transição (ativação/docking) em andamento
+    private Vector3i jobOrigin;
+    private ShipWritePlan jobPlan;
+    private int jobOri;
+    private int jobStep;
+    private int jobCursor;
+    private long jobDone;
+    private long jobTotal;
+    private int jobTicks;
+    private long jobMaxTickNanos;
+    private long jobBudgetNanos;
+    // Mundo das partes (da ativação até o fim do docking)
+    private World jobWorld;
+
+    // Ativação reaproveitando partes estacionadas (null = spawn normal)
+    private List<ShipPart> reuseParts;
+    private IntArrayList respawnBlocks;
+
+    // Última pose emitida para as partes
+    private boolean hasEmittedPose = false;
+    private double emittedX;
+    private double emittedY;
+    private double emittedZ;
+    private float emittedYaw;
+    private int ticksSinceEmit = 0;
+
+    // Métricas do último tick
+    private int lastPartsUpdated = 0;
+    private int lastPartsSkipped = 0;
+    private ShipLodSettings.Band lastBand = ShipLodSettings.Band.NEAR;
 
     public ShipEntityLifecycle(ShipStructure structure) {
         this.structure = structure;
     }
 
+    public void setLodSettings(ShipLodSettings lod) {
+        if (lod != null) this.lod = lod;
+    }
+
+    public void setInterestSettings(ShipInterestSettings interestSettings) {
+        if (interestSettings != null) this.interestSettings = interestSettings;
+    }
+
+    /**
+     * Transições escrevem direto no chunk (sem evento de bloco): marcam os chunks aqui.
+     */
+    public void setChunkStamps(ShipChunkStamps chunkStamps) {
+        this.chunkStamps = chunkStamps;
+    }
+
+    /**
+     * Escritas das transições no chunk, para quem indexa blocos do mundo (índice de helms).
+     */
+    public interface WriteListener {
+        void written(World world, ShipWritePlan plan, int from, int to);
+    }
+
+    public void setWriteListener(WriteListener writeListener) {
+        this.writeListener = writeListener;
+    }
+
+    /**
+     * Com pool, o docking estaciona as partes em vez de removê-las.
+     */
+    public void setEntityPool(ShipEntityPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Navio em modo entidade e livre para navegar (fora de transição).
+     */
     public boolean isActiveEntity() {
-        return activeEntity;
+        return phase == Phase.ACTIVE;
     }
 
-    public void activate(World world,
-                         Store<EntityStore> store,
-                         CommandBuffer<EntityStore> commandBuffer,
-                         ShipGeometry geometry,
-                         float yawDeg,
-                         UUID shipId) {
-        TimeResource time = store.getResource(TimeResource.getResourceType());
+    public boolean isDocked() {
+        return phase == Phase.DOCKED;
+    }
+
+    public boolean isTransitioning() {
+        return phase == Phase.ACTIVATING || phase == Phase.DOCKING;
+    }
 
-        Vector3d helmWorld = geometry.computeHelmWorldPosition(yawDeg);
-        int intOx = (int) Math.floor(helmWorld.getX());
-        int intOy = (int) Math.floor(helmWorld.getY());
-        int intOz = (int) Math.floor(helmWorld.getZ());
-        Vector3i intOrigin = new Vector3i(intOx, intOy, intOz);
+    public boolean isDocking() {
+        return phase == Phase.DOCKING;
+    }
 
-        int baseOri = ShipStructure.nearestOrientationFromYaw(yawDeg);
+    /**
+     * Os blocos do navio estão inteiros no mundo: docado, ativação que ainda não limpou
+     * nada ou docking que já colocou tudo.
+     */
+    public boolean hasBlocksInWorld() {
+        return phase == Phase.DOCKED
+                || (phase == Phase.ACTIVATING && jobStep == 0)
+                || (phase == Phase.DOCKING && jobStep >= 1);
+    }
 
-        structure.clearFromWorld(world, intOrigin, baseOri);
+    /**
+     * @return progresso da transição atual (0..1), 1 quando não há transição
+     */
+    public float getTransitionProgress() {
+        if (!isTransitioning()) return 1.0f;
+        return Math.min(1.0f, jobDone / (float) jobTotal);
+    }
+
+    public int getLastPartsUpdated() {
+        return lastPartsUpdated;
+    }
+
+    public int getLastPartsSkipped() {
+        return lastPartsSkipped;
+    }
+
+    public ShipLodSettings.Band getLastLodBand() {
+        return lastBand;
+    }
+
+    public int getHiddenBlockCount() {
+        return hiddenBlocks;
+    }
+
+    /**
+     * Partes internas estacionadas porque ninguém está perto da seção delas.
+     */
+    public int getCulledPartCount() {
+        return interest.getCulledParts();
+    }
+
+    /**
+     * Inicia a ativação (blocos -> entidades). O trabalho em si roda em fatias por tick
+     * em {@link #tickTransition}; até terminar o navio fica "em transição".
+     */
+    public void beginActivation(ShipGeometry geometry, UUID shipId) {
+        if (phase != Phase.DOCKED) return;
+
+        ShipPose pose = geometry.pose();
+        Vector3d helmWorld = geometry.computeHelmWorldPosition(pose, new Vector3d());
+        jobOrigin = new Vector3i(
+                (int) Math.floor(helmWorld.getX()),
+                (int) Math.floor(helmWorld.getY()),
+                (int) Math.floor(helmWorld.getZ())
+        );
+        jobOri = ShipStructure.nearestOrientationFromYaw(pose.yawDeg);
+        jobPlan = structure.planWrites(jobOrigin, jobOri);
 
         parts.clear();
+        hiddenBlocks = 0;
+        partsRevision = structure.getRevision();
+        interest.reset();
+        rememberPose(pose);
 
-        Vector3f rot = new Vector3f(0.0f, yawDeg, 0.0f);
+        // 1) spawna (ou reaproveita) as entidades (navio nunca some da tela)  2) limpa os blocos do mundo
+        long spawnOps = reclaimParked(shipId) ? reuseParts.size() + respawnBlocks.size() : structure.size();
+        startJob(Phase.ACTIVATING, spawnOps + jobPlan.size, shipId);
+    }
 
-        for (ShipBlock b : structure.getBlocks()) {
-            Vector3d pos = geometry.computeWorldPosContinuous(b.dx, b.dy, b.dz, yawDeg);
+    /**
+     * Pega de volta as partes estacionadas no último docking, se a estrutura não mudou.
+     * Refs que o servidor invalidou nesse meio tempo são respawnadas.
+     */
+    private boolean reclaimParked(UUID shipId) {
+        reuseParts = null;
+        respawnBlocks = null;
+        if (pool == null) return false;
 
-            Holder<EntityStore> holder = BlockEntity.assembleDefaultBlockEntity(time, b.type.getId(), pos);
-            holder.removeComponent(DespawnComponent.getComponentType());
-            Ref<EntityStore> ref = commandBuffer.addEntity(holder, AddReason.SPAWN);
+        ShipEntityPool.Parked p = pool.reclaim(shipId);
+        if (p == null) return false;
 
-            commandBuffer.putComponent(ref, TransformComponent.getComponentType(), new TransformComponent(pos, rot));
-            parts.add(new ShipPart(b, ref));
+        if (p.revision != structure.getRevision()) {
+            ShipEntityPool.discard(p);
+            return false;
         }
 
-        activeEntity = true;
-        ShipLogger.success("[SHIPS] Ship ativado (modo entidade) shipId=" + shipId + " partes=" + parts.size());
+        reuseParts = new ArrayList<>(p.parts.size());
+        respawnBlocks = new IntArrayList();
+        for (ShipPart part : p.parts) {
+            if (part.ref.isValid()) {
+                reuseParts.add(part);
+            } else {
+                respawnBlocks.add(part.index);
+            }
+        }
+        hiddenBlocks = p.hiddenBlocks;
+        return true;
     }
 
-    public boolean tryDock(World world,
-                           CommandBuffer<EntityStore> commandBuffer,
-                           ShipGeometry geometry,
-                           ShipPhysics physics,
-                           UUID shipId) {
-        int newOri = ShipStructure.nearestOrientationFromYaw(physics.getYawDeg());
+    /**
+     * Inicia o docking (entidades -> blocos). Falha na hora se o lugar estiver ocupado.
+     */
+    public boolean beginDocking(World world,
+                                CommandBuffer<EntityStore> commandBuffer,
+                                ShipGeometry geometry,
+                                ShipPhysics physics,
+                                UUID shipId) {
+        if (phase != Phase.ACTIVE) return false;
+
+        ShipPose pose = geometry.pose();
+        int newOri = ShipStructure.nearestOrientationFromYaw(pose.yawDeg);
 
-        Vector3d helmWorld = geometry.computeHelmWorldPosition(physics.getYawDeg());
+        Vector3d helmWorld = geometry.computeHelmWorldPosition(pose, new Vector3d());
         int ox = (int) Math.round(helmWorld.getX());
         int oy = (int) Math.round(helmWorld.getY());
         int oz = (int) Math.round(helmWorld.getZ());
 
         Vector3i newOrigin = new Vector3i(ox, oy, oz);
+        ShipWritePlan plan = structure.planWrites(newOrigin, newOri);
 
-        if (!structure.canPlace(world, newOrigin, newOri)) {
+        // Checagem é só leitura: roda inteira aqui para o docking não ficar pela metade
+        if (!structure.canPlace(world, plan)) {
             ShipLogger.warn("[SHIPS] Docking bloqueado (colisao). shipId=" + shipId + " origin=" + newOrigin + " ori=" + newOri);
             return false;
         }
 
-        for (ShipPart p : parts) {
-            commandBuffer.removeEntity(p.ref, RemoveReason.REMOVE);
-        }
-        parts.clear();
-
-        structure.placeIntoWorld(world, newOrigin, newOri);
-
+        // Encaixa a pose no grid já agora: entidades e blocos colocados ficam alinhados
         float newYaw = newOri * 90.0f;
         geometry.updateOriginFromHelm(newOrigin, newYaw);
         physics.resetForDocking(newYaw);
+        updateTransforms(commandBuffer, geometry);
 
-        activeEntity = false;
+        jobOrigin = newOrigin;
+        jobPlan = plan;
+        jobWorld = world;
+        jobOri = newOri;
 
-        ShipLogger.success("[SHIPS] Dock concluido (voltou a blocos). shipId=" + shipId + " origin=" + newOrigin + " ori=" + newOri);
+        // 1) coloca os blocos no mundo  2) remove as entidades
+        startJob(Phase.DOCKING, structure.size() + (long) parts.size(), shipId);
         return true;
     }
 
-    public void updateTransforms(CommandBuffer<EntityStore> commandBuffer, ShipGeometry geometry, float yawDeg) {
-        Vector3f rot = new Vector3f(0.0f, yawDeg, 0.0f);
+    /**
+     * Avança a transição atual com o que sobrou do orçamento do tick do mundo (ops e tempo).
+     * Roda uma vez por tick do mundo, fora dos sistemas de entidade: spawn/remoção vão direto
+     * no store.
+     */
+    public void tickTransition(World world,
+                               Store<EntityStore> store,
+                               ShipTransitionTick tick,
+                               ShipGeometry geometry,
+                               UUID shipId) {
+        if (!isTransitioning() || tick.exhausted()) return;
+        jobWorld = world;
+        jobBudgetNanos = tick.budgetNanos();
+
+        long start = System.nanoTime();
+
+        TimeResource time = phase == Phase.ACTIVATING
+                ? store.getResource(TimeResource.getResourceType())
+                : null;
+        // navio parado durante a transição: a pose é a mesma em todos os lotes
+        ShipPose pose = geometry.pose();
+
+        while (isTransitioning() && !tick.exhausted()) {
+            int batch = Math.min(TRANSITION_BATCH, tick.opsLeft());
+            tick.spend(runBatch(world, store, geometry, pose, time, batch, shipId));
+        }
+
+        long spent = System.nanoTime() - start;
+        if (spent > jobMaxTickNanos) jobMaxTickNanos = spent;
+        jobTicks++;
+    }
+
+    private int runBatch(World world,
+                         ComponentAccessor<EntityStore> accessor,
+                         ShipGeometry geometry,
+                         ShipPose pose,
+                         TimeResource time,
+                         int batch,
+                         UUID shipId) {
+        ShipBlockStore blocks = structure.getStore();
+
+        if (phase == Phase.ACTIVATING) {
+            if (jobStep == 0 && reuseParts != null) {
+                int reused = reuseParts.size();
+                int total = reused + respawnBlocks.size();
+                int end = Math.min(total, jobCursor + batch);
+                for (int i = jobCursor; i < end; i++) {
+                    if (i < reused) {
+                        // só um transform: a entidade já existe
+                        ShipPart part = reuseParts.get(i);
+                        part.culled = false;
+                        geometry.computeWorldPos(pose, part.index, part.transform.getPosition());
+                        placePart(accessor, part, pose.yawDeg);
+                        parts.add(part);
+                    } else {
+                        spawnPart(time, accessor, geometry, pose, respawnBlocks.getInt(i - reused));
+                    }
+                }
+                return advance(end, total, shipId);
+            }
+
+            if (jobStep == 0) {
+                ShipSurface surface = structure.surface();
+                int end = Math.min(blocks.size(), jobCursor + batch);
+                for (int i = jobCursor; i < end; i++) {
+                    // Bloco interno (casco maciço, lastro): fica só na estrutura
+                    if (!surface.isExposed(i)) {
+                        hiddenBlocks++;
+                    } else {
+                        spawnPart(time, accessor, geometry, pose, i);
+                    }
+                }
+                return advance(end, blocks.size(), shipId);
+            }
+
+            int end = Math.min(jobPlan.size, jobCursor + batch);
+            structure.clearFromWorld(world, jobPlan, jobCursor, end);
+            if (chunkStamps != null) jobPlan.markChunks(chunkStamps, world.getName(), jobCursor, end);
+            if (writeListener != null) writeListener.written(world, jobPlan, jobCursor, end);
+            return advance(end, jobPlan.size, shipId);
+        }
+
+        // DOCKING
+        if (jobStep == 0) {
+            int end = Math.min(jobPlan.size, jobCursor + batch);
+            structure.placeIntoWorld(world, jobPlan, jobCursor, end);
+            if (chunkStamps != null) jobPlan.markChunks(chunkStamps, world.getName(), jobCursor, end);
+            if (writeListener != null) writeListener.written(world, jobPlan, jobCursor, end);
+            return advance(end, jobPlan.size, shipId);
+        }
+
+        int end = Math.min(parts.size(), jobCursor + batch);
+        for (int i = jobCursor; i < end; i++) {
+            ShipPart part = parts.get(i);
+            if (pool != null) {
+                parkPart(accessor, part);
+            } else {
+                accessor.removeEntity(part.ref, RemoveReason.REMOVE);
+            }
+        }
+        return advance(end, parts.size(), shipId);
+    }
+
+    private int advance(int end, int stepTotal, UUID shipId) {
+        int done = end - jobCursor;
+        jobCursor = end;
+        jobDone += done;
+
+        if (jobCursor >= stepTotal) {
+            jobCursor = 0;
+            jobStep++;
+            if (jobStep >= 2) {
+                finishJob(shipId);
+            }
+        }
+        // passo vazio ainda conta como 1 op (garante progresso)
+        return Math.max(1, done);
+    }
+
+    private void startJob(Phase jobPhase, long totalOps, UUID shipId) {
+        phase = jobPhase;
+        jobStep = 0;
+        jobCursor = 0;
+        jobDone = 0L;
+        jobTotal = Math.max(1L, totalOps);
+        jobTicks = 0;
+        jobMaxTickNanos = 0L;
+        ShipLogger.info("[SHIPS] Transicao iniciada " + jobPhase + " shipId=" + shipId + " ops=" + totalOps);
+    }
+
+    private void finishJob(UUID shipId) {
+        Phase finished = phase;
+        if (finished == Phase.ACTIVATING) {
+            int reused = reuseParts != null ? reuseParts.size() : 0;
+            jobPlan = null;
+            reuseParts = null;
+            respawnBlocks = null;
+            phase = Phase.ACTIVE;
+            ShipLogger.success("[SHIPS] Ship ativado (modo entidade) shipId=" + shipId + " partes=" + parts.size()
+                    + " reaproveitadas=" + reused
+                    + " internosOcultos=" + hiddenBlocks + statsSuffix());
+        } else {
+            if (pool != null && !parts.isEmpty()) {
+                pool.park(shipId, new ShipEntityPool.Parked(jobWorld, structure.getRevision(),
+                        new ArrayList<>(parts), hiddenBlocks));
+            }
+            jobWorld = null;
+            interest.reset();
+            parts.clear();
+            hiddenBlocks = 0;
+            hasEmittedPose = false;
+            jobPlan = null;
+            phase = Phase.DOCKED;
+            ShipLogger.success("[SHIPS] Dock concluido (voltou a blocos). shipId=" + shipId + " origin=" + jobOrigin
+                    + " ori=" + jobOri + statsSuffix());
+        }
+    }
+
+    /**
+     * Desligamento fora do modo bloco: remove as entidades das partes (na thread do mundo,
+     * como o pool faz) e volta a DOCKED sem colocar blocos. Quem chama cuida dos blocos.
+     */
+    public void discardParts(UUID shipId) {
+        if (phase == Phase.DOCKED) return;
+        int count = parts.size();
+        if (jobWorld != null && count > 0) {
+            ShipEntityPool.discard(new ShipEntityPool.Parked(jobWorld, structure.getRevision(),
+                    new ArrayList<>(parts), 0));
+        }
+        jobWorld = null;
+        interest.reset();
+        parts.clear();
+        hiddenBlocks = 0;
+        hasEmittedPose = false;
+        jobPlan = null;
+        reuseParts = null;
+        respawnBlocks = null;
+        phase = Phase.DOCKED;
+        ShipLogger.debug("[SHIPS] Partes descartadas (desligamento) shipId=" + shipId + " partes=" + count);
+    }
+
+    /**
+     * O corpo do navio vai ser solto (docado e frio): as partes estacionadas no pool não
+     * serão reaproveitadas pela próxima estrutura e saem agora.
+     */
+    public void releasePooled(UUID shipId) {
+        if (pool == null) return;
+        ShipEntityPool.Parked p = pool.reclaim(shipId);
+        if (p != null) ShipEntityPool.discard(p);
+    }
+
+    private String statsSuffix() {
+        return " ticks=" + (jobTicks + 1)
+                + " maiorTick=" + (jobMaxTickNanos / 1000) + "us"
+                + " orcamento=" + (jobBudgetNanos / 1000) + "us";
+    }
+
+    private void spawnPart(TimeResource time,
+                           ComponentAccessor<EntityStore> accessor,
+                           ShipGeometry geometry,
+                           ShipPose pose,
+                           int index) {
+        Vector3d pos = geometry.computeWorldPos(pose, index, new Vector3d());
+
+        Holder<EntityStore> holder = BlockEntity.assembleDefaultBlockEntity(time, structure.getStore().getType(index).getId(), pos);
+        holder.removeComponent(DespawnComponent.getComponentType());
+        // a estrutura é a fonte da verdade: parte nunca vai para o disco com o chunk
+        holder.addComponent(EntityStore.REGISTRY.getNonSerializedComponentType(), NonSerialized.get());
+        Ref<EntityStore> ref = accessor.addEntity(holder, AddReason.SPAWN);
+
+        // O TransformComponent fica com a parte e é reaproveitado (mutado) nos próximos ticks
+        TransformComponent transform = new TransformComponent(pos, new Vector3f(0.0f, pose.yawDeg, 0.0f));
+        accessor.putComponent(ref, TransformComponent.getComponentType(), transform);
+        ShipBlockStore blocks = structure.getStore();
+        parts.add(new ShipPart(index, blocks.getDx(index), blocks.getDy(index), blocks.getDz(index),
+                structure.isOutline(index), ref, transform));
+    }
 
+    /**
+     * Estrutura editada com o navio ativo: parte de bloco que saiu (ou ficou cercado) é removida,
+     * as outras voltam a apontar para o índice novo e bloco interno que ficou exposto ganha parte.
+     * Barato quando nada mudou (só compara a revisão).
+     */
+    public void syncEditedStructure(Store<EntityStore> store,
+                                    ComponentAccessor<EntityStore> accessor,
+                                    ShipGeometry geometry) {
+        if (phase != Phase.ACTIVE || partsRevision == structure.getRevision()) return;
+        partsRevision = structure.getRevision();
+
+        ShipBlockStore blocks = structure.getStore();
+        ShipSurface surface = structure.surface();
+        boolean[] hasPart = new boolean[blocks.size()];
+        int removed = 0;
+        for (int k = parts.size() - 1; k >= 0; k--) {
+            ShipPart p = parts.get(k);
+            int i = structure.indexOf(p.dx, p.dy, p.dz);
+            if (i >= 0 && surface.isExposed(i)) {
+                p.index = i;
+                p.outline = structure.isOutline(i);
+                hasPart[i] = true;
+                continue;
+            }
+            if (p.ref.isValid()) accessor.removeEntity(p.ref, RemoveReason.REMOVE);
+            parts.remove(k);
+            removed++;
+        }
+
+        TimeResource time = store.getResource(TimeResource.getResourceType());
+        ShipPose pose = geometry.pose();
+        int spawned = 0;
+        for (int i : surface.exposedIndices()) {
+            if (hasPart[i]) continue;
+            spawnPart(time, accessor, geometry, pose, i);
+            spawned++;
+        }
+
+        hiddenBlocks = blocks.size() - parts.size();
+        interest.markDirty();
+        // índices mudaram: a próxima atualização reenvia todas as partes
+        hasEmittedPose = false;
+        ShipLogger.debug("[SHIPS] Partes sincronizadas com a estrutura editada: +" + spawned + " -" + removed
+                + " internosOcultos=" + hiddenBlocks);
+    }
+
+    /**
+     * Reavalia quais seções cada jogador próximo precisa ver (a cada updateInterval ticks).
+     */
+    public void updateInterest(CommandBuffer<EntityStore> commandBuffer,
+                               ShipGeometry geometry,
+                               ShipPlayerTracker tracker,
+                               String worldName) {
+        if (phase != Phase.ACTIVE) return;
+        interest.update(parts, interestSettings, tracker, worldName, geometry, commandBuffer);
+    }
+
+    /**
+     * Atualização em taxa cheia (ex.: snap do docking), sem LOD.
+     */
+    public void updateTransforms(CommandBuffer<EntityStore> commandBuffer, ShipGeometry geometry) {
+        updateTransforms(commandBuffer, geometry, 0.0);
+    }
+
+    /**
+     * @param nearestPlayerDistSq distância ao quadrado do jogador mais próximo (define a faixa de LOD)
+     */
+    public void updateTransforms(CommandBuffer<EntityStore> commandBuffer,
+                                 ShipGeometry geometry,
+                                 double nearestPlayerDistSq) {
+        ShipPose pose = geometry.pose();
+        lastBand = lod.bandFor(nearestPlayerDistSq);
+        ticksSinceEmit++;
+
+        // Delta culling: navio parado => nenhuma escrita de componente
+        // LOD: longe do jogador, pose só sai no intervalo da faixa (ou se mudou muito)
+        if (!poseChanged(pose) || !dueForBand(pose)) {
+            lastPartsUpdated = 0;
+            lastPartsSkipped = parts.size();
+            return;
+        }
+
+        // Uma passada sobre os blocos expostos; as partes só copiam o resultado.
+        // Blocos cercados não viram parte, então não entram na conta.
+        double[] positions = worldPositions;
+        if (positions == null || positions.length < geometry.getLocalOffsets().length) {
+            positions = new double[geometry.getLocalOffsets().length];
+            worldPositions = positions;
+        }
+        ShipSurface surface = structure.surface();
+        geometry.computeWorldPositions(pose, positions, surface.exposedIndices());
+
+        int culled = 0;
         for (ShipPart p : parts) {
-            ShipBlock b = p.block;
-            Vector3d pos = geometry.computeWorldPosContinuous(b.dx, b.dy, b.dz, yawDeg);
-            commandBuffer.putComponent(p.ref, TransformComponent.getComponentType(), new TransformComponent(pos, rot));
+            // parte interna de seção sem ninguém perto: fica estacionada
+            if (p.culled) {
+                culled++;
+                continue;
+            }
+            // Muta o componente existente (sem Vector3d/TransformComponent novos por parte)
+            int i = p.index * 3;
+            p.transform.getPosition().assign(positions[i], positions[i + 1], positions[i + 2]);
+            placePart(commandBuffer, p, pose.yawDeg);
         }
+
+        lastPartsUpdated = parts.size() - culled;
+        lastPartsSkipped = culled;
+        rememberPose(pose);
+    }
+
+    /**
+     * Envia o transform da parte (posição já escrita em p.transform pelo chamador).
+     */
+    private static void placePart(ComponentAccessor<EntityStore> accessor, ShipPart p, float yawDeg) {
+        TransformComponent transform = p.transform;
+        transform.getRotation().setY(yawDeg);
+        accessor.putComponent(p.ref, TransformComponent.getComponentType(), transform);
+    }
+
+    private static void parkPart(ComponentAccessor<EntityStore> accessor, ShipPart p) {
+        moveToPark(p.transform);
+        accessor.putComponent(p.ref, TransformComponent.getComponentType(), p.transform);
+    }
+
+    static void moveToPark(TransformComponent transform) {
+        Vector3d pos = transform.getPosition();
+        pos.assign(pos.getX(), PARK_Y, pos.getZ());
+    }
+
+    private boolean poseChanged(ShipPose pose) {
+        if (!hasEmittedPose) return true;
+        return Math.abs(pose.originX - emittedX) > POSE_EPS_POS
+                || Math.abs(pose.originY - emittedY) > POSE_EPS_POS
+                || Math.abs(pose.originZ - emittedZ) > POSE_EPS_POS
+                || Math.abs(pose.yawDeg - emittedYaw) > POSE_EPS_YAW;
+    }
+
+    private boolean dueForBand(ShipPose pose) {
+        if (!hasEmittedPose) return true;
+        switch (lastBand) {
+            case NEAR:
+                return true;
+            case MID:
+                return ticksSinceEmit >= lod.getMidInterval();
+            default:
+                if (ticksSinceEmit >= lod.getFarKeyframeInterval()) return true;
+                double dx = pose.originX - emittedX;
+                double dy = pose.originY - emittedY;
+                double dz = pose.originZ - emittedZ;
+                double t = lod.getFarPosThreshold();
+                return dx * dx + dy * dy + dz * dz >= t * t
+                        || Math.abs(pose.yawDeg - emittedYaw) >= lod.getFarYawThreshold();
+        }
+    }
+
+    private void rememberPose(ShipPose pose) {
+        emittedX = pose.originX;
+        emittedY = pose.originY;
+        emittedZ = pose.originZ;
+        emittedYaw = pose.yawDeg;
+        hasEmittedPose = true;
+        ticksSinceEmit = 0;
     }
 
-    private static final class ShipPart {
-        private final ShipBlock block;
-        private final Ref<EntityStore> ref;
+    static final class ShipPart {
+        // índice em structure.getStore() / geometry.getLocalOffsets() (muda se a estrutura for editada)
+        int index;
+        // offset local do bloco (acha o índice de novo depois de uma edição)
+        final int dx;
+        final int dy;
+        final int dz;
+        // silhueta: sempre replicada, mesmo para quem está longe
+        boolean outline;
+        final Ref<EntityStore> ref;
+        final TransformComponent transform;
+        // estacionada pelo ShipInterest
+        boolean culled;
 
-        private ShipPart(ShipBlock block, Ref<EntityStore> ref) {
-            this.block = block;
+        private ShipPart(int index, int dx, int dy, int dz, boolean outline,
+                         Ref<EntityStore> ref, TransformComponent transform) {
+            this.index = index;
+            this.dx = dx;
+            this.dy = dy;
+            this.dz = dz;
+            this.outline = outline;
             this.ref = ref;
+            this.transform = transform;
         }
     }
 }
@@ -0,0 +1,199 @@
+package com.michallves.ships.ship.runtime;
+
+import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.component.RemoveReason;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.michallves.ships.utils.ShipLogger;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entidades de partes "estacionadas" de navios docados, para reaproveitar na próxima
+ * ativação (pegar/soltar o helm não respawna o navio inteiro).
+ *
+ * Limite global de entidades estacionadas; acima dele o navio usado há mais tempo
+ * (LRU) perde as suas. Compartilhado por todos os mundos, por isso sincronizado.
+ *
+ * As partes não são salvas com o chunk (NonSerialized): chunk descarregado leva as
+ * entidades junto e a entrada sai na próxima varredura; mundo removido sai na hora.
+ */
+public final class ShipEntityPool {
+
+    public static final int DEFAULT_MAX_PARKED_ENTITIES = 16384;
+
+    // quanto o desligamento espera cada mundo remover as suas
+    private static final long SHUTDOWN_WAIT_MILLIS = 2_000L;
+
+    // ordem de acesso: o primeiro é o docado há mais tempo
+    private final LinkedHashMap<UUID, Parked> parked = new LinkedHashMap<>(16, 0.75f, true);
+
+    private int parkedEntities = 0;
+    private volatile int maxParkedEntities = DEFAULT_MAX_PARKED_ENTITIES;
+
+    public int getMaxParkedEntities() {
+        return maxParkedEntities;
+    }
+
+    public void setMaxParkedEntities(int maxParkedEntities) {
+        this.maxParkedEntities = Math.max(0, maxParkedEntities);
+    }
+
+    public synchronized int getParkedEntityCount() {
+        return parkedEntities;
+    }
+
+    public synchronized int getParkedShipCount() {
+        return parked.size();
+    }
+
+    synchronized void park(UUID shipId, Parked entry) {
+        Parked old = parked.put(shipId, entry);
+        if (old != null) {
+            parkedEntities -= old.parts.size();
+            discard(old);
+        }
+        parkedEntities += entry.parts.size();
+
+        int max = maxParkedEntities;
+        Iterator<Map.Entry<UUID, Parked>> it = parked.entrySet().iterator();
+        while (parkedEntities > max && it.hasNext()) {
+            Map.Entry<UUID, Parked> eldest = it.next();
+            Parked p = eldest.getValue();
+            it.remove();
+            parkedEntities -= p.parts.size();
+            discard(p);
+            ShipLogger.debug("[SHIPS] Pool de entidades cheio: removendo partes estacionadas de shipId="
+                    + eldest.getKey() + " (" + p.parts.size() + ")");
+        }
+    }
+
+    /**
+     * @return as partes estacionadas do navio (sai do pool), ou null se foram despejadas
+     */
+    synchronized Parked reclaim(UUID shipId) {
+        Parked p = parked.remove(shipId);
+        if (p != null) parkedEntities -= p.parts.size();
+        return p;
+    }
+
+    /**
+     * Tira do pool os navios deste mundo que perderam partes (chunk descarregado) e remove
+     * o que sobrou deles. Thread do mundo.
+     *
+     * @return quantos navios saíram
+     */
+    public synchronized int dropUnloaded(World world) {
+        int dropped = 0;
+        Iterator<Parked> it = parked.values().iterator();
+        while (it.hasNext()) {
+            Parked p = it.next();
+            if (p.world != world || allValid(p)) continue;
+            it.remove();
+            parkedEntities -= p.parts.size();
+            discard(p);
+            dropped++;
+        }
+        return dropped;
+    }
+
+    /**
+     * Mundo removido: as entidades vão com ele, só esquece as entradas.
+     */
+    public synchronized void dropWorld(World world) {
+        Iterator<Parked> it = parked.values().iterator();
+        while (it.hasNext()) {
+            Parked p = it.next();
+            if (p.world != world) continue;
+            it.remove();
+            parkedEntities -= p.parts.size();
+        }
+    }
+
+    /**
+     * Remove todas as entidades estacionadas (desligamento do plugin). Cada mundo remove as
+     * suas na própria thread; espera até SHUTDOWN_WAIT_MILLIS por mundo.
+     */
+    public void clear() {
+        List<Parked> all;
+        synchronized (this) {
+            all = new ArrayList<>(parked.values());
+            parked.clear();
+            parkedEntities = 0;
+        }
+        if (all.isEmpty()) return;
+
+        Map<World, List<Parked>> byWorld = new LinkedHashMap<>();
+        for (Parked p : all) {
+            byWorld.computeIfAbsent(p.world, w -> new ArrayList<>()).add(p);
+        }
+        for (Map.Entry<World, List<Parked>> e : byWorld.entrySet()) {
+            CountDownLatch done = new CountDownLatch(1);
+            e.getKey().execute(() -> {
+                try {
+                    for (Parked p : e.getValue()) removeParts(p);
+                } finally {
+                    done.countDown();
+                }
+            });
+            try {
+                if (!done.await(SHUTDOWN_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    ShipLogger.warn("[SHIPS] Mundo nao removeu as partes estacionadas a tempo (" + e.getValue().size() + " navios)");
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Remove as entidades na thread do mundo dono delas (quem despeja pode ser outro mundo).
+     */
+    static void discard(Parked p) {
+        if (p.parts.isEmpty()) return;
+        p.world.execute(() -> removeParts(p));
+    }
+
+    private static void removeParts(Parked p) {
+        for (ShipEntityLifecycle.ShipPart part : p.parts) {
+            Ref<EntityStore> ref = part.ref;
+            if (!ref.isValid()) continue;
+            Store<EntityStore> store = ref.getStore();
+            if (store != null) store.removeEntity(ref, RemoveReason.REMOVE);
+        }
+    }
+
+    private static boolean allValid(Parked p) {
+        for (ShipEntityLifecycle.ShipPart part : p.parts) {
+            if (!part.ref.isValid()) return false;
+        }
+        return true;
+    }
+
+    static final class Parked {
+        final World world;
+        // revisão da estrutura no momento do dock (editada => não reaproveita)
+        final int revision;
+        final List<ShipEntityLifecycle.ShipPart> parts;
+        final int hiddenBlocks;
+
+        Parked(World world,
+               int revision,
+               List<ShipEntityLifecycle.ShipPart> parts,
+               int hiddenBlocks) {
+            this.world = world;
+            this.revision = revision;
+            this.parts = parts;
+            this.hiddenBlocks = hiddenBlocks;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.michallves.ships.ship.runtime;
+
+/**
+ * Índice de helms por chunk (ShipHelmBlockIndex). Compartilhado por todos os mundos do
+ * ShipManager; pode ser ajustado em runtime.
+ *
+ * <pre>
+ * watchIntervalMillis : de quanto em quanto tempo cada mundo procura chunks novos em volta dos jogadores
+ * watchRadiusChunks   : raio (em chunks) dessa procura em volta de cada jogador
+ * maxScanNanosPerTick : tempo de varredura de seções por tick do mundo
+ * preRegisterDocked   : helm achado na varredura sem navio registrado => monta e registra docado
+ * </pre>
+ */
+public final class ShipHelmIndexSettings {
+
+    public static final long DEFAULT_WATCH_INTERVAL_MILLIS = 1000L;
+    public static final int DEFAULT_WATCH_RADIUS_CHUNKS = 3;
+    public static final long DEFAULT_MAX_SCAN_NANOS_PER_TICK = 1_000_000L;
+
+    private volatile boolean enabled = true;
+    private volatile long watchIntervalMillis = DEFAULT_WATCH_INTERVAL_MILLIS;
+    private volatile int watchRadiusChunks = DEFAULT_WATCH_RADIUS_CHUNKS;
+    private volatile long maxScanNanosPerTick = DEFAULT_MAX_SCAN_NANOS_PER_TICK;
+    private volatile boolean preRegisterDocked = false;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getWatchIntervalMillis() {
+        return watchIntervalMillis;
+    }
+
+    public void setWatchIntervalMillis(long watchIntervalMillis) {
+        this.watchIntervalMillis = Math.max(0L, watchIntervalMillis);
+    }
+
+    public int getWatchRadiusChunks() {
+        return watchRadiusChunks;
+    }
+
+    public void setWatchRadiusChunks(int watchRadiusChunks) {
+        this.watchRadiusChunks = Math.max(0, Math.min(16, watchRadiusChunks));
+    }
+
+    public long getMaxScanNanosPerTick() {
+        return maxScanNanosPerTick;
+    }
+
+    public void setMaxScanNanosPerTick(long maxScanNanosPerTick) {
+        this.maxScanNanosPerTick = Math.max(10_000L, maxScanNanosPerTick);
+    }
+
+    public boolean isPreRegisterDocked() {
+        return preRegisterDocked;
+    }
+
+    public void setPreRegisterDocked(boolean preRegisterDocked) {
+        this.preRegisterDocked = preRegisterDocked;
+    }
+}
@@ -0,0 +1,208 @@
+package com.michallves.ships.ship.runtime;
+
+import com.hypixel.hytale.component.CommandBuffer;
+import com.hypixel.hytale.server.core.modules.entity.component.TransformComponent;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.michallves.ships.ship.assembly.ShipBlockStore;
+import com.michallves.ships.ship.core.ShipGeometry;
+import com.michallves.ships.ship.core.ShipPose;
+import com.michallves.ships.utils.ShipBlockKeys;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Interesse dos jogadores nas seções de um navio ativo.
+ *
+ * As partes são agrupadas em seções de 16³ (offset local). Seção sem nenhum jogador
+ * assinante por perto fica "só contorno": as partes internas são estacionadas fora
+ * da vista (o servidor para de replicá-las) e voltam quando alguém se aproxima.
+ * Jogador a bordo mantém o navio inteiro completo.
+ */
+final class ShipInterest {
+
+    private static final int SECTION_SHIFT = 4;
+    private static final int MAX_VIEWERS = 64;
+
+    private final List<Section> sections = new ArrayList<>();
+    private final double[] viewers = new double[MAX_VIEWERS * 3];
+
+    private boolean dirty = true;
+    private int ticksUntilUpdate = 0;
+    private double shipRadius = 0.0;
+    private int culledParts = 0;
+
+    int getCulledParts() {
+        return culledParts;
+    }
+
+    int getSectionCount() {
+        return sections.size();
+    }
+
+    /**
+     * Lista de partes mudou (ativação, estrutura editada com o navio ativo): reagrupa no próximo update.
+     */
+    void markDirty() {
+        dirty = true;
+        ticksUntilUpdate = 0;
+    }
+
+    void reset() {
+        sections.clear();
+        culledParts = 0;
+        markDirty();
+    }
+
+    void update(List<ShipEntityLifecycle.ShipPart> parts,
+                ShipInterestSettings settings,
+                ShipPlayerTracker tracker,
+                String worldName,
+                ShipGeometry geometry,
+                CommandBuffer<EntityStore> commandBuffer) {
+        if (--ticksUntilUpdate > 0) return;
+        ticksUntilUpdate = settings.getUpdateInterval();
+
+        if (dirty) rebuild(parts, geometry);
+
+        ShipPose pose = geometry.pose();
+        int viewerCount = 0;
+        boolean everythingFull = !settings.isEnabled() || tracker == null;
+
+        if (!everythingFull) {
+            viewerCount = tracker.collectNear(worldName, pose.originX, pose.originY, pose.originZ,
+                    shipRadius + settings.getViewRadius(), viewers);
+
+            // alguém a bordo (dentro do raio do casco): não degrada nada
+            double boardSq = (shipRadius + 2.0) * (shipRadius + 2.0);
+            for (int v = 0; v < viewerCount; v++) {
+                double dx = viewers[v * 3] - pose.originX;
+                double dz = viewers[v * 3 + 2] - pose.originZ;
+                if (dx * dx + dz * dz <= boardSq) {
+                    everythingFull = true;
+                    break;
+                }
+            }
+        }
+
+        double full = settings.getFullRadius();
+        double hysteresis = settings.getHysteresis();
+
+        for (Section s : sections) {
+            boolean wantFull = everythingFull;
+            if (!wantFull && viewerCount > 0) {
+                double cx = pose.worldX(s.localX, s.localZ);
+                double cy = pose.originY + s.localY;
+                double cz = pose.worldZ(s.localX, s.localZ);
+
+                // histerese: seção completa só degrada um pouco além do raio
+                double limit = full + s.radius + (s.state == Section.FULL ? hysteresis : 0.0);
+                double limitSq = limit * limit;
+                for (int v = 0; v < viewerCount; v++) {
+                    double dx = viewers[v * 3] - cx;
+                    double dy = viewers[v * 3 + 1] - cy;
+                    double dz = viewers[v * 3 + 2] - cz;
+                    if (dx * dx + dy * dy + dz * dz <= limitSq) {
+                        wantFull = true;
+                        break;
+                    }
+                }
+            }
+
+            int state = wantFull ? Section.FULL : Section.OUTLINE;
+            if (state != s.state) {
+                apply(s, wantFull, parts, geometry, pose, commandBuffer);
+                s.state = state;
+            }
+        }
+    }
+
+    private void apply(Section s,
+                       boolean full,
+                       List<ShipEntityLifecycle.ShipPart> parts,
+                       ShipGeometry geometry,
+                       ShipPose pose,
+                       CommandBuffer<EntityStore> commandBuffer) {
+        for (int k = 0; k < s.interior.size(); k++) {
+            ShipEntityLifecycle.ShipPart p = parts.get(s.interior.getInt(k));
+            if (p.culled == !full) continue;
+
+            TransformComponent transform = p.transform;
+            if (full) {
+                geometry.computeWorldPos(pose, p.index, transform.getPosition());
+                transform.getRotation().setY(pose.yawDeg);
+                culledParts--;
+            } else {
+                ShipEntityLifecycle.moveToPark(transform);
+                culledParts++;
+            }
+            p.culled = !full;
+            commandBuffer.putComponent(p.ref, TransformComponent.getComponentType(), transform);
+        }
+    }
+
+    private void rebuild(List<ShipEntityLifecycle.ShipPart> parts, ShipGeometry geometry) {
+        dirty = false;
+        sections.clear();
+
+        double[] local = geometry.getLocalOffsets();
+        ShipBlockStore blocks = geometry.getStructure().getStore();
+        Long2ObjectOpenHashMap<Section> byKey = new Long2ObjectOpenHashMap<>();
+
+        double radiusSq = 0.0;
+        for (int i = 0; i < parts.size(); i++) {
+            ShipEntityLifecycle.ShipPart p = parts.get(i);
+            int bi = p.index;
+            long key = ShipBlockKeys.packLocal(blocks.getDx(bi) >> SECTION_SHIFT, blocks.getDy(bi) >> SECTION_SHIFT,
+                    blocks.getDz(bi) >> SECTION_SHIFT);
+
+            Section s = byKey.get(key);
+            if (s == null) {
+                s = new Section();
+                byKey.put(key, s);
+                sections.add(s);
+            }
+
+            double lx = local[p.index * 3];
+            double ly = local[p.index * 3 + 1];
+            double lz = local[p.index * 3 + 2];
+            s.localX += lx;
+            s.localY += ly;
+            s.localZ += lz;
+            s.count++;
+            // contorno nunca é estacionado: só as partes internas entram na seção
+            if (!p.outline) s.interior.add(i);
+            // parte já estacionada (de antes do rebuild) => estado misto, força reaplicar
+            if (p.culled) s.state = Section.UNKNOWN;
+
+            radiusSq = Math.max(radiusSq, lx * lx + lz * lz);
+        }
+
+        // centro = média; raio da seção = meia diagonal do cubo
+        double sectionRadius = Math.sqrt(3.0) * (1 << SECTION_SHIFT) * 0.5;
+        for (Section s : sections) {
+            s.localX /= s.count;
+            s.localY /= s.count;
+            s.localZ /= s.count;
+            s.radius = sectionRadius;
+        }
+        shipRadius = Math.sqrt(radiusSq);
+    }
+
+    private static final class Section {
+        private static final int UNKNOWN = 0;
+        private static final int FULL = 1;
+        private static final int OUTLINE = 2;
+
+        private final IntArrayList interior = new IntArrayList();
+        private double localX;
+        private double localY;
+        private double localZ;
+        private double radius;
+        private int count;
+        // parte nova nasce visível: seção começa completa
+        private int state = FULL;
+    }
+}
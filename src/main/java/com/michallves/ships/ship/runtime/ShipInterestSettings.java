@@ -0,0 +1,61 @@
+package com.michallves.ships.ship.runtime;
+
+/**
+ * Interesse por jogador nas partes do navio. Jogadores a até viewRadius do navio
+ * "assinam" o navio; cada seção do navio (cubo de 2^sectionShift blocos) fica
+ * completa se algum assinante estiver a até fullRadius dela, senão só o contorno
+ * continua replicado. Compartilhado por todos os navios do ShipManager.
+ */
+public final class ShipInterestSettings {
+
+    public static final double DEFAULT_FULL_RADIUS = 40.0;
+    public static final double DEFAULT_VIEW_RADIUS = 192.0;
+    public static final double DEFAULT_HYSTERESIS = 8.0;
+    public static final int DEFAULT_UPDATE_INTERVAL = 10;
+
+    private volatile boolean enabled = true;
+    private volatile double fullRadius = DEFAULT_FULL_RADIUS;
+    private volatile double viewRadius = DEFAULT_VIEW_RADIUS;
+    private volatile double hysteresis = DEFAULT_HYSTERESIS;
+    private volatile int updateInterval = DEFAULT_UPDATE_INTERVAL;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getFullRadius() {
+        return fullRadius;
+    }
+
+    public void setFullRadius(double fullRadius) {
+        this.fullRadius = Math.max(0.0, fullRadius);
+    }
+
+    public double getViewRadius() {
+        return viewRadius;
+    }
+
+    public void setViewRadius(double viewRadius) {
+        this.viewRadius = Math.max(0.0, viewRadius);
+    }
+
+    public double getHysteresis() {
+        return hysteresis;
+    }
+
+    public void setHysteresis(double hysteresis) {
+        this.hysteresis = Math.max(0.0, hysteresis);
+    }
+
+    public int getUpdateInterval() {
+        return updateInterval;
+    }
+
+    public void setUpdateInterval(int updateInterval) {
+        this.updateInterval = Math.max(1, updateInterval);
+    }
+}
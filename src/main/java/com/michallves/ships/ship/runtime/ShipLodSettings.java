@@ -0,0 +1,91 @@
+package com.michallves.ships.ship.runtime;
+
+/**
+ * Nível de detalhe da replicação das partes (TransformComponent) pela distância
+ * do jogador mais próximo. Compartilhado por todos os navios do ShipManager; pode
+ * ser ajustado em runtime.
+ *
+ * <pre>
+ * perto  (d <= nearRadius)  : todo tick em que a pose mudou
+ * médio  (d <= midRadius)   : a cada midInterval ticks
+ * longe  (d >  midRadius)   : keyframe a cada farKeyframeInterval ticks, ou na hora
+ *                             se a pose andou farPosThreshold / girou farYawThreshold
+ * </pre>
+ */
+public final class ShipLodSettings {
+
+    public enum Band { NEAR, MID, FAR }
+
+    public static final double DEFAULT_NEAR_RADIUS = 48.0;
+    public static final double DEFAULT_MID_RADIUS = 128.0;
+    public static final int DEFAULT_MID_INTERVAL = 3;
+    public static final int DEFAULT_FAR_KEYFRAME_INTERVAL = 30;
+    public static final double DEFAULT_FAR_POS_THRESHOLD = 2.0;
+    public static final float DEFAULT_FAR_YAW_THRESHOLD = 10.0f;
+
+    private volatile double nearRadius = DEFAULT_NEAR_RADIUS;
+    private volatile double midRadius = DEFAULT_MID_RADIUS;
+    private volatile int midInterval = DEFAULT_MID_INTERVAL;
+    private volatile int farKeyframeInterval = DEFAULT_FAR_KEYFRAME_INTERVAL;
+    private volatile double farPosThreshold = DEFAULT_FAR_POS_THRESHOLD;
+    private volatile float farYawThreshold = DEFAULT_FAR_YAW_THRESHOLD;
+
+    /**
+     * @param distSq distância ao quadrado do jogador mais próximo (infinito = ninguém no mundo)
+     */
+    public Band bandFor(double distSq) {
+        double near = nearRadius;
+        if (distSq <= near * near) return Band.NEAR;
+        double mid = midRadius;
+        if (distSq <= mid * mid) return Band.MID;
+        return Band.FAR;
+    }
+
+    public double getNearRadius() {
+        return nearRadius;
+    }
+
+    public void setNearRadius(double nearRadius) {
+        this.nearRadius = Math.max(0.0, nearRadius);
+    }
+
+    public double getMidRadius() {
+        return midRadius;
+    }
+
+    public void setMidRadius(double midRadius) {
+        this.midRadius = Math.max(0.0, midRadius);
+    }
+
+    public int getMidInterval() {
+        return midInterval;
+    }
+
+    public void setMidInterval(int midInterval) {
+        this.midInterval = Math.max(1, midInterval);
+    }
+
+    public int getFarKeyframeInterval() {
+        return farKeyframeInterval;
+    }
+
+    public void setFarKeyframeInterval(int farKeyframeInterval) {
+        this.farKeyframeInterval = Math.max(1, farKeyframeInterval);
+    }
+
+    public double getFarPosThreshold() {
+        return farPosThreshold;
+    }
+
+    public void setFarPosThreshold(double farPosThreshold) {
+        this.farPosThreshold = Math.max(0.0, farPosThreshold);
+    }
+
+    public float getFarYawThreshold() {
+        return farYawThreshold;
+    }
+
+    public void setFarYawThreshold(float farYawThreshold) {
+        this.farYawThreshold = Math.max(0.0f, farYawThreshold);
+    }
+}
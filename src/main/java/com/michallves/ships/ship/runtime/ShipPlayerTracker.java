@@ -0,0 +1,111 @@
+package com.michallves.ships.ship.runtime;
+
+import com.hypixel.hytale.math.vector.Vector3d;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Última posição conhecida de cada jogador, por mundo. Alimentado pelo
+ * ShipPlayerCollisionSystem (que já visita todo jogador a cada tick) e lido pelos
+ * navios do mesmo mundo, na mesma thread.
+ */
+public final class ShipPlayerTracker {
+
+    // amostra sem atualização há mais que isso = jogador saiu do mundo / desconectou
+    private static final long STALE_NANOS = 2_000_000_000L;
+
+    private final Map<String, Map<UUID, Sample>> worlds = new ConcurrentHashMap<>();
+
+    public void update(String worldName, UUID playerUuid, Vector3d pos) {
+        Map<UUID, Sample> players = worlds.computeIfAbsent(worldName, k -> new ConcurrentHashMap<>());
+        Sample s = players.get(playerUuid);
+        if (s == null) {
+            s = new Sample();
+            players.put(playerUuid, s);
+        }
+        s.x = pos.getX();
+        s.y = pos.getY();
+        s.z = pos.getZ();
+        s.seenNanos = System.nanoTime();
+    }
+
+    /**
+     * @return distância ao quadrado do jogador mais próximo de (x,y,z) no mundo,
+     *         ou {@link Double#POSITIVE_INFINITY} se não houver ninguém
+     */
+    public double nearestDistanceSq(String worldName, double x, double y, double z) {
+        Map<UUID, Sample> players = worlds.get(worldName);
+        if (players == null) return Double.POSITIVE_INFINITY;
+
+        long now = System.nanoTime();
+        double best = Double.POSITIVE_INFINITY;
+
+        Iterator<Sample> it = players.values().iterator();
+        while (it.hasNext()) {
+            Sample s = it.next();
+            if (now - s.seenNanos > STALE_NANOS) {
+                it.remove();
+                continue;
+            }
+            double dx = s.x - x;
+            double dy = s.y - y;
+            double dz = s.z - z;
+            double d = dx * dx + dy * dy + dz * dz;
+            if (d < best) best = d;
+        }
+        return best;
+    }
+
+    /**
+     * Copia (x,y,z) dos jogadores a até radius de (x,y,z) para out.
+     *
+     * @return quantos jogadores foram copiados (no máximo out.length / 3)
+     */
+    public int collectNear(String worldName, double x, double y, double z, double radius, double[] out) {
+        Map<UUID, Sample> players = worlds.get(worldName);
+        if (players == null) return 0;
+
+        long now = System.nanoTime();
+        double radiusSq = radius * radius;
+        int max = out.length / 3;
+        int n = 0;
+
+        for (Sample s : players.values()) {
+            if (n >= max) break;
+            if (now - s.seenNanos > STALE_NANOS) continue;
+            double dx = s.x - x;
+            double dy = s.y - y;
+            double dz = s.z - z;
+            if (dx * dx + dy * dy + dz * dz > radiusSq) continue;
+
+            out[n * 3] = s.x;
+            out[n * 3 + 1] = s.y;
+            out[n * 3 + 2] = s.z;
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Copia (x,y,z) de todos os jogadores do mundo para out.
+     *
+     * @return quantos jogadores foram copiados (no máximo out.length / 3)
+     */
+    public int collectAll(String worldName, double[] out) {
+        return collectNear(worldName, 0.0, 0.0, 0.0, Double.POSITIVE_INFINITY, out);
+    }
+
+    public void clear() {
+        worlds.clear();
+    }
+
+    private static final class Sample {
+        private double x;
+        private double y;
+        private double z;
+        private long seenNanos;
+    }
+}
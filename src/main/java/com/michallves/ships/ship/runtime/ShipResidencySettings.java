@@ -0,0 +1,90 @@
+package com.michallves.ships.ship.runtime;
+
+/**
+ * Quantos corpos de navio (estrutura, geometria, colisão) ficam em memória. Passou do
+ * orçamento, os navios docados usados há mais tempo soltam o corpo (LRU) e ficam só com o
+ * header; o próximo uso recarrega do registro ou montando de novo.
+ * Compartilhado por todos os navios do ShipManager; pode ser ajustado em runtime.
+ *
+ * <pre>
+ * maxResidentBodies   : corpos em memória somando todos os mundos
+ * maxResidentBytes    : heap estimado desses corpos
+ * heapPressureRatio   : heap da JVM usado / máximo acima disso => solta todos os ociosos
+ * minIdleMillis       : navio usado há menos que isso nunca solta (helm, edição, tick)
+ * sweepIntervalMillis : de quanto em quanto tempo cada mundo confere o orçamento
+ * maxEvictionsPerSweep: teto de corpos soltos por varredura
+ * </pre>
+ */
+public final class ShipResidencySettings {
+
+    public static final int DEFAULT_MAX_RESIDENT_BODIES = 256;
+    public static final long DEFAULT_MAX_RESIDENT_BYTES = 256L * 1024L * 1024L;
+    public static final double DEFAULT_HEAP_PRESSURE_RATIO = 0.85;
+    public static final long DEFAULT_MIN_IDLE_MILLIS = 60L * 1000L;
+    public static final long DEFAULT_SWEEP_INTERVAL_MILLIS = 5000L;
+    public static final int DEFAULT_MAX_EVICTIONS_PER_SWEEP = 32;
+
+    private volatile boolean enabled = true;
+    private volatile int maxResidentBodies = DEFAULT_MAX_RESIDENT_BODIES;
+    private volatile long maxResidentBytes = DEFAULT_MAX_RESIDENT_BYTES;
+    private volatile double heapPressureRatio = DEFAULT_HEAP_PRESSURE_RATIO;
+    private volatile long minIdleMillis = DEFAULT_MIN_IDLE_MILLIS;
+    private volatile long sweepIntervalMillis = DEFAULT_SWEEP_INTERVAL_MILLIS;
+    private volatile int maxEvictionsPerSweep = DEFAULT_MAX_EVICTIONS_PER_SWEEP;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxResidentBodies() {
+        return maxResidentBodies;
+    }
+
+    public void setMaxResidentBodies(int maxResidentBodies) {
+        this.maxResidentBodies = Math.max(0, maxResidentBodies);
+    }
+
+    public long getMaxResidentBytes() {
+        return maxResidentBytes;
+    }
+
+    public void setMaxResidentBytes(long maxResidentBytes) {
+        this.maxResidentBytes = Math.max(0L, maxResidentBytes);
+    }
+
+    public double getHeapPressureRatio() {
+        return heapPressureRatio;
+    }
+
+    public void setHeapPressureRatio(double heapPressureRatio) {
+        this.heapPressureRatio = Math.max(0.1, Math.min(1.0, heapPressureRatio));
+    }
+
+    public long getMinIdleMillis() {
+        return minIdleMillis;
+    }
+
+    public void setMinIdleMillis(long minIdleMillis) {
+        this.minIdleMillis = Math.max(0L, minIdleMillis);
+    }
+
+    public long getSweepIntervalMillis() {
+        return sweepIntervalMillis;
+    }
+
+    public void setSweepIntervalMillis(long sweepIntervalMillis) {
+        this.sweepIntervalMillis = Math.max(0L, sweepIntervalMillis);
+    }
+
+    public int getMaxEvictionsPerSweep() {
+        return maxEvictionsPerSweep;
+    }
+
+    public void setMaxEvictionsPerSweep(int maxEvictionsPerSweep) {
+        this.maxEvictionsPerSweep = Math.max(1, maxEvictionsPerSweep);
+    }
+}
@@ -0,0 +1,30 @@
+package com.michallves.ships.ship.runtime;
+
+/**
+ * Orçamento por tick das transições bloco <-> entidade (ativação e docking), por mundo: os
+ * navios do mundo dividem o mesmo ShipTransitionTick. Pode ser ajustado em runtime.
+ */
+public final class ShipTransitionBudget {
+
+    public static final int DEFAULT_MAX_OPS_PER_TICK = 512;
+    public static final long DEFAULT_MAX_NANOS_PER_TICK = 2_000_000L; // 2ms
+
+    private volatile int maxOpsPerTick = DEFAULT_MAX_OPS_PER_TICK;
+    private volatile long maxNanosPerTick = DEFAULT_MAX_NANOS_PER_TICK;
+
+    public int getMaxOpsPerTick() {
+        return maxOpsPerTick;
+    }
+
+    public void setMaxOpsPerTick(int maxOpsPerTick) {
+        this.maxOpsPerTick = Math.max(1, maxOpsPerTick);
+    }
+
+    public long getMaxNanosPerTick() {
+        return maxNanosPerTick;
+    }
+
+    public void setMaxNanosPerTick(long maxNanosPerTick) {
+        this.maxNanosPerTick = Math.max(1L, maxNanosPerTick);
+    }
+}
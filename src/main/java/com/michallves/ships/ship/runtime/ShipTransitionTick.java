@@ -0,0 +1,43 @@
+package com.michallves.ships.ship.runtime;
+
+/**
+ * Orçamento de transições de um tick do mundo. Todos os navios do mundo tiram daqui; o
+ * ShipManager zera uma vez por tick com {@link #begin}. Só a thread do mundo.
+ */
+public final class ShipTransitionTick {
+
+    private int opsLeft;
+    private long deadline;
+    private long budgetNanos;
+    private int round;
+
+    public void begin(ShipTransitionBudget budget) {
+        opsLeft = Math.max(1, budget.getMaxOpsPerTick());
+        budgetNanos = budget.getMaxNanosPerTick();
+        deadline = System.nanoTime() + budgetNanos;
+        round++;
+    }
+
+    public boolean exhausted() {
+        return opsLeft <= 0 || System.nanoTime() - deadline >= 0;
+    }
+
+    public int opsLeft() {
+        return opsLeft;
+    }
+
+    public void spend(int ops) {
+        opsLeft -= ops;
+    }
+
+    public long budgetNanos() {
+        return budgetNanos;
+    }
+
+    /**
+     * Conta os ticks: quem começa a fila gira para o mesmo navio não ficar sempre sem sobra.
+     */
+    public int round() {
+        return round;
+    }
+}
@@ -2,7 +2,9 @@ package com.michallves.ships.ship.simulation;
 
 import com.hypixel.hytale.math.vector.Vector3d;
 import com.hypixel.hytale.server.core.universe.world.World;
+import com.michallves.ships.ship.collision.ShipBlockProbe;
 import com.michallves.ships.ship.collision.ShipCollision;
+import com.michallves.ships.ship.collision.WorldBlockProbe;
 import com.michallves.ships.ship.core.ShipGeometry;
 import com.michallves.ships.ship.core.ShipState;
 import com.michallves.ships.utils.ShipMath;
@@ -18,6 +20,7 @@ public final class ShipPhysics {
     private static final float COLLISION_YAW_DAMPING = 0.6f;
 
     private final ShipState state;
+    private final WorldBlockProbe worldProbe = new WorldBlockProbe();
 
     public ShipPhysics(ShipState state) {
         this.state = state;
@@ -103,6 +106,10 @@ public final class ShipPhysics {
     }
 
     public void tickMovement(World world, ShipGeometry geometry, ShipCollision collision, float dt) {
+        tickMovement(world == null ? null : worldProbe.bind(world), geometry, collision, dt);
+    }
+
+    public void tickMovement(ShipBlockProbe world, ShipGeometry geometry, ShipCollision collision, float dt) {
         Vector3d origin = geometry.getOrigin();
 
         float yawDeg = state.getYawDeg();
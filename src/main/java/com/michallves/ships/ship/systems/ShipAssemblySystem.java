@@ -0,0 +1,30 @@
+package com.michallves.ships.ship.systems;
+
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.component.system.tick.TickingSystem;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.michallves.ships.ship.ShipManager;
+
+/**
+ * Avança as montagens assíncronas de navio (snapshot fatiado + commit) uma vez por tick do mundo.
+ */
+public final class ShipAssemblySystem extends TickingSystem<EntityStore> {
+
+    private final ShipManager shipManager;
+
+    public ShipAssemblySystem(ShipManager shipManager) {
+        this.shipManager = shipManager;
+    }
+
+    @Override
+    public void tick(float dt, int systemIndex, Store<EntityStore> store) {
+        EntityStore external = store.getExternalData();
+        if (external == null) return;
+
+        World world = external.getWorld();
+        if (world == null) return;
+
+        shipManager.getAssemblyService().tick(world);
+    }
+}
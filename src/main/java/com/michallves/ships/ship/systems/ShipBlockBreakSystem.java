@@ -0,0 +1,49 @@
+package com.michallves.ships.ship.systems;
+
+import com.hypixel.hytale.component.ArchetypeChunk;
+import com.hypixel.hytale.component.CommandBuffer;
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.component.query.Query;
+import com.hypixel.hytale.component.system.EntityEventSystem;
+import com.hypixel.hytale.math.vector.Vector3i;
+import com.hypixel.hytale.server.core.event.events.ecs.BreakBlockEvent;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.michallves.ships.ship.ShipManager;
+
+/**
+ * Bloco quebrado no mundo: marca o chunk como alterado (ShipChunkStamps)
+ * e corrige a estrutura de navios docados que alcançam a célula.
+ */
+public final class ShipBlockBreakSystem extends EntityEventSystem<EntityStore, BreakBlockEvent> {
+
+    private final ShipManager shipManager;
+
+    public ShipBlockBreakSystem(ShipManager shipManager) {
+        super(BreakBlockEvent.class);
+        this.shipManager = shipManager;
+    }
+
+    @Override
+    public Query<EntityStore> getQuery() {
+        return Query.any();
+    }
+
+    @Override
+    public void handle(int index,
+                       ArchetypeChunk<EntityStore> chunk,
+                       Store<EntityStore> store,
+                       CommandBuffer<EntityStore> commandBuffer,
+                       BreakBlockEvent event) {
+        Vector3i pos = event.getTargetBlock();
+        if (pos == null) return;
+
+        EntityStore external = store.getExternalData();
+        if (external == null) return;
+
+        World world = external.getWorld();
+        if (world == null) return;
+
+        shipManager.onWorldBlockChanged(world, pos.x, pos.y, pos.z);
+    }
+}
@@ -0,0 +1,32 @@
+package com.michallves.ships.ship.systems;
+
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.component.system.tick.TickingSystem;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.michallves.ships.ship.ShipManager;
+
+/**
+ * Avança a colocação de blueprints importados (fatiada por tick, ver ShipBlueprintPlacement).
+ */
+public final class ShipBlueprintSystem extends TickingSystem<EntityStore> {
+
+    private final ShipManager shipManager;
+
+    public ShipBlueprintSystem(ShipManager shipManager) {
+        this.shipManager = shipManager;
+    }
+
+    @Override
+    public void tick(float dt, int systemIndex, Store<EntityStore> store) {
+        if (!shipManager.hasBlueprintPlacements()) return;
+
+        EntityStore external = store.getExternalData();
+        if (external == null) return;
+
+        World world = external.getWorld();
+        if (world == null) return;
+
+        shipManager.tickBlueprintPlacements(world);
+    }
+}
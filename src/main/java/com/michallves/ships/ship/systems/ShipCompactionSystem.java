@@ -0,0 +1,36 @@
+package com.michallves.ships.ship.systems;
+
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.component.system.tick.TickingSystem;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.michallves.ships.ship.ShipManager;
+
+/**
+ * Compacta os navios docados ociosos de cada mundo e solta os corpos frios quando passam do
+ * orçamento (varreduras espaçadas, ver ShipCompactionSettings e ShipResidencySettings); de
+ * tempos em tempos tira do registro os navios cujo helm sumiu e do pool as partes
+ * estacionadas que foram embora com o chunk.
+ */
+public final class ShipCompactionSystem extends TickingSystem<EntityStore> {
+
+    private final ShipManager shipManager;
+
+    public ShipCompactionSystem(ShipManager shipManager) {
+        this.shipManager = shipManager;
+    }
+
+    @Override
+    public void tick(float dt, int systemIndex, Store<EntityStore> store) {
+        EntityStore external = store.getExternalData();
+        if (external == null) return;
+
+        World world = external.getWorld();
+        if (world == null) return;
+
+        shipManager.compactIdleShips(world);
+        shipManager.evictColdBodies(world);
+        shipManager.collectOrphanedShips(world);
+        shipManager.pruneParkedParts(world);
+    }
+}
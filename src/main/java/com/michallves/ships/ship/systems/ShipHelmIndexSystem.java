@@ -0,0 +1,31 @@
+package com.michallves.ships.ship.systems;
+
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.component.system.tick.TickingSystem;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.michallves.ships.ship.ShipManager;
+
+/**
+ * Mantém o índice de helms por chunk de cada mundo: acha os chunks que entraram em memória
+ * em volta dos jogadores e varre as seções deles com orçamento (ver ShipHelmIndexSettings).
+ */
+public final class ShipHelmIndexSystem extends TickingSystem<EntityStore> {
+
+    private final ShipManager shipManager;
+
+    public ShipHelmIndexSystem(ShipManager shipManager) {
+        this.shipManager = shipManager;
+    }
+
+    @Override
+    public void tick(float dt, int systemIndex, Store<EntityStore> store) {
+        EntityStore external = store.getExternalData();
+        if (external == null) return;
+
+        World world = external.getWorld();
+        if (world == null) return;
+
+        shipManager.tickHelmIndex(world);
+    }
+}
@@ -24,6 +24,7 @@ import com.michallves.ships.ship.gameplay.ShipPilotController;
 import com.michallves.ships.ship.gameplay.ShipPilotDockingHandler;
 import com.michallves.ships.ship.gameplay.ShipPilotExitHandler;
 import com.michallves.ships.ship.gameplay.ShipPilotTeleportController;
+import com.michallves.ships.ship.gameplay.ShipPilotTransitionNotifier;
 import com.michallves.ships.utils.ShipLogger;
 
 import java.util.UUID;
@@ -36,6 +37,7 @@ public final class ShipPilotingSystem extends EntityTickingSystem<EntityStore> {
     private final ShipPilotExitHandler exitHandler;
     private final ShipPilotDockingHandler dockingHandler;
     private final ShipPilotTeleportController teleportController;
+    private final ShipPilotTransitionNotifier transitionNotifier;
 
     private final ReadWriteArchetypeQuery<EntityStore> query;
 
@@ -46,6 +48,7 @@ public final class ShipPilotingSystem extends EntityTickingSystem<EntityStore> {
         this.exitHandler = new ShipPilotExitHandler();
         this.dockingHandler = new ShipPilotDockingHandler();
         this.teleportController = new ShipPilotTeleportController();
+        this.transitionNotifier = new ShipPilotTransitionNotifier();
 
         Archetype<EntityStore> read = Archetype.of(
                 UUIDComponent.getComponentType(),
@@ -127,6 +130,7 @@ public final class ShipPilotingSystem extends EntityTickingSystem<EntityStore> {
 
         ship.applyControls(dt, input.throttle, input.rudder, 0.0f);
         ship.tick(world, store, commandBuffer, dt);
+        transitionNotifier.notifyProgress(session, ship, commandBuffer);
 
         TransformComponent transform = chunk.getComponent(index, TransformComponent.getComponentType());
         if (transform != null) {
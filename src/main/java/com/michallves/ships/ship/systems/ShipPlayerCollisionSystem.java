@@ -81,6 +81,9 @@ public final class ShipPlayerCollisionSystem extends EntityTickingSystem<EntityS
         if (world == null) return;
 
         Vector3d playerPos = new Vector3d(transform.getPosition());
+        // Alimenta o LOD dos navios (jogador mais próximo por mundo)
+        shipManager.getPlayerTracker().update(world.getName(), uuid, playerPos);
+
         Box playerBox = boundingBox.getBoundingBox();
         
         // Inicializa lastPosition se for primeira vez
@@ -93,11 +96,9 @@ public final class ShipPlayerCollisionSystem extends EntityTickingSystem<EntityS
         Vector3d resolvedPos = playerPos;
         boolean collided = false;
         
-        // Loop otimizado: Só checa navios no mesmo mundo
-        for (ShipController ship : shipManager.getAllShips()) {
+        // Só os navios ativos deste mundo (lista do shard, sem varrer os docados)
+        for (ShipController ship : shipManager.getActiveShips(world.getName())) {
             if (!ship.isActiveEntity()) continue;
-            // Assumindo que ShipController tem verificação rápida de mundo
-            if (!ship.getWorldName().equals(world.getName())) continue; 
 
             Vector3d next = ship.resolvePlayerCollision(resolvedPos, delta, playerBox);
             if (next != null) {
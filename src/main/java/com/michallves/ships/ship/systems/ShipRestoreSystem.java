@@ -0,0 +1,33 @@
+package com.michallves.ships.ship.systems;
+
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.component.system.tick.TickingSystem;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.michallves.ships.ship.ShipManager;
+
+/**
+ * Devolve ao mundo os blocos dos navios do registro que foram salvos fora do modo bloco
+ * (assim que os chunks deles estiverem carregados).
+ */
+public final class ShipRestoreSystem extends TickingSystem<EntityStore> {
+
+    private final ShipManager shipManager;
+
+    public ShipRestoreSystem(ShipManager shipManager) {
+        this.shipManager = shipManager;
+    }
+
+    @Override
+    public void tick(float dt, int systemIndex, Store<EntityStore> store) {
+        if (!shipManager.hasPendingRestores()) return;
+
+        EntityStore external = store.getExternalData();
+        if (external == null) return;
+
+        World world = external.getWorld();
+        if (world == null) return;
+
+        shipManager.placeRestoredShips(world);
+    }
+}
@@ -0,0 +1,35 @@
+package com.michallves.ships.ship.systems;
+
+import com.hypixel.hytale.component.Store;
+import com.hypixel.hytale.component.system.tick.TickingSystem;
+import com.hypixel.hytale.server.core.universe.world.World;
+import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
+import com.michallves.ships.ship.ShipManager;
+
+/**
+ * Anda a ativação/docking dos navios do mundo, uma vez por tick, com ou sem piloto (saiu do
+ * helm, desconectou, mundo sem jogador nenhum).
+ *
+ * Sem CommandBuffer aqui: o passo vai para world.execute e spawna/remove as partes direto no
+ * store, fora do processamento dos sistemas (mesmo caminho do ShipEntityPool).
+ */
+public final class ShipTransitionSystem extends TickingSystem<EntityStore> {
+
+    private final ShipManager shipManager;
+
+    public ShipTransitionSystem(ShipManager shipManager) {
+        this.shipManager = shipManager;
+    }
+
+    @Override
+    public void tick(float dt, int systemIndex, Store<EntityStore> store) {
+        EntityStore external = store.getExternalData();
+        if (external == null) return;
+
+        World world = external.getWorld();
+        if (world == null) return;
+
+        if (!shipManager.hasTransitions(world.getName())) return;
+        world.execute(() -> shipManager.tickTransitions(world, store));
+    }
+}
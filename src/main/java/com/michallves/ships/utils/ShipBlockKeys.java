@@ -0,0 +1,46 @@
+package com.michallves.ships.utils;
+
+/**
+ * Chaves long de coordenadas de bloco (conjuntos e mapas fastutil sem Vector3i).
+ *
+ * <pre>
+ * local : offset relativo ao helm, 21 bits por eixo (x | z | y)
+ * world : posição de mundo, 26 bits x/z e 12 bits y (0..4095)
+ * </pre>
+ */
+public final class ShipBlockKeys {
+
+    private static final int LOCAL_BIAS = 1 << 20;
+    private static final long LOCAL_MASK = 0x1FFFFFL;
+
+    private static final int WORLD_BIAS = 1 << 25;
+    private static final long MASK_26 = 0x3FFFFFFL;
+    private static final long MASK_12 = 0xFFFL;
+
+    private ShipBlockKeys() {}
+
+    public static long packLocal(int x, int y, int z) {
+        return (((long) (x + LOCAL_BIAS) & LOCAL_MASK) << 42)
+                | (((long) (z + LOCAL_BIAS) & LOCAL_MASK) << 21)
+                | ((long) (y + LOCAL_BIAS) & LOCAL_MASK);
+    }
+
+    public static int localX(long key) {
+        return (int) ((key >>> 42) & LOCAL_MASK) - LOCAL_BIAS;
+    }
+
+    public static int localY(long key) {
+        return (int) (key & LOCAL_MASK) - LOCAL_BIAS;
+    }
+
+    public static int localZ(long key) {
+        return (int) ((key >>> 21) & LOCAL_MASK) - LOCAL_BIAS;
+    }
+
+    public static long packWorld(int x, int y, int z) {
+        long xx = ((long) (x + WORLD_BIAS)) & MASK_26;
+        long zz = ((long) (z + WORLD_BIAS)) & MASK_26;
+        long yy = ((long) y) & MASK_12;
+        return (xx << 38) | (zz << 12) | yy;
+    }
+}